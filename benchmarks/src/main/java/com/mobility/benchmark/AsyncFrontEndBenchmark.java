@@ -0,0 +1,109 @@
+package com.mobility.benchmark;
+
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.service.AsyncRideMatchingService;
+import com.mobility.service.RideMatchingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A wave of 10k ride requests, each holding its thread on a 50 ms downstream call, through AsyncRideMatchingService
+ * on virtual threads and on a 200-thread platform pool. The score is the time until the whole wave has completed;
+ * the platform pool works through it in waves of 200.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AsyncFrontEndBenchmark {
+
+    static final int WAVE_SIZE = 10_000;
+    static final int PLATFORM_THREADS = 200;
+    static final long DOWNSTREAM_MILLIS = 50;
+
+    public enum ThreadModel {
+        VIRTUAL, PLATFORM
+    }
+
+    @State(Scope.Benchmark)
+    public static class Wave {
+
+        @Param({"VIRTUAL", "PLATFORM"})
+        public ThreadModel threads;
+
+        RideMatchingService service;
+        AsyncRideMatchingService async;
+        Location[] pickups;
+
+        // A fresh fleet for every wave, as each request keeps its driver
+        @Setup(Level.Iteration)
+        public void setup() {
+            service = new RideMatchingService();
+            Random random = new Random(21);
+            pickups = new Location[WAVE_SIZE];
+            for (int i = 0; i < WAVE_SIZE; i++) {
+                service.registerDriver(new Driver("D" + i, "Driver" + i, PickupDistribution.UNIFORM.next(random)));
+                pickups[i] = PickupDistribution.UNIFORM.next(random);
+            }
+            ExecutorService executor = threads == ThreadModel.VIRTUAL
+                    ? Executors.newVirtualThreadPerTaskExecutor()
+                    : Executors.newFixedThreadPool(PLATFORM_THREADS);
+            async = new AsyncRideMatchingService(service, executor, WAVE_SIZE);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            async.close();
+        }
+    }
+
+    @Benchmark
+    public List<Ride> blockingWave(Wave wave) throws Exception {
+        List<CompletableFuture<Ride>> results = new ArrayList<>(WAVE_SIZE);
+        for (int i = 0; i < WAVE_SIZE; i++) {
+            String riderId = "R" + i;
+            Location pickup = wave.pickups[i];
+            results.add(wave.async.submit(service -> {
+                Ride ride = service.requestRide(riderId, pickup);
+                // Stands in for notifying the rider and driver
+                sleep(DOWNSTREAM_MILLIS);
+                return ride;
+            }));
+        }
+        List<Ride> rides = new ArrayList<>(WAVE_SIZE);
+        for (CompletableFuture<Ride> result : results) {
+            rides.add(result.get());
+        }
+        return rides;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
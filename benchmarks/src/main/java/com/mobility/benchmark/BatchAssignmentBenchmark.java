@@ -0,0 +1,99 @@
+package com.mobility.benchmark;
+
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.service.BatchRideMatcher;
+import com.mobility.service.RideMatchingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to match one full batch of 512 requests against 100k drivers, which has to stay well inside the 200 ms
+ * window. Spread pickups rarely share candidates, so the batch splits into many small assignment problems; the
+ * hotspot case keeps large groups competing for the same drivers. Run with -prof gc for the allocation per batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BatchAssignmentBenchmark {
+
+    static final int FLEET_SIZE = 100_000;
+    static final int BATCH_SIZE = 512;
+    static final int CANDIDATES_PER_REQUEST = 8;
+
+    @State(Scope.Thread)
+    public static class Batch {
+
+        @Param({"UNIFORM", "HOTSPOT"})
+        public PickupDistribution distribution;
+
+        RideMatchingService service;
+        BatchRideMatcher matcher;
+        Location[] pickups;
+        final List<Ride> rides = new ArrayList<>(BATCH_SIZE);
+        int sequence;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(13);
+            service = new RideMatchingService();
+            for (int i = 0; i < FLEET_SIZE; i++) {
+                service.registerDriver(new Driver("D" + i, "Driver" + i, distribution.next(random)));
+            }
+            pickups = new Location[FleetState.SAMPLE_SIZE];
+            for (int i = 0; i < pickups.length; i++) {
+                pickups[i] = distribution.next(random);
+            }
+            // Batches are flushed explicitly, the timer never fires during a run
+            matcher = new BatchRideMatcher(service, Duration.ofHours(1), BATCH_SIZE, CANDIDATES_PER_REQUEST);
+        }
+
+        // Restores the fleet after every batch
+        @TearDown(Level.Invocation)
+        public void completeAll() {
+            for (Ride ride : rides) {
+                service.completeRide(ride.getRideId());
+            }
+            rides.clear();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            matcher.close();
+        }
+    }
+
+    @Benchmark
+    public List<Ride> matchBatch(Batch batch) {
+        List<CompletableFuture<Ride>> futures = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            futures.add(batch.matcher.requestRide("RIDER", batch.pickups[batch.sequence++ & (FleetState.SAMPLE_SIZE - 1)]));
+        }
+        batch.matcher.flush();
+        for (CompletableFuture<Ride> future : futures) {
+            batch.rides.add(future.join());
+        }
+        return batch.rides;
+    }
+}
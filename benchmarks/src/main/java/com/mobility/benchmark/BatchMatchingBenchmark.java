@@ -0,0 +1,111 @@
+package com.mobility.benchmark;
+
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.service.BatchRideMatcher;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A surge of ride requests matched greedily one by one versus as one batch assignment.
+ * Besides throughput, the pickupDistance and matchedRides counters give the mean pickup distance of each mode.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(1)
+public class BatchMatchingBenchmark {
+
+    static final int SURGE_SIZE = 256;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public double pickupDistance;
+        public long matchedRides;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pickupDistance = 0;
+            matchedRides = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Surge {
+        BatchRideMatcher matcher;
+        final List<Ride> rides = new ArrayList<>(SURGE_SIZE);
+        int sequence;
+
+        @Setup(Level.Trial)
+        public void start(FleetState fleet) {
+            // Batches are flushed explicitly, the timer never fires during a run
+            matcher = new BatchRideMatcher(fleet.service, Duration.ofHours(1), SURGE_SIZE, 8);
+        }
+
+        @TearDown(Level.Invocation)
+        public void completeAll(FleetState fleet) {
+            for (Ride ride : rides) {
+                fleet.service.completeRide(ride.getRideId());
+            }
+            rides.clear();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            matcher.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SURGE_SIZE)
+    public void immediate(FleetState fleet, Surge surge, Outcome outcome) {
+        for (int i = 0; i < SURGE_SIZE; i++) {
+            Location pickup = fleet.pickup(surge.sequence++);
+            record(fleet.service.requestRide("RIDER", pickup), pickup, surge, outcome);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SURGE_SIZE)
+    public void batched(FleetState fleet, Surge surge, Outcome outcome) {
+        List<CompletableFuture<Ride>> futures = new ArrayList<>(SURGE_SIZE);
+        Location[] pickups = new Location[SURGE_SIZE];
+        for (int i = 0; i < SURGE_SIZE; i++) {
+            pickups[i] = fleet.pickup(surge.sequence++);
+            futures.add(surge.matcher.requestRide("RIDER", pickups[i]));
+        }
+
+        surge.matcher.flush();
+        for (int i = 0; i < SURGE_SIZE; i++) {
+            record(futures.get(i).join(), pickups[i], surge, outcome);
+        }
+    }
+
+    private static void record(Ride ride, Location pickup, Surge surge, Outcome outcome) {
+        surge.rides.add(ride);
+        outcome.pickupDistance += ride.getDriver().getCurrentLocation().distanceTo(pickup);
+        outcome.matchedRides++;
+    }
+}
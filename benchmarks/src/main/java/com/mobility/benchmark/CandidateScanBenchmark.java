@@ -0,0 +1,98 @@
+package com.mobility.benchmark;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.index.DriverIndex;
+import com.mobility.index.LinearScanDriverIndex;
+import com.mobility.index.PackedScanDriverIndex;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full scans with no spatial pruning: the stream-based reference against the packed-array scanner, once without the
+ * Vector API module (scalar fallback), once with it, and once split over the parallel scan pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class CandidateScanBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int candidates;
+
+    DriverIndex stream;
+    PackedScanDriverIndex packed;
+    PackedScanDriverIndex parallel;
+    Location[] pickups;
+    int sequence;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        stream = new LinearScanDriverIndex();
+        packed = new PackedScanDriverIndex(DistanceMetric.EUCLIDEAN, Integer.MAX_VALUE);
+        parallel = new PackedScanDriverIndex(DistanceMetric.EUCLIDEAN, 1);
+        for (int i = 0; i < candidates; i++) {
+            Driver driver = new Driver("D" + i, "Driver" + i, PickupDistribution.UNIFORM.next(random));
+            stream.add(driver);
+            packed.add(driver);
+            parallel.add(driver);
+        }
+
+        pickups = new Location[FleetState.SAMPLE_SIZE];
+        for (int i = 0; i < pickups.length; i++) {
+            pickups[i] = PickupDistribution.UNIFORM.next(random);
+        }
+    }
+
+    private Location nextPickup() {
+        return pickups[sequence++ & (FleetState.SAMPLE_SIZE - 1)];
+    }
+
+    @Benchmark
+    public List<Driver> streamScan() {
+        return stream.findNearestAvailable(nextPickup(), 10);
+    }
+
+    @Benchmark
+    public List<Driver> packedScalar() {
+        if (packed.isVectorized()) {
+            throw new IllegalStateException("Expected the scalar fallback without the vector module");
+        }
+        return packed.findNearestAvailable(nextPickup(), 10);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules=jdk.incubator.vector"})
+    public List<Driver> packedVector() {
+        if (!packed.isVectorized()) {
+            throw new IllegalStateException("Vector module not loaded");
+        }
+        return packed.findNearestAvailable(nextPickup(), 10);
+    }
+
+    // Only pays off with spare cores; chunks are scanned on a dedicated fork-join pool
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules=jdk.incubator.vector"})
+    public List<Driver> packedVectorParallel() {
+        return parallel.findNearestAvailable(nextPickup(), 10);
+    }
+}
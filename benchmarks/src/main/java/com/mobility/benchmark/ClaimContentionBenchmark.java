@@ -0,0 +1,107 @@
+package com.mobility.benchmark;
+
+import com.mobility.enums.IndexType;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.service.RideMatchingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 64 threads requesting rides at once, either all at one taxi rank, where every request computes the same nearest
+ * drivers, or each at its own pickup across the city. Sampled latency percentiles (p99 included) show what lost
+ * claims cost at the rank; the spread case has no driver two threads want, so it shows the cost without contention.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(64)
+public class ClaimContentionBenchmark {
+
+    static final int DRIVERS_PER_PICKUP = 64;
+    static final int PICKUPS = 64;
+    static final Location RANK = new Location(40.6413, -73.7781);
+
+    public enum Pickups {
+        // One pickup shared by every thread
+        RANK,
+        // A pickup per thread, each with its own drivers
+        SPREAD
+    }
+
+    @State(Scope.Benchmark)
+    public static class Fleet {
+
+        @Param({"RANK", "SPREAD"})
+        public Pickups pickups;
+
+        @Param({"SPATIAL_GRID", "KD_TREE"})
+        public IndexType indexType;
+
+        RideMatchingService service;
+        Location[] locations;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            service = new RideMatchingService(indexType);
+            Random random = new Random(17);
+            locations = new Location[PICKUPS];
+            for (int p = 0; p < PICKUPS; p++) {
+                Location pickup = pickups == Pickups.RANK ? RANK : PickupDistribution.UNIFORM.next(random);
+                locations[p] = pickup;
+                // Queued at the pickup: many share its exact position
+                for (int i = 0; i < DRIVERS_PER_PICKUP; i++) {
+                    service.registerDriver(new Driver("D" + p + "-" + i, "Driver" + i,
+                            new Location(pickup.getLatitude() + random.nextInt(20) * 0.0001, pickup.getLongitude())));
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Rider {
+
+        Location pickup;
+        Ride ride;
+
+        @Setup(Level.Trial)
+        public void setup(Fleet fleet) {
+            pickup = fleet.locations[fleet.threads.getAndIncrement() % PICKUPS];
+        }
+
+        // Restores the fleet after every request
+        @TearDown(Level.Invocation)
+        public void complete(Fleet fleet) {
+            if (ride != null) {
+                fleet.service.completeRide(ride.getRideId());
+                ride = null;
+            }
+        }
+    }
+
+    @Benchmark
+    public Ride requestRide(Fleet fleet, Rider rider) {
+        rider.ride = fleet.service.requestRide("RIDER", rider.pickup);
+        return rider.ride;
+    }
+}
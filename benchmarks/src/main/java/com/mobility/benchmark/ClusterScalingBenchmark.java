@@ -0,0 +1,186 @@
+package com.mobility.benchmark;
+
+import com.mobility.ClusterNodeMain;
+import com.mobility.cluster.SocketTransport;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.exception.DriverAllocationException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.service.ClusteredRideMatchingService;
+import com.mobility.service.ShardLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A cluster of 1 to 4 nodes on this machine, talking over loopback sockets. The benchmark JVM hosts node 0 and
+ * drives the load through it; the other nodes are separate JVMs started from the same classpath. Scaling needs
+ * at least as many free cores as nodes plus producer threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(8)
+public class ClusterScalingBenchmark {
+
+    private static final double TILE_SIZE_DEGREES = 0.05;
+    private static final long NODE_START_TIMEOUT_MILLIS = 30_000;
+
+    @State(Scope.Benchmark)
+    public static class ClusterState {
+
+        @Param({"1", "2", "4"})
+        public int nodes;
+
+        @Param({"20000"})
+        public int fleetSize;
+
+        @Param({"UNIFORM"})
+        public PickupDistribution distribution;
+
+        ClusteredRideMatchingService entry;
+        List<Process> processes;
+        String[] driverIds;
+        Location[] pickups;
+        double[] homeLatitudes;
+        double[] homeLongitudes;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, InterruptedException {
+            List<InetSocketAddress> addresses = freeLoopbackAddresses(nodes);
+            String nodeList = addresses.stream()
+                    .map(address -> address.getHostString() + ":" + address.getPort())
+                    .collect(Collectors.joining(","));
+
+            processes = new ArrayList<>();
+            for (int node = 1; node < nodes; node++) {
+                processes.add(new ProcessBuilder(javaCommand(), "-Xmx1g", "-cp", System.getProperty("java.class.path"),
+                        ClusterNodeMain.class.getName(), String.valueOf(node), nodeList, String.valueOf(TILE_SIZE_DEGREES))
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start());
+            }
+            for (int node = 1; node < nodes; node++) {
+                awaitListening(addresses.get(node));
+            }
+
+            entry = new ClusteredRideMatchingService(new SocketTransport(0, addresses),
+                    ShardLayout.tiles(nodes, TILE_SIZE_DEGREES), IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN);
+
+            Random random = new Random(42);
+            driverIds = new String[fleetSize];
+            homeLatitudes = new double[fleetSize];
+            homeLongitudes = new double[fleetSize];
+            for (int i = 0; i < fleetSize; i++) {
+                Location home = distribution.next(random);
+                driverIds[i] = "D" + i;
+                homeLatitudes[i] = home.getLatitude();
+                homeLongitudes[i] = home.getLongitude();
+                entry.registerDriver(new Driver(driverIds[i], "Driver" + i, home));
+            }
+
+            pickups = new Location[FleetState.SAMPLE_SIZE];
+            for (int i = 0; i < FleetState.SAMPLE_SIZE; i++) {
+                pickups[i] = distribution.next(random);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            entry.close();
+            for (Process process : processes) {
+                process.destroy();
+                process.waitFor(10, TimeUnit.SECONDS);
+            }
+        }
+
+        private static String javaCommand() {
+            return ProcessHandle.current().info().command().orElse("java");
+        }
+
+        private static void awaitListening(InetSocketAddress address) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + NODE_START_TIMEOUT_MILLIS;
+            while (true) {
+                try (Socket socket = new Socket()) {
+                    socket.connect(address, 100);
+                    return;
+                } catch (IOException e) {
+                    if (System.currentTimeMillis() > deadline) {
+                        throw new IllegalStateException("Cluster node at " + address + " did not start", e);
+                    }
+                    Thread.sleep(50);
+                }
+            }
+        }
+
+        private static List<InetSocketAddress> freeLoopbackAddresses(int count) throws IOException {
+            List<ServerSocket> sockets = new ArrayList<>();
+            try {
+                List<InetSocketAddress> addresses = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    ServerSocket socket = new ServerSocket(0);
+                    sockets.add(socket);
+                    addresses.add(new InetSocketAddress("127.0.0.1", socket.getLocalPort()));
+                }
+                return addresses;
+            } finally {
+                for (ServerSocket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int sequence = ThreadLocalRandom.current().nextInt();
+    }
+
+    @Benchmark
+    public void requestAndCompleteRide(ClusterState state, Cursor cursor, Blackhole blackhole) {
+        Location pickup = state.pickups[cursor.sequence++ & (FleetState.SAMPLE_SIZE - 1)];
+        try {
+            Ride ride = state.entry.requestRide("RIDER", pickup);
+            state.entry.completeRide(ride.getRideId());
+        } catch (NoAvailableDriverException | DriverAllocationException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void gpsPing(ClusterState state, Cursor cursor) {
+        int sequence = cursor.sequence++;
+        int driver = Math.floorMod(sequence * 31, state.fleetSize);
+        state.entry.updateDriverLocation(state.driverIds[driver],
+                state.homeLatitudes[driver] + (sequence & 15) * 0.00001,
+                state.homeLongitudes[driver] + (sequence & 15) * 0.00001);
+    }
+}
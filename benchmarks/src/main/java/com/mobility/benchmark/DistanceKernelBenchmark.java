@@ -0,0 +1,106 @@
+package com.mobility.benchmark;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceCalculator;
+import com.mobility.utils.DistanceKernel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one candidate comparison in the nearest-driver loop: the original sqrt distance, the squared ranking
+ * kernels with and without the bounding-box pre-filter, and exact haversine. Scores are per candidate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DistanceKernelBenchmark {
+
+    static final int CANDIDATES = 4096;
+
+    Location query;
+    Location[] locations;
+    double[] latitudes;
+    double[] longitudes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        query = PickupDistribution.UNIFORM.next(random);
+        locations = new Location[CANDIDATES];
+        latitudes = new double[CANDIDATES];
+        longitudes = new double[CANDIDATES];
+        for (int i = 0; i < CANDIDATES; i++) {
+            locations[i] = PickupDistribution.UNIFORM.next(random);
+            latitudes[i] = locations[i].getLatitude();
+            longitudes[i] = locations[i].getLongitude();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public double euclideanSqrt() {
+        double best = Double.POSITIVE_INFINITY;
+        for (Location location : locations) {
+            best = Math.min(best, location.distanceTo(query));
+        }
+        return best;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public double euclideanSquared() {
+        return nearest(DistanceKernel.around(query, DistanceMetric.EUCLIDEAN));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public double equirectangularSquared() {
+        return nearest(DistanceKernel.around(query, DistanceMetric.HAVERSINE));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public double equirectangularBoundingBox() {
+        DistanceKernel kernel = DistanceKernel.around(query, DistanceMetric.HAVERSINE);
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < CANDIDATES; i++) {
+            best = Math.min(best, kernel.rankWithin(latitudes[i], longitudes[i], best));
+        }
+        return best;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public double haversine() {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < CANDIDATES; i++) {
+            best = Math.min(best, DistanceCalculator.haversineMeters(query.getLatitude(), query.getLongitude(), latitudes[i], longitudes[i]));
+        }
+        return best;
+    }
+
+    private double nearest(DistanceKernel kernel) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < CANDIDATES; i++) {
+            best = Math.min(best, kernel.rank(latitudes[i], longitudes[i]));
+        }
+        return best;
+    }
+}
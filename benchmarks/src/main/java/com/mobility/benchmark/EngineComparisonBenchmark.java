@@ -0,0 +1,132 @@
+package com.mobility.benchmark;
+
+import com.mobility.exception.DriverAllocationException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.service.EventLoopRideMatchingService;
+import com.mobility.service.RideMatchingEngine;
+import com.mobility.service.RideMatchingService;
+import com.mobility.service.ShardedRideMatchingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shared-state service against the region-sharded service and the single-writer event loop under the same
+ * mixed load: rides requested and completed straight away, and GPS pings. Run with -t to vary producer threads and
+ * -p shards to vary shard count.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(4)
+public class EngineComparisonBenchmark {
+
+    public enum Engine {
+        SHARED_STATE,
+        SHARDED,
+        EVENT_LOOP
+    }
+
+    @State(Scope.Benchmark)
+    public static class EngineState {
+
+        @Param({"SHARED_STATE", "SHARDED", "EVENT_LOOP"})
+        public Engine engine;
+
+        @Param({"10000", "100000"})
+        public int fleetSize;
+
+        @Param({"UNIFORM", "HOTSPOT"})
+        public PickupDistribution distribution;
+
+        // Sharded engines only; 0 means one shard per available processor
+        @Param({"0"})
+        public int shards;
+
+        RideMatchingEngine matching;
+        String[] driverIds;
+        Location[] pickups;
+        double[] homeLatitudes;
+        double[] homeLongitudes;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            int shardCount = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+            matching = switch (engine) {
+                case SHARED_STATE -> new RideMatchingService();
+                case SHARDED -> new ShardedRideMatchingService(shardCount);
+                case EVENT_LOOP -> new EventLoopRideMatchingService(shardCount);
+            };
+
+            Random random = new Random(42);
+            driverIds = new String[fleetSize];
+            homeLatitudes = new double[fleetSize];
+            homeLongitudes = new double[fleetSize];
+            for (int i = 0; i < fleetSize; i++) {
+                Location home = distribution.next(random);
+                driverIds[i] = "D" + i;
+                homeLatitudes[i] = home.getLatitude();
+                homeLongitudes[i] = home.getLongitude();
+                matching.registerDriver(new Driver(driverIds[i], "Driver" + i, home));
+            }
+
+            pickups = new Location[FleetState.SAMPLE_SIZE];
+            for (int i = 0; i < FleetState.SAMPLE_SIZE; i++) {
+                pickups[i] = distribution.next(random);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (matching instanceof EventLoopRideMatchingService eventLoop) {
+                eventLoop.close();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int sequence = ThreadLocalRandom.current().nextInt();
+    }
+
+    @Benchmark
+    public void requestAndCompleteRide(EngineState state, Cursor cursor, Blackhole blackhole) {
+        Location pickup = state.pickups[cursor.sequence++ & (FleetState.SAMPLE_SIZE - 1)];
+        try {
+            Ride ride = state.matching.requestRide("RIDER", pickup);
+            state.matching.completeRide(ride.getRideId());
+        } catch (NoAvailableDriverException | DriverAllocationException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void gpsPing(EngineState state, Cursor cursor) {
+        int sequence = cursor.sequence++;
+        int driver = Math.floorMod(sequence * 31, state.fleetSize);
+        state.matching.updateDriverLocation(state.driverIds[driver],
+                state.homeLatitudes[driver] + (sequence & 15) * 0.00001,
+                state.homeLongitudes[driver] + (sequence & 15) * 0.00001);
+    }
+}
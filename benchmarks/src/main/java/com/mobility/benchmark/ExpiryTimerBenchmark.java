@@ -0,0 +1,83 @@
+package com.mobility.benchmark;
+
+import com.mobility.utils.TimerWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduling a ride acknowledgement timeout and cancelling it again (the driver accepted), with a backlog of
+ * timeouts already pending: the expiry timer wheel against a ScheduledThreadPoolExecutor, whose delay queue is a
+ * binary heap (cancelled tasks removed, so the heap stays at the backlog size).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExpiryTimerBenchmark {
+
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final Runnable NOOP = () -> {
+    };
+
+    @State(Scope.Benchmark)
+    public static class Timers {
+
+        @Param({"10000", "1000000"})
+        public int pending;
+
+        TimerWheel<Object> wheel;
+        ScheduledThreadPoolExecutor executor;
+        Object task;
+        long sequence;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            wheel = new TimerWheel<>(TimeUnit.MILLISECONDS.toNanos(100), 512, System.nanoTime());
+            executor = new ScheduledThreadPoolExecutor(1);
+            executor.setRemoveOnCancelPolicy(true);
+            task = new Object();
+            // Spread over a few minutes, like leases renewed at different times
+            for (int i = 0; i < pending; i++) {
+                long delay = TIMEOUT_NANOS + (i * 7919L % 180) * TimeUnit.SECONDS.toNanos(1);
+                wheel.schedule(task, delay);
+                executor.schedule(NOOP, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            executor.shutdownNow();
+        }
+
+        long nextDelay() {
+            return TIMEOUT_NANOS + (sequence++ & 1023) * 1_000_000L;
+        }
+    }
+
+    @Benchmark
+    public boolean timerWheel(Timers timers) {
+        return timers.wheel.schedule(timers.task, timers.nextDelay()).cancel();
+    }
+
+    @Benchmark
+    public boolean scheduledExecutor(Timers timers) {
+        ScheduledFuture<?> future = timers.executor.schedule(NOOP, timers.nextDelay(), TimeUnit.NANOSECONDS);
+        return future.cancel(false);
+    }
+}
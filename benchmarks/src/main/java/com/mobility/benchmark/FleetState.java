@@ -0,0 +1,92 @@
+package com.mobility.benchmark;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.service.RideMatchingService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Service pre-loaded with a fleet, plus pre-generated pickups and moves so benchmarks measure only the service.
+ */
+@State(Scope.Benchmark)
+public class FleetState {
+
+    static final int SAMPLE_SIZE = 1 << 16;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int fleetSize;
+
+    @Param({"UNIFORM", "HOTSPOT"})
+    public PickupDistribution distribution;
+
+    @Param({"SPATIAL_GRID", "KD_TREE", "LINEAR_SCAN"})
+    public IndexType indexType;
+
+    // Override with -p distanceMetric=HAVERSINE to compare ranking kernels end to end
+    @Param({"EUCLIDEAN"})
+    public DistanceMetric distanceMetric;
+
+    RideMatchingService service;
+    String[] driverIds;
+    Location[] pickups;
+    Location[] moves;
+    double[] homeLatitudes;
+    double[] homeLongitudes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+
+        service = new RideMatchingService(indexType, distanceMetric);
+        driverIds = new String[fleetSize];
+        homeLatitudes = new double[fleetSize];
+        homeLongitudes = new double[fleetSize];
+        for (int i = 0; i < fleetSize; i++) {
+            Location home = distribution.next(random);
+            driverIds[i] = "D" + i;
+            homeLatitudes[i] = home.getLatitude();
+            homeLongitudes[i] = home.getLongitude();
+            service.registerDriver(new Driver(driverIds[i], "Driver" + i, home));
+        }
+
+        pickups = new Location[SAMPLE_SIZE];
+        moves = new Location[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            pickups[i] = distribution.next(random);
+            moves[i] = distribution.next(random);
+        }
+    }
+
+    Location pickup(int sequence) {
+        return pickups[sequence & (SAMPLE_SIZE - 1)];
+    }
+
+    Location move(int sequence) {
+        return moves[sequence & (SAMPLE_SIZE - 1)];
+    }
+
+    String driverId(int sequence) {
+        return driverIds[driverIndex(sequence)];
+    }
+
+    int driverIndex(int sequence) {
+        return Math.floorMod(sequence * 31, fleetSize);
+    }
+
+    // A GPS ping a few metres from the driver's starting point
+    double pingLatitude(int sequence) {
+        return homeLatitudes[driverIndex(sequence)] + (sequence & 15) * 0.00001;
+    }
+
+    double pingLongitude(int sequence) {
+        return homeLongitudes[driverIndex(sequence)] + (sequence & 15) * 0.00001;
+    }
+}
@@ -0,0 +1,131 @@
+package com.mobility.benchmark;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.exception.DriverAllocationException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.service.RideMatchingService;
+import com.mobility.store.WriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of durability: the same request/complete and GPS-ping load with and without a write-ahead log. Every
+ * request and completion waits for its record to be synced, so the journaled figures depend on the disk; run with
+ * -t to see concurrent commits share fsyncs.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(8)
+public class JournalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class JournalState {
+
+        @Param({"false", "true"})
+        public boolean journaled;
+
+        @Param({"10000"})
+        public int fleetSize;
+
+        @Param({"UNIFORM"})
+        public PickupDistribution distribution;
+
+        Path directory;
+        WriteAheadLog journal;
+        RideMatchingService service;
+        String[] driverIds;
+        Location[] pickups;
+        double[] homeLatitudes;
+        double[] homeLongitudes;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            if (journaled) {
+                directory = Files.createTempDirectory("journal-benchmark");
+                journal = WriteAheadLog.open(directory.resolve("rides.wal"));
+                service = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN, journal);
+            } else {
+                service = new RideMatchingService();
+            }
+
+            Random random = new Random(42);
+            driverIds = new String[fleetSize];
+            homeLatitudes = new double[fleetSize];
+            homeLongitudes = new double[fleetSize];
+            for (int i = 0; i < fleetSize; i++) {
+                Location home = distribution.next(random);
+                driverIds[i] = "D" + i;
+                homeLatitudes[i] = home.getLatitude();
+                homeLongitudes[i] = home.getLongitude();
+                service.registerDriver(new Driver(driverIds[i], "Driver" + i, home));
+            }
+
+            pickups = new Location[FleetState.SAMPLE_SIZE];
+            for (int i = 0; i < FleetState.SAMPLE_SIZE; i++) {
+                pickups[i] = distribution.next(random);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            if (journal != null) {
+                System.out.println("\nfsyncs: " + journal.getSyncCount() + ", journal bytes: " + journal.size());
+                journal.close();
+                Files.deleteIfExists(journal.getPath());
+                Files.deleteIfExists(directory);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int sequence = ThreadLocalRandom.current().nextInt();
+    }
+
+    @Benchmark
+    public void requestAndCompleteRide(JournalState state, Cursor cursor, Blackhole blackhole) {
+        Location pickup = state.pickups[cursor.sequence++ & (FleetState.SAMPLE_SIZE - 1)];
+        try {
+            Ride ride = state.service.requestRide("RIDER", pickup);
+            state.service.completeRide(ride.getRideId());
+        } catch (NoAvailableDriverException | DriverAllocationException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void gpsPing(JournalState state, Cursor cursor) {
+        int sequence = cursor.sequence++;
+        int driver = Math.floorMod(sequence * 31, state.fleetSize);
+        state.service.updateDriverLocation(state.driverIds[driver],
+                state.homeLatitudes[driver] + (sequence & 15) * 0.00001,
+                state.homeLongitudes[driver] + (sequence & 15) * 0.00001);
+    }
+}
@@ -0,0 +1,73 @@
+package com.mobility.benchmark;
+
+import com.mobility.model.LocationUpdateBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gateway-sized bursts of GPS fixes applied through updateDriverLocations versus one updateDriverLocation call each.
+ * Scores are per fix.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LocationIngestionBenchmark {
+
+    static final int BATCH_SIZE = 4096;
+
+    @State(Scope.Thread)
+    public static class Fixes {
+
+        // Share of fixes that relocate the driver far enough to change index cell
+        @Param({"0.0", "0.2"})
+        public double relocationRate;
+
+        final LocationUpdateBatch batch = new LocationUpdateBatch(BATCH_SIZE);
+        int sequence;
+
+        @Setup(Level.Invocation)
+        public void fill(FleetState fleet) {
+            batch.clear();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                int next = sequence++;
+                // Every driver appears twice per burst, as when a gateway flushes late
+                int driver = next >> 1;
+                if ((next % 100) < relocationRate * 100) {
+                    batch.add(fleet.driverId(driver), fleet.move(next).getLatitude(), fleet.move(next).getLongitude());
+                } else {
+                    batch.add(fleet.driverId(driver), fleet.pingLatitude(driver) + (next & 1) * 0.00001, fleet.pingLongitude(driver));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int batched(FleetState fleet, Fixes fixes) {
+        return fleet.service.updateDriverLocations(fixes.batch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void perCall(FleetState fleet, Fixes fixes) {
+        LocationUpdateBatch batch = fixes.batch;
+        for (int i = 0; i < batch.size(); i++) {
+            fleet.service.updateDriverLocation(batch.getDriverId(i), batch.getLatitude(i), batch.getLongitude(i));
+        }
+    }
+}
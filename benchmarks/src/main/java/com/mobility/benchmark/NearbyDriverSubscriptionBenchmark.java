@@ -0,0 +1,121 @@
+package com.mobility.benchmark;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.model.Driver;
+import com.mobility.model.DriverDelta;
+import com.mobility.model.Location;
+import com.mobility.service.DriverSubscription;
+import com.mobility.service.RideMatchingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rider map screens over one metro: what a GPS ping costs with 0 to 100k open nearest-driver subscriptions, and a
+ * ping plus one screen refresh, by polling the screen's subscription or by re-running the nearest-driver query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class NearbyDriverSubscriptionBenchmark {
+
+    private static final int COUNT = 10;
+    // About a kilometre
+    private static final double RADIUS = 0.01;
+
+    @State(Scope.Benchmark)
+    public static class Screens {
+
+        @Param({"0", "1000", "100000"})
+        public int subscriptions;
+
+        @Param({"10000"})
+        public int fleetSize;
+
+        @Param({"UNIFORM"})
+        public PickupDistribution distribution;
+
+        RideMatchingService service;
+        DriverSubscription[] screens;
+        Location[] viewpoints;
+        String[] driverIds;
+        double[] homeLatitudes;
+        double[] homeLongitudes;
+        int sequence;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            service = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN);
+            Random random = new Random(42);
+            driverIds = new String[fleetSize];
+            homeLatitudes = new double[fleetSize];
+            homeLongitudes = new double[fleetSize];
+            for (int i = 0; i < fleetSize; i++) {
+                Location home = distribution.next(random);
+                driverIds[i] = "D" + i;
+                homeLatitudes[i] = home.getLatitude();
+                homeLongitudes[i] = home.getLongitude();
+                service.registerDriver(new Driver(driverIds[i], "Driver" + i, home));
+            }
+
+            screens = new DriverSubscription[subscriptions];
+            viewpoints = new Location[Math.max(subscriptions, 1)];
+            for (int i = 0; i < viewpoints.length; i++) {
+                viewpoints[i] = distribution.next(random);
+            }
+            for (int i = 0; i < subscriptions; i++) {
+                screens[i] = service.subscribeNearestDrivers(viewpoints[i], COUNT, RADIUS);
+                screens[i].poll();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            for (DriverSubscription screen : screens) {
+                screen.close();
+            }
+        }
+    }
+
+    // Drivers jitter around home, so the deltas each ping produces stay the same through the run
+    @Benchmark
+    public void gpsPing(Screens screens) {
+        int sequence = screens.sequence++;
+        int driver = Math.floorMod(sequence * 31, screens.fleetSize);
+        screens.service.updateDriverLocation(screens.driverIds[driver],
+                screens.homeLatitudes[driver] + (sequence & 15) * 0.00001,
+                screens.homeLongitudes[driver] + (sequence & 15) * 0.00001);
+    }
+
+    // One ping and one screen refresh: the screen's deltas, against the same pings with screens re-querying instead
+    // (run at subscriptions=0 for a service with no subscriptions to update)
+    @Benchmark
+    public List<DriverDelta> pingAndPoll(Screens screens) {
+        gpsPing(screens);
+        return screens.subscriptions == 0 ? List.of() : screens.screens[screens.sequence % screens.subscriptions].poll();
+    }
+
+    @Benchmark
+    public List<Driver> pingAndRequery(Screens screens) {
+        gpsPing(screens);
+        Location viewpoint = screens.viewpoints[screens.sequence % screens.viewpoints.length];
+        return screens.service.getNearestDrivers(viewpoint, COUNT, RADIUS);
+    }
+}
@@ -0,0 +1,44 @@
+package com.mobility.benchmark;
+
+import com.mobility.model.Location;
+
+import java.util.Random;
+
+public enum PickupDistribution {
+
+    // Spread evenly over a metro-sized box
+    UNIFORM {
+        @Override
+        public Location next(Random random) {
+            return uniform(random);
+        }
+    },
+
+    // Most traffic clusters around a few airports and venues, the rest is spread over the metro
+    HOTSPOT {
+        @Override
+        public Location next(Random random) {
+            if (random.nextInt(10) < 2) {
+                return uniform(random);
+            }
+            double[] hotspot = HOTSPOTS[random.nextInt(HOTSPOTS.length)];
+            return new Location(hotspot[0] + random.nextGaussian() * 0.003, hotspot[1] + random.nextGaussian() * 0.003);
+        }
+    };
+
+    private static final double MIN_LATITUDE = 40.50;
+    private static final double MIN_LONGITUDE = -74.25;
+    private static final double SPAN = 0.50;
+
+    private static final double[][] HOTSPOTS = {
+            {40.6413, -73.7781},
+            {40.7769, -73.8740},
+            {40.8296, -73.9262}
+    };
+
+    public abstract Location next(Random random);
+
+    private static Location uniform(Random random) {
+        return new Location(MIN_LATITUDE + random.nextDouble() * SPAN, MIN_LONGITUDE + random.nextDouble() * SPAN);
+    }
+}
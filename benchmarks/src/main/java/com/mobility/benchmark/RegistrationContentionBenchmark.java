@@ -0,0 +1,60 @@
+package com.mobility.benchmark;
+
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-driver reads running alongside a thread that keeps onboarding drivers, against the same reads alone.
+ * Compare the reader score of the two groups: the closer they are, the less registration stalls matching.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RegistrationContentionBenchmark {
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int sequence;
+    }
+
+    @Benchmark
+    @Group("readersWithRegistrations")
+    @GroupThreads(3)
+    public List<Driver> reader(FleetState fleet, Cursor cursor) {
+        return fleet.service.getNearestDrivers(fleet.pickup(cursor.sequence++), 5);
+    }
+
+    // Cycles through a fixed range of new IDs so the fleet does not grow without bound
+    @Benchmark
+    @Group("readersWithRegistrations")
+    @GroupThreads(1)
+    public void registrar(FleetState fleet, Cursor cursor) {
+        int next = cursor.sequence++ & (FleetState.SAMPLE_SIZE - 1);
+        Location home = fleet.move(next);
+        fleet.service.registerDriver(new Driver("N" + next, "New" + next, home));
+    }
+
+    @Benchmark
+    @Group("readersAlone")
+    @GroupThreads(3)
+    public List<Driver> readerAlone(FleetState fleet, Cursor cursor) {
+        return fleet.service.getNearestDrivers(fleet.pickup(cursor.sequence++), 5);
+    }
+}
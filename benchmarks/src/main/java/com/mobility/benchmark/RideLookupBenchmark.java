@@ -0,0 +1,117 @@
+package com.mobility.benchmark;
+
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.utils.ConcurrentLongMap;
+import com.mobility.utils.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ride table lookups and churn: ConcurrentHashMap keyed by the string ride ID against ConcurrentLongMap keyed by
+ * the ride key, as looked up by key and as parsed from the string ID at the API edge. Run with -prof gc for the
+ * allocation per add/remove.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(4)
+public class RideLookupBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class RideTables {
+
+        @Param({"10000", "1000000"})
+        public int rides;
+
+        ConcurrentHashMap<String, Ride> byId;
+        ConcurrentLongMap<Ride> byKey;
+        String[] rideIds;
+        long[] rideKeys;
+        Ride[] spare;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Driver driver = new Driver("D1", "Driver1", new Location(40.75, -74.00));
+            IdGenerator ids = new IdGenerator(IdGenerator.STANDALONE_ORIGIN);
+            byId = new ConcurrentHashMap<>();
+            byKey = new ConcurrentLongMap<>(64);
+            rideIds = new String[rides];
+            rideKeys = new long[rides];
+            for (int i = 0; i < rides; i++) {
+                Ride ride = new Ride(ids.nextRideKey(), "R" + i, driver,
+                        driver.getCurrentLocation());
+                // Copies, so the map lookups do not find the key by identity
+                rideIds[i] = new String(ride.getRideId());
+                rideKeys[i] = ride.getRideKey();
+                byId.put(ride.getRideId(), ride);
+                byKey.put(ride.getRideKey(), ride);
+            }
+
+            // Rides added and removed again by the churn benchmarks, one slot per thread
+            spare = new Ride[1024];
+            for (int i = 0; i < spare.length; i++) {
+                spare[i] = new Ride(ids.nextRideKey(), "S" + i, driver,
+                        driver.getCurrentLocation());
+                spare[i].getRideId();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int sequence = ThreadLocalRandom.current().nextInt(1 << 20);
+        int slot = ThreadLocalRandom.current().nextInt(1024);
+
+        int next(int bound) {
+            return Math.floorMod(sequence++ * 0x9E3779B9, bound);
+        }
+    }
+
+    @Benchmark
+    public Ride stringMapGet(RideTables tables, Cursor cursor) {
+        return tables.byId.get(tables.rideIds[cursor.next(tables.rides)]);
+    }
+
+    @Benchmark
+    public Ride longMapGet(RideTables tables, Cursor cursor) {
+        return tables.byKey.get(tables.rideKeys[cursor.next(tables.rides)]);
+    }
+
+    @Benchmark
+    public Ride longMapGetParsed(RideTables tables, Cursor cursor) {
+        return tables.byKey.get(IdGenerator.parseRideId(tables.rideIds[cursor.next(tables.rides)]));
+    }
+
+    @Benchmark
+    public boolean stringMapChurn(RideTables tables, Cursor cursor) {
+        Ride ride = tables.spare[cursor.slot];
+        tables.byId.put(ride.getRideId(), ride);
+        return tables.byId.remove(ride.getRideId(), ride);
+    }
+
+    @Benchmark
+    public boolean longMapChurn(RideTables tables, Cursor cursor) {
+        Ride ride = tables.spare[cursor.slot];
+        tables.byKey.put(ride.getRideKey(), ride);
+        return tables.byKey.remove(ride.getRideKey(), ride);
+    }
+}
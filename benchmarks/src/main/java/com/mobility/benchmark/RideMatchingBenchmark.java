@@ -0,0 +1,125 @@
+package com.mobility.benchmark;
+
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Core RideMatchingService operations. Throughput and sampled latency percentiles are reported for each;
+ * add -prof gc for allocation rate and -t for thread count.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RideMatchingBenchmark {
+
+    // Rides are requested and completed in batches so the fleet is restored between invocations
+    static final int RIDE_BATCH = 64;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int sequence = ThreadLocalRandom.current().nextInt();
+
+        int next() {
+            return sequence++;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RequestedRides {
+        final List<String> rideIds = new ArrayList<>(RIDE_BATCH);
+
+        @TearDown(Level.Invocation)
+        public void completeAll(FleetState fleet) {
+            for (String rideId : rideIds) {
+                fleet.service.completeRide(rideId);
+            }
+            rideIds.clear();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OpenRides {
+        final List<String> rideIds = new ArrayList<>(RIDE_BATCH);
+
+        @Setup(Level.Invocation)
+        public void openAll(FleetState fleet, Cursor cursor) {
+            rideIds.clear();
+            for (int i = 0; i < RIDE_BATCH; i++) {
+                try {
+                    rideIds.add(fleet.service.requestRide("RIDER", fleet.pickup(cursor.next())).getRideId());
+                } catch (NoAvailableDriverException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Driver> getNearestDrivers(FleetState fleet, Cursor cursor) {
+        return fleet.service.getNearestDrivers(fleet.pickup(cursor.next()), 5);
+    }
+
+    @Benchmark
+    public void updateDriverLocation(FleetState fleet, Cursor cursor) {
+        int sequence = cursor.next();
+        fleet.service.updateDriverLocation(fleet.driverId(sequence), fleet.move(sequence));
+    }
+
+    // Small GPS jitter as a gateway would send it, building a Location per ping
+    @Benchmark
+    public void gpsPingLocation(FleetState fleet, Cursor cursor) {
+        int sequence = cursor.next();
+        fleet.service.updateDriverLocation(fleet.driverId(sequence),
+                new Location(fleet.pingLatitude(sequence), fleet.pingLongitude(sequence)));
+    }
+
+    // Same pings through the primitive overload; compare allocation rates with -prof gc
+    @Benchmark
+    public void gpsPingCoordinates(FleetState fleet, Cursor cursor) {
+        int sequence = cursor.next();
+        fleet.service.updateDriverLocation(fleet.driverId(sequence), fleet.pingLatitude(sequence), fleet.pingLongitude(sequence));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RIDE_BATCH)
+    public void requestRide(FleetState fleet, Cursor cursor, RequestedRides requested, Blackhole blackhole) {
+        for (int i = 0; i < RIDE_BATCH; i++) {
+            try {
+                requested.rideIds.add(fleet.service.requestRide("RIDER", fleet.pickup(cursor.next())).getRideId());
+            } catch (NoAvailableDriverException e) {
+                // Small fleets under many threads can run dry within a batch
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RIDE_BATCH)
+    public void completeRide(FleetState fleet, OpenRides open) {
+        for (String rideId : open.rideIds) {
+            fleet.service.completeRide(rideId);
+        }
+    }
+}
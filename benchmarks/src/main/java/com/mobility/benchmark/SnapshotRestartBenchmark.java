@@ -0,0 +1,117 @@
+package com.mobility.benchmark;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.service.RideMatchingService;
+import com.mobility.store.JournalRecord;
+import com.mobility.store.WriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from process restart to the first matched ride: opening the journal, rebuilding the service and serving one
+ * request. JOURNAL replays every record from the start; SNAPSHOT loads the mapped snapshot and replays nothing,
+ * as after a checkpoint.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class SnapshotRestartBenchmark {
+
+    public enum Source {
+        JOURNAL,
+        SNAPSHOT
+    }
+
+    @State(Scope.Benchmark)
+    public static class RestartState {
+
+        @Param({"JOURNAL", "SNAPSHOT"})
+        public Source source;
+
+        @Param({"1000000"})
+        public int fleetSize;
+
+        @Param({"500000"})
+        public int openRides;
+
+        Path directory;
+        Path journalPath;
+        Path snapshotPath;
+        Location pickup;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("restart-benchmark");
+            journalPath = directory.resolve("rides.wal");
+            snapshotPath = directory.resolve("rides.snapshot");
+
+            // Written straight to the log: going through the service would sync every registration
+            Random random = new Random(42);
+            try (WriteAheadLog journal = WriteAheadLog.open(journalPath)) {
+                for (int i = 0; i < fleetSize; i++) {
+                    Location home = PickupDistribution.UNIFORM.next(random);
+                    journal.append(new JournalRecord.DriverRegistered("D" + i, "Driver" + i,
+                            home.getLatitude(), home.getLongitude(), true));
+                }
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < openRides; i++) {
+                    Location home = PickupDistribution.UNIFORM.next(random);
+                    journal.append(new JournalRecord.RideClaimed("RIDE-" + (i + 1), "R" + i, "D" + (i * 2 % fleetSize),
+                            home.getLatitude(), home.getLongitude(), now));
+                }
+            }
+            pickup = PickupDistribution.UNIFORM.next(random);
+
+            if (source == Source.SNAPSHOT) {
+                try (WriteAheadLog journal = WriteAheadLog.open(journalPath)) {
+                    new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN, journal)
+                            .writeSnapshot(snapshotPath);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            // The journal's segments and the snapshot
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Benchmark
+    public Ride restartAndMatch(RestartState state) {
+        try (WriteAheadLog journal = WriteAheadLog.open(state.journalPath)) {
+            RideMatchingService service = state.source == Source.SNAPSHOT
+                    ? new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN, journal, state.snapshotPath)
+                    : new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN, journal);
+            return service.requestRide("FIRST", state.pickup);
+        }
+    }
+}
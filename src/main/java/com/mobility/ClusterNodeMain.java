@@ -0,0 +1,38 @@
+package com.mobility;
+
+import com.mobility.cluster.SocketTransport;
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.service.ClusteredRideMatchingService;
+import com.mobility.service.ShardLayout;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs one cluster node until the process is stopped, e.g. for three nodes on one machine:
+ * ClusterNodeMain 0 127.0.0.1:7100,127.0.0.1:7101,127.0.0.1:7102 (and likewise for nodes 1 and 2).
+ * An optional third argument sets the region tile size in degrees; all nodes must agree on it.
+ */
+public class ClusterNodeMain {
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: ClusterNodeMain <node> <host:port,host:port,...> [tileSizeDegrees]");
+            System.exit(1);
+        }
+
+        int node = Integer.parseInt(args[0]);
+        List<InetSocketAddress> addresses = SocketTransport.parseAddresses(args[1]);
+        double tileSize = args.length > 2 ? Double.parseDouble(args[2]) : RideMatchingCostants.SHARD_TILE_SIZE_DEGREES;
+
+        ClusteredRideMatchingService service = new ClusteredRideMatchingService(new SocketTransport(node, addresses),
+                ShardLayout.tiles(addresses.size(), tileSize), IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN);
+        Runtime.getRuntime().addShutdownHook(new Thread(service::close));
+
+        System.out.printf("Node %d of %d listening on %s%n", node, addresses.size(), addresses.get(node));
+        new CountDownLatch(1).await();
+    }
+}
@@ -36,7 +36,7 @@ public class Main {
         System.out.println("Ride request from: " + pickup);
 
         Ride ride = service.requestRide("RIDER1", pickup);
-        double distance = ride.getDriver().getCurrentLocation().distanceTo(pickup);
+        double distance = service.distanceBetween(ride.getDriver().getCurrentLocation(), pickup);
 
         System.out.println("\nRide allocated:");
 
@@ -87,7 +87,7 @@ public class Main {
 
             Driver allocated = rideRequest.getDriver();
 
-            double dist = allocated.getCurrentLocation().distanceTo(ridePickup);
+            double dist = service.distanceBetween(allocated.getCurrentLocation(), ridePickup);
 
             System.out.printf("  Details: %s (%s) - Distance: %.2f%n", rideRequest.getRideId(), allocated.getName(), dist);
             System.out.println();
@@ -0,0 +1,146 @@
+package com.mobility.cluster;
+
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+
+import java.util.List;
+
+/**
+ * Requests and replies exchanged between cluster nodes. Every request gets exactly one reply; failures travel back
+ * as a Failure rather than breaking the connection.
+ */
+public sealed interface ClusterMessage {
+
+    // Directory: handled by the node a driver ID hashes to, which serialises changes of the driver's owner
+
+    record RegisterDriver(DriverState driver) implements ClusterMessage {
+    }
+
+    record HandOffDriver(String driverId, double latitude, double longitude) implements ClusterMessage {
+    }
+
+    record ReleaseDriver(String driverId) implements ClusterMessage {
+    }
+
+    record LocateDriver(String driverId) implements ClusterMessage {
+    }
+
+    // Owner: handled by the node whose regions currently hold the driver
+
+    record AdoptDriver(DriverState driver) implements ClusterMessage {
+    }
+
+    record DetachDriver(String driverId) implements ClusterMessage {
+    }
+
+    record MoveDriver(String driverId, double latitude, double longitude) implements ClusterMessage {
+    }
+
+    record MoveDrivers(List<String> driverIds, double[] latitudes, double[] longitudes) implements ClusterMessage {
+    }
+
+    record FreeDriver(String driverId) implements ClusterMessage {
+    }
+
+    record FetchDriver(String driverId) implements ClusterMessage {
+    }
+
+    record ClaimDriver(String riderId, double latitude, double longitude, String driverId) implements ClusterMessage {
+    }
+
+    // Matching: a ride request goes to the node owning its pickup, a completion or cancellation to the node that
+    // issued the ride
+
+    record RequestRide(String riderId, double latitude, double longitude) implements ClusterMessage {
+    }
+
+    record CompleteRide(String rideId) implements ClusterMessage {
+    }
+
+    record CancelRide(String rideId) implements ClusterMessage {
+    }
+
+    // Fan-out: sent to every node
+
+    record FindNearest(double latitude, double longitude, int count, double maxDistance) implements ClusterMessage {
+    }
+
+    record ListAvailable() implements ClusterMessage {
+    }
+
+    record CountEntries() implements ClusterMessage {
+    }
+
+    record ClearNode() implements ClusterMessage {
+    }
+
+    record HandOffProgress() implements ClusterMessage {
+    }
+
+    // Replies
+
+    record Ack() implements ClusterMessage {
+    }
+
+    record Flag(boolean value) implements ClusterMessage {
+    }
+
+    record Found(DriverState driver) implements ClusterMessage {
+    }
+
+    record Missing() implements ClusterMessage {
+    }
+
+    record Drivers(List<DriverState> drivers) implements ClusterMessage {
+    }
+
+    record DriverIds(List<String> driverIds) implements ClusterMessage {
+    }
+
+    record RideGranted(String rideId, String riderId, double latitude, double longitude, DriverState driver)
+            implements ClusterMessage {
+    }
+
+    record Counts(int drivers, int rides) implements ClusterMessage {
+    }
+
+    // Hand-offs a directory node has begun and finished so far
+    record Progress(long started, long finished) implements ClusterMessage {
+    }
+
+    record Failure(FailureKind kind, String detail) implements ClusterMessage {
+    }
+
+    enum FailureKind {
+        NO_AVAILABLE_DRIVER,
+        ALLOCATION_FAILED,
+        RIDE_NOT_FOUND,
+        INVALID_RIDE_STATE,
+        INVALID_ARGUMENT,
+        INTERNAL
+    }
+
+    /**
+     * A driver as it travels between nodes: each node keeps its own Driver instances, callers get copies.
+     */
+    record DriverState(String driverId, String name, double latitude, double longitude, boolean available) {
+
+        public static DriverState of(Driver driver) {
+            Location location = driver.getCurrentLocation();
+            return new DriverState(driver.getDriverId(), driver.getName(),
+                    location.getLatitude(), location.getLongitude(), driver.isAvailable());
+        }
+
+        public Driver toDriver() {
+            Driver driver = new Driver(driverId, name, new Location(latitude, longitude));
+            if (!available) {
+                driver.markAsUnavailable();
+            }
+            return driver;
+        }
+
+        public DriverState withLocation(double newLatitude, double newLongitude) {
+            return new DriverState(driverId, name, newLatitude, newLongitude, available);
+        }
+    }
+}
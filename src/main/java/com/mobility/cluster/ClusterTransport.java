@@ -0,0 +1,22 @@
+package com.mobility.cluster;
+
+import java.util.function.Function;
+
+/**
+ * Request/reply messaging between the nodes of a cluster, as seen from one node. Nodes are numbered from 0.
+ */
+public interface ClusterTransport extends AutoCloseable {
+
+    int getLocalNode();
+
+    int getNodeCount();
+
+    // Starts delivering requests addressed to this node; the handler may be called from many threads at once
+    void start(Function<ClusterMessage, ClusterMessage> handler);
+
+    // Blocks until the node replies; throws NodeUnavailableException if it cannot be reached
+    ClusterMessage send(int node, ClusterMessage request);
+
+    @Override
+    void close();
+}
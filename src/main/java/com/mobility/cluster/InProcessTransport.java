@@ -0,0 +1,68 @@
+package com.mobility.cluster;
+
+import com.mobility.exception.NodeUnavailableException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Transport for nodes living in the same JVM: a send runs the target's handler on the caller's thread.
+ * Create all of a cluster's transports together with {@link #network(int)}.
+ */
+public class InProcessTransport implements ClusterTransport {
+
+    private final int localNode;
+    private final AtomicReferenceArray<Function<ClusterMessage, ClusterMessage>> handlers;
+
+    private InProcessTransport(int localNode, AtomicReferenceArray<Function<ClusterMessage, ClusterMessage>> handlers) {
+        this.localNode = localNode;
+        this.handlers = handlers;
+    }
+
+    public static List<InProcessTransport> network(int nodeCount) {
+        if (nodeCount <= 0) {
+            throw new IllegalArgumentException("Node count must be positive");
+        }
+
+        AtomicReferenceArray<Function<ClusterMessage, ClusterMessage>> handlers = new AtomicReferenceArray<>(nodeCount);
+        List<InProcessTransport> transports = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            transports.add(new InProcessTransport(i, handlers));
+        }
+        return transports;
+    }
+
+    @Override
+    public int getLocalNode() {
+        return localNode;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return handlers.length();
+    }
+
+    @Override
+    public void start(Function<ClusterMessage, ClusterMessage> handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+        handlers.set(localNode, handler);
+    }
+
+    @Override
+    public ClusterMessage send(int node, ClusterMessage request) {
+        Function<ClusterMessage, ClusterMessage> handler = handlers.get(node);
+        if (handler == null) {
+            throw new NodeUnavailableException(node, null);
+        }
+        return handler.apply(request);
+    }
+
+    @Override
+    public void close() {
+        handlers.set(localNode, null);
+    }
+}
@@ -0,0 +1,257 @@
+package com.mobility.cluster;
+
+import com.mobility.cluster.ClusterMessage.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary wire format for cluster messages: a one-byte tag followed by the fields in declaration order.
+ * Messages are self-delimiting, so a stream carries them back to back without framing.
+ */
+final class MessageCodec {
+
+    private static final int REGISTER_DRIVER = 1;
+    private static final int HAND_OFF_DRIVER = 2;
+    private static final int RELEASE_DRIVER = 3;
+    private static final int LOCATE_DRIVER = 4;
+    private static final int ADOPT_DRIVER = 5;
+    private static final int DETACH_DRIVER = 6;
+    private static final int MOVE_DRIVER = 7;
+    private static final int MOVE_DRIVERS = 8;
+    private static final int FREE_DRIVER = 9;
+    private static final int FETCH_DRIVER = 10;
+    private static final int CLAIM_DRIVER = 11;
+    private static final int REQUEST_RIDE = 12;
+    private static final int COMPLETE_RIDE = 13;
+    private static final int FIND_NEAREST = 14;
+    private static final int LIST_AVAILABLE = 15;
+    private static final int COUNT_ENTRIES = 16;
+    private static final int CLEAR_NODE = 17;
+    private static final int CANCEL_RIDE = 18;
+    private static final int HAND_OFF_PROGRESS = 19;
+    private static final int ACK = 32;
+    private static final int FLAG = 33;
+    private static final int FOUND = 34;
+    private static final int MISSING = 35;
+    private static final int DRIVERS = 36;
+    private static final int DRIVER_IDS = 37;
+    private static final int RIDE_GRANTED = 38;
+    private static final int COUNTS = 39;
+    private static final int FAILURE = 40;
+    private static final int PROGRESS = 41;
+
+    private MessageCodec() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    static void write(DataOutput out, ClusterMessage message) throws IOException {
+        switch (message) {
+            case RegisterDriver m -> {
+                out.writeByte(REGISTER_DRIVER);
+                writeDriver(out, m.driver());
+            }
+            case HandOffDriver m -> {
+                out.writeByte(HAND_OFF_DRIVER);
+                out.writeUTF(m.driverId());
+                out.writeDouble(m.latitude());
+                out.writeDouble(m.longitude());
+            }
+            case ReleaseDriver m -> {
+                out.writeByte(RELEASE_DRIVER);
+                out.writeUTF(m.driverId());
+            }
+            case LocateDriver m -> {
+                out.writeByte(LOCATE_DRIVER);
+                out.writeUTF(m.driverId());
+            }
+            case AdoptDriver m -> {
+                out.writeByte(ADOPT_DRIVER);
+                writeDriver(out, m.driver());
+            }
+            case DetachDriver m -> {
+                out.writeByte(DETACH_DRIVER);
+                out.writeUTF(m.driverId());
+            }
+            case MoveDriver m -> {
+                out.writeByte(MOVE_DRIVER);
+                out.writeUTF(m.driverId());
+                out.writeDouble(m.latitude());
+                out.writeDouble(m.longitude());
+            }
+            case MoveDrivers m -> {
+                out.writeByte(MOVE_DRIVERS);
+                out.writeInt(m.driverIds().size());
+                for (int i = 0; i < m.driverIds().size(); i++) {
+                    out.writeUTF(m.driverIds().get(i));
+                    out.writeDouble(m.latitudes()[i]);
+                    out.writeDouble(m.longitudes()[i]);
+                }
+            }
+            case FreeDriver m -> {
+                out.writeByte(FREE_DRIVER);
+                out.writeUTF(m.driverId());
+            }
+            case FetchDriver m -> {
+                out.writeByte(FETCH_DRIVER);
+                out.writeUTF(m.driverId());
+            }
+            case ClaimDriver m -> {
+                out.writeByte(CLAIM_DRIVER);
+                out.writeUTF(m.riderId());
+                out.writeDouble(m.latitude());
+                out.writeDouble(m.longitude());
+                out.writeUTF(m.driverId());
+            }
+            case RequestRide m -> {
+                out.writeByte(REQUEST_RIDE);
+                out.writeUTF(m.riderId());
+                out.writeDouble(m.latitude());
+                out.writeDouble(m.longitude());
+            }
+            case CompleteRide m -> {
+                out.writeByte(COMPLETE_RIDE);
+                out.writeUTF(m.rideId());
+            }
+            case CancelRide m -> {
+                out.writeByte(CANCEL_RIDE);
+                out.writeUTF(m.rideId());
+            }
+            case FindNearest m -> {
+                out.writeByte(FIND_NEAREST);
+                out.writeDouble(m.latitude());
+                out.writeDouble(m.longitude());
+                out.writeInt(m.count());
+                out.writeDouble(m.maxDistance());
+            }
+            case ListAvailable m -> out.writeByte(LIST_AVAILABLE);
+            case CountEntries m -> out.writeByte(COUNT_ENTRIES);
+            case ClearNode m -> out.writeByte(CLEAR_NODE);
+            case HandOffProgress m -> out.writeByte(HAND_OFF_PROGRESS);
+            case Ack m -> out.writeByte(ACK);
+            case Flag m -> {
+                out.writeByte(FLAG);
+                out.writeBoolean(m.value());
+            }
+            case Found m -> {
+                out.writeByte(FOUND);
+                writeDriver(out, m.driver());
+            }
+            case Missing m -> out.writeByte(MISSING);
+            case Drivers m -> {
+                out.writeByte(DRIVERS);
+                out.writeInt(m.drivers().size());
+                for (DriverState driver : m.drivers()) {
+                    writeDriver(out, driver);
+                }
+            }
+            case DriverIds m -> {
+                out.writeByte(DRIVER_IDS);
+                out.writeInt(m.driverIds().size());
+                for (String driverId : m.driverIds()) {
+                    out.writeUTF(driverId);
+                }
+            }
+            case RideGranted m -> {
+                out.writeByte(RIDE_GRANTED);
+                out.writeUTF(m.rideId());
+                out.writeUTF(m.riderId());
+                out.writeDouble(m.latitude());
+                out.writeDouble(m.longitude());
+                writeDriver(out, m.driver());
+            }
+            case Counts m -> {
+                out.writeByte(COUNTS);
+                out.writeInt(m.drivers());
+                out.writeInt(m.rides());
+            }
+            case Progress m -> {
+                out.writeByte(PROGRESS);
+                out.writeLong(m.started());
+                out.writeLong(m.finished());
+            }
+            case Failure m -> {
+                out.writeByte(FAILURE);
+                out.writeByte(m.kind().ordinal());
+                out.writeUTF(m.detail() == null ? "" : m.detail());
+            }
+        }
+    }
+
+    static ClusterMessage read(DataInput in) throws IOException {
+        int tag = in.readUnsignedByte();
+        return switch (tag) {
+            case REGISTER_DRIVER -> new RegisterDriver(readDriver(in));
+            case HAND_OFF_DRIVER -> new HandOffDriver(in.readUTF(), in.readDouble(), in.readDouble());
+            case RELEASE_DRIVER -> new ReleaseDriver(in.readUTF());
+            case LOCATE_DRIVER -> new LocateDriver(in.readUTF());
+            case ADOPT_DRIVER -> new AdoptDriver(readDriver(in));
+            case DETACH_DRIVER -> new DetachDriver(in.readUTF());
+            case MOVE_DRIVER -> new MoveDriver(in.readUTF(), in.readDouble(), in.readDouble());
+            case MOVE_DRIVERS -> {
+                int size = in.readInt();
+                List<String> driverIds = new ArrayList<>(size);
+                double[] latitudes = new double[size];
+                double[] longitudes = new double[size];
+                for (int i = 0; i < size; i++) {
+                    driverIds.add(in.readUTF());
+                    latitudes[i] = in.readDouble();
+                    longitudes[i] = in.readDouble();
+                }
+                yield new MoveDrivers(driverIds, latitudes, longitudes);
+            }
+            case FREE_DRIVER -> new FreeDriver(in.readUTF());
+            case FETCH_DRIVER -> new FetchDriver(in.readUTF());
+            case CLAIM_DRIVER -> new ClaimDriver(in.readUTF(), in.readDouble(), in.readDouble(), in.readUTF());
+            case REQUEST_RIDE -> new RequestRide(in.readUTF(), in.readDouble(), in.readDouble());
+            case COMPLETE_RIDE -> new CompleteRide(in.readUTF());
+            case CANCEL_RIDE -> new CancelRide(in.readUTF());
+            case FIND_NEAREST -> new FindNearest(in.readDouble(), in.readDouble(), in.readInt(), in.readDouble());
+            case LIST_AVAILABLE -> new ListAvailable();
+            case COUNT_ENTRIES -> new CountEntries();
+            case CLEAR_NODE -> new ClearNode();
+            case HAND_OFF_PROGRESS -> new HandOffProgress();
+            case ACK -> new Ack();
+            case FLAG -> new Flag(in.readBoolean());
+            case FOUND -> new Found(readDriver(in));
+            case MISSING -> new Missing();
+            case DRIVERS -> {
+                int size = in.readInt();
+                List<DriverState> drivers = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    drivers.add(readDriver(in));
+                }
+                yield new Drivers(drivers);
+            }
+            case DRIVER_IDS -> {
+                int size = in.readInt();
+                List<String> driverIds = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    driverIds.add(in.readUTF());
+                }
+                yield new DriverIds(driverIds);
+            }
+            case RIDE_GRANTED -> new RideGranted(in.readUTF(), in.readUTF(), in.readDouble(), in.readDouble(),
+                    readDriver(in));
+            case COUNTS -> new Counts(in.readInt(), in.readInt());
+            case PROGRESS -> new Progress(in.readLong(), in.readLong());
+            case FAILURE -> new Failure(FailureKind.values()[in.readUnsignedByte()], in.readUTF());
+            default -> throw new IOException("Unknown cluster message tag " + tag);
+        };
+    }
+
+    private static void writeDriver(DataOutput out, DriverState driver) throws IOException {
+        out.writeUTF(driver.driverId());
+        out.writeUTF(driver.name());
+        out.writeDouble(driver.latitude());
+        out.writeDouble(driver.longitude());
+        out.writeBoolean(driver.available());
+    }
+
+    private static DriverState readDriver(DataInput in) throws IOException {
+        return new DriverState(in.readUTF(), in.readUTF(), in.readDouble(), in.readDouble(), in.readBoolean());
+    }
+}
@@ -0,0 +1,228 @@
+package com.mobility.cluster;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.exception.NodeUnavailableException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * TCP transport: every node listens on its own address, and peers keep a pool of connections to it, one request in
+ * flight per connection. Each accepted connection is served by its own virtual thread, so a handler that calls
+ * further nodes only parks that thread. A peer that does not reply within the read timeout is treated as
+ * unavailable, and the connection is dropped.
+ */
+public class SocketTransport implements ClusterTransport {
+
+    private final int localNode;
+    private final List<InetSocketAddress> addresses;
+    private final int readTimeoutMillis;
+    private final List<ConcurrentLinkedQueue<Connection>> idle;
+    private final Set<Socket> accepted;
+    private final ExecutorService workers;
+    private volatile ServerSocket server;
+    private volatile boolean closed;
+
+    public SocketTransport(int localNode, List<InetSocketAddress> addresses) {
+        this(localNode, addresses, RideMatchingCostants.CLUSTER_READ_TIMEOUT_MILLIS);
+    }
+
+    public SocketTransport(int localNode, List<InetSocketAddress> addresses, int readTimeoutMillis) {
+        if (addresses == null || addresses.isEmpty()) {
+            throw new IllegalArgumentException("Node addresses cannot be null or empty");
+        }
+        if (localNode < 0 || localNode >= addresses.size()) {
+            throw new IllegalArgumentException("Local node must be between 0 and " + (addresses.size() - 1));
+        }
+        if (readTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Read timeout must be positive");
+        }
+
+        this.localNode = localNode;
+        this.addresses = List.copyOf(addresses);
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.idle = new ArrayList<>(addresses.size());
+        for (int i = 0; i < addresses.size(); i++) {
+            idle.add(new ConcurrentLinkedQueue<>());
+        }
+        this.accepted = ConcurrentHashMap.newKeySet();
+        this.workers = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // Parses "host:port,host:port,..." in node order
+    public static List<InetSocketAddress> parseAddresses(String nodes) {
+        if (nodes == null || nodes.trim().isEmpty()) {
+            throw new IllegalArgumentException("Node addresses cannot be null or empty");
+        }
+
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String node : nodes.split(",")) {
+            int colon = node.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Expected host:port but got " + node);
+            }
+            addresses.add(new InetSocketAddress(node.substring(0, colon).trim(),
+                    Integer.parseInt(node.substring(colon + 1).trim())));
+        }
+        return addresses;
+    }
+
+    @Override
+    public int getLocalNode() {
+        return localNode;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return addresses.size();
+    }
+
+    @Override
+    public void start(Function<ClusterMessage, ClusterMessage> handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+
+        try {
+            ServerSocket socket = new ServerSocket();
+            socket.setReuseAddress(true);
+            socket.bind(addresses.get(localNode));
+            server = socket;
+        } catch (IOException e) {
+            throw new NodeUnavailableException(localNode, e);
+        }
+
+        Thread.ofPlatform().daemon().name("cluster-acceptor-" + localNode).start(() -> accept(handler));
+    }
+
+    private void accept(Function<ClusterMessage, ClusterMessage> handler) {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                accepted.add(socket);
+                workers.execute(() -> serve(socket, handler));
+            } catch (IOException e) {
+                // Closing the server socket ends the loop
+            }
+        }
+    }
+
+    private void serve(Socket socket, Function<ClusterMessage, ClusterMessage> handler) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (!closed) {
+                ClusterMessage request;
+                try {
+                    request = MessageCodec.read(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                MessageCodec.write(out, handler.apply(request));
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Peer went away; it reconnects on its next request
+        } finally {
+            accepted.remove(socket);
+        }
+    }
+
+    @Override
+    public ClusterMessage send(int node, ClusterMessage request) {
+        if (closed) {
+            throw new IllegalStateException("Transport is closed");
+        }
+
+        Connection connection = idle.get(node).poll();
+        try {
+            if (connection == null) {
+                connection = connect(node);
+            }
+            ClusterMessage reply = connection.exchange(request);
+            idle.get(node).offer(connection);
+            return reply;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new NodeUnavailableException(node, e);
+        }
+    }
+
+    private Connection connect(int node) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(addresses.get(node), RideMatchingCostants.CLUSTER_CONNECT_TIMEOUT_MILLIS);
+            // A late reply would answer the next request on this connection, so a timed-out one is closed
+            socket.setSoTimeout(readTimeoutMillis);
+            return new Connection(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            // Already closed
+        }
+        accepted.forEach(SocketTransport::closeQuietly);
+        idle.forEach(connections -> connections.forEach(Connection::close));
+        workers.shutdownNow();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        ClusterMessage exchange(ClusterMessage request) throws IOException {
+            MessageCodec.write(out, request);
+            out.flush();
+            return MessageCodec.read(in);
+        }
+
+        void close() {
+            closeQuietly(socket);
+        }
+    }
+}
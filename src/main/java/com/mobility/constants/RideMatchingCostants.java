@@ -10,8 +10,78 @@ public class RideMatchingCostants {
     public static final double MAX_LATITUDE = 90.00;
     public static final double MIN_LONGITUDE = -180.00;
     public static final double MAX_LONGITUDE = 180.00;
+    // Mean Earth radius (IUGG)
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
 
 
     public static final int MAX_ALLOCATION_RETRIES = 5;
+    // Nearest drivers fetched per allocation attempt; doubled on each retry
+    public static final int CLAIM_CANDIDATES = 8;
+
+    // Batch matching: requests are collected for a window, then assigned together
+    public static final long BATCH_WINDOW_MILLIS = 200;
+    public static final int BATCH_MAX_SIZE = 512;
+    public static final int BATCH_CANDIDATES_PER_REQUEST = 8;
+
+    // Async front end: requests admitted at once, and how long a caller waits for a slot before being rejected
+    public static final int ASYNC_MAX_IN_FLIGHT = 10_000;
     public static final String RIDE_ID_PREFIX = "RIDE-";
-}
\ No newline at end of file
+
+    // Roughly 1km at mid latitudes
+    public static final double GRID_CELL_SIZE_DEGREES = 0.01;
+
+    // k-d tree is rebuilt once pending moves exceed max(minimum, tree size / fraction)
+    public static final int KD_TREE_MIN_REBUILD_THRESHOLD = 1024;
+    public static final int KD_TREE_REBUILD_FRACTION = 16;
+    // Distance a driver may move (per axis) before leaving its k-d tree slot, roughly 100m
+    public static final double KD_TREE_DRIFT_DEGREES = 0.001;
+
+    // Packed scans of at least this many drivers are split into chunks scanned in parallel
+    public static final int PARALLEL_SCAN_THRESHOLD = 100_000;
+    public static final int PARALLEL_SCAN_CHUNK_SIZE = 16_384;
+
+    // Event-loop engine: commands waiting per shard before producers back off
+    public static final int EVENT_LOOP_RING_CAPACITY = 4096;
+    // Geographic sharding: default side of a shard's tiles (~11km), and the longest geohash prefix a layout accepts
+    public static final double SHARD_TILE_SIZE_DEGREES = 0.1;
+    public static final int MAX_GEOHASH_PRECISION = 12;
+
+    // Cluster mode: locks guarding the driver directory's owner changes, how long a node waits to reach a peer, and
+    // how long it waits for a peer's reply (directory stripes stay locked meanwhile)
+    public static final int CLUSTER_DIRECTORY_STRIPES = 64;
+    public static final int CLUSTER_CONNECT_TIMEOUT_MILLIS = 2000;
+    public static final int CLUSTER_READ_TIMEOUT_MILLIS = 5000;
+    public static final String CLUSTER_RIDE_ID_PREFIX = "N";
+
+    // Write-ahead log: initial append buffer, buffered bytes written out even without a commit, and the largest
+    // record length accepted when reading (anything longer is a torn or foreign tail)
+    public static final int JOURNAL_BUFFER_BYTES = 64 * 1024;
+    public static final int JOURNAL_WRITE_THRESHOLD_BYTES = 1 << 20;
+    public static final int JOURNAL_MAX_RECORD_BYTES = 1 << 18;
+
+    // Snapshots: file format marker and version, checked before a snapshot is loaded
+    public static final int SNAPSHOT_MAGIC = 0x52534e50;
+    public static final int SNAPSHOT_VERSION = 2;
+
+    // Ride history: finished rides kept in memory (by count and by age) before they are evicted, and rides per
+    // on-disk archive segment
+    public static final int RIDE_HISTORY_CAPACITY = 100_000;
+    public static final long RIDE_HISTORY_RETENTION_MILLIS = 60 * 60 * 1000L;
+    public static final int ARCHIVE_SEGMENT_RIDES = 100_000;
+    // Lock segments of each ride map; lookups are lock-free unless a write overlaps them
+    public static final int RIDE_STORE_SEGMENTS = 64;
+
+    // Metrics: most histogram stripes, so concurrent recorders rarely share a cache line
+    public static final int METRICS_MAX_STRIPES = 16;
+
+    // Expiry: timer wheel resolution and size (a power of two), and the default timeouts for silent drivers and
+    // rides their driver has not acknowledged
+    public static final long EXPIRY_TICK_MILLIS = 100;
+    public static final int EXPIRY_WHEEL_BUCKETS = 512;
+    public static final long DRIVER_TIMEOUT_MILLIS = 2 * 60 * 1000L;
+    public static final long RIDE_ACK_TIMEOUT_MILLIS = 30 * 1000L;
+
+    // Nearby-driver subscriptions: grid cell size subscription areas are filed under, and the most cells one may cover
+    public static final double SUBSCRIPTION_CELL_DEGREES = 0.02;
+    public static final int SUBSCRIPTION_MAX_CELLS = 256;
+}
@@ -0,0 +1,8 @@
+package com.mobility.enums;
+
+public enum DistanceMetric {
+    // Straight-line distance on raw degrees, as originally implemented
+    EUCLIDEAN,
+    // Great-circle metres; candidates are ranked with the equirectangular approximation, reported distances use haversine
+    HAVERSINE
+}
@@ -0,0 +1,7 @@
+package com.mobility.enums;
+
+public enum DriverDeltaType {
+    ADDED,
+    MOVED,
+    REMOVED
+}
@@ -0,0 +1,8 @@
+package com.mobility.enums;
+
+public enum IndexType {
+    SPATIAL_GRID,
+    KD_TREE,
+    LINEAR_SCAN,
+    PACKED_SCAN
+}
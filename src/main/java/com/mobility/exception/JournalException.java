@@ -0,0 +1,13 @@
+package com.mobility.exception;
+
+public class JournalException extends RideMatchingException {
+
+    public JournalException(String message) {
+        super(message);
+    }
+
+    public JournalException(String message, Throwable cause) {
+        super(message);
+        initCause(cause);
+    }
+}
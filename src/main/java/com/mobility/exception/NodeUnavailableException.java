@@ -0,0 +1,16 @@
+package com.mobility.exception;
+
+public class NodeUnavailableException extends RideMatchingException {
+
+    private final int nodeId;
+
+    public NodeUnavailableException(int nodeId, Throwable cause) {
+        super("Cluster node " + nodeId + " is unreachable");
+        this.nodeId = nodeId;
+        initCause(cause);
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,15 @@
+package com.mobility.exception;
+
+public class ServiceOverloadedException extends RideMatchingException {
+
+    private final int maxInFlight;
+
+    public ServiceOverloadedException(int maxInFlight) {
+        super("Request rejected: " + maxInFlight + " requests already in flight");
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+}
@@ -0,0 +1,29 @@
+package com.mobility.index;
+
+import com.mobility.model.Driver;
+import com.mobility.utils.DistanceKernel;
+
+// Ranks packed coordinates against a query and offers the closer ones. Implementations are stateless.
+interface CandidateScanner {
+
+    String VECTOR_MODULE = "jdk.incubator.vector";
+
+    // Scans slots [from, to)
+    void scan(double[] latitudes, double[] longitudes, Driver[] drivers, int from, int to,
+              DistanceKernel kernel, NearestCandidates best);
+
+    // The Vector API scanner is only loaded when its incubator module is in the boot layer
+    // (--add-modules jdk.incubator.vector); referencing it otherwise would fail to link
+    static CandidateScanner create() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (CandidateScanner) Class.forName("com.mobility.index.VectorCandidateScanner")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar scanner
+            }
+        }
+        return new ScalarCandidateScanner();
+    }
+}
@@ -0,0 +1,53 @@
+package com.mobility.index;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+
+import java.util.List;
+
+/**
+ * Spatial lookup structure behind nearest-driver matching, holding only available drivers so searches never visit
+ * busy ones. Implementations must be thread-safe.
+ */
+public interface DriverIndex {
+
+    // Inserts the driver if it is available, replacing any previously indexed driver with the same ID.
+    // Availability is re-checked atomically with the insert, so a driver claimed concurrently is never left behind.
+    void add(Driver driver);
+
+    // Re-indexes a driver after its current location has changed; drivers not in the index are left out
+    void update(Driver driver);
+
+    // Re-indexes many moved drivers at once; implementations may reorder the work for locality
+    default void updateAll(List<Driver> drivers) {
+        for (Driver driver : drivers) {
+            update(driver);
+        }
+    }
+
+    void remove(Driver driver);
+
+    // True if this exact instance is indexed
+    boolean contains(Driver driver);
+
+    List<Driver> availableDrivers();
+
+    Driver findNearestAvailable(Location location);
+
+    // Up to count available drivers, closest first; equally distant drivers are ordered by ID
+    default List<Driver> findNearestAvailable(Location location, int count) {
+        return findNearestAvailable(location, count, Double.POSITIVE_INFINITY);
+    }
+
+    // As above, but only drivers within maxDistance (in the index metric's reported units)
+    List<Driver> findNearestAvailable(Location location, int count, double maxDistance);
+
+    // Metric candidates are ranked by
+    DistanceMetric getDistanceMetric();
+
+    // Number of indexed (available) drivers
+    int size();
+
+    void clear();
+}
@@ -0,0 +1,366 @@
+package com.mobility.index;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceKernel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Static k-d tree rebuilt from scratch, plus a grid holding drivers added or moved since the last build.
+ * Median splits adapt to skewed fleets (airports, stadiums) where a uniform grid piles drivers into a few cells.
+ * Drivers may drift a little from their tree position without leaving it; searches widen their bounds to match.
+ * Rebuilds run on a background thread and swap the new tree in, so updates never wait for one.
+ */
+public class KdTreeDriverIndex implements DriverIndex {
+
+    private static final int LEAF_SIZE = 8;
+    private static final double DRIFT = RideMatchingCostants.KD_TREE_DRIFT_DEGREES;
+
+    // One thread serves every index; a rebuild is due only after thousands of moves
+    private static final ExecutorService REBUILDER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kd-tree-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DistanceMetric metric;
+    private final ConcurrentHashMap<String, Driver> members;
+    private final SpatialGridIndex pending;
+    private final ReentrantLock rebuildLock;
+    private final AtomicBoolean rebuildScheduled;
+    private volatile Tree tree;
+
+    public KdTreeDriverIndex() {
+        this(DistanceMetric.EUCLIDEAN);
+    }
+
+    public KdTreeDriverIndex(DistanceMetric metric) {
+        if (metric == null) {
+            throw new IllegalArgumentException("Distance metric cannot be null");
+        }
+        this.metric = metric;
+        this.members = new ConcurrentHashMap<>();
+        this.pending = new SpatialGridIndex(metric);
+        this.rebuildLock = new ReentrantLock();
+        this.rebuildScheduled = new AtomicBoolean();
+        this.tree = Tree.EMPTY;
+    }
+
+    @Override
+    public void add(Driver driver) {
+        members.compute(driver.getDriverId(), (id, previous) -> driver.isAvailable() ? driver : null);
+        // The pending grid re-checks availability itself, so a concurrent claim cannot leave the driver behind there
+        pending.add(driver);
+        maybeRebuild();
+    }
+
+    @Override
+    public void update(Driver driver) {
+        if (staysInTree(driver) || members.get(driver.getDriverId()) != driver) {
+            return;
+        }
+
+        // Tree entries are immutable, so a driver that moved too far is served from the pending grid until the next rebuild
+        pending.update(driver);
+        maybeRebuild();
+    }
+
+    @Override
+    public void updateAll(List<Driver> drivers) {
+        List<Driver> moved = new ArrayList<>();
+        for (Driver driver : drivers) {
+            if (!staysInTree(driver) && members.get(driver.getDriverId()) == driver) {
+                moved.add(driver);
+            }
+        }
+        pending.updateAll(moved);
+        maybeRebuild();
+    }
+
+    private boolean staysInTree(Driver driver) {
+        Tree current = tree;
+        int node = current.nodeOf(driver.getDriverId());
+        return node >= 0
+                && current.drivers[node] == driver
+                && members.get(driver.getDriverId()) == driver
+                && !pending.contains(driver.getDriverId())
+                && current.withinDrift(node, driver);
+    }
+
+    @Override
+    public void remove(Driver driver) {
+        // Driver.equals compares IDs only, so match the instance explicitly to leave a replacement alone
+        members.computeIfPresent(driver.getDriverId(), (id, indexed) -> indexed == driver ? null : indexed);
+        pending.remove(driver);
+    }
+
+    @Override
+    public boolean contains(Driver driver) {
+        return members.get(driver.getDriverId()) == driver;
+    }
+
+    @Override
+    public List<Driver> availableDrivers() {
+        return new ArrayList<>(members.values());
+    }
+
+    @Override
+    public Driver findNearestAvailable(Location location) {
+        List<Driver> nearest = findNearestAvailable(location, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    @Override
+    public List<Driver> findNearestAvailable(Location location, int count, double maxDistance) {
+        DistanceKernel kernel = DistanceKernel.around(location, metric);
+        NearestCandidates best = new NearestCandidates(count, kernel, maxDistance);
+
+        Tree current = tree;
+        search(current, 0, current.size(), 0, kernel, best);
+
+        for (Driver driver : pending.findNearestAvailable(location, count, maxDistance)) {
+            best.offer(driver, kernel.rank(driver.getCurrentLocation()));
+        }
+        return best.toSortedList();
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric() {
+        return metric;
+    }
+
+    @Override
+    public int size() {
+        return members.size();
+    }
+
+    @Override
+    public void clear() {
+        rebuildLock.lock();
+        try {
+            members.clear();
+            pending.clear();
+            tree = Tree.EMPTY;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Rebuilds once the pending grid outgrows a fraction of the tree, so the cost amortises over updates. The caller
+    // only schedules it; searches keep using the current tree and the pending grid until the new tree is swapped in.
+    private void maybeRebuild() {
+        if (pending.size() <= rebuildThreshold(tree) || !rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        REBUILDER.execute(this::rebuildInBackground);
+    }
+
+    private void rebuildInBackground() {
+        rebuildLock.lock();
+        try {
+            if (pending.size() > rebuildThreshold(tree)) {
+                rebuild();
+            }
+        } finally {
+            rebuildLock.unlock();
+            rebuildScheduled.set(false);
+        }
+        // Moves that arrived during the build may already call for the next one
+        maybeRebuild();
+    }
+
+    private static int rebuildThreshold(Tree tree) {
+        return Math.max(RideMatchingCostants.KD_TREE_MIN_REBUILD_THRESHOLD,
+                tree.size() / RideMatchingCostants.KD_TREE_REBUILD_FRACTION);
+    }
+
+    private void rebuild() {
+        List<Driver> snapshot = new ArrayList<>(members.values());
+        int size = snapshot.size();
+
+        Driver[] drivers = snapshot.toArray(new Driver[0]);
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            Location location = drivers[i].getCurrentLocation();
+            latitudes[i] = location.getLatitude();
+            longitudes[i] = location.getLongitude();
+        }
+
+        Tree built = new Tree(drivers, latitudes, longitudes);
+        built.build(0, size, 0);
+        built.indexNodes();
+        tree = built;
+
+        // Drop pending entries the new tree already covers; anything that moved too far meanwhile goes (or stays) pending
+        for (int i = 0; i < size; i++) {
+            int node = i;
+            Driver driver = built.drivers[node];
+            boolean covered = pending.removeIf(driver, d -> members.get(d.getDriverId()) == d && built.withinDrift(node, d));
+            if (!covered && members.get(driver.getDriverId()) == driver && !built.withinDrift(node, driver)) {
+                pending.add(driver);
+            }
+        }
+    }
+
+    private void search(Tree current, int from, int to, int depth, DistanceKernel kernel, NearestCandidates best) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                offer(current, i, kernel, best);
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        offer(current, middle, kernel, best);
+
+        boolean latitudeAxis = depth % 2 == 0;
+        double delta = latitudeAxis
+                ? kernel.latitudeOffset(current.latitudes[middle])
+                : kernel.longitudeOffset(current.longitudes[middle]);
+
+        // Stored keys can be off by DRIFT from where the drivers actually are
+        double gap = Math.max(0, Math.abs(delta) - DRIFT);
+        if (!latitudeAxis) {
+            gap = Math.min(gap, kernel.antimeridianDistance(delta));
+        }
+        double farSideBound = latitudeAxis ? kernel.latitudeGap(gap) : kernel.longitudeGap(gap);
+        if (delta < 0) {
+            search(current, from, middle, depth + 1, kernel, best);
+            if (farSideBound <= best.worstDistance()) {
+                search(current, middle + 1, to, depth + 1, kernel, best);
+            }
+        } else {
+            search(current, middle + 1, to, depth + 1, kernel, best);
+            if (farSideBound <= best.worstDistance()) {
+                search(current, from, middle, depth + 1, kernel, best);
+            }
+        }
+    }
+
+    private void offer(Tree current, int node, DistanceKernel kernel, NearestCandidates best) {
+        Driver driver = current.drivers[node];
+        if (!driver.isAvailable() || pending.contains(driver.getDriverId()) || members.get(driver.getDriverId()) != driver) {
+            return;
+        }
+        Location location = driver.getCurrentLocation();
+        best.offer(driver, kernel.rankWithin(location.getLatitude(), location.getLongitude(), best.worstDistance()));
+    }
+
+    // Implicit balanced tree: the median of each range is its root, split axis alternates lat/lon by depth
+    private static final class Tree {
+
+        static final Tree EMPTY = new Tree(new Driver[0], new double[0], new double[0]);
+
+        final Driver[] drivers;
+        final double[] latitudes;
+        final double[] longitudes;
+        // Open-addressed driver ID -> node table holding node + 1 (0 for an empty slot), at most half full
+        final int[] slots;
+
+        Tree(Driver[] drivers, double[] latitudes, double[] longitudes) {
+            this.drivers = drivers;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.slots = new int[Integer.highestOneBit(Math.max(1, drivers.length) * 2) << 1];
+        }
+
+        int size() {
+            return drivers.length;
+        }
+
+        // Filled before the tree is published, read-only afterwards
+        void indexNodes() {
+            int mask = slots.length - 1;
+            for (int i = 0; i < drivers.length; i++) {
+                int slot = slotOf(drivers[i].getDriverId(), mask);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = i + 1;
+            }
+        }
+
+        // Node holding the driver ID, or -1
+        int nodeOf(String driverId) {
+            int mask = slots.length - 1;
+            for (int slot = slotOf(driverId, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+                int node = slots[slot] - 1;
+                if (drivers[node].getDriverId().equals(driverId)) {
+                    return node;
+                }
+            }
+            return -1;
+        }
+
+        private static int slotOf(String driverId, int mask) {
+            int hash = driverId.hashCode();
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+        boolean withinDrift(int node, Driver driver) {
+            return Math.abs(driver.getLatitude() - latitudes[node]) <= DRIFT
+                    && Math.abs(driver.getLongitude() - longitudes[node]) <= DRIFT;
+        }
+
+        void build(int from, int to, int depth) {
+            if (to - from <= LEAF_SIZE) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            select(from, to - 1, middle, depth % 2 == 0 ? latitudes : longitudes);
+            build(from, middle, depth + 1);
+            build(middle + 1, to, depth + 1);
+        }
+
+        // Hoare-partition quickselect; copes with the many identical keys of a hotspot
+        private void select(int left, int right, int target, double[] keys) {
+            while (left < right) {
+                double pivot = keys[(left + right) >>> 1];
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (keys[i] < pivot) {
+                        i++;
+                    }
+                    while (keys[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                if (target <= j) {
+                    right = j;
+                } else if (target >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            Driver driver = drivers[i];
+            drivers[i] = drivers[j];
+            drivers[j] = driver;
+
+            double latitude = latitudes[i];
+            latitudes[i] = latitudes[j];
+            latitudes[j] = latitude;
+
+            double longitude = longitudes[i];
+            longitudes[i] = longitudes[j];
+            longitudes[j] = longitude;
+        }
+    }
+}
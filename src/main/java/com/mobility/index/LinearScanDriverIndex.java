@@ -0,0 +1,90 @@
+package com.mobility.index;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceCalculator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scans every indexed driver on each query. Kept as the reference the other indexes are compared against,
+ * so it ranks by the exact reported distance rather than the ranking kernel.
+ */
+public class LinearScanDriverIndex implements DriverIndex {
+
+    private final ConcurrentHashMap<String, Driver> drivers = new ConcurrentHashMap<>();
+    private final DistanceMetric metric;
+
+    public LinearScanDriverIndex() {
+        this(DistanceMetric.EUCLIDEAN);
+    }
+
+    public LinearScanDriverIndex(DistanceMetric metric) {
+        if (metric == null) {
+            throw new IllegalArgumentException("Distance metric cannot be null");
+        }
+        this.metric = metric;
+    }
+
+    @Override
+    public void add(Driver driver) {
+        drivers.compute(driver.getDriverId(), (id, previous) -> driver.isAvailable() ? driver : null);
+    }
+
+    @Override
+    public void update(Driver driver) {
+        // Locations are read at query time, nothing to re-index
+    }
+
+    @Override
+    public void remove(Driver driver) {
+        // Driver.equals compares IDs only, so match the instance explicitly to leave a replacement alone
+        drivers.computeIfPresent(driver.getDriverId(), (id, indexed) -> indexed == driver ? null : indexed);
+    }
+
+    @Override
+    public boolean contains(Driver driver) {
+        return drivers.get(driver.getDriverId()) == driver;
+    }
+
+    @Override
+    public List<Driver> availableDrivers() {
+        return new ArrayList<>(drivers.values());
+    }
+
+    @Override
+    public Driver findNearestAvailable(Location location) {
+        List<Driver> nearest = findNearestAvailable(location, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    // Streams every driver through a bounded heap: one exact distance per driver and no sort of the whole fleet
+    @Override
+    public List<Driver> findNearestAvailable(Location location, int count, double maxDistance) {
+        NearestCandidates best = new NearestCandidates(count, maxDistance);
+        for (Driver driver : drivers.values()) {
+            if (driver.isAvailable()) {
+                best.offer(driver, DistanceCalculator.calculateDistance(metric, driver.getCurrentLocation(), location));
+            }
+        }
+        return best.toSortedList();
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric() {
+        return metric;
+    }
+
+    @Override
+    public int size() {
+        return drivers.size();
+    }
+
+    @Override
+    public void clear() {
+        drivers.clear();
+    }
+}
@@ -0,0 +1,111 @@
+package com.mobility.index;
+
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceKernel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Bounded max-heap keeping the closest drivers seen so far, ties broken by driver ID. Each distance is computed once
+// by the caller, and anything beyond the optional limit is never kept. Given a kernel, the limit is a maximum
+// distance in the metric's units: ranks only pre-filter, and a driver is kept only if the exact distance is within it.
+final class NearestCandidates {
+
+    private static final Comparator<Candidate> NEAREST_FIRST = Comparator
+            .comparingDouble(Candidate::distance)
+            .thenComparing(c -> c.driver().getDriverId());
+
+    private final int capacity;
+    private final double limit;
+    // Null when distances are exact
+    private final DistanceKernel kernel;
+    private final double maxDistance;
+    private final PriorityQueue<Candidate> heap;
+
+    NearestCandidates(int capacity) {
+        this(capacity, Double.POSITIVE_INFINITY);
+    }
+
+    NearestCandidates(int capacity, double limit) {
+        this(capacity, limit, null, Double.POSITIVE_INFINITY);
+    }
+
+    // Offers are kernel ranks; drivers farther than maxDistance by the exact metric are dropped
+    NearestCandidates(int capacity, DistanceKernel kernel, double maxDistance) {
+        this(capacity, kernel.rankBound(maxDistance), kernel, maxDistance);
+    }
+
+    private NearestCandidates(int capacity, double limit, DistanceKernel kernel, double maxDistance) {
+        this.capacity = capacity;
+        this.limit = limit;
+        this.kernel = kernel;
+        this.maxDistance = maxDistance;
+        this.heap = new PriorityQueue<>(NEAREST_FIRST.reversed());
+    }
+
+    void offer(Driver driver, double distance) {
+        if (distance > limit) {
+            return;
+        }
+        if (heap.size() < capacity) {
+            if (inRange(driver)) {
+                heap.add(new Candidate(driver, distance));
+            }
+            return;
+        }
+
+        Candidate worst = heap.peek();
+        if ((distance < worst.distance()
+                || (distance == worst.distance() && driver.getDriverId().compareTo(worst.driver().getDriverId()) < 0))
+                && inRange(driver)) {
+            heap.poll();
+            heap.add(new Candidate(driver, distance));
+        }
+    }
+
+    // Only for drivers about to be kept, so the exact distance is computed for few of the candidates scanned
+    private boolean inRange(Driver driver) {
+        if (kernel == null || maxDistance == Double.POSITIVE_INFINITY) {
+            return true;
+        }
+        Location location = driver.getCurrentLocation();
+        return kernel.within(location.getLatitude(), location.getLongitude(), maxDistance);
+    }
+
+    // Merges another partial result, e.g. from a parallel chunk
+    void offerAll(NearestCandidates other) {
+        for (Candidate candidate : other.heap) {
+            offer(candidate.driver(), candidate.distance());
+        }
+    }
+
+    boolean isFull() {
+        return heap.size() == capacity;
+    }
+
+    // Distance a newcomer has to beat, or the limit while there is still room
+    double worstDistance() {
+        return isFull() ? heap.peek().distance() : limit;
+    }
+
+    void clear() {
+        heap.clear();
+    }
+
+    List<Driver> toSortedList() {
+        List<Candidate> sorted = new ArrayList<>(heap);
+        sorted.sort(NEAREST_FIRST);
+
+        List<Driver> result = new ArrayList<>(sorted.size());
+        for (Candidate candidate : sorted) {
+            result.add(candidate.driver());
+        }
+        return result;
+    }
+
+    private record Candidate(Driver driver, double distance) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.mobility.index;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceKernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Brute-force scan over coordinates packed into parallel arrays, for when no spatial structure pays off.
+ * Uses the Vector API when the incubator module is available and plain loops otherwise.
+ */
+public class PackedScanDriverIndex implements DriverIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final DistanceMetric metric;
+    private final CandidateScanner scanner;
+    private final int parallelThreshold;
+    // Exclusive for add/remove, which move slots; shared for searches and in-place location updates
+    private final ReadWriteLock lock;
+    private final Map<String, Integer> slots;
+    private Driver[] drivers;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int count;
+
+    public PackedScanDriverIndex() {
+        this(DistanceMetric.EUCLIDEAN);
+    }
+
+    // Splitting a scan only costs extra hand-offs without a spare core, so the default keeps it sequential there
+    public PackedScanDriverIndex(DistanceMetric metric) {
+        this(metric, Runtime.getRuntime().availableProcessors() > 1
+                ? RideMatchingCostants.PARALLEL_SCAN_THRESHOLD
+                : Integer.MAX_VALUE);
+    }
+
+    // Fleets of parallelThreshold drivers or more are scanned in chunks on a dedicated fork-join pool
+    public PackedScanDriverIndex(DistanceMetric metric, int parallelThreshold) {
+        this(metric, CandidateScanner.create(), parallelThreshold);
+    }
+
+    PackedScanDriverIndex(DistanceMetric metric, CandidateScanner scanner, int parallelThreshold) {
+        if (metric == null) {
+            throw new IllegalArgumentException("Distance metric cannot be null");
+        }
+        if (parallelThreshold <= 0) {
+            throw new IllegalArgumentException("Parallel threshold must be positive");
+        }
+        this.metric = metric;
+        this.scanner = scanner;
+        this.parallelThreshold = parallelThreshold;
+        this.lock = new ReentrantReadWriteLock();
+        this.slots = new HashMap<>();
+        this.drivers = new Driver[INITIAL_CAPACITY];
+        this.latitudes = new double[INITIAL_CAPACITY];
+        this.longitudes = new double[INITIAL_CAPACITY];
+    }
+
+    public boolean isVectorized() {
+        return !(scanner instanceof ScalarCandidateScanner);
+    }
+
+    @Override
+    public void add(Driver driver) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(driver.getDriverId());
+            if (!driver.isAvailable()) {
+                if (slot != null) {
+                    removeSlot(slot);
+                }
+                return;
+            }
+
+            if (slot == null) {
+                ensureCapacity(count + 1);
+                slot = count++;
+                slots.put(driver.getDriverId(), slot);
+            }
+            drivers[slot] = driver;
+            write(slot, driver);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Slots only move under the exclusive lock, so a shared hold is enough to write one in place
+    @Override
+    public void update(Driver driver) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(driver.getDriverId());
+            if (slot != null && drivers[slot] == driver) {
+                write(slot, driver);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Driver driver) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(driver.getDriverId());
+            if (slot != null && drivers[slot] == driver) {
+                removeSlot(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Driver driver) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(driver.getDriverId());
+            return slot != null && drivers[slot] == driver;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Driver> availableDrivers() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(Arrays.asList(drivers).subList(0, count));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Driver findNearestAvailable(Location location) {
+        List<Driver> nearest = findNearestAvailable(location, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    @Override
+    public List<Driver> findNearestAvailable(Location location, int count, double maxDistance) {
+        DistanceKernel kernel = DistanceKernel.around(location, metric);
+
+        // Pool workers read the arrays while this thread holds the shared lock, so slots cannot move under them
+        lock.readLock().lock();
+        try {
+            if (this.count >= parallelThreshold) {
+                return ParallelCandidateScan.scan(scanner, latitudes, longitudes, drivers, this.count,
+                        RideMatchingCostants.PARALLEL_SCAN_CHUNK_SIZE, kernel, count, maxDistance).toSortedList();
+            }
+            NearestCandidates best = new NearestCandidates(count, kernel, maxDistance);
+            scanner.scan(latitudes, longitudes, drivers, 0, this.count, kernel, best);
+            return best.toSortedList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric() {
+        return metric;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(drivers, 0, count, null);
+            slots.clear();
+            count = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(int slot, Driver driver) {
+        Location location = driver.getCurrentLocation();
+        latitudes[slot] = location.getLatitude();
+        longitudes[slot] = location.getLongitude();
+    }
+
+    // Keeps the arrays dense by moving the last driver into the freed slot
+    private void removeSlot(int slot) {
+        int last = --count;
+        slots.remove(drivers[slot].getDriverId());
+        if (slot != last) {
+            drivers[slot] = drivers[last];
+            latitudes[slot] = latitudes[last];
+            longitudes[slot] = longitudes[last];
+            slots.put(drivers[slot].getDriverId(), slot);
+        }
+        drivers[last] = null;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= drivers.length) {
+            return;
+        }
+        int capacity = Math.max(required, drivers.length * 2);
+        drivers = Arrays.copyOf(drivers, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+    }
+}
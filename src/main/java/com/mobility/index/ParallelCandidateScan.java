@@ -0,0 +1,72 @@
+package com.mobility.index;
+
+import com.mobility.model.Driver;
+import com.mobility.utils.DistanceKernel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+// Splits a packed scan into fixed-size chunks on a dedicated pool; each chunk keeps its own top-k, merged on join
+final class ParallelCandidateScan extends RecursiveTask<NearestCandidates> {
+
+    // Own pool, so long scans neither starve nor queue behind work on the common pool
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("candidate-scan-" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+
+    private final CandidateScanner scanner;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final Driver[] drivers;
+    private final int from;
+    private final int to;
+    private final int chunkSize;
+    private final DistanceKernel kernel;
+    private final int capacity;
+    private final double maxDistance;
+
+    private ParallelCandidateScan(CandidateScanner scanner, double[] latitudes, double[] longitudes, Driver[] drivers,
+                                  int from, int to, int chunkSize, DistanceKernel kernel, int capacity, double maxDistance) {
+        this.scanner = scanner;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.drivers = drivers;
+        this.from = from;
+        this.to = to;
+        this.chunkSize = chunkSize;
+        this.kernel = kernel;
+        this.capacity = capacity;
+        this.maxDistance = maxDistance;
+    }
+
+    static NearestCandidates scan(CandidateScanner scanner, double[] latitudes, double[] longitudes, Driver[] drivers,
+                                  int count, int chunkSize, DistanceKernel kernel, int capacity, double maxDistance) {
+        return POOL.invoke(new ParallelCandidateScan(scanner, latitudes, longitudes, drivers,
+                0, count, chunkSize, kernel, capacity, maxDistance));
+    }
+
+    @Override
+    protected NearestCandidates compute() {
+        if (to - from <= chunkSize) {
+            NearestCandidates best = new NearestCandidates(capacity, kernel, maxDistance);
+            scanner.scan(latitudes, longitudes, drivers, from, to, kernel, best);
+            return best;
+        }
+
+        // Split on a chunk boundary, so the chunks are the same however the range was divided
+        int chunks = (to - from + chunkSize - 1) / chunkSize;
+        int middle = from + (chunks / 2) * chunkSize;
+        ParallelCandidateScan left = new ParallelCandidateScan(scanner, latitudes, longitudes, drivers,
+                from, middle, chunkSize, kernel, capacity, maxDistance);
+        ParallelCandidateScan right = new ParallelCandidateScan(scanner, latitudes, longitudes, drivers,
+                middle, to, chunkSize, kernel, capacity, maxDistance);
+
+        left.fork();
+        NearestCandidates best = right.compute();
+        best.offerAll(left.join());
+        return best;
+    }
+}
@@ -0,0 +1,18 @@
+package com.mobility.index;
+
+import com.mobility.model.Driver;
+import com.mobility.utils.DistanceKernel;
+
+final class ScalarCandidateScanner implements CandidateScanner {
+
+    @Override
+    public void scan(double[] latitudes, double[] longitudes, Driver[] drivers, int from, int to,
+                     DistanceKernel kernel, NearestCandidates best) {
+        for (int i = from; i < to; i++) {
+            double rank = kernel.rank(latitudes[i], longitudes[i]);
+            if (rank <= best.worstDistance() && drivers[i].isAvailable()) {
+                best.offer(drivers[i], rank);
+            }
+        }
+    }
+}
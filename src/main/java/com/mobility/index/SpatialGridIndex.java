@@ -0,0 +1,305 @@
+package com.mobility.index;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceKernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Uniform lat/lon grid of drivers, searched in expanding rings around the query cell. Under HAVERSINE the rings wrap
+ * round the antimeridian, as the distance does.
+ */
+public class SpatialGridIndex implements DriverIndex {
+
+    private final double cellSize;
+    private final DistanceMetric metric;
+    private final int rows;
+    private final int columns;
+    private final boolean wrapsColumns;
+    // How far the last column reaches past 180 degrees when the cell size does not divide 360
+    private final double wrapSlack;
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<String, Driver>> cells;
+    private final ConcurrentHashMap<String, Long> driverCells;
+
+    public SpatialGridIndex() {
+        this(RideMatchingCostants.GRID_CELL_SIZE_DEGREES);
+    }
+
+    public SpatialGridIndex(double cellSize) {
+        this(cellSize, DistanceMetric.EUCLIDEAN);
+    }
+
+    public SpatialGridIndex(DistanceMetric metric) {
+        this(RideMatchingCostants.GRID_CELL_SIZE_DEGREES, metric);
+    }
+
+    public SpatialGridIndex(double cellSize, DistanceMetric metric) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        if (metric == null) {
+            throw new IllegalArgumentException("Distance metric cannot be null");
+        }
+        this.cellSize = cellSize;
+        this.metric = metric;
+        this.rows = (int) Math.ceil((RideMatchingCostants.MAX_LATITUDE - RideMatchingCostants.MIN_LATITUDE) / cellSize);
+        this.columns = (int) Math.ceil((RideMatchingCostants.MAX_LONGITUDE - RideMatchingCostants.MIN_LONGITUDE) / cellSize);
+        this.wrapsColumns = metric == DistanceMetric.HAVERSINE;
+        this.wrapSlack = wrapsColumns
+                ? Math.max(0, columns * cellSize - (RideMatchingCostants.MAX_LONGITUDE - RideMatchingCostants.MIN_LONGITUDE))
+                : 0;
+        this.cells = new ConcurrentHashMap<>();
+        this.driverCells = new ConcurrentHashMap<>();
+    }
+
+    // Inserts the driver, or moves it to the cell of its current location if already indexed
+    @Override
+    public void add(Driver driver) {
+        // A concurrent write may land between reading the position and committing the cell, so re-check
+        Long cell = move(driver);
+        while (cell != null && cell != cellOf(driver)) {
+            Thread.onSpinWait();
+            cell = move(driver);
+        }
+    }
+
+    @Override
+    public void update(Driver driver) {
+        // Most GPS pings stay inside the current cell and need no structural change (nor allocation)
+        Long current = driverCells.get(driver.getDriverId());
+        if (current != null ? current == cellOf(driver) : !driver.isAvailable()) {
+            return;
+        }
+        add(driver);
+    }
+
+    // Drivers that changed cell are applied grouped by destination cell, so each cell map is touched in one run
+    @Override
+    public void updateAll(List<Driver> drivers) {
+        int count = drivers.size();
+        long[] moves = new long[count];
+        int moving = 0;
+
+        for (int i = 0; i < count; i++) {
+            Driver driver = drivers.get(i);
+            Long current = driverCells.get(driver.getDriverId());
+            if (current == null && !driver.isAvailable()) {
+                continue;
+            }
+            long cell = cellOf(driver);
+            if (current == null || current != cell) {
+                moves[moving++] = cell * count + i;
+            }
+        }
+
+        // rows * columns * count stays far below Long.MAX_VALUE for any realistic cell size and batch
+        Arrays.sort(moves, 0, moving);
+        for (int i = 0; i < moving; i++) {
+            add(drivers.get((int) (moves[i] % count)));
+        }
+    }
+
+    // Returns the driver's cell, or null if it was left out (or dropped) because it is no longer available
+    private Long move(Driver driver) {
+        // Per-driver compute serialises concurrent moves of the same driver, and availability is read under it
+        return driverCells.compute(driver.getDriverId(), (id, previousCell) -> {
+            if (!driver.isAvailable()) {
+                if (previousCell != null) {
+                    removeFromCell(previousCell, driver);
+                }
+                return null;
+            }
+            long cell = cellOf(driver);
+            if (previousCell != null && previousCell != cell) {
+                removeFromCell(previousCell, driver);
+            }
+            addToCell(cell, driver);
+            return cell;
+        });
+    }
+
+    @Override
+    public void remove(Driver driver) {
+        removeIf(driver, d -> true);
+    }
+
+    // Removes the driver only if it is the indexed instance and the condition still holds while its entry is locked
+    boolean removeIf(Driver driver, Predicate<Driver> condition) {
+        boolean[] removed = new boolean[1];
+        driverCells.computeIfPresent(driver.getDriverId(), (id, cell) -> {
+            if (indexed(cell, id) != driver || !condition.test(driver)) {
+                return cell;
+            }
+            removeFromCell(cell, driver);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    boolean contains(String driverId) {
+        return driverCells.containsKey(driverId);
+    }
+
+    @Override
+    public boolean contains(Driver driver) {
+        Long cell = driverCells.get(driver.getDriverId());
+        return cell != null && indexed(cell, driver.getDriverId()) == driver;
+    }
+
+    private Driver indexed(long cell, String driverId) {
+        ConcurrentHashMap<String, Driver> members = cells.get(cell);
+        return members == null ? null : members.get(driverId);
+    }
+
+    @Override
+    public List<Driver> availableDrivers() {
+        List<Driver> available = new ArrayList<>(driverCells.size());
+        for (ConcurrentHashMap<String, Driver> cell : cells.values()) {
+            available.addAll(cell.values());
+        }
+        return available;
+    }
+
+    @Override
+    public Driver findNearestAvailable(Location location) {
+        List<Driver> nearest = findNearestAvailable(location, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    @Override
+    public List<Driver> findNearestAvailable(Location location, int count, double maxDistance) {
+        DistanceKernel kernel = DistanceKernel.around(location, metric);
+        NearestCandidates best = new NearestCandidates(count, kernel, maxDistance);
+        int originRow = row(location.getLatitude());
+        int originColumn = column(location.getLongitude());
+        int columnReach = wrapsColumns ? columns / 2 : Math.max(originColumn, columns - 1 - originColumn);
+        int maxRing = Math.max(Math.max(originRow, rows - 1 - originRow), columnReach);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Once a ring holds more cells than are occupied, a flat scan of occupied cells is cheaper. A wrapped ring
+            // wider than the grid would visit columns twice, so it is scanned flat too.
+            if (ring > 0 && (8L * ring > cells.size() || (wrapsColumns && 2 * ring + 1 > columns))) {
+                best.clear();
+                for (ConcurrentHashMap<String, Driver> cell : cells.values()) {
+                    offerAll(cell, kernel, best);
+                }
+                break;
+            }
+
+            visitRing(originRow, originColumn, ring, kernel, best);
+
+            // Every driver outside this ring is at least ring * cellSize away along one axis, less the short last
+            // column when the ring has wrapped past it
+            if (best.worstDistance() < kernel.gap(Math.max(0, ring * cellSize - wrapSlack))) {
+                break;
+            }
+        }
+
+        return best.toSortedList();
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric() {
+        return metric;
+    }
+
+    @Override
+    public int size() {
+        return driverCells.size();
+    }
+
+    @Override
+    public void clear() {
+        driverCells.clear();
+        cells.clear();
+    }
+
+    private void visitRing(int originRow, int originColumn, int ring, DistanceKernel kernel, NearestCandidates best) {
+        if (ring == 0) {
+            visitCell(originRow, originColumn, kernel, best);
+            return;
+        }
+
+        for (int column = originColumn - ring; column <= originColumn + ring; column++) {
+            visitCell(originRow - ring, column, kernel, best);
+            visitCell(originRow + ring, column, kernel, best);
+        }
+        for (int row = originRow - ring + 1; row <= originRow + ring - 1; row++) {
+            visitCell(row, originColumn - ring, kernel, best);
+            visitCell(row, originColumn + ring, kernel, best);
+        }
+    }
+
+    private void visitCell(int row, int column, DistanceKernel kernel, NearestCandidates best) {
+        if (row < 0 || row >= rows) {
+            return;
+        }
+        if (wrapsColumns) {
+            column = Math.floorMod(column, columns);
+        } else if (column < 0 || column >= columns) {
+            return;
+        }
+
+        ConcurrentHashMap<String, Driver> cell = cells.get(cellKey(row, column));
+        if (cell != null) {
+            offerAll(cell, kernel, best);
+        }
+    }
+
+    private void offerAll(ConcurrentHashMap<String, Driver> cell, DistanceKernel kernel, NearestCandidates best) {
+        for (Driver driver : cell.values()) {
+            if (!driver.isAvailable()) {
+                continue;
+            }
+
+            Location current = driver.getCurrentLocation();
+            best.offer(driver, kernel.rankWithin(current.getLatitude(), current.getLongitude(), best.worstDistance()));
+        }
+    }
+
+    private void addToCell(long cell, Driver driver) {
+        cells.compute(cell, (key, members) -> {
+            if (members == null) {
+                members = new ConcurrentHashMap<>();
+            }
+            // Re-registration replaces the previous instance with the same ID
+            members.put(driver.getDriverId(), driver);
+            return members;
+        });
+    }
+
+    private void removeFromCell(long cell, Driver driver) {
+        cells.computeIfPresent(cell, (key, members) -> {
+            members.remove(driver.getDriverId());
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private long cellOf(Driver driver) {
+        return cellKey(row(driver.getLatitude()), column(driver.getLongitude()));
+    }
+
+    private int row(double latitude) {
+        return clamp((int) Math.floor((latitude - RideMatchingCostants.MIN_LATITUDE) / cellSize), rows);
+    }
+
+    private int column(double longitude) {
+        return clamp((int) Math.floor((longitude - RideMatchingCostants.MIN_LONGITUDE) / cellSize), columns);
+    }
+
+    private long cellKey(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(value, limit - 1));
+    }
+}
@@ -0,0 +1,58 @@
+package com.mobility.index;
+
+import com.mobility.model.Driver;
+import com.mobility.utils.DistanceKernel;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Ranks a full vector of candidates per step and only drops to scalar code for lanes that beat the current worst
+final class VectorCandidateScanner implements CandidateScanner {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void scan(double[] latitudes, double[] longitudes, Driver[] drivers, int from, int to,
+                     DistanceKernel kernel, NearestCandidates best) {
+        DoubleVector originLatitude = DoubleVector.broadcast(SPECIES, kernel.originLatitude());
+        DoubleVector originLongitude = DoubleVector.broadcast(SPECIES, kernel.originLongitude());
+        DoubleVector longitudeScale = DoubleVector.broadcast(SPECIES, kernel.longitudeScale());
+        boolean wraps = kernel.wrapsLongitude();
+        double[] ranks = new double[SPECIES.length()];
+        double worst = best.worstDistance();
+
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector deltaLat = DoubleVector.fromArray(SPECIES, latitudes, i).sub(originLatitude);
+            DoubleVector deltaLon = DoubleVector.fromArray(SPECIES, longitudes, i).sub(originLongitude);
+            if (wraps) {
+                deltaLon = deltaLon.sub(360, deltaLon.compare(VectorOperators.GT, 180))
+                        .add(360, deltaLon.compare(VectorOperators.LT, -180));
+            }
+            deltaLon = deltaLon.mul(longitudeScale);
+            // Same operation order as DistanceKernel.rank, so both scanners produce identical ranks
+            DoubleVector rank = deltaLat.mul(deltaLat).add(deltaLon.mul(deltaLon));
+
+            VectorMask<Double> closer = rank.compare(VectorOperators.LE, worst);
+            if (!closer.anyTrue()) {
+                continue;
+            }
+            rank.intoArray(ranks, 0);
+            for (int lane = closer.firstTrue(); lane < ranks.length; lane++) {
+                if (closer.laneIsSet(lane) && ranks[lane] <= worst && drivers[i + lane].isAvailable()) {
+                    best.offer(drivers[i + lane], ranks[lane]);
+                    worst = best.worstDistance();
+                }
+            }
+        }
+
+        for (; i < to; i++) {
+            double rank = kernel.rank(latitudes[i], longitudes[i]);
+            if (rank <= worst && drivers[i].isAvailable()) {
+                best.offer(drivers[i], rank);
+                worst = best.worstDistance();
+            }
+        }
+    }
+}
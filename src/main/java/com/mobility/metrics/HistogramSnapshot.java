@@ -0,0 +1,68 @@
+package com.mobility.metrics;
+
+/**
+ * Point-in-time copy of a Histogram. Percentiles and the maximum report the top of the bucket the value fell in,
+ * so they are never understated.
+ */
+public class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+
+    HistogramSnapshot(long[] counts) {
+        this.counts = counts;
+        long total = 0;
+        for (long bucket : counts) {
+            total += bucket;
+        }
+        this.count = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // percentile in [0, 100]; 0 when nothing was recorded
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Histogram.highestValueOf(bucket);
+            }
+        }
+        return getMax();
+    }
+
+    public long getMax() {
+        for (int bucket = counts.length - 1; bucket >= 0; bucket--) {
+            if (counts[bucket] > 0) {
+                return Histogram.highestValueOf(bucket);
+            }
+        }
+        return 0;
+    }
+
+    // From bucket midpoints
+    public double getMean() {
+        if (count == 0) {
+            return 0;
+        }
+        double total = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            if (counts[bucket] > 0) {
+                double middle = (Histogram.lowestValueOf(bucket) + (double) Histogram.highestValueOf(bucket)) / 2;
+                total += middle * counts[bucket];
+            }
+        }
+        return total / count;
+    }
+}
@@ -0,0 +1,55 @@
+package com.mobility.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Values of every counter and histogram at one moment, for export. Counters only grow, so rates come from the
+ * difference between two snapshots.
+ */
+public record MetricsSnapshot(
+        long rideRequests,
+        long ridesMatched,
+        long noAvailableDriver,
+        long allocationFailures,
+        long lostClaims,
+        long locationUpdates,
+        long rideCompletions,
+        long lockWaits,
+        HistogramSnapshot requestRideLatency,
+        HistogramSnapshot updateLocationLatency,
+        HistogramSnapshot completeRideLatency,
+        HistogramSnapshot claimRetries,
+        HistogramSnapshot candidatesScanned,
+        HistogramSnapshot lockWaitTime) {
+
+    // Flat name -> value view for metrics exporters; histograms contribute count, mean, p50, p90, p99, p99.9 and max
+    public Map<String, Long> toMap() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("rideRequests", rideRequests);
+        values.put("ridesMatched", ridesMatched);
+        values.put("noAvailableDriver", noAvailableDriver);
+        values.put("allocationFailures", allocationFailures);
+        values.put("lostClaims", lostClaims);
+        values.put("locationUpdates", locationUpdates);
+        values.put("rideCompletions", rideCompletions);
+        values.put("lockWaits", lockWaits);
+        putHistogram(values, "requestRideLatencyNanos", requestRideLatency);
+        putHistogram(values, "updateLocationLatencyNanos", updateLocationLatency);
+        putHistogram(values, "completeRideLatencyNanos", completeRideLatency);
+        putHistogram(values, "claimRetries", claimRetries);
+        putHistogram(values, "candidatesScanned", candidatesScanned);
+        putHistogram(values, "lockWaitNanos", lockWaitTime);
+        return values;
+    }
+
+    private static void putHistogram(Map<String, Long> values, String name, HistogramSnapshot histogram) {
+        values.put(name + ".count", histogram.getCount());
+        values.put(name + ".mean", Math.round(histogram.getMean()));
+        values.put(name + ".p50", histogram.getValueAtPercentile(50));
+        values.put(name + ".p90", histogram.getValueAtPercentile(90));
+        values.put(name + ".p99", histogram.getValueAtPercentile(99));
+        values.put(name + ".p999", histogram.getValueAtPercentile(99.9));
+        values.put(name + ".max", histogram.getMax());
+    }
+}
@@ -0,0 +1,146 @@
+package com.mobility.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms recorded on the service's hot paths. Counters are LongAdders and histograms are striped,
+ * so recording threads rarely share a cache line. Latencies and lock waits are in nanoseconds.
+ * Operations pass the value of start() back to the recording call; while disabled start() returns 0, no clock is
+ * read and nothing is recorded.
+ */
+public class RideMatchingMetrics {
+
+    private volatile boolean enabled;
+
+    private final LongAdder rideRequests;
+    private final LongAdder ridesMatched;
+    private final LongAdder noAvailableDriver;
+    private final LongAdder allocationFailures;
+    private final LongAdder lostClaims;
+    private final LongAdder locationUpdates;
+    private final LongAdder rideCompletions;
+    private final LongAdder lockWaits;
+
+    private final Histogram requestRideLatency;
+    private final Histogram updateLocationLatency;
+    private final Histogram completeRideLatency;
+    private final Histogram claimRetries;
+    private final Histogram candidatesScanned;
+    private final Histogram lockWaitTime;
+
+    public RideMatchingMetrics() {
+        this.enabled = true;
+        this.rideRequests = new LongAdder();
+        this.ridesMatched = new LongAdder();
+        this.noAvailableDriver = new LongAdder();
+        this.allocationFailures = new LongAdder();
+        this.lostClaims = new LongAdder();
+        this.locationUpdates = new LongAdder();
+        this.rideCompletions = new LongAdder();
+        this.lockWaits = new LongAdder();
+        this.requestRideLatency = new Histogram();
+        this.updateLocationLatency = new Histogram();
+        this.completeRideLatency = new Histogram();
+        this.claimRetries = new Histogram();
+        this.candidatesScanned = new Histogram();
+        this.lockWaitTime = new Histogram();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Takes effect for operations that start afterwards
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // lost is the number of drivers that were claimed by someone else first
+    public void rideMatched(long start, int candidates, int lost) {
+        if (start == 0) {
+            return;
+        }
+        requestRideLatency.record(System.nanoTime() - start);
+        rideRequests.increment();
+        ridesMatched.increment();
+        candidatesScanned.record(candidates);
+        claimRetries.record(lost);
+        if (lost > 0) {
+            lostClaims.add(lost);
+        }
+    }
+
+    public void noAvailableDriver(long start) {
+        if (start == 0) {
+            return;
+        }
+        requestRideLatency.record(System.nanoTime() - start);
+        rideRequests.increment();
+        noAvailableDriver.increment();
+    }
+
+    public void allocationFailed(long start, int candidates, int lost) {
+        if (start == 0) {
+            return;
+        }
+        requestRideLatency.record(System.nanoTime() - start);
+        rideRequests.increment();
+        allocationFailures.increment();
+        candidatesScanned.record(candidates);
+        lostClaims.add(lost);
+    }
+
+    public void locationUpdated(long start) {
+        if (start == 0) {
+            return;
+        }
+        updateLocationLatency.record(System.nanoTime() - start);
+        locationUpdates.increment();
+    }
+
+    // Batches are counted per fix applied, without latency
+    public void locationsUpdated(int count) {
+        if (enabled) {
+            locationUpdates.add(count);
+        }
+    }
+
+    public void rideCompleted(long start) {
+        if (start == 0) {
+            return;
+        }
+        completeRideLatency.record(System.nanoTime() - start);
+        rideCompletions.increment();
+    }
+
+    // Only contended acquisitions are timed; callers try the lock first
+    public void lockWaited(long start) {
+        if (start == 0) {
+            return;
+        }
+        lockWaitTime.record(System.nanoTime() - start);
+        lockWaits.increment();
+    }
+
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(
+                rideRequests.sum(),
+                ridesMatched.sum(),
+                noAvailableDriver.sum(),
+                allocationFailures.sum(),
+                lostClaims.sum(),
+                locationUpdates.sum(),
+                rideCompletions.sum(),
+                lockWaits.sum(),
+                requestRideLatency.snapshot(),
+                updateLocationLatency.snapshot(),
+                completeRideLatency.snapshot(),
+                claimRetries.snapshot(),
+                candidatesScanned.snapshot(),
+                lockWaitTime.snapshot());
+    }
+}
@@ -1,5 +1,7 @@
 package com.mobility.model;
 
+import com.mobility.store.PositionStore;
+
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Objects;
 
@@ -9,6 +11,8 @@ public class Driver {
     private final String name;
     private volatile Location currentLocation;
     private final AtomicBoolean available;
+    private volatile PositionSlot positionSlot;
+    private volatile CachedLocation cachedLocation;
 
     public Driver(String driverId, String name, Location currentLocation) {
         validateInputs(driverId, name, currentLocation);
@@ -38,15 +42,181 @@ public class Driver {
         return name;
     }
 
+    // Consistent snapshot; a new Location is only materialised when the stored position has changed
     public Location getCurrentLocation() {
-        return currentLocation;
+        while (true) {
+            PositionSlot slot = positionSlot;
+            if (slot == null) {
+                return currentLocation;
+            }
+
+            PositionStore store = slot.store();
+            long handle = slot.handle();
+            long stamp = store.readStamp(handle);
+            if (stamp == PositionStore.STALE) {
+                lost(slot);
+                continue;
+            }
+            CachedLocation cached = cachedLocation;
+            if (cached != null && cached.version() == stamp) {
+                return cached.location();
+            }
+
+            double latitude = store.latitude(handle);
+            double longitude = store.longitude(handle);
+            if (store.validate(handle, stamp)) {
+                Location location = new Location(latitude, longitude);
+                cachedLocation = new CachedLocation(stamp, location);
+                return location;
+            }
+        }
+    }
+
+    // Individually atomic, but the pair may straddle a concurrent update; use getCurrentLocation() for a snapshot
+    public double getLatitude() {
+        while (true) {
+            PositionSlot slot = positionSlot;
+            if (slot == null) {
+                return currentLocation.getLatitude();
+            }
+            long stamp = slot.store().readStamp(slot.handle());
+            if (stamp == PositionStore.STALE) {
+                lost(slot);
+                continue;
+            }
+            double latitude = slot.store().latitude(slot.handle());
+            if (slot.store().validate(slot.handle(), stamp)) {
+                return latitude;
+            }
+        }
+    }
+
+    public double getLongitude() {
+        while (true) {
+            PositionSlot slot = positionSlot;
+            if (slot == null) {
+                return currentLocation.getLongitude();
+            }
+            long stamp = slot.store().readStamp(slot.handle());
+            if (stamp == PositionStore.STALE) {
+                lost(slot);
+                continue;
+            }
+            double longitude = slot.store().longitude(slot.handle());
+            if (slot.store().validate(slot.handle(), stamp)) {
+                return longitude;
+            }
+        }
     }
 
     public void setCurrentLocation(Location location) {
         if (location == null) {
             throw new IllegalArgumentException("Location cannot be null");
         }
-        this.currentLocation = location;
+
+        while (true) {
+            PositionSlot slot = positionSlot;
+            if (slot == null) {
+                this.currentLocation = location;
+                return;
+            }
+
+            long version = slot.store().write(slot.handle(), location.getLatitude(), location.getLongitude());
+            if (version != PositionStore.STALE) {
+                cachedLocation = new CachedLocation(version, location);
+                return;
+            }
+            lost(slot);
+        }
+    }
+
+    // Allocation-free once the driver is attached to a position store
+    public void updateLocation(double latitude, double longitude) {
+        Location.validateCoordinates(latitude, longitude);
+
+        while (true) {
+            PositionSlot slot = positionSlot;
+            if (slot == null) {
+                this.currentLocation = new Location(latitude, longitude);
+                return;
+            }
+
+            if (slot.store().write(slot.handle(), latitude, longitude) != PositionStore.STALE) {
+                return;
+            }
+            lost(slot);
+        }
+    }
+
+    // Moves the position into the store, releasing any slot held in another store; later updates write to the
+    // store's slot in place
+    public synchronized void attachTo(PositionStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("Position store cannot be null");
+        }
+
+        PositionSlot slot = positionSlot;
+        if (slot != null && slot.store() == store) {
+            return;
+        }
+
+        Location location = slot == null ? currentLocation : release(slot);
+        long handle = store.allocate(location.getLatitude(), location.getLongitude());
+        this.cachedLocation = new CachedLocation(store.readStamp(handle), location);
+        this.positionSlot = new PositionSlot(store, handle);
+    }
+
+    // Copies the last stored position back onto the driver and releases its slot for reuse
+    public synchronized void detach() {
+        PositionSlot slot = positionSlot;
+        if (slot == null) {
+            return;
+        }
+
+        this.currentLocation = release(slot);
+        this.positionSlot = null;
+        this.cachedLocation = null;
+    }
+
+    // Detaches only if the position lives in the given store, e.g. not once another service has adopted the driver
+    public synchronized void detachFrom(PositionStore store) {
+        PositionSlot slot = positionSlot;
+        if (slot != null && slot.store() == store) {
+            detach();
+        }
+    }
+
+    // Returns the last position written to the slot. A write racing the release either lands first and is returned,
+    // or finds its handle stale and retries against the driver's next slot once this monitor is free.
+    private Location release(PositionSlot slot) {
+        PositionStore store = slot.store();
+        long handle = slot.handle();
+        while (true) {
+            long stamp = store.readStamp(handle);
+            if (stamp == PositionStore.STALE) {
+                return lastKnownLocation();
+            }
+            double latitude = store.latitude(handle);
+            double longitude = store.longitude(handle);
+            if (store.validate(handle, stamp) && store.release(handle, stamp)) {
+                return new Location(latitude, longitude);
+            }
+        }
+    }
+
+    // The store was cleared from under the driver: it carries on unattached from the last position it read there
+    private synchronized void lost(PositionSlot slot) {
+        if (positionSlot != slot) {
+            return;
+        }
+        this.currentLocation = lastKnownLocation();
+        this.positionSlot = null;
+        this.cachedLocation = null;
+    }
+
+    private Location lastKnownLocation() {
+        CachedLocation cached = cachedLocation;
+        return cached != null ? cached.location() : currentLocation;
     }
 
     public boolean isAvailable() {
@@ -79,4 +249,10 @@ public class Driver {
     public String toString() {
         return String.format("Driver(%s, %s, available = %s)", driverId, name, available.get());
     }
-}
\ No newline at end of file
+
+    private record PositionSlot(PositionStore store, long handle) {
+    }
+
+    private record CachedLocation(long version, Location location) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.mobility.model;
+
+import com.mobility.enums.DriverDeltaType;
+
+/**
+ * One change to a driver subscription's view: a driver that came into it, moved within it or left it. The
+ * coordinates are where the driver is now shown or, for REMOVED, where it was last shown.
+ */
+public record DriverDelta(DriverDeltaType type, String driverId, double latitude, double longitude) {
+}
@@ -16,7 +16,7 @@ public class Location {
         this.longitude = longitude;
     }
 
-    private void validateCoordinates(double latitude, double longitude) {
+    public static void validateCoordinates(double latitude, double longitude) {
         if (latitude < RideMatchingCostants.MIN_LATITUDE || latitude > RideMatchingCostants.MAX_LATITUDE) {
             throw new IllegalArgumentException("Latitude must be between -90 and 90");
         }
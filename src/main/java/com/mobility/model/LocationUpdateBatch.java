@@ -0,0 +1,83 @@
+package com.mobility.model;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of driver GPS fixes, stored as parallel arrays so filling it does not allocate per record.
+ */
+public class LocationUpdateBatch {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private String[] driverIds;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int size;
+
+    public LocationUpdateBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LocationUpdateBatch(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.driverIds = new String[initialCapacity];
+        this.latitudes = new double[initialCapacity];
+        this.longitudes = new double[initialCapacity];
+    }
+
+    public void add(String driverId, double latitude, double longitude) {
+        if (driverId == null || driverId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Driver ID cannot be null or empty");
+        }
+        Location.validateCoordinates(latitude, longitude);
+
+        if (size == driverIds.length) {
+            int capacity = size * 2;
+            driverIds = Arrays.copyOf(driverIds, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+        }
+
+        driverIds[size] = driverId;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        size++;
+    }
+
+    public String getDriverId(int index) {
+        checkIndex(index);
+        return driverIds[index];
+    }
+
+    public double getLatitude(int index) {
+        checkIndex(index);
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        checkIndex(index);
+        return longitudes[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Keeps the arrays so the batch can be refilled without reallocating
+    public void clear() {
+        Arrays.fill(driverIds, 0, size, null);
+        size = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for batch of size " + size);
+        }
+    }
+}
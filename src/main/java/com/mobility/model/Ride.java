@@ -1,13 +1,15 @@
 package com.mobility.model;
 
 import com.mobility.enums.RideStatus;
+import com.mobility.utils.IdGenerator;
 
 import java.time.Instant;
-import java.util.Objects;
 
 public class Ride {
 
-    private final String rideId;
+    private final long rideKey;
+    // Formatted from the key on first use for rides created from one; a racy but idempotent cache, as String is immutable
+    private String rideId;
     private final String riderId;
     private final Driver driver;
     private final Location pickupLocation;
@@ -16,19 +18,42 @@ public class Ride {
     private volatile Instant completionTime;
 
     public Ride(String rideId, String riderId, Driver driver, Location pickupLocation) {
-        validateInputs(rideId, riderId, driver, pickupLocation);
+        this(rideId, riderId, driver, pickupLocation, Instant.now());
+    }
+
+    // Restores a ride requested earlier, e.g. when replaying a journal
+    public Ride(String rideId, String riderId, Driver driver, Location pickupLocation, Instant requestTime) {
+        if (rideId == null || rideId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Ride ID cannot be null or empty");
+        }
+        validateInputs(riderId, driver, pickupLocation);
+        if (requestTime == null) {
+            throw new IllegalArgumentException("Request time cannot be null");
+        }
+        this.rideKey = IdGenerator.parseRideId(rideId);
         this.rideId = rideId;
         this.riderId = riderId;
         this.driver = driver;
         this.pickupLocation = pickupLocation;
-        this.requestTime = Instant.now();
+        this.requestTime = requestTime;
         this.status = RideStatus.IN_PROGRESS;
     }
 
-    private void validateInputs(String rideId, String riderId, Driver driver, Location location) {
-        if (rideId == null || rideId.trim().isEmpty()) {
-            throw new IllegalArgumentException("Ride ID cannot be null or empty");
+    // A ride issued by IdGenerator.nextRideKey; its string ID is only built if someone asks for it
+    public Ride(long rideKey, String riderId, Driver driver, Location pickupLocation) {
+        if (rideKey < 0) {
+            throw new IllegalArgumentException("Ride key cannot be negative");
         }
+        validateInputs(riderId, driver, pickupLocation);
+        this.rideKey = rideKey;
+        this.riderId = riderId;
+        this.driver = driver;
+        this.pickupLocation = pickupLocation;
+        this.requestTime = Instant.now();
+        this.status = RideStatus.IN_PROGRESS;
+    }
+
+    private void validateInputs(String riderId, Driver driver, Location location) {
         if (riderId == null || riderId.trim().isEmpty()) {
             throw new IllegalArgumentException("Rider ID cannot be null or empty");
         }
@@ -41,7 +66,17 @@ public class Ride {
     }
 
     public String getRideId() {
-        return rideId;
+        String id = rideId;
+        if (id == null) {
+            id = IdGenerator.formatRideId(rideKey);
+            rideId = id;
+        }
+        return id;
+    }
+
+    // -1 when the ride ID was not issued by IdGenerator
+    public long getRideKey() {
+        return rideKey;
     }
 
     public String getRiderId() {
@@ -73,8 +108,22 @@ public class Ride {
     }
 
     public void markAsCompleted() {
+        markAsCompleted(Instant.now());
+    }
+
+    public void markAsCompleted(Instant completionTime) {
         this.status = RideStatus.COMPLETED;
-        this.completionTime = Instant.now();
+        this.completionTime = completionTime;
+    }
+
+    public void markAsCancelled() {
+        markAsCancelled(Instant.now());
+    }
+
+    // A cancelled ride keeps the time it ended in completionTime, so it ages out of the history like a completed one
+    public void markAsCancelled(Instant cancellationTime) {
+        this.status = RideStatus.CANCELLED;
+        this.completionTime = cancellationTime;
     }
 
     @Override
@@ -82,16 +131,17 @@ public class Ride {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Ride ride = (Ride) o;
-        return rideId.equals(ride.rideId);
+        // A key is parsed from the ID, so equal IDs always have equal keys
+        return rideKey == ride.rideKey && (rideKey >= 0 || rideId.equals(ride.rideId));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(rideId);
+        return rideKey >= 0 ? Long.hashCode(rideKey) : rideId.hashCode();
     }
 
     @Override
     public String toString() {
-        return String.format("Ride(%s, rider = %s, driver = %s, status = %s)", rideId, riderId, driver.getDriverId(), status);
+        return String.format("Ride(%s, rider = %s, driver = %s, status = %s)", getRideId(), riderId, driver.getDriverId(), status);
     }
 }
\ No newline at end of file
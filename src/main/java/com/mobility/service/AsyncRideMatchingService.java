@@ -0,0 +1,136 @@
+package com.mobility.service;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.exception.ServiceOverloadedException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Non-blocking front end for a RideMatchingService: each request runs on its own virtual thread, so callers
+ * that block on downstream systems (payments, notifications) do not pin a platform thread while they wait.
+ * Admission is bounded; once maxInFlight requests are running, further requests fail at once with a
+ * ServiceOverloadedException instead of queueing without limit, and the caller's thread never blocks.
+ */
+public class AsyncRideMatchingService implements AutoCloseable {
+
+    private final RideMatchingService service;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final Semaphore permits;
+
+    public AsyncRideMatchingService(RideMatchingService service) {
+        this(service, Executors.newVirtualThreadPerTaskExecutor(), RideMatchingCostants.ASYNC_MAX_IN_FLIGHT);
+    }
+
+    // The executor is owned by this front end and shut down on close
+    public AsyncRideMatchingService(RideMatchingService service, ExecutorService executor, int maxInFlight) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight requests must be positive");
+        }
+
+        this.service = service;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    public CompletableFuture<Ride> requestRideAsync(String riderId, Location pickupLocation) {
+        return submit(s -> s.requestRide(riderId, pickupLocation));
+    }
+
+    public CompletableFuture<Void> completeRideAsync(String rideId) {
+        return submit(s -> {
+            s.completeRide(rideId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> cancelRideAsync(String rideId) {
+        return submit(s -> {
+            s.cancelRide(rideId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> updateDriverLocationAsync(String driverId, Location newLocation) {
+        return submit(s -> {
+            s.updateDriverLocation(driverId, newLocation);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Driver>> getNearestDriversAsync(Location location, int count) {
+        return submit(s -> s.getNearestDrivers(location, count));
+    }
+
+    /**
+     * Runs an operation against the service under the same admission limit, for request flows that combine
+     * matching with their own (possibly blocking) downstream calls.
+     */
+    public <T> CompletableFuture<T> submit(Function<RideMatchingService, T> operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation cannot be null");
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!permits.tryAcquire()) {
+            result.completeExceptionally(new ServiceOverloadedException(maxInFlight));
+            return result;
+        }
+
+        try {
+            // The slot is returned before the future completes, so a caller woken by it already sees it free
+            executor.execute(() -> {
+                T value;
+                try {
+                    value = operation.apply(service);
+                } catch (Throwable e) {
+                    permits.release();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                permits.release();
+                result.complete(value);
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            result.completeExceptionally(new IllegalStateException("Async ride matching service is closed", e));
+        }
+        return result;
+    }
+
+    public int getInFlightCount() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public RideMatchingService getService() {
+        return service;
+    }
+
+    // Stops admitting requests and waits for those already running
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.mobility.service;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.exception.RideMatchingException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.utils.AssignmentSolver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects ride requests over a short window and assigns them together, minimising total pickup distance
+ * across the batch instead of greedily serving each request in arrival order.
+ * Requests the assignment cannot serve fall back to immediate matching.
+ */
+public class BatchRideMatcher implements AutoCloseable {
+
+    private final RideMatchingService service;
+    private final int maxBatchSize;
+    private final int candidatesPerRequest;
+    private final ConcurrentLinkedQueue<PendingRequest> queue;
+    private final AtomicInteger queued;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean closed;
+
+    public BatchRideMatcher(RideMatchingService service) {
+        this(service, Duration.ofMillis(RideMatchingCostants.BATCH_WINDOW_MILLIS));
+    }
+
+    public BatchRideMatcher(RideMatchingService service, Duration window) {
+        this(service, window, RideMatchingCostants.BATCH_MAX_SIZE, RideMatchingCostants.BATCH_CANDIDATES_PER_REQUEST);
+    }
+
+    public BatchRideMatcher(RideMatchingService service, Duration window, int maxBatchSize, int candidatesPerRequest) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (maxBatchSize <= 0 || candidatesPerRequest <= 0) {
+            throw new IllegalArgumentException("Batch size and candidates per request must be positive");
+        }
+
+        this.service = service;
+        this.maxBatchSize = maxBatchSize;
+        this.candidatesPerRequest = candidatesPerRequest;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.queued = new AtomicInteger();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-ride-matcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long windowNanos = window.toNanos();
+        scheduler.scheduleWithFixedDelay(this::flush, windowNanos, windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public CompletableFuture<Ride> requestRide(String riderId, Location pickupLocation) {
+        if (riderId == null || riderId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Rider ID cannot be null or empty");
+        }
+        if (pickupLocation == null) {
+            throw new IllegalArgumentException("Pickup location cannot be null or empty");
+        }
+        if (closed) {
+            throw new IllegalStateException("Batch matcher is closed");
+        }
+
+        PendingRequest request = new PendingRequest(riderId, pickupLocation, new CompletableFuture<>());
+        queue.add(request);
+
+        // A full batch does not wait for the window
+        if (queued.incrementAndGet() == maxBatchSize) {
+            scheduleFlush();
+        }
+        // Closed since the check above: close() drains after setting the flag, so either its drain saw this
+        // request or the caller matches it here
+        if (closed) {
+            flush();
+        }
+        return request.result();
+    }
+
+    // Matches everything queued so far; also runs on the window timer
+    public synchronized void flush() {
+        List<PendingRequest> batch = new ArrayList<>();
+        PendingRequest request;
+        while (batch.size() < maxBatchSize && (request = queue.poll()) != null) {
+            batch.add(request);
+        }
+        queued.addAndGet(-batch.size());
+
+        if (!batch.isEmpty()) {
+            try {
+                match(batch);
+            } catch (RuntimeException e) {
+                // Never leave callers waiting; futures already completed are unaffected
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            }
+        }
+        if (queued.get() >= maxBatchSize) {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        try {
+            scheduler.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // Closing: close() matches whatever is still queued
+        }
+    }
+
+    private void match(List<PendingRequest> batch) {
+        List<Driver> columns = new ArrayList<>();
+        Map<Driver, Integer> columnOf = new HashMap<>();
+        // Only each request's own candidates are offered to the solver, never the rest of the batch's drivers
+        int[][] rowColumns = new int[batch.size()][];
+        double[][] rowCosts = new double[batch.size()][];
+
+        for (int row = 0; row < batch.size(); row++) {
+            Location pickup = batch.get(row).pickupLocation();
+            List<Driver> nearest = service.getNearestDrivers(pickup, candidatesPerRequest);
+            rowColumns[row] = new int[nearest.size()];
+            rowCosts[row] = new double[nearest.size()];
+            for (int k = 0; k < nearest.size(); k++) {
+                Driver driver = nearest.get(k);
+                Integer column = columnOf.putIfAbsent(driver, columns.size());
+                if (column == null) {
+                    column = columns.size();
+                    columns.add(driver);
+                }
+                rowColumns[row][k] = column;
+                rowCosts[row][k] = service.distanceBetween(driver.getCurrentLocation(), pickup);
+            }
+        }
+
+        int[] assignment = AssignmentSolver.solveSparse(columns.size(), rowColumns, rowCosts);
+
+        for (int row = 0; row < batch.size(); row++) {
+            PendingRequest pending = batch.get(row);
+            int column = assignment[row];
+
+            Ride ride = null;
+            if (column >= 0) {
+                ride = service.requestRideWithDriver(pending.riderId(), pending.pickupLocation(), columns.get(column));
+            }
+            if (ride != null) {
+                pending.result().complete(ride);
+            } else {
+                // Out-competed in the assignment, or the driver was taken by an immediate request meanwhile
+                fallBackToImmediate(pending);
+            }
+        }
+    }
+
+    private void fallBackToImmediate(PendingRequest pending) {
+        try {
+            pending.result().complete(service.requestRide(pending.riderId(), pending.pickupLocation()));
+        } catch (RideMatchingException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    public int getQueuedRequestCount() {
+        return queued.get();
+    }
+
+    // Stops the window timer after matching whatever is still queued
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (!queue.isEmpty()) {
+            flush();
+        }
+    }
+
+    private record PendingRequest(String riderId, Location pickupLocation, CompletableFuture<Ride> result) {
+    }
+}
@@ -0,0 +1,677 @@
+package com.mobility.service;
+
+import com.mobility.cluster.ClusterMessage;
+import com.mobility.cluster.ClusterMessage.*;
+import com.mobility.cluster.ClusterTransport;
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.enums.RideStatus;
+import com.mobility.exception.DriverAllocationException;
+import com.mobility.exception.DriverNotFoundException;
+import com.mobility.exception.InvalidRideStateException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.exception.RideNotFoundException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
+import com.mobility.model.Ride;
+import com.mobility.utils.DistanceCalculator;
+import com.mobility.utils.DistanceKernel;
+import com.mobility.utils.IdGenerator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One node of a ride matching cluster. The world is split by a ShardLayout with one shard per node; each node keeps
+ * the drivers inside its regions in a local RideMatchingService and forwards calls about other regions to their
+ * owner. A driver's current owner is recorded on the node its ID hashes to, which also carries out the hand-off
+ * when a location update crosses into another node's regions.
+ * Every node accepts the full API. Drivers and rides returned are copies; the live instances stay on their owner.
+ */
+public class ClusteredRideMatchingService implements RideMatchingEngine, AutoCloseable {
+
+    private static final Ack ACK = new Ack();
+    private static final Missing MISSING = new Missing();
+
+    private final ClusterTransport transport;
+    private final ShardLayout layout;
+    private final DistanceMetric metric;
+    private final int localNode;
+    private final int nodeCount;
+    private final RideMatchingService local;
+    // Owner of every driver whose ID hashes to this node. Changes of owner hold the ID's stripe for the whole hand-off.
+    private final ConcurrentHashMap<String, Integer> directory;
+    private final ReentrantLock[] stripes;
+    // Hand-offs this node has coordinated as a directory, so a search that found nobody can tell whether it ran while
+    // a driver was between owners
+    private final AtomicLong handOffsStarted;
+    private final AtomicLong handOffsFinished;
+
+    public ClusteredRideMatchingService(ClusterTransport transport) {
+        this(transport, ShardLayout.tiles(transport.getNodeCount(), RideMatchingCostants.SHARD_TILE_SIZE_DEGREES),
+                IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN);
+    }
+
+    // Every node of a cluster must be built with the same layout, index type and metric
+    public ClusteredRideMatchingService(ClusterTransport transport, ShardLayout layout, IndexType indexType,
+                                        DistanceMetric distanceMetric) {
+        if (transport == null) {
+            throw new IllegalArgumentException("Transport cannot be null");
+        }
+        if (layout == null) {
+            throw new IllegalArgumentException("Shard layout cannot be null");
+        }
+        if (layout.getShardCount() != transport.getNodeCount()) {
+            throw new IllegalArgumentException("Shard layout must have one shard per node");
+        }
+
+        this.transport = transport;
+        this.layout = layout;
+        this.metric = distanceMetric;
+        this.localNode = transport.getLocalNode();
+        this.nodeCount = transport.getNodeCount();
+        this.local = new RideMatchingService(RideMatchingService.createIndex(indexType, distanceMetric),
+                new IdGenerator(IdGenerator.nodeOrigin(localNode)));
+        this.directory = new ConcurrentHashMap<>();
+        this.stripes = new ReentrantLock[RideMatchingCostants.CLUSTER_DIRECTORY_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.handOffsStarted = new AtomicLong();
+        this.handOffsFinished = new AtomicLong();
+
+        transport.start(this::serve);
+    }
+
+    @Override
+    public void registerDriver(Driver driver) {
+        if (driver == null) {
+            throw new IllegalArgumentException("Driver cannot be null");
+        }
+
+        call(directoryOf(driver.getDriverId()), new RegisterDriver(DriverState.of(driver)));
+    }
+
+    @Override
+    public void updateDriverLocation(String driverId, Location newLocation) {
+        validateNotNull(newLocation, "Location");
+        updateDriverLocation(driverId, newLocation.getLatitude(), newLocation.getLongitude());
+    }
+
+    @Override
+    public void updateDriverLocation(String driverId, double latitude, double longitude) {
+        validateNotNull(driverId, "Driver ID");
+        Location.validateCoordinates(latitude, longitude);
+
+        // Most pings stay inside the owner's regions and reach it directly; a miss means the driver is crossing over
+        if (call(layout.shardOf(latitude, longitude), new MoveDriver(driverId, latitude, longitude)) instanceof Flag moved
+                && moved.value()) {
+            return;
+        }
+        if (!handOff(driverId, latitude, longitude)) {
+            throw new DriverNotFoundException(driverId);
+        }
+    }
+
+    private boolean handOff(String driverId, double latitude, double longitude) {
+        return call(directoryOf(driverId), new HandOffDriver(driverId, latitude, longitude)) instanceof Flag moved
+                && moved.value();
+    }
+
+    // One message per owning node; drivers that are no longer where the batch puts them are handed off one by one
+    @Override
+    public int updateDriverLocations(LocationUpdateBatch batch) {
+        validateNotNull(batch, "Location batch");
+
+        Map<String, Integer> latest = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            latest.put(batch.getDriverId(i), i);
+        }
+
+        List<List<Integer>> byNode = new ArrayList<>(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            byNode.add(new ArrayList<>());
+        }
+        latest.values().forEach(index ->
+                byNode.get(layout.shardOf(batch.getLatitude(index), batch.getLongitude(index))).add(index));
+
+        int moved = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            List<Integer> indexes = byNode.get(node);
+            if (indexes.isEmpty()) {
+                continue;
+            }
+
+            List<String> driverIds = new ArrayList<>(indexes.size());
+            double[] latitudes = new double[indexes.size()];
+            double[] longitudes = new double[indexes.size()];
+            for (int i = 0; i < indexes.size(); i++) {
+                driverIds.add(batch.getDriverId(indexes.get(i)));
+                latitudes[i] = batch.getLatitude(indexes.get(i));
+                longitudes[i] = batch.getLongitude(indexes.get(i));
+            }
+
+            DriverIds missed = (DriverIds) call(node, new MoveDrivers(driverIds, latitudes, longitudes));
+            moved += indexes.size() - missed.driverIds().size();
+            for (String driverId : missed.driverIds()) {
+                int index = latest.get(driverId);
+                if (handOff(driverId, batch.getLatitude(index), batch.getLongitude(index))) {
+                    moved++;
+                }
+            }
+        }
+        return moved;
+    }
+
+    @Override
+    public Ride requestRide(String riderId, Location pickupLocation) {
+        validateNotNull(riderId, "Rider ID");
+        validateNotNull(pickupLocation, "Pickup location");
+
+        int home = layout.shardOf(pickupLocation);
+        ClusterMessage reply = send(home,
+                new RequestRide(riderId, pickupLocation.getLatitude(), pickupLocation.getLongitude()));
+        if (reply instanceof Failure failure) {
+            throw switch (failure.kind()) {
+                case NO_AVAILABLE_DRIVER -> new NoAvailableDriverException(pickupLocation);
+                case ALLOCATION_FAILED -> new DriverAllocationException(Integer.parseInt(failure.detail()));
+                default -> remoteFailure(home, failure);
+            };
+        }
+        return toRide((RideGranted) reply);
+    }
+
+    @Override
+    public void completeRide(String rideId) {
+        validateNotNull(rideId, "Ride ID");
+
+        finishAt(rideId, new CompleteRide(rideId), "complete");
+    }
+
+    @Override
+    public void cancelRide(String rideId) {
+        validateNotNull(rideId, "Ride ID");
+
+        finishAt(rideId, new CancelRide(rideId), "cancel");
+    }
+
+    private void finishAt(String rideId, ClusterMessage request, String operation) {
+        int node = issuerOf(rideId);
+        if (node < 0) {
+            throw new RideNotFoundException(rideId);
+        }
+        if (send(node, request) instanceof Failure failure) {
+            throw switch (failure.kind()) {
+                case RIDE_NOT_FOUND -> new RideNotFoundException(rideId);
+                case INVALID_RIDE_STATE ->
+                        new InvalidRideStateException(rideId, RideStatus.valueOf(failure.detail()), operation);
+                default -> remoteFailure(node, failure);
+            };
+        }
+    }
+
+    // Ride keys carry the node that issued them
+    private int issuerOf(String rideId) {
+        long rideKey = IdGenerator.parseRideId(rideId);
+        int origin = rideKey < 0 ? IdGenerator.STANDALONE_ORIGIN : IdGenerator.originOf(rideKey);
+        if (origin == IdGenerator.STANDALONE_ORIGIN) {
+            return -1;
+        }
+        int node = origin - 1;
+        return node < nodeCount ? node : -1;
+    }
+
+    @Override
+    public List<Driver> getNearestDrivers(Location location, int count) {
+        return getNearestDrivers(location, count, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public List<Driver> getNearestDrivers(Location location, int count, double maxDistance) {
+        validateNotNull(location, "Location");
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        if (!(maxDistance > 0)) {
+            throw new IllegalArgumentException("Max distance must be positive");
+        }
+
+        // A full answer from the home node that stays inside the location's region cannot be beaten elsewhere
+        DistanceKernel kernel = DistanceKernel.around(location, metric);
+        int home = layout.shardOf(location);
+        List<DriverState> nearest = ((Drivers) call(home,
+                new FindNearest(location.getLatitude(), location.getLongitude(), count, maxDistance))).drivers();
+        if (nodeCount > 1 && (nearest.size() < count || rankOf(kernel, nearest.get(count - 1)) > layout.borderGap(kernel, location))) {
+            nearest = nearestAcrossNodes(location, count, maxDistance, kernel).stream().map(Candidate::driver).toList();
+        }
+        return nearest.stream().map(DriverState::toDriver).toList();
+    }
+
+    private List<Candidate> nearestAcrossNodes(Location location, int count, double maxDistance, DistanceKernel kernel) {
+        FindNearest query = new FindNearest(location.getLatitude(), location.getLongitude(), count, maxDistance);
+        List<Candidate> candidates = new ArrayList<>();
+        for (int node = 0; node < nodeCount; node++) {
+            for (DriverState driver : ((Drivers) call(node, query)).drivers()) {
+                candidates.add(new Candidate(node, driver, rankOf(kernel, driver)));
+            }
+        }
+        candidates.sort(Candidate.NEAREST_FIRST);
+        return candidates.size() > count ? candidates.subList(0, count) : candidates;
+    }
+
+    @Override
+    public List<Driver> getAvailableDrivers() {
+        List<Driver> available = new ArrayList<>();
+        for (int node = 0; node < nodeCount; node++) {
+            ((Drivers) call(node, new ListAvailable())).drivers().forEach(driver -> available.add(driver.toDriver()));
+        }
+        return available;
+    }
+
+    @Override
+    public double distanceBetween(Location from, Location to) {
+        validateNotNull(from, "From location");
+        validateNotNull(to, "To location");
+
+        return DistanceCalculator.calculateDistance(metric, from, to);
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric() {
+        return metric;
+    }
+
+    @Override
+    public Driver getDriver(String driverId) {
+        return call(directoryOf(driverId), new LocateDriver(driverId)) instanceof Found found
+                ? found.driver().toDriver()
+                : null;
+    }
+
+    @Override
+    public int getDriverCount() {
+        int drivers = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            drivers += ((Counts) call(node, new CountEntries())).drivers();
+        }
+        return drivers;
+    }
+
+    @Override
+    public int getRideCount() {
+        int rides = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            rides += ((Counts) call(node, new CountEntries())).rides();
+        }
+        return rides;
+    }
+
+    // Clears the whole cluster, not just this node
+    @Override
+    public void clear() {
+        for (int node = 0; node < nodeCount; node++) {
+            call(node, new ClearNode());
+        }
+    }
+
+    public int getLocalNode() {
+        return localNode;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    // The drivers and rides this node owns; exposed for tests
+    RideMatchingService local() {
+        return local;
+    }
+
+    @Override
+    public void close() {
+        transport.close();
+    }
+
+    // Requests from other nodes: failures go back as replies so they can be rethrown with the caller's context
+    private ClusterMessage serve(ClusterMessage request) {
+        try {
+            return handle(request);
+        } catch (NoAvailableDriverException e) {
+            return new Failure(FailureKind.NO_AVAILABLE_DRIVER, e.getMessage());
+        } catch (DriverAllocationException e) {
+            return new Failure(FailureKind.ALLOCATION_FAILED, String.valueOf(e.getRetryAttempts()));
+        } catch (RideNotFoundException e) {
+            return new Failure(FailureKind.RIDE_NOT_FOUND, e.getRideId());
+        } catch (InvalidRideStateException e) {
+            return new Failure(FailureKind.INVALID_RIDE_STATE, e.getCurrentStatus().name());
+        } catch (IllegalArgumentException e) {
+            return new Failure(FailureKind.INVALID_ARGUMENT, e.getMessage());
+        } catch (RuntimeException e) {
+            return new Failure(FailureKind.INTERNAL, e.toString());
+        }
+    }
+
+    private ClusterMessage handle(ClusterMessage request) {
+        return switch (request) {
+            case RegisterDriver m -> register(m.driver());
+            case HandOffDriver m -> handOffOwned(m.driverId(), m.latitude(), m.longitude());
+            case ReleaseDriver m -> release(m.driverId());
+            case LocateDriver m -> locate(m.driverId());
+            case AdoptDriver m -> adopt(m.driver());
+            case DetachDriver m -> detach(m.driverId());
+            case MoveDriver m -> new Flag(local.tryUpdateDriverLocation(m.driverId(), m.latitude(), m.longitude()));
+            case MoveDrivers m -> moveAll(m);
+            case FreeDriver m -> free(m.driverId());
+            case FetchDriver m -> {
+                Driver driver = local.getDriver(m.driverId());
+                yield driver == null ? MISSING : new Found(DriverState.of(driver));
+            }
+            case ClaimDriver m -> claim(m.riderId(), new Location(m.latitude(), m.longitude()), m.driverId());
+            case RequestRide m -> matchHere(m.riderId(), new Location(m.latitude(), m.longitude()));
+            case CompleteRide m -> finish(m.rideId(), false);
+            case CancelRide m -> finish(m.rideId(), true);
+            case FindNearest m -> new Drivers(snapshots(local.getNearestDrivers(
+                    new Location(m.latitude(), m.longitude()), m.count(), m.maxDistance())));
+            case ListAvailable m -> new Drivers(snapshots(local.getAvailableDrivers()));
+            case CountEntries m -> new Counts(local.getDriverCount(), local.getRideCount());
+            // Finished read first, so a hand-off can only look in flight for longer, never shorter
+            case HandOffProgress m -> {
+                long finished = handOffsFinished.get();
+                yield new Progress(handOffsStarted.get(), finished);
+            }
+            case ClearNode m -> {
+                local.clear();
+                directory.clear();
+                yield ACK;
+            }
+            default -> throw new IllegalArgumentException("Unexpected cluster request: " + request);
+        };
+    }
+
+    // Directory side: runs on the node the driver ID hashes to
+
+    private ClusterMessage register(DriverState driver) {
+        ReentrantLock stripe = stripeOf(driver.driverId());
+        stripe.lock();
+        try {
+            int target = layout.shardOf(driver.latitude(), driver.longitude());
+            call(target, new AdoptDriver(driver));
+            Integer previous = directory.put(driver.driverId(), target);
+            if (previous != null && previous != target) {
+                call(previous, new DetachDriver(driver.driverId()));
+            }
+            return ACK;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private ClusterMessage handOffOwned(String driverId, double latitude, double longitude) {
+        ReentrantLock stripe = stripeOf(driverId);
+        stripe.lock();
+        try {
+            Integer owner = directory.get(driverId);
+            if (owner == null) {
+                return new Flag(false);
+            }
+            int target = layout.shardOf(latitude, longitude);
+            if (owner == target) {
+                return call(owner, new MoveDriver(driverId, latitude, longitude));
+            }
+
+            // Frozen on the old owner before it appears on the new one, so no request can claim it on both.
+            // Searches miss it until it is adopted; matchHere searches again when that may have hidden the last
+            // free driver.
+            handOffsStarted.incrementAndGet();
+            try {
+                if (!(call(owner, new DetachDriver(driverId)) instanceof Found found)) {
+                    return new Flag(false);
+                }
+                call(target, new AdoptDriver(found.driver().withLocation(latitude, longitude)));
+                directory.put(driverId, target);
+                return new Flag(true);
+            } finally {
+                handOffsFinished.incrementAndGet();
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private ClusterMessage release(String driverId) {
+        ReentrantLock stripe = stripeOf(driverId);
+        stripe.lock();
+        try {
+            Integer owner = directory.get(driverId);
+            if (owner != null) {
+                call(owner, new FreeDriver(driverId));
+            }
+            return ACK;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private ClusterMessage locate(String driverId) {
+        ReentrantLock stripe = stripeOf(driverId);
+        stripe.lock();
+        try {
+            Integer owner = directory.get(driverId);
+            return owner == null ? MISSING : call(owner, new FetchDriver(driverId));
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Owner side: runs on the node whose regions hold the driver
+
+    private ClusterMessage adopt(DriverState state) {
+        Driver driver = state.toDriver();
+        local.registerDriver(driver);
+        // Registration indexes the driver even when it arrives mid-ride
+        local.syncIndex(driver);
+        return ACK;
+    }
+
+    private ClusterMessage detach(String driverId) {
+        Driver driver = local.getDriver(driverId);
+        if (driver == null) {
+            return MISSING;
+        }
+
+        local.removeDriver(driver);
+        // Taking its availability stops a request already holding this instance from claiming it after it has left
+        boolean available = driver.markAsUnavailable();
+        Location location = driver.getCurrentLocation();
+        return new Found(new DriverState(driverId, driver.getName(),
+                location.getLatitude(), location.getLongitude(), available));
+    }
+
+    private ClusterMessage moveAll(MoveDrivers moves) {
+        List<String> missed = new ArrayList<>();
+        for (int i = 0; i < moves.driverIds().size(); i++) {
+            String driverId = moves.driverIds().get(i);
+            if (!local.tryUpdateDriverLocation(driverId, moves.latitudes()[i], moves.longitudes()[i])) {
+                missed.add(driverId);
+            }
+        }
+        return new DriverIds(missed);
+    }
+
+    private ClusterMessage free(String driverId) {
+        Driver driver = local.getDriver(driverId);
+        if (driver != null) {
+            driver.markAsAvailable();
+            local.syncIndex(driver);
+        }
+        return ACK;
+    }
+
+    private ClusterMessage claim(String riderId, Location pickupLocation, String driverId) {
+        Driver driver = local.getDriver(driverId);
+        Ride ride = driver == null ? null : local.requestRideWithDriver(riderId, pickupLocation, driver);
+        return ride == null ? MISSING : granted(ride);
+    }
+
+    // Matching side: runs on the node owning the pickup. Other nodes are only asked when a driver across a region
+    // border could be closer, or when this node has nobody free.
+    private ClusterMessage matchHere(String riderId, Location pickupLocation) {
+        DistanceKernel kernel = DistanceKernel.around(pickupLocation, metric);
+        List<Driver> nearest = local.getNearestDrivers(pickupLocation, 1);
+        if (nodeCount == 1 || (!nearest.isEmpty()
+                && kernel.rank(nearest.get(0).getCurrentLocation()) <= layout.borderGap(kernel, pickupLocation))) {
+            try {
+                return granted(local.requestRide(riderId, pickupLocation));
+            } catch (NoAvailableDriverException e) {
+                if (nodeCount == 1) {
+                    throw e;
+                }
+                // Claimed by concurrent requests meanwhile; widen to the other nodes
+            }
+        }
+
+        int candidateCount = RideMatchingCostants.CLAIM_CANDIDATES;
+        for (int attempt = 0; attempt < RideMatchingCostants.MAX_ALLOCATION_RETRIES; attempt++) {
+            List<Candidate> candidates = nearestAcrossNodes(pickupLocation, candidateCount, Double.POSITIVE_INFINITY, kernel);
+            if (candidates.isEmpty()) {
+                candidates = nearestOutsideHandOffs(pickupLocation, candidateCount, kernel);
+            }
+            if (candidates.isEmpty()) {
+                throw new NoAvailableDriverException(pickupLocation);
+            }
+
+            for (Candidate candidate : candidates) {
+                ClaimDriver claim = new ClaimDriver(riderId, pickupLocation.getLatitude(), pickupLocation.getLongitude(),
+                        candidate.driver().driverId());
+                if (call(candidate.node(), claim) instanceof RideGranted granted) {
+                    return granted;
+                }
+            }
+
+            // Every candidate was taken or handed off meanwhile, search again with a wider net
+            candidateCount *= 2;
+        }
+
+        throw new DriverAllocationException(RideMatchingCostants.MAX_ALLOCATION_RETRIES);
+    }
+
+    // Searches again while hand-offs overlap the search: a driver detached from one node and not yet adopted by the
+    // next is invisible to it. Empty only once a search ran with no hand-off in flight anywhere, or after
+    // MAX_ALLOCATION_RETRIES searches that all overlapped one.
+    private List<Candidate> nearestOutsideHandOffs(Location pickupLocation, int count, DistanceKernel kernel) {
+        for (int attempt = 0; attempt < RideMatchingCostants.MAX_ALLOCATION_RETRIES; attempt++) {
+            long[] before = handOffProgress();
+            List<Candidate> candidates = nearestAcrossNodes(pickupLocation, count, Double.POSITIVE_INFINITY, kernel);
+            if (!candidates.isEmpty()) {
+                return candidates;
+            }
+            long[] after = handOffProgress();
+            if (before[0] == before[1] && after[0] == before[0]) {
+                return candidates;
+            }
+            Thread.yield();
+        }
+        return List.of();
+    }
+
+    // Hand-offs started and finished across the cluster
+    private long[] handOffProgress() {
+        long[] progress = new long[2];
+        for (int node = 0; node < nodeCount; node++) {
+            Progress reply = (Progress) call(node, new HandOffProgress());
+            progress[0] += reply.started();
+            progress[1] += reply.finished();
+        }
+        return progress;
+    }
+
+    private ClusterMessage finish(String rideId, boolean cancel) {
+        Ride ride = local.getRide(rideId);
+        if (ride == null) {
+            throw new RideNotFoundException(rideId);
+        }
+        if (cancel) {
+            local.cancelRide(rideId);
+        } else {
+            local.completeRide(rideId);
+        }
+
+        // Handed to another node during the ride: its new owner still holds it busy
+        Driver driver = ride.getDriver();
+        if (local.getDriver(driver.getDriverId()) != driver) {
+            call(directoryOf(driver.getDriverId()), new ReleaseDriver(driver.getDriverId()));
+        }
+        return ACK;
+    }
+
+    // Calls on this node skip the transport, and with it the failure round trip
+
+    private ClusterMessage call(int node, ClusterMessage request) {
+        ClusterMessage reply = send(node, request);
+        if (reply instanceof Failure failure) {
+            throw remoteFailure(node, failure);
+        }
+        return reply;
+    }
+
+    private ClusterMessage send(int node, ClusterMessage request) {
+        return node == localNode ? handle(request) : transport.send(node, request);
+    }
+
+    private RuntimeException remoteFailure(int node, Failure failure) {
+        if (failure.kind() == FailureKind.INVALID_ARGUMENT) {
+            return new IllegalArgumentException(failure.detail());
+        }
+        return new IllegalStateException("Cluster node " + node + " failed: " + failure.kind() + " " + failure.detail());
+    }
+
+    private int directoryOf(String driverId) {
+        validateNotNull(driverId, "Driver ID");
+        return Math.floorMod(driverId.hashCode(), nodeCount);
+    }
+
+    // Mixed first: the IDs homed on one node share their hash modulo the node count
+    private ReentrantLock stripeOf(String driverId) {
+        return stripes[Math.floorMod(driverId.hashCode() * 0x9E3779B9, stripes.length)];
+    }
+
+    private static double rankOf(DistanceKernel kernel, DriverState driver) {
+        return kernel.rank(driver.latitude(), driver.longitude());
+    }
+
+    private static List<DriverState> snapshots(List<Driver> drivers) {
+        return drivers.stream().map(DriverState::of).toList();
+    }
+
+    private static RideGranted granted(Ride ride) {
+        Location pickup = ride.getPickupLocation();
+        return new RideGranted(ride.getRideId(), ride.getRiderId(), pickup.getLatitude(), pickup.getLongitude(),
+                DriverState.of(ride.getDriver()));
+    }
+
+    private static Ride toRide(RideGranted granted) {
+        return new Ride(granted.rideId(), granted.riderId(), granted.driver().toDriver(),
+                new Location(granted.latitude(), granted.longitude()));
+    }
+
+    private void validateNotNull(Object value, String fieldName) {
+        if (value == null || (value instanceof String && ((String) value).trim().isEmpty())) {
+            throw new IllegalArgumentException(fieldName + " cannot be null or empty");
+        }
+    }
+
+    private record Candidate(int node, DriverState driver, double rank) {
+
+        static final Comparator<Candidate> NEAREST_FIRST = Comparator
+                .comparingDouble(Candidate::rank)
+                .thenComparing(c -> c.driver().driverId());
+    }
+}
@@ -0,0 +1,67 @@
+package com.mobility.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded multi-producer, single-consumer ring of commands, disruptor style: a producer claims a sequence with one CAS
+// and publishes by stamping its slot, and the consumer reads slots strictly in sequence order without locking.
+final class CommandRing {
+
+    private final Runnable[] slots;
+    // Slot i holds sequence s when free for the producer of s, and s + 1 once that producer has published
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail;
+    private final AtomicLong head;
+
+    CommandRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+        this.slots = new Runnable[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.tail = new AtomicLong();
+        this.head = new AtomicLong();
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // Returns false if the ring is full
+    boolean offer(Runnable command) {
+        while (true) {
+            long sequence = tail.get();
+            int slot = (int) sequence & mask;
+            long lag = sequences.get(slot) - sequence;
+            if (lag < 0) {
+                return false;
+            }
+            if (lag == 0 && tail.compareAndSet(sequence, sequence + 1)) {
+                slots[slot] = command;
+                // A full volatile write, so a producer's later check of the consumer's sleeping flag cannot move above it
+                sequences.set(slot, sequence + 1);
+                return true;
+            }
+        }
+    }
+
+    // Consumer thread only
+    Runnable poll() {
+        long sequence = head.get();
+        int slot = (int) sequence & mask;
+        if (sequences.get(slot) != sequence + 1) {
+            return null;
+        }
+        Runnable command = slots[slot];
+        slots[slot] = null;
+        sequences.lazySet(slot, sequence + slots.length);
+        head.lazySet(sequence + 1);
+        return command;
+    }
+
+    // Claimed but not yet published commands count as pending
+    boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+}
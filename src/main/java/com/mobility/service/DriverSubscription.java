@@ -0,0 +1,228 @@
+package com.mobility.service;
+
+import com.mobility.enums.DriverDeltaType;
+import com.mobility.model.Driver;
+import com.mobility.model.DriverDelta;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceKernel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A live view of the available drivers near one point, kept by the RideMatchingService that issued it: up to count
+ * drivers within maxDistance. The service applies each location update and availability change to the subscriptions
+ * around the driver as it happens; poll() hands over what changed since the previous poll, one delta per driver.
+ * A nearer driver displaces the farthest one shown, but drivers already shown stay while they are in range, even if
+ * others have come closer.
+ */
+public class DriverSubscription implements AutoCloseable {
+
+    private final NearbyDriverSubscriptions owner;
+    private final Location location;
+    private final int count;
+    private final double maxDistance;
+    private final DistanceKernel kernel;
+    private final double rankLimit;
+    // Grid cells the area is filed under
+    private final long[] cells;
+    // Guarded by this
+    private final Map<String, Shown> shown;
+    private final LinkedHashMap<String, DriverDelta> pending;
+    // A driver left a full view; the next poll looks for a replacement
+    private boolean refill;
+    private boolean closed;
+
+    DriverSubscription(NearbyDriverSubscriptions owner, Location location, int count, double maxDistance,
+                       DistanceKernel kernel, long[] cells) {
+        this.owner = owner;
+        this.location = location;
+        this.count = count;
+        this.maxDistance = maxDistance;
+        this.kernel = kernel;
+        this.rankLimit = kernel.rankLimit(maxDistance);
+        this.cells = cells;
+        this.shown = new HashMap<>();
+        this.pending = new LinkedHashMap<>();
+    }
+
+    // Changes since the previous poll, in the order they happened. Coalesced per driver: a driver that moved many
+    // times appears once, and one that came and went in between does not appear at all.
+    public synchronized List<DriverDelta> poll() {
+        if (refill && !closed) {
+            fill();
+        }
+        List<DriverDelta> deltas = new ArrayList<>(pending.values());
+        pending.clear();
+        return deltas;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMaxDistance() {
+        return maxDistance;
+    }
+
+    // Drivers in the view, including changes not yet polled
+    public synchronized int getShownCount() {
+        return shown.size();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    // Stops updates; further polls return nothing
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            shown.clear();
+            pending.clear();
+        }
+        owner.unsubscribe(this);
+    }
+
+    long[] cells() {
+        return cells;
+    }
+
+    // Re-evaluates one driver against the view from its current state, so whichever update runs last leaves the view
+    // right, whatever order concurrent updates arrive in
+    synchronized void update(Driver driver) {
+        if (closed) {
+            return;
+        }
+
+        String driverId = driver.getDriverId();
+        Shown entry = shown.get(driverId);
+        boolean current = owner.isRegistered(driver);
+        // News of an instance that has since been replaced by the one shown
+        if (entry != null && entry.driver != driver && !current) {
+            return;
+        }
+
+        Location position = driver.getCurrentLocation();
+        double rank = kernel.rank(position.getLatitude(), position.getLongitude());
+        boolean inView = current && driver.isAvailable() && rank <= rankLimit;
+
+        if (entry != null) {
+            if (!inView) {
+                shown.remove(driverId);
+                queue(DriverDeltaType.REMOVED, driverId, entry.position);
+                refill |= shown.size() + 1 >= count;
+                return;
+            }
+            entry.driver = driver;
+            entry.rank = rank;
+            if (!position.equals(entry.position)) {
+                entry.position = position;
+                queue(DriverDeltaType.MOVED, driverId, position);
+            }
+            return;
+        }
+
+        if (!inView) {
+            return;
+        }
+        if (shown.size() >= count) {
+            Shown farthest = farthest();
+            if (farthest.rank <= rank) {
+                return;
+            }
+            shown.remove(farthest.driver.getDriverId());
+            queue(DriverDeltaType.REMOVED, farthest.driver.getDriverId(), farthest.position);
+        }
+        shown.put(driverId, new Shown(driver, position, rank));
+        queue(DriverDeltaType.ADDED, driverId, position);
+    }
+
+    // Tops the view up from the driver index, nearest first
+    synchronized void fill() {
+        refill = false;
+        if (closed || shown.size() >= count) {
+            return;
+        }
+
+        // Of the count nearest, at most shown.size() are already shown
+        List<Driver> nearest = owner.nearest(location, count, maxDistance);
+        boolean skipped = false;
+        for (Driver driver : nearest) {
+            if (shown.size() >= count) {
+                return;
+            }
+            if (shown.containsKey(driver.getDriverId())) {
+                continue;
+            }
+            Location position = driver.getCurrentLocation();
+            double rank = kernel.rank(position.getLatitude(), position.getLongitude());
+            if (driver.isAvailable() && owner.isRegistered(driver) && rank <= rankLimit) {
+                shown.put(driver.getDriverId(), new Shown(driver, position, rank));
+                queue(DriverDeltaType.ADDED, driver.getDriverId(), position);
+            } else {
+                skipped = true;
+            }
+        }
+        // The index had not caught up with a claim or move yet, and may have left out the next driver in line
+        refill = skipped && nearest.size() >= count && shown.size() < count;
+    }
+
+    // The service was cleared: every driver shown is gone
+    synchronized void reset() {
+        shown.forEach((driverId, entry) -> queue(DriverDeltaType.REMOVED, driverId, entry.position));
+        shown.clear();
+        refill = false;
+    }
+
+    private Shown farthest() {
+        Shown farthest = null;
+        for (Shown entry : shown.values()) {
+            if (farthest == null || entry.rank > farthest.rank) {
+                farthest = entry;
+            }
+        }
+        return farthest;
+    }
+
+    // Merges with the delta already pending for the driver, as seen from what the subscriber was last sent
+    private void queue(DriverDeltaType type, String driverId, Location position) {
+        DriverDelta previous = pending.remove(driverId);
+        DriverDeltaType merged = type;
+        if (previous != null) {
+            merged = switch (type) {
+                // Removed and back again: the subscriber still has it, at the old position
+                case ADDED -> previous.type() == DriverDeltaType.REMOVED ? DriverDeltaType.MOVED : DriverDeltaType.ADDED;
+                case MOVED -> previous.type() == DriverDeltaType.ADDED ? DriverDeltaType.ADDED : DriverDeltaType.MOVED;
+                // Added and gone again before the subscriber heard of it
+                case REMOVED -> previous.type() == DriverDeltaType.ADDED ? null : DriverDeltaType.REMOVED;
+            };
+        }
+        if (merged != null) {
+            pending.put(driverId, new DriverDelta(merged, driverId, position.getLatitude(), position.getLongitude()));
+        }
+    }
+
+    private static final class Shown {
+        Driver driver;
+        Location position;
+        double rank;
+
+        Shown(Driver driver, Location position, double rank) {
+            this.driver = driver;
+            this.position = position;
+            this.rank = rank;
+        }
+    }
+}
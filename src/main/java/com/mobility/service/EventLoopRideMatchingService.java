@@ -0,0 +1,728 @@
+package com.mobility.service;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.RideStatus;
+import com.mobility.exception.DriverAllocationException;
+import com.mobility.exception.DriverNotFoundException;
+import com.mobility.exception.InvalidRideStateException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.exception.RideNotFoundException;
+import com.mobility.index.DriverIndex;
+import com.mobility.index.SpatialGridIndex;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
+import com.mobility.model.Ride;
+import com.mobility.utils.DistanceCalculator;
+import com.mobility.utils.DistanceKernel;
+import com.mobility.utils.IdGenerator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Ride matching engine in which all state changes are applied by one thread per geographic shard.
+ * Commands are published to the owning shard's ring buffer and answered through futures, so a shard's index,
+ * its drivers' availability and its ride table are only ever written by that shard's thread.
+ * Callbacks attached to the returned futures run on shard threads and must not block.
+ */
+public class EventLoopRideMatchingService implements RideMatchingEngine, AutoCloseable {
+
+    private static final int SPIN_TRIES = 64;
+    private static final int YIELD_TRIES = 128;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ShardLayout layout;
+    private final DistanceMetric metric;
+    private final Shard[] shards;
+    // Routing directories, written only by shard threads: the shard owning each driver, and the one holding each ride
+    private final ConcurrentHashMap<String, Owner> owners;
+    private final ConcurrentHashMap<String, Shard> rideShards;
+    private final IdGenerator rideIds;
+    private volatile boolean running;
+    private volatile boolean closed;
+
+    public EventLoopRideMatchingService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public EventLoopRideMatchingService(int shardCount) {
+        this(shardCount, DistanceMetric.EUCLIDEAN);
+    }
+
+    public EventLoopRideMatchingService(int shardCount, DistanceMetric metric) {
+        this(shardCount, RideMatchingCostants.SHARD_TILE_SIZE_DEGREES, metric);
+    }
+
+    public EventLoopRideMatchingService(int shardCount, double tileSizeDegrees, DistanceMetric metric) {
+        this(ShardLayout.tiles(shardCount, tileSizeDegrees), metric);
+    }
+
+    public EventLoopRideMatchingService(ShardLayout layout, DistanceMetric metric) {
+        if (layout == null) {
+            throw new IllegalArgumentException("Shard layout cannot be null");
+        }
+        if (metric == null) {
+            throw new IllegalArgumentException("Distance metric cannot be null");
+        }
+        this.layout = layout;
+        this.metric = metric;
+        this.owners = new ConcurrentHashMap<>();
+        this.rideShards = new ConcurrentHashMap<>();
+        this.rideIds = new IdGenerator(IdGenerator.STANDALONE_ORIGIN);
+        this.shards = new Shard[layout.getShardCount()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i);
+        }
+
+        running = true;
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    public CompletableFuture<Void> registerDriverAsync(Driver driver) {
+        if (driver == null) {
+            throw new IllegalArgumentException("Driver cannot be null");
+        }
+        ensureOpen();
+
+        Shard shard = shardOf(driver.getLatitude(), driver.getLongitude());
+        return shard.submit(() -> {
+            shard.register(driver);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> updateDriverLocationAsync(String driverId, Location newLocation) {
+        validateNotNull(newLocation, "Location");
+        return updateDriverLocationAsync(driverId, newLocation.getLatitude(), newLocation.getLongitude());
+    }
+
+    public CompletableFuture<Void> updateDriverLocationAsync(String driverId, double latitude, double longitude) {
+        validateNotNull(driverId, "Driver ID");
+        Location.validateCoordinates(latitude, longitude);
+        ensureOpen();
+
+        Owner owner = owners.get(driverId);
+        if (owner == null) {
+            return CompletableFuture.failedFuture(new DriverNotFoundException(driverId));
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        owner.shard.publish(command(result, () -> owner.shard.move(driverId, latitude, longitude, result)));
+        return result;
+    }
+
+    public CompletableFuture<Ride> requestRideAsync(String riderId, Location pickupLocation) {
+        validateNotNull(riderId, "Rider ID");
+        validateNotNull(pickupLocation, "Pickup location");
+        ensureOpen();
+
+        CompletableFuture<Ride> result = new CompletableFuture<>();
+        Shard home = shardOf(pickupLocation.getLatitude(), pickupLocation.getLongitude());
+        home.publish(command(result, () -> home.match(riderId, pickupLocation, 0, result)));
+        return result;
+    }
+
+    public CompletableFuture<Void> completeRideAsync(String rideId) {
+        return finishRideAsync(rideId, RideStatus.COMPLETED);
+    }
+
+    public CompletableFuture<Void> cancelRideAsync(String rideId) {
+        return finishRideAsync(rideId, RideStatus.CANCELLED);
+    }
+
+    private CompletableFuture<Void> finishRideAsync(String rideId, RideStatus outcome) {
+        validateNotNull(rideId, "Ride ID");
+        ensureOpen();
+
+        Shard shard = rideShards.get(rideId);
+        if (shard == null) {
+            return CompletableFuture.failedFuture(new RideNotFoundException(rideId));
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        shard.publish(command(result, () -> shard.finish(rideId, outcome, result)));
+        return result;
+    }
+
+    public CompletableFuture<List<Driver>> getNearestDriversAsync(Location location, int count, double maxDistance) {
+        validateNotNull(location, "Location");
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        if (!(maxDistance > 0)) {
+            throw new IllegalArgumentException("Max distance must be positive");
+        }
+        ensureOpen();
+
+        List<CompletableFuture<List<Driver>>> parts = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            parts.add(shard.submit(() -> shard.index.findNearestAvailable(location, count, maxDistance)));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> nearestOf(location, count, parts));
+    }
+
+    @Override
+    public void registerDriver(Driver driver) {
+        await(registerDriverAsync(driver));
+    }
+
+    @Override
+    public void updateDriverLocation(String driverId, Location newLocation) {
+        await(updateDriverLocationAsync(driverId, newLocation));
+    }
+
+    @Override
+    public void updateDriverLocation(String driverId, double latitude, double longitude) {
+        await(updateDriverLocationAsync(driverId, latitude, longitude));
+    }
+
+    // One command per owning shard; repeated fixes for a driver collapse to the latest, unknown drivers are skipped
+    @Override
+    public int updateDriverLocations(LocationUpdateBatch batch) {
+        validateNotNull(batch, "Location batch");
+        ensureOpen();
+
+        Map<String, Integer> latest = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            latest.put(batch.getDriverId(i), i);
+        }
+
+        List<List<Integer>> byShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            byShard.add(new ArrayList<>());
+        }
+        int moved = 0;
+        for (Map.Entry<String, Integer> entry : latest.entrySet()) {
+            Owner owner = owners.get(entry.getKey());
+            if (owner != null) {
+                byShard.get(owner.shard.id).add(entry.getValue());
+                moved++;
+            }
+        }
+
+        List<CompletableFuture<Void>> applied = new ArrayList<>();
+        for (Shard shard : shards) {
+            List<Integer> updates = byShard.get(shard.id);
+            if (!updates.isEmpty()) {
+                applied.add(shard.submit(() -> {
+                    for (int index : updates) {
+                        shard.move(batch.getDriverId(index), batch.getLatitude(index), batch.getLongitude(index), null);
+                    }
+                    return null;
+                }));
+            }
+        }
+        await(CompletableFuture.allOf(applied.toArray(new CompletableFuture[0])));
+        return moved;
+    }
+
+    @Override
+    public Ride requestRide(String riderId, Location pickupLocation) {
+        return await(requestRideAsync(riderId, pickupLocation));
+    }
+
+    @Override
+    public void completeRide(String rideId) {
+        await(completeRideAsync(rideId));
+    }
+
+    @Override
+    public void cancelRide(String rideId) {
+        await(cancelRideAsync(rideId));
+    }
+
+    @Override
+    public List<Driver> getNearestDrivers(Location location, int count) {
+        return getNearestDrivers(location, count, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public List<Driver> getNearestDrivers(Location location, int count, double maxDistance) {
+        return await(getNearestDriversAsync(location, count, maxDistance));
+    }
+
+    @Override
+    public List<Driver> getAvailableDrivers() {
+        ensureOpen();
+
+        List<CompletableFuture<List<Driver>>> parts = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            parts.add(shard.submit(shard.index::availableDrivers));
+        }
+
+        List<Driver> available = new ArrayList<>();
+        for (CompletableFuture<List<Driver>> part : parts) {
+            for (Driver driver : await(part)) {
+                if (driver.isAvailable()) {
+                    available.add(driver);
+                }
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public double distanceBetween(Location from, Location to) {
+        validateNotNull(from, "From location");
+        validateNotNull(to, "To location");
+
+        return DistanceCalculator.calculateDistance(metric, from, to);
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric() {
+        return metric;
+    }
+
+    @Override
+    public Driver getDriver(String driverId) {
+        Owner owner = owners.get(driverId);
+        return owner == null ? null : owner.driver;
+    }
+
+    @Override
+    public int getDriverCount() {
+        return owners.size();
+    }
+
+    @Override
+    public int getRideCount() {
+        return rideShards.size();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void clear() {
+        ensureOpen();
+
+        List<CompletableFuture<Void>> cleared = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            cleared.add(shard.submit(() -> {
+                shard.index.clear();
+                shard.rides.clear();
+                return null;
+            }));
+        }
+        await(CompletableFuture.allOf(cleared.toArray(new CompletableFuture[0])));
+        owners.clear();
+        rideShards.clear();
+    }
+
+    // Stops the shard threads once their queues are empty
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        // Commands forwarded to a shard that had already stopped are applied here; no shard thread is left to race
+        boolean drained;
+        do {
+            drained = true;
+            for (Shard shard : shards) {
+                drained &= !shard.drain();
+            }
+        } while (!drained);
+    }
+
+    private List<Driver> nearestOf(Location location, int count, List<CompletableFuture<List<Driver>>> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0).join();
+        }
+
+        // Rank each driver once: positions can change while the merge sorts
+        DistanceKernel kernel = DistanceKernel.around(location, metric);
+        List<Candidate> candidates = new ArrayList<>();
+        for (CompletableFuture<List<Driver>> part : parts) {
+            for (Driver driver : part.join()) {
+                candidates.add(new Candidate(driver, kernel.rank(driver.getCurrentLocation())));
+            }
+        }
+        candidates.sort(Candidate.NEAREST_FIRST);
+
+        List<Driver> nearest = new ArrayList<>(Math.min(count, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < count; i++) {
+            nearest.add(candidates.get(i).driver());
+        }
+        return nearest;
+    }
+
+    private Shard shardOf(double latitude, double longitude) {
+        return shards[layout.shardOf(latitude, longitude)];
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Event loop engine is closed");
+        }
+    }
+
+    private void validateNotNull(Object value, String fieldName) {
+        if (value == null || (value instanceof String && ((String) value).trim().isEmpty())) {
+            throw new IllegalArgumentException(fieldName + " cannot be null or empty");
+        }
+    }
+
+    // Rethrows the engine's own exceptions as the shared-state service would
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // A command that fails its caller's future instead of dying silently on the shard thread
+    private static Runnable command(CompletableFuture<?> result, Runnable body) {
+        return () -> {
+            try {
+                body.run();
+            } catch (RuntimeException e) {
+                if (result != null) {
+                    result.completeExceptionally(e);
+                }
+            }
+        };
+    }
+
+    private final class Shard implements Runnable {
+
+        final int id;
+        final DriverIndex index;
+        final Map<String, Ride> rides;
+        final Thread thread;
+        // External producers publish to the bounded ring; shard-to-shard hand-offs use the unbounded queue, so two
+        // shards forwarding to each other can never block on each other's full ring
+        private final CommandRing ring;
+        private final ConcurrentLinkedQueue<Runnable> forwarded;
+        private volatile boolean sleeping;
+
+        Shard(int id) {
+            this.id = id;
+            this.index = new SpatialGridIndex(metric);
+            this.rides = new HashMap<>();
+            this.ring = new CommandRing(RideMatchingCostants.EVENT_LOOP_RING_CAPACITY);
+            this.forwarded = new ConcurrentLinkedQueue<>();
+            this.thread = new ShardThread(this, "ride-matching-shard-" + id);
+        }
+
+        <T> CompletableFuture<T> submit(Supplier<T> operation) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            publish(command(result, () -> result.complete(operation.get())));
+            return result;
+        }
+
+        void publish(Runnable command) {
+            if (Thread.currentThread() instanceof ShardThread || !running) {
+                forwarded.add(command);
+            } else {
+                int tries = 0;
+                while (!ring.offer(command)) {
+                    // Full ring: back off until the shard catches up
+                    if (++tries < SPIN_TRIES) {
+                        Thread.onSpinWait();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                Runnable command = next();
+                if (command != null) {
+                    command.run();
+                    idle = 0;
+                    continue;
+                }
+                if (!running) {
+                    return;
+                }
+
+                // Spin, then yield, then park until a producer wakes the shard
+                if (++idle <= SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else if (idle <= YIELD_TRIES) {
+                    Thread.yield();
+                } else {
+                    sleeping = true;
+                    if (forwarded.isEmpty() && ring.isEmpty() && running) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    sleeping = false;
+                }
+            }
+        }
+
+        // Returns true if any command was applied
+        boolean drain() {
+            boolean applied = false;
+            Runnable command;
+            while ((command = next()) != null) {
+                command.run();
+                applied = true;
+            }
+            return applied;
+        }
+
+        private Runnable next() {
+            Runnable command = forwarded.poll();
+            return command != null ? command : ring.poll();
+        }
+
+        void register(Driver driver) {
+            Owner owner = new Owner(driver, this);
+            Owner previous = owners.put(driver.getDriverId(), owner);
+            if (previous != null) {
+                if (previous.shard == this) {
+                    index.remove(previous.driver);
+                } else {
+                    previous.shard.publish(() -> previous.shard.forget(previous.driver));
+                }
+            }
+            index.add(driver);
+        }
+
+        // Drops an instance this shard no longer owns, unless it has been handed straight back
+        void forget(Driver driver) {
+            Owner current = owners.get(driver.getDriverId());
+            if (current == null || current.driver != driver || current.shard != this) {
+                index.remove(driver);
+            }
+        }
+
+        void move(String driverId, double latitude, double longitude, CompletableFuture<Void> result) {
+            Owner owner = owners.get(driverId);
+            if (owner == null) {
+                fail(result, new DriverNotFoundException(driverId));
+                return;
+            }
+            if (owner.shard != this) {
+                owner.shard.publish(command(result, () -> owner.shard.move(driverId, latitude, longitude, result)));
+                return;
+            }
+
+            Driver driver = owner.driver;
+            driver.updateLocation(latitude, longitude);
+            Shard target = shardOf(latitude, longitude);
+            if (target == this) {
+                index.update(driver);
+            } else {
+                // Hand the driver to the shard owning its new tile; a re-registration racing the hand-off wins
+                index.remove(driver);
+                Owner moved = new Owner(driver, target);
+                if (owners.replace(driverId, owner, moved)) {
+                    target.publish(() -> target.adopt(moved));
+                }
+            }
+            if (result != null) {
+                result.complete(null);
+            }
+        }
+
+        void adopt(Owner owner) {
+            if (owners.get(owner.driver.getDriverId()) == owner) {
+                index.add(owner.driver);
+            }
+        }
+
+        // Runs on the pickup's shard. Its own nearest driver wins outright when nothing across the tile border can be
+        // closer; otherwise every shard contributes its nearest few and the merged list is claimed nearest first.
+        void match(String riderId, Location pickup, int attempt, CompletableFuture<Ride> result) {
+            Driver local = index.findNearestAvailable(pickup);
+            DistanceKernel kernel = DistanceKernel.around(pickup, metric);
+            if (shards.length == 1
+                    || (local != null && kernel.rank(local.getCurrentLocation()) <= layout.borderGap(kernel, pickup))) {
+                if (local == null) {
+                    result.completeExceptionally(new NoAvailableDriverException(pickup));
+                } else {
+                    claim(riderId, pickup, List.of(local), 0, attempt, result);
+                }
+                return;
+            }
+
+            // Concurrent requests near the same spot see the same candidates, so each retry widens the net
+            int candidateCount = RideMatchingCostants.CLAIM_CANDIDATES << attempt;
+            List<CompletableFuture<List<Driver>>> parts = new ArrayList<>(shards.length);
+            for (Shard shard : shards) {
+                parts.add(shard == this
+                        ? CompletableFuture.completedFuture(index.findNearestAvailable(pickup, candidateCount))
+                        : shard.submit(() -> shard.index.findNearestAvailable(pickup, candidateCount)));
+            }
+            // The last part completes on another shard's thread; the claim itself goes back onto this one
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                publish(command(result, () -> {
+                    List<Driver> candidates = nearestOf(pickup, Integer.MAX_VALUE, parts);
+                    if (candidates.isEmpty()) {
+                        result.completeExceptionally(new NoAvailableDriverException(pickup));
+                        return;
+                    }
+                    claim(riderId, pickup, candidates, 0, attempt, result);
+                }));
+            });
+        }
+
+        // Walks the candidates nearest first, handing the walk to whichever shard owns the next one still available
+        void claim(String riderId, Location pickup, List<Driver> candidates, int next, int attempt,
+                   CompletableFuture<Ride> result) {
+            ensureOwnThread();
+            for (int i = next; i < candidates.size(); i++) {
+                Driver driver = candidates.get(i);
+                Owner owner = owners.get(driver.getDriverId());
+                if (owner == null || owner.driver != driver || !driver.isAvailable()) {
+                    continue;
+                }
+                if (owner.shard != this) {
+                    int position = i;
+                    owner.shard.publish(command(result,
+                            () -> owner.shard.claim(riderId, pickup, candidates, position, attempt, result)));
+                    return;
+                }
+
+                // Only this thread flips the flag of a driver it owns, so the CAS never contends; a failure means the
+                // single-writer rule was broken somewhere, and the driver is passed over rather than handed out twice
+                if (!driver.markAsUnavailable()) {
+                    continue;
+                }
+                index.remove(driver);
+
+                String rideId = IdGenerator.formatRideId(rideIds.nextRideKey());
+                Ride ride = new Ride(rideId, riderId, driver, pickup);
+                rides.put(rideId, ride);
+                rideShards.put(rideId, this);
+                result.complete(ride);
+                return;
+            }
+            retry(riderId, pickup, attempt, result);
+        }
+
+        // The ride table and index are plain structures: touching them from another thread would corrupt them
+        private void ensureOwnThread() {
+            if (Thread.currentThread() != thread) {
+                throw new IllegalStateException("Shard " + id + " state accessed from " + Thread.currentThread().getName());
+            }
+        }
+
+        private void retry(String riderId, Location pickup, int attempt, CompletableFuture<Ride> result) {
+            if (attempt + 1 >= RideMatchingCostants.MAX_ALLOCATION_RETRIES) {
+                result.completeExceptionally(new DriverAllocationException(RideMatchingCostants.MAX_ALLOCATION_RETRIES));
+                return;
+            }
+            Shard home = shardOf(pickup.getLatitude(), pickup.getLongitude());
+            home.publish(command(result, () -> home.match(riderId, pickup, attempt + 1, result)));
+        }
+
+        // outcome is COMPLETED or CANCELLED
+        void finish(String rideId, RideStatus outcome, CompletableFuture<Void> result) {
+            Ride ride = rides.get(rideId);
+            if (ride == null) {
+                result.completeExceptionally(new RideNotFoundException(rideId));
+                return;
+            }
+            RideStatus currentStatus = ride.getStatus();
+            if (currentStatus == RideStatus.COMPLETED || currentStatus == RideStatus.CANCELLED) {
+                result.completeExceptionally(new InvalidRideStateException(rideId, currentStatus,
+                        outcome == RideStatus.COMPLETED ? "complete" : "cancel"));
+                return;
+            }
+
+            if (outcome == RideStatus.COMPLETED) {
+                ride.markAsCompleted();
+            } else {
+                ride.markAsCancelled();
+            }
+            release(ride.getDriver(), result);
+        }
+
+        // Makes the driver available again on whichever shard owns it now
+        void release(Driver driver, CompletableFuture<Void> result) {
+            Owner owner = owners.get(driver.getDriverId());
+            if (owner != null && owner.driver == driver && owner.shard != this) {
+                owner.shard.publish(command(result, () -> owner.shard.release(driver, result)));
+                return;
+            }
+
+            driver.markAsAvailable();
+            if (owner != null && owner.driver == driver) {
+                index.add(driver);
+            }
+            result.complete(null);
+        }
+
+        // Batched updates pass no future; a driver unknown by the time its update is applied is skipped
+        private static void fail(CompletableFuture<?> result, RuntimeException error) {
+            if (result != null) {
+                result.completeExceptionally(error);
+            }
+        }
+    }
+
+    private static final class ShardThread extends Thread {
+
+        ShardThread(Runnable loop, String name) {
+            super(loop, name);
+            setDaemon(true);
+        }
+    }
+
+    // Compared by identity, so a re-registered driver with the same ID never matches a stale entry
+    private static final class Owner {
+
+        final Driver driver;
+        final Shard shard;
+
+        Owner(Driver driver, Shard shard) {
+            this.driver = driver;
+            this.shard = shard;
+        }
+    }
+
+    private record Candidate(Driver driver, double rank) {
+
+        static final Comparator<Candidate> NEAREST_FIRST = Comparator
+                .comparingDouble(Candidate::rank)
+                .thenComparing(c -> c.driver().getDriverId());
+    }
+}
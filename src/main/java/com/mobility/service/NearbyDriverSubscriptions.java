@@ -0,0 +1,231 @@
+package com.mobility.service;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.index.DriverIndex;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceKernel;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The driver subscriptions of one RideMatchingService, filed under every grid cell their area overlaps. A driver
+ * change visits only the subscriptions filed under the cells of its old and new position, so its cost follows the
+ * viewers around that driver rather than all viewers times the fleet. Each cell packs its subscriptions' centres and
+ * ranges into parallel arrays, so passing over the ones a move does not concern is a scan without locks or pointer
+ * chasing. Updates of one driver are expected one at a time, as they come from its own feed: two racing moves may
+ * leave it shown where the earlier one put it.
+ */
+final class NearbyDriverSubscriptions {
+
+    private final DriverIndex driverIndex;
+    private final Function<String, Driver> registry;
+    private final double cellSize;
+    private final int rows;
+    private final int columns;
+    private final ConcurrentHashMap<Long, Cell> cells;
+    private final AtomicInteger size;
+
+    NearbyDriverSubscriptions(DriverIndex driverIndex, Function<String, Driver> registry) {
+        this.driverIndex = driverIndex;
+        this.registry = registry;
+        this.cellSize = RideMatchingCostants.SUBSCRIPTION_CELL_DEGREES;
+        this.rows = (int) Math.ceil((RideMatchingCostants.MAX_LATITUDE - RideMatchingCostants.MIN_LATITUDE) / cellSize);
+        this.columns = (int) Math.ceil((RideMatchingCostants.MAX_LONGITUDE - RideMatchingCostants.MIN_LONGITUDE) / cellSize);
+        this.cells = new ConcurrentHashMap<>();
+        this.size = new AtomicInteger();
+    }
+
+    DriverSubscription subscribe(Location location, int count, double maxDistance) {
+        DistanceKernel kernel = DistanceKernel.around(location, driverIndex.getDistanceMetric());
+        // Half sides of the area's bounding box in degrees; longitude degrees shrink away from the equator
+        double latitudeSpan = Math.sqrt(kernel.rankLimit(maxDistance));
+        double longitudeSpan = latitudeSpan / Math.max(kernel.longitudeScale(), 1e-9);
+
+        int firstRow = row(location.getLatitude() - latitudeSpan);
+        int lastRow = row(location.getLatitude() + latitudeSpan);
+        int firstColumn = column(location.getLongitude() - longitudeSpan);
+        int lastColumn = column(location.getLongitude() + longitudeSpan);
+        long cellCount = (long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+        if (cellCount > RideMatchingCostants.SUBSCRIPTION_MAX_CELLS) {
+            throw new IllegalArgumentException("Subscription area is too large");
+        }
+
+        long[] keys = new long[(int) cellCount];
+        int next = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                keys[next++] = cellKey(row, column);
+            }
+        }
+
+        DriverSubscription subscription = new DriverSubscription(this, location, count, maxDistance, kernel, keys);
+        // Filed before the first fill, so no change in between is missed
+        for (long key : keys) {
+            cells.compute(key, (k, cell) -> cell == null
+                    ? Cell.EMPTY.with(subscription, kernel, maxDistance)
+                    : cell.with(subscription, kernel, maxDistance));
+        }
+        size.incrementAndGet();
+        subscription.fill();
+        return subscription;
+    }
+
+    void unsubscribe(DriverSubscription subscription) {
+        for (long key : subscription.cells()) {
+            cells.computeIfPresent(key, (k, cell) -> cell.without(subscription));
+        }
+        size.decrementAndGet();
+    }
+
+    // Lets the service skip the cell lookups while nobody is subscribed; a subscription counts once filed, before it
+    // first reads the index, so a change it misses here is one its fill already sees
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    // A driver moved from the given position (NaN when it is new or did not move) or changed availability
+    void driverChanged(Driver driver, double previousLatitude, double previousLongitude) {
+        Location position = driver.getCurrentLocation();
+        long cell = cellKey(row(position.getLatitude()), column(position.getLongitude()));
+        notifyCell(cell, driver, position, previousLatitude, previousLongitude);
+        if (!Double.isNaN(previousLatitude)) {
+            long previous = cellKey(row(previousLatitude), column(previousLongitude));
+            if (previous != cell) {
+                notifyCell(previous, driver, position, previousLatitude, previousLongitude);
+            }
+        }
+    }
+
+    // Every driver shown is gone; subscriptions stay open
+    void cleared() {
+        for (Cell cell : cells.values()) {
+            for (DriverSubscription subscription : cell.subscriptions) {
+                subscription.reset();
+            }
+        }
+    }
+
+    boolean isRegistered(Driver driver) {
+        return registry.apply(driver.getDriverId()) == driver;
+    }
+
+    List<Driver> nearest(Location location, int count, double maxDistance) {
+        return driverIndex.findNearestAvailable(location, count, maxDistance);
+    }
+
+    private void notifyCell(long cell, Driver driver, Location position, double previousLatitude,
+                            double previousLongitude) {
+        Cell members = cells.get(cell);
+        if (members == null) {
+            return;
+        }
+        boolean moved = !Double.isNaN(previousLatitude);
+        double latitude = position.getLatitude();
+        double longitude = position.getLongitude();
+        for (int i = 0; i < members.subscriptions.length; i++) {
+            // Out of range before and after the move, so it cannot be shown and has not come into view: most
+            // subscriptions in a cell are passed over here, without taking their lock
+            if (moved && !members.covers(i, previousLatitude, previousLongitude)
+                    && !members.covers(i, latitude, longitude)) {
+                continue;
+            }
+            members.subscriptions[i].update(driver);
+        }
+    }
+
+    private int row(double latitude) {
+        return clamp((int) Math.floor((latitude - RideMatchingCostants.MIN_LATITUDE) / cellSize), rows);
+    }
+
+    private int column(double longitude) {
+        return clamp((int) Math.floor((longitude - RideMatchingCostants.MIN_LONGITUDE) / cellSize), columns);
+    }
+
+    private long cellKey(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(value, limit - 1));
+    }
+
+    // Immutable; filing or closing a subscription copies the cell, as these change far less often than drivers move
+    private static final class Cell {
+
+        static final Cell EMPTY = new Cell(new DriverSubscription[0], new double[0], new double[0], new double[0],
+                new double[0]);
+
+        final DriverSubscription[] subscriptions;
+        // The subscriptions' kernels, unpacked
+        final double[] latitudes;
+        final double[] longitudes;
+        final double[] longitudeScales;
+        final double[] rankLimits;
+
+        Cell(DriverSubscription[] subscriptions, double[] latitudes, double[] longitudes, double[] longitudeScales,
+             double[] rankLimits) {
+            this.subscriptions = subscriptions;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.longitudeScales = longitudeScales;
+            this.rankLimits = rankLimits;
+        }
+
+        boolean covers(int slot, double latitude, double longitude) {
+            double deltaLat = latitude - latitudes[slot];
+            double deltaLon = (longitude - longitudes[slot]) * longitudeScales[slot];
+            return deltaLat * deltaLat + deltaLon * deltaLon <= rankLimits[slot];
+        }
+
+        Cell with(DriverSubscription subscription, DistanceKernel kernel, double maxDistance) {
+            int size = subscriptions.length;
+            Cell grown = new Cell(Arrays.copyOf(subscriptions, size + 1), Arrays.copyOf(latitudes, size + 1),
+                    Arrays.copyOf(longitudes, size + 1), Arrays.copyOf(longitudeScales, size + 1),
+                    Arrays.copyOf(rankLimits, size + 1));
+            grown.subscriptions[size] = subscription;
+            grown.latitudes[size] = kernel.originLatitude();
+            grown.longitudes[size] = kernel.originLongitude();
+            grown.longitudeScales[size] = kernel.longitudeScale();
+            grown.rankLimits[size] = kernel.rankLimit(maxDistance);
+            return grown;
+        }
+
+        // Null once the last subscription is gone, which drops the cell from the map
+        Cell without(DriverSubscription subscription) {
+            int slot = -1;
+            for (int i = 0; i < subscriptions.length; i++) {
+                if (subscriptions[i] == subscription) {
+                    slot = i;
+                    break;
+                }
+            }
+            if (slot < 0) {
+                return this;
+            }
+            int size = subscriptions.length - 1;
+            if (size == 0) {
+                return null;
+            }
+            // The last slot moves into the gap
+            Cell shrunk = new Cell(Arrays.copyOf(subscriptions, size), Arrays.copyOf(latitudes, size),
+                    Arrays.copyOf(longitudes, size), Arrays.copyOf(longitudeScales, size), Arrays.copyOf(rankLimits, size));
+            if (slot < size) {
+                shrunk.subscriptions[slot] = subscriptions[size];
+                shrunk.latitudes[slot] = latitudes[size];
+                shrunk.longitudes[slot] = longitudes[size];
+                shrunk.longitudeScales[slot] = longitudeScales[size];
+                shrunk.rankLimits[slot] = rankLimits[size];
+            }
+            return shrunk;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.mobility.service;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.exception.RideMatchingException;
+import com.mobility.model.Driver;
+import com.mobility.model.Ride;
+import com.mobility.utils.ConcurrentLongMap;
+import com.mobility.utils.TimerWheel;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Timeouts of one RideMatchingService, all on a single timer wheel: a driver's lease, which unregisters it when no
+ * location has arrived for the driver timeout, and each new ride's acknowledgement deadline, which cancels the ride and
+ * frees its driver. A location update only stamps the lease with the wheel's clock; a lease that falls due while the
+ * driver has been heard from is pushed back by the difference, so pings never touch the wheel.
+ */
+final class RideExpiry implements AutoCloseable {
+
+    private final RideMatchingService service;
+    private final long driverTimeoutNanos;
+    private final long rideAckTimeoutNanos;
+    private final LongSupplier clock;
+    // Holds DriverLeases and Rides
+    private final TimerWheel<Object> wheel;
+    private final ConcurrentHashMap<String, DriverLease> leases;
+    // Rides awaiting acknowledgement, by ride key
+    private final ConcurrentLongMap<TimerWheel.Timeout<Object>> unacknowledged;
+    private final LongAdder expiredDrivers;
+    private final LongAdder expiredRides;
+    private ScheduledExecutorService ticker;
+
+    RideExpiry(RideMatchingService service, Duration driverTimeout, Duration rideAckTimeout, LongSupplier clock) {
+        if (driverTimeout == null || driverTimeout.isNegative() || driverTimeout.isZero()) {
+            throw new IllegalArgumentException("Driver timeout must be positive");
+        }
+        if (rideAckTimeout == null || rideAckTimeout.isNegative() || rideAckTimeout.isZero()) {
+            throw new IllegalArgumentException("Ride acknowledgement timeout must be positive");
+        }
+
+        this.service = service;
+        this.driverTimeoutNanos = driverTimeout.toNanos();
+        this.rideAckTimeoutNanos = rideAckTimeout.toNanos();
+        this.clock = clock;
+        this.wheel = new TimerWheel<>(TimeUnit.MILLISECONDS.toNanos(RideMatchingCostants.EXPIRY_TICK_MILLIS),
+                RideMatchingCostants.EXPIRY_WHEEL_BUCKETS, clock.getAsLong());
+        this.leases = new ConcurrentHashMap<>();
+        this.unacknowledged = new ConcurrentLongMap<>(RideMatchingCostants.RIDE_STORE_SEGMENTS);
+        this.expiredDrivers = new LongAdder();
+        this.expiredRides = new LongAdder();
+    }
+
+    // Advances the wheel every tick on a daemon thread until closed
+    void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ride-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickNanos = wheel.getTickNanos();
+        ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Expires whatever fell due by the clock's current time; returns the number of timeouts that ran
+    int advance() {
+        return wheel.advance(clock.getAsLong(), this::expire);
+    }
+
+    // Starts a full lease, replacing the one of any instance registered under the same ID
+    void driverRegistered(Driver driver) {
+        DriverLease lease = new DriverLease(driver, wheel.now());
+        DriverLease previous = leases.put(driver.getDriverId(), lease);
+        if (previous != null) {
+            previous.cancel();
+        }
+        lease.timeout = wheel.schedule(lease, driverTimeoutNanos);
+    }
+
+    // For drivers registered before expiry was enabled; a registration racing the enable keeps its own lease
+    void leaseIfAbsent(Driver driver) {
+        DriverLease lease = new DriverLease(driver, wheel.now());
+        if (leases.putIfAbsent(driver.getDriverId(), lease) == null) {
+            lease.timeout = wheel.schedule(lease, driverTimeoutNanos);
+        }
+    }
+
+    void driverSeen(String driverId) {
+        DriverLease lease = leases.get(driverId);
+        if (lease == null) {
+            return;
+        }
+        // The clock moves once per tick, so most pings in a tick skip the write
+        long now = wheel.now();
+        if (lease.lastSeen != now) {
+            lease.lastSeen = now;
+        }
+    }
+
+    void rideClaimed(Ride ride) {
+        unacknowledged.put(ride.getRideKey(), wheel.schedule(ride, rideAckTimeoutNanos));
+    }
+
+    // Stops the ride's acknowledgement deadline. Returns false if it was not pending: acknowledged already, opened
+    // before expiry was enabled, or being expired. Callers hold the ride's monitor.
+    boolean settle(Ride ride) {
+        TimerWheel.Timeout<Object> timeout = unacknowledged.remove(ride.getRideKey());
+        if (timeout == null) {
+            return false;
+        }
+        timeout.cancel();
+        return true;
+    }
+
+    private void expire(Object task) {
+        try {
+            switch (task) {
+                case DriverLease lease -> expire(lease);
+                case Ride ride -> {
+                    if (service.cancelUnacknowledged(ride)) {
+                        expiredRides.increment();
+                    }
+                }
+                default -> throw new IllegalStateException("Unexpected timeout " + task);
+            }
+        } catch (RideMatchingException e) {
+            // Left as a failed cancelRide would leave it (e.g. the journal refused the record); the tick carries on
+        }
+    }
+
+    private void expire(DriverLease lease) {
+        long idle = wheel.now() - lease.lastSeen;
+        if (idle < driverTimeoutNanos) {
+            lease.timeout = wheel.schedule(lease, driverTimeoutNanos - idle);
+            return;
+        }
+        if (leases.remove(lease.driver.getDriverId(), lease)) {
+            service.removeDriver(lease.driver);
+            expiredDrivers.increment();
+        }
+    }
+
+    long getExpiredDriverCount() {
+        return expiredDrivers.sum();
+    }
+
+    long getExpiredRideCount() {
+        return expiredRides.sum();
+    }
+
+    // Timeouts pending on the wheel: one per leased driver plus one per unacknowledged ride
+    int getPendingCount() {
+        return wheel.size();
+    }
+
+    void clear() {
+        leases.clear();
+        unacknowledged.clear();
+        wheel.clear();
+    }
+
+    @Override
+    public void close() {
+        if (ticker != null) {
+            ticker.shutdown();
+            try {
+                ticker.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        clear();
+    }
+
+    private static final class DriverLease {
+        final Driver driver;
+        volatile long lastSeen;
+        volatile TimerWheel.Timeout<Object> timeout;
+
+        DriverLease(Driver driver, long lastSeen) {
+            this.driver = driver;
+            this.lastSeen = lastSeen;
+        }
+
+        void cancel() {
+            TimerWheel.Timeout<Object> current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.mobility.service;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
+import com.mobility.model.Ride;
+
+import java.util.List;
+
+/**
+ * Public operations of a ride matching engine, so callers and benchmarks can swap the shared-state service
+ * for the single-writer event loop.
+ */
+public interface RideMatchingEngine {
+
+    void registerDriver(Driver driver);
+
+    void updateDriverLocation(String driverId, Location newLocation);
+
+    void updateDriverLocation(String driverId, double latitude, double longitude);
+
+    int updateDriverLocations(LocationUpdateBatch batch);
+
+    Ride requestRide(String riderId, Location pickupLocation);
+
+    void completeRide(String rideId);
+
+    void cancelRide(String rideId);
+
+    List<Driver> getNearestDrivers(Location location, int count);
+
+    List<Driver> getNearestDrivers(Location location, int count, double maxDistance);
+
+    List<Driver> getAvailableDrivers();
+
+    double distanceBetween(Location from, Location to);
+
+    DistanceMetric getDistanceMetric();
+
+    Driver getDriver(String driverId);
+
+    int getDriverCount();
+
+    int getRideCount();
+
+    void clear();
+}
@@ -1,146 +1,704 @@
 package com.mobility.service;
 
 import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
 import com.mobility.enums.RideStatus;
 import com.mobility.exception.*;
+import com.mobility.index.DriverIndex;
+import com.mobility.index.KdTreeDriverIndex;
+import com.mobility.index.LinearScanDriverIndex;
+import com.mobility.index.PackedScanDriverIndex;
+import com.mobility.index.SpatialGridIndex;
+import com.mobility.metrics.RideMatchingMetrics;
 import com.mobility.model.Driver;
 import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
 import com.mobility.model.Ride;
+import com.mobility.store.JournalRecord;
+import com.mobility.store.PositionStore;
+import com.mobility.store.RideStore;
+import com.mobility.store.Snapshot;
+import com.mobility.store.WriteAheadLog;
+import com.mobility.utils.DistanceCalculator;
 import com.mobility.utils.IdGenerator;
 
-import java.util.Comparator;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
-public class RideMatchingService {
+public class RideMatchingService implements RideMatchingEngine {
 
     private final ConcurrentHashMap<String, Driver> drivers;
-    private final ConcurrentHashMap<String, Ride> rides;
-    private final ReadWriteLock driverLock;
+    private final RideStore rides;
+    // Held shared by registrations and exclusively by clear(); reads and matching never take it
+    private final ReadWriteLock lifecycleLock;
+    private final DriverIndex driverIndex;
+    private final PositionStore positions;
+    // Issues the key of every ride claimed here
+    private final IdGenerator rideIds;
+    // Null unless the service was opened on a journal
+    private final WriteAheadLog journal;
+    // Journaled changes between their first effect and their last, counted per snapshot epoch (see writeSnapshot)
+    private final AtomicInteger[] changesInFlight;
+    private volatile int snapshotEpoch;
+    private final Lock snapshotLock;
+    private final RideMatchingMetrics metrics;
+    // Null unless enableExpiry was called
+    private volatile RideExpiry expiry;
+    private final NearbyDriverSubscriptions subscriptions;
 
     public RideMatchingService() {
-        this.drivers = new ConcurrentHashMap<>();
-        this.rides = new ConcurrentHashMap<>();
-        this.driverLock = new ReentrantReadWriteLock();
+        this(IndexType.SPATIAL_GRID);
     }
 
+    // LINEAR_SCAN keeps the original full-map scan as a reference implementation
+    public RideMatchingService(IndexType indexType) {
+        this(indexType, DistanceMetric.EUCLIDEAN);
+    }
+
+    // HAVERSINE matches on real-world distance and reports metres; EUCLIDEAN keeps the original degree distance
+    public RideMatchingService(IndexType indexType, DistanceMetric distanceMetric) {
+        this(createIndex(indexType, distanceMetric));
+    }
+
+    // Keeps finished rides in the given store's bounded history (and archive) instead of the default history
+    public RideMatchingService(IndexType indexType, DistanceMetric distanceMetric, RideStore rideStore) {
+        this(indexType, distanceMetric, null, null, rideStore);
+    }
+
+    // Rebuilds the state recorded in the journal, then records every change to it. Registrations, claims and
+    // completions return only once they are durable; location fixes are written with whatever commits next.
+    public RideMatchingService(IndexType indexType, DistanceMetric distanceMetric, WriteAheadLog journal) {
+        this(createIndex(indexType, distanceMetric), new IdGenerator(IdGenerator.STANDALONE_ORIGIN), journal, null,
+                new RideStore());
+        if (journal == null) {
+            throw new IllegalArgumentException("Journal cannot be null");
+        }
+    }
+
+    // Restarts from the snapshot written by writeSnapshot, if the file exists, then replays only the journal records
+    // appended after it. The journal may be null, in which case changes since the snapshot are lost.
+    public RideMatchingService(IndexType indexType, DistanceMetric distanceMetric, WriteAheadLog journal,
+                               Path snapshot) {
+        this(createIndex(indexType, distanceMetric), new IdGenerator(IdGenerator.STANDALONE_ORIGIN), journal, snapshot,
+                new RideStore());
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Snapshot path cannot be null");
+        }
+    }
+
+    // All of the above; journal and snapshot may be null
+    public RideMatchingService(IndexType indexType, DistanceMetric distanceMetric, WriteAheadLog journal,
+                               Path snapshot, RideStore rideStore) {
+        this(createIndex(indexType, distanceMetric), new IdGenerator(IdGenerator.STANDALONE_ORIGIN), journal, snapshot,
+                rideStore);
+    }
+
+    public RideMatchingService(DriverIndex driverIndex) {
+        this(driverIndex, new IdGenerator(IdGenerator.STANDALONE_ORIGIN));
+    }
+
+    // Ride keys carry the generator's origin, so services in different processes never issue the same one. Services
+    // sharing an origin in one process must share the generator too.
+    RideMatchingService(DriverIndex driverIndex, IdGenerator rideIds) {
+        this(driverIndex, rideIds, null, null, new RideStore());
+    }
+
+    RideMatchingService(DriverIndex driverIndex, IdGenerator rideIds, WriteAheadLog journal, Path snapshot,
+                        RideStore rideStore) {
+        if (driverIndex == null) {
+            throw new IllegalArgumentException("Driver index cannot be null");
+        }
+        if (rideStore == null) {
+            throw new IllegalArgumentException("Ride store cannot be null");
+        }
+        // Read first so the registry can be sized for it instead of resizing all through the load
+        Snapshot image = snapshot != null && Files.exists(snapshot) ? Snapshot.read(snapshot) : null;
+        this.drivers = image == null ? new ConcurrentHashMap<>() : new ConcurrentHashMap<>(image.getDriverCount());
+        this.rides = rideStore;
+        this.lifecycleLock = new ReentrantReadWriteLock();
+        this.driverIndex = driverIndex;
+        this.positions = new PositionStore();
+        this.rideIds = rideIds;
+        this.journal = journal;
+        this.changesInFlight = new AtomicInteger[]{new AtomicInteger(), new AtomicInteger()};
+        this.snapshotLock = new ReentrantLock();
+        this.metrics = new RideMatchingMetrics();
+        this.subscriptions = new NearbyDriverSubscriptions(driverIndex, drivers::get);
+
+        // Archived rides are in neither the snapshot nor the journal once those have moved on
+        rideIds.advancePast(rideStore.getArchivedSequence(rideIds.getOrigin()));
+        long replayFrom = 0;
+        if (image != null) {
+            image.forEach(this::apply);
+            rideIds.advancePast(image.getRideSequence());
+            replayFrom = image.getJournalPosition();
+        }
+        if (journal != null) {
+            journal.replay(replayFrom, this::apply);
+        }
+    }
+
+    static DriverIndex createIndex(IndexType indexType, DistanceMetric distanceMetric) {
+        if (indexType == null) {
+            throw new IllegalArgumentException("Index type cannot be null");
+        }
+        if (distanceMetric == null) {
+            throw new IllegalArgumentException("Distance metric cannot be null");
+        }
+
+        return switch (indexType) {
+            case SPATIAL_GRID -> new SpatialGridIndex(distanceMetric);
+            case KD_TREE -> new KdTreeDriverIndex(distanceMetric);
+            case LINEAR_SCAN -> new LinearScanDriverIndex(distanceMetric);
+            case PACKED_SCAN -> new PackedScanDriverIndex(distanceMetric);
+        };
+    }
+
+    @Override
     public void registerDriver(Driver driver) {
         if (driver == null) {
             throw new IllegalArgumentException("Driver cannot be null");
         }
 
-        driverLock.writeLock().lock();
+        commit(install(driver, journal != null));
+        RideExpiry currentExpiry = expiry;
+        if (currentExpiry != null) {
+            currentExpiry.driverRegistered(driver);
+        }
+    }
+
+    // Returns the journal position of the registration, or 0 when it is not journaled
+    private long install(Driver driver, boolean journaled) {
+        long[] position = new long[1];
+        // Where the instance it replaces was, for the subscriptions that showed it there
+        double[] replaced = {Double.NaN, Double.NaN};
+        int epoch = journaled ? beginChange() : -1;
+        acquire(lifecycleLock.readLock());
         try {
-            drivers.put(driver.getDriverId(), driver);
+            // Registrations of the same ID serialise on its map entry, so the index always ends up with the winner;
+            // different IDs proceed in parallel. Journaling here keeps the log in the same order.
+            drivers.compute(driver.getDriverId(), (id, previous) -> {
+                driver.attachTo(positions);
+                if (previous != null && previous != driver) {
+                    replaced[0] = previous.getLatitude();
+                    replaced[1] = previous.getLongitude();
+                    previous.detach();
+                }
+                driverIndex.add(driver);
+                if (journaled) {
+                    Location location = driver.getCurrentLocation();
+                    position[0] = journal.append(new JournalRecord.DriverRegistered(driver.getDriverId(),
+                            driver.getName(), location.getLatitude(), location.getLongitude(), driver.isAvailable()));
+                }
+                return driver;
+            });
         } finally {
-            driverLock.writeLock().unlock();
+            lifecycleLock.readLock().unlock();
+            endChange(epoch);
         }
+        driverChanged(driver, replaced[0], replaced[1]);
+        return position[0];
     }
 
+    @Override
     public void updateDriverLocation(String driverId, Location newLocation) {
         validateNotNull(driverId, "Driver ID");
         validateNotNull(newLocation, "Location");
 
+        long start = metrics.start();
         Driver driver = drivers.get(driverId);
         if (driver == null) {
             throw new DriverNotFoundException(driverId);
         }
 
+        double previousLatitude = driver.getLatitude();
+        double previousLongitude = driver.getLongitude();
         driver.setCurrentLocation(newLocation);
+        driverIndex.update(driver);
+        repairIfReplaced(driver);
+        driverChanged(driver, previousLatitude, previousLongitude);
+        if (journal != null) {
+            journal.append(new JournalRecord.DriverMoved(driverId, newLocation.getLatitude(), newLocation.getLongitude()));
+        }
+        seen(driverId);
+        metrics.locationUpdated(start);
     }
 
-    public Ride requestRide(String riderId, Location pickupLocation) {
-        return requestRideWithRetry(riderId, pickupLocation, 0);
+    // GPS ping path: writes coordinates in place without allocating a Location
+    @Override
+    public void updateDriverLocation(String driverId, double latitude, double longitude) {
+        validateNotNull(driverId, "Driver ID");
+
+        long start = metrics.start();
+        if (!tryUpdateDriverLocation(driverId, latitude, longitude)) {
+            throw new DriverNotFoundException(driverId);
+        }
+        metrics.locationUpdated(start);
+    }
+
+    // Returns false if no driver with this ID is registered here
+    boolean tryUpdateDriverLocation(String driverId, double latitude, double longitude) {
+        Driver driver = drivers.get(driverId);
+        if (driver == null) {
+            return false;
+        }
+
+        // Read even with nobody subscribed, since a subscription opened meanwhile may already show the old position
+        double previousLatitude = driver.getLatitude();
+        double previousLongitude = driver.getLongitude();
+        driver.updateLocation(latitude, longitude);
+        driverIndex.update(driver);
+        repairIfReplaced(driver);
+        driverChanged(driver, previousLatitude, previousLongitude);
+        if (journal != null) {
+            journal.append(new JournalRecord.DriverMoved(driverId, latitude, longitude));
+        }
+        seen(driverId);
+        return true;
+    }
+
+    // Passes a change to the subscriptions around the driver's new and previous position (NaN if it did not move)
+    private void driverChanged(Driver driver, double previousLatitude, double previousLongitude) {
+        if (!subscriptions.isEmpty()) {
+            subscriptions.driverChanged(driver, previousLatitude, previousLongitude);
+        }
     }
 
-    // Retry mechanism to handle race conditions during concurrent requests
-    private Ride requestRideWithRetry(String riderId, Location pickupLocation, int attempt) {
+    // Renews the driver's lease when expiry is enabled
+    private void seen(String driverId) {
+        RideExpiry currentExpiry = expiry;
+        if (currentExpiry != null) {
+            currentExpiry.driverSeen(driverId);
+        }
+    }
+
+    // Unregisters this instance if it is still the registered one, freeing its position slot here. After a hand-off
+    // the driver already holds a slot in the adopting service's store, which it keeps.
+    void removeDriver(Driver driver) {
+        acquire(lifecycleLock.readLock());
+        try {
+            drivers.computeIfPresent(driver.getDriverId(), (id, current) -> {
+                if (current != driver) {
+                    return current;
+                }
+                driverIndex.remove(driver);
+                driver.detachFrom(positions);
+                return null;
+            });
+        } finally {
+            lifecycleLock.readLock().unlock();
+        }
+        driverChanged(driver, Double.NaN, Double.NaN);
+    }
+
+    // Applies a gateway batch in one pass: repeated fixes for a driver collapse to the latest, unknown drivers are skipped.
+    // Returns the number of drivers moved.
+    @Override
+    public int updateDriverLocations(LocationUpdateBatch batch) {
+        validateNotNull(batch, "Location batch");
+
+        Map<String, Integer> latest = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            latest.put(batch.getDriverId(i), i);
+        }
+
+        List<Driver> moved = new ArrayList<>(latest.size());
+        // Positions before the batch, two per moved driver, for the subscriptions that show them there
+        double[] previous = new double[latest.size() * 2];
+        latest.forEach((driverId, index) -> {
+            Driver driver = drivers.get(driverId);
+            if (driver != null) {
+                previous[moved.size() * 2] = driver.getLatitude();
+                previous[moved.size() * 2 + 1] = driver.getLongitude();
+                driver.updateLocation(batch.getLatitude(index), batch.getLongitude(index));
+                moved.add(driver);
+                if (journal != null) {
+                    journal.append(new JournalRecord.DriverMoved(driverId,
+                            batch.getLatitude(index), batch.getLongitude(index)));
+                }
+                seen(driverId);
+            }
+        });
+
+        driverIndex.updateAll(moved);
+        moved.forEach(this::repairIfReplaced);
+        for (int i = 0; i < moved.size(); i++) {
+            driverChanged(moved.get(i), previous[i * 2], previous[i * 2 + 1]);
+        }
+        metrics.locationsUpdated(moved.size());
+        return moved.size();
+    }
+
+    // A re-registration racing a location update can leave the old instance indexed in place of the new one
+    private void repairIfReplaced(Driver driver) {
+        Driver current = drivers.get(driver.getDriverId());
+        if (current == driver) {
+            return;
+        }
+        driverIndex.remove(driver);
+        if (current != null) {
+            syncIndex(current);
+        }
+    }
+
+    @Override
+    public Ride requestRide(String riderId, Location pickupLocation) {
         validateNotNull(riderId, "Rider ID");
         validateNotNull(pickupLocation, "Pickup location");
 
-        if (attempt >= RideMatchingCostants.MAX_ALLOCATION_RETRIES) {
-            throw new DriverAllocationException(attempt);
+        long start = metrics.start();
+        // Only allocated while metrics are on
+        ClaimTally tally = start != 0 ? new ClaimTally() : null;
+        int scanned = 0;
+        int candidateCount = RideMatchingCostants.CLAIM_CANDIDATES;
+        for (int attempt = 0; attempt < RideMatchingCostants.MAX_ALLOCATION_RETRIES; attempt++) {
+            List<Driver> candidates = findNearestAvailableDrivers(pickupLocation, candidateCount);
+            if (candidates.isEmpty()) {
+                metrics.noAvailableDriver(start);
+                throw new NoAvailableDriverException(pickupLocation);
+            }
+            scanned += candidates.size();
+
+            Ride ride = claimNearest(riderId, pickupLocation, candidates, tally);
+            if (ride != null) {
+                metrics.rideMatched(start, scanned, tally == null ? 0 : tally.lost);
+                return ride;
+            }
+
+            // Every candidate was taken by concurrent requests, search again with a wider net
+            candidateCount *= 2;
+        }
+
+        metrics.allocationFailed(start, scanned, tally == null ? 0 : tally.lost);
+        throw new DriverAllocationException(RideMatchingCostants.MAX_ALLOCATION_RETRIES);
+    }
+
+    // Claims lost to concurrent requests during one requestRide
+    private static final class ClaimTally {
+        int lost;
+    }
+
+    // Losing a driver moves on to the next candidate instead of rescanning the fleet. After the first lost race the walk
+    // restarts at a random offset, so threads that computed the same list fan out instead of queueing on each candidate.
+    private Ride claimNearest(String riderId, Location pickupLocation, List<Driver> candidates, ClaimTally tally) {
+        int size = candidates.size();
+        int lost = -1;
+
+        for (int i = 0; i < size && lost < 0; i++) {
+            Driver driver = candidates.get(i);
+            // Plain read first: failed CAS attempts are what bounce the cache line between cores
+            if (!driver.isAvailable()) {
+                continue;
+            }
+            Ride ride = allocate(riderId, pickupLocation, driver);
+            if (ride != null) {
+                return ride;
+            }
+            lost = i;
+            if (tally != null) {
+                tally.lost++;
+            }
         }
 
-        Driver nearestDriver = findNearestAvailableDriver(pickupLocation);
-        if (nearestDriver == null) {
-            throw new NoAvailableDriverException(pickupLocation);
+        if (lost < 0) {
+            return null;
         }
 
+        int start = lost + 1 + ThreadLocalRandom.current().nextInt(size);
+        for (int step = 0; step < size; step++) {
+            Driver driver = candidates.get((start + step) % size);
+            if (driver.isAvailable()) {
+                Ride ride = allocate(riderId, pickupLocation, driver);
+                if (ride != null) {
+                    return ride;
+                }
+                if (tally != null) {
+                    tally.lost++;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Allocates a driver chosen by the caller (e.g. the batch matcher); returns null if it is no longer available
+    Ride requestRideWithDriver(String riderId, Location pickupLocation, Driver driver) {
+        validateNotNull(riderId, "Rider ID");
+        validateNotNull(pickupLocation, "Pickup location");
+        validateNotNull(driver, "Driver");
+
+        if (drivers.get(driver.getDriverId()) != driver) {
+            return null;
+        }
+        return allocate(riderId, pickupLocation, driver);
+    }
+
+    private Ride allocate(String riderId, Location pickupLocation, Driver driver) {
         // Atomic CAS operation ensures only one thread can allocate this driver
-        if (nearestDriver.markAsUnavailable()) {
-            String rideId = IdGenerator.generateRideId();
-            Ride ride = new Ride(rideId, riderId, nearestDriver, pickupLocation);
-            rides.put(rideId, ride);
-            return ride;
+        if (!driver.markAsUnavailable()) {
+            return null;
         }
+        syncIndex(driver);
+
+        Ride ride = new Ride(rideIds.nextRideKey(), riderId, driver, pickupLocation);
+        try {
+            open(ride);
+        } catch (RuntimeException e) {
+            // The caller gets no ride, so nothing may keep its driver
+            abandon(ride);
+            throw e;
+        }
+        return ride;
+    }
 
-        // Driver was taken by another request, retry with next available driver
-        return requestRideWithRetry(riderId, pickupLocation, attempt + 1);
+    // Stores, and journals when there is a journal, a ride whose driver has just been claimed
+    private void open(Ride ride) {
+        RideExpiry currentExpiry = expiry;
+        if (journal == null) {
+            rides.add(ride);
+            if (currentExpiry != null) {
+                currentExpiry.rideClaimed(ride);
+            }
+            return;
+        }
+
+        long position;
+        int epoch = beginChange();
+        try {
+            // Appended after the CAS that won the driver, so the claim always precedes its completion in the log
+            Location pickupLocation = ride.getPickupLocation();
+            position = journal.append(new JournalRecord.RideClaimed(ride.getRideId(), ride.getRiderId(),
+                    ride.getDriver().getDriverId(), pickupLocation.getLatitude(), pickupLocation.getLongitude(),
+                    ride.getRequestTime().toEpochMilli()));
+            rides.add(ride);
+            if (currentExpiry != null) {
+                currentExpiry.rideClaimed(ride);
+            }
+        } finally {
+            endChange(epoch);
+        }
+        journal.commit(position);
     }
 
+    // Undoes a claim that could not be opened: drops the ride if it was stored and frees its driver
+    private void abandon(Ride ride) {
+        rides.discard(ride);
+        RideExpiry currentExpiry = expiry;
+        if (currentExpiry != null) {
+            synchronized (ride) {
+                currentExpiry.settle(ride);
+            }
+        }
+        ride.getDriver().markAsAvailable();
+        syncIndex(ride.getDriver());
+    }
+
+    @Override
     public void completeRide(String rideId) {
         validateNotNull(rideId, "Ride ID");
 
+        long start = metrics.start();
+        finish(findRide(rideId), RideStatus.COMPLETED, false);
+        metrics.rideCompleted(start);
+    }
+
+    // Completes the ride with this key (Ride.getRideKey), without formatting or parsing its string ID
+    public void completeRide(long rideKey) {
+        long start = metrics.start();
+        finish(findRide(rideKey), RideStatus.COMPLETED, false);
+        metrics.rideCompleted(start);
+    }
+
+    // Ends a ride that has not finished without completing it, and frees its driver
+    @Override
+    public void cancelRide(String rideId) {
+        validateNotNull(rideId, "Ride ID");
+
+        finish(findRide(rideId), RideStatus.CANCELLED, false);
+    }
+
+    public void cancelRide(long rideKey) {
+        finish(findRide(rideKey), RideStatus.CANCELLED, false);
+    }
+
+    // The driver has accepted the ride, so it no longer expires (see enableExpiry)
+    public void acknowledgeRide(String rideId) {
+        validateNotNull(rideId, "Ride ID");
+
+        Ride ride = findRide(rideId);
+        synchronized (ride) {
+            RideStatus currentStatus = ride.getStatus();
+            if (currentStatus != RideStatus.IN_PROGRESS) {
+                throw new InvalidRideStateException(ride.getRideId(), currentStatus, "acknowledge");
+            }
+            RideExpiry currentExpiry = expiry;
+            if (currentExpiry != null) {
+                currentExpiry.settle(ride);
+            }
+        }
+    }
+
+    // Run by the expiry when the ride's acknowledgement falls due; false if it was acknowledged or ended meanwhile
+    boolean cancelUnacknowledged(Ride ride) {
+        return finish(ride, RideStatus.CANCELLED, true);
+    }
+
+    private Ride findRide(String rideId) {
         Ride ride = rides.get(rideId);
         if (ride == null) {
             throw new RideNotFoundException(rideId);
         }
+        return ride;
+    }
 
-        synchronized (ride) {
-            RideStatus currentStatus = ride.getStatus();
+    private Ride findRide(long rideKey) {
+        Ride ride = rides.get(rideKey);
+        if (ride == null) {
+            throw new RideNotFoundException(IdGenerator.formatRideId(rideKey));
+        }
+        return ride;
+    }
 
-            if (currentStatus == RideStatus.COMPLETED || currentStatus == RideStatus.CANCELLED) {
-                throw new InvalidRideStateException(rideId, currentStatus, "complete");
-            }
+    // Moves an in-progress ride to outcome (COMPLETED or CANCELLED) and releases its driver. With onlyUnacknowledged
+    // the ride is left alone, returning false, unless it is in progress and still awaiting acknowledgement.
+    private boolean finish(Ride ride, RideStatus outcome, boolean onlyUnacknowledged) {
+        long position = 0;
+        int epoch = beginChange();
+        try {
+            synchronized (ride) {
+                RideStatus currentStatus = ride.getStatus();
 
-            ride.markAsCompleted();
-            ride.getDriver().markAsAvailable();
+                if (currentStatus == RideStatus.COMPLETED || currentStatus == RideStatus.CANCELLED) {
+                    if (onlyUnacknowledged) {
+                        return false;
+                    }
+                    throw new InvalidRideStateException(ride.getRideId(), currentStatus,
+                            outcome == RideStatus.COMPLETED ? "complete" : "cancel");
+                }
+                // Settled under the ride's monitor, so an acknowledgement and the expiry cannot both win
+                RideExpiry currentExpiry = expiry;
+                boolean pending = currentExpiry != null && currentExpiry.settle(ride);
+                if (onlyUnacknowledged && !pending) {
+                    return false;
+                }
+
+                String driverId = ride.getDriver().getDriverId();
+                if (outcome == RideStatus.COMPLETED) {
+                    ride.markAsCompleted();
+                } else {
+                    ride.markAsCancelled();
+                }
+                // Journaled before the driver is released, so its next claim cannot precede this in the log
+                if (journal != null) {
+                    long time = ride.getCompletionTime().toEpochMilli();
+                    position = journal.append(outcome == RideStatus.COMPLETED
+                            ? new JournalRecord.RideCompleted(ride.getRideId(), driverId, time)
+                            : new JournalRecord.RideCancelled(ride.getRideId(), driverId, time));
+                }
+                ride.getDriver().markAsAvailable();
+                syncIndex(ride.getDriver());
+            }
+            rides.finish(ride);
+        } finally {
+            endChange(epoch);
         }
+        commit(position);
+        return true;
     }
 
+    // Brings the index in line with the driver's availability after a transition. Runs under the driver's registry
+    // entry, so it cannot race a re-registration, and is skipped for instances that have since been replaced.
+    void syncIndex(Driver driver) {
+        drivers.computeIfPresent(driver.getDriverId(), (id, current) -> {
+            if (current == driver) {
+                if (driver.isAvailable()) {
+                    driverIndex.add(driver);
+                } else {
+                    driverIndex.remove(driver);
+                }
+            }
+            return current;
+        });
+        driverChanged(driver, Double.NaN, Double.NaN);
+    }
+
+    @Override
     public List<Driver> getNearestDrivers(Location location, int count) {
+        return getNearestDrivers(location, count, Double.POSITIVE_INFINITY);
+    }
+
+    // Only drivers within maxDistance of the location, in the units of this service's metric
+    @Override
+    public List<Driver> getNearestDrivers(Location location, int count, double maxDistance) {
         validateNotNull(location, "Location");
         if (count <= 0) {
             throw new IllegalArgumentException("Count must be positive");
         }
+        if (!(maxDistance > 0)) {
+            throw new IllegalArgumentException("Max distance must be positive");
+        }
 
-        driverLock.readLock().lock();
-        try {
-            return drivers.values().stream()
-                    .filter(Driver::isAvailable)
-                    .sorted(Comparator.comparingDouble(d -> d.getCurrentLocation().distanceTo(location)))
-                    .limit(count)
-                    .collect(Collectors.toList());
-        } finally {
-            driverLock.readLock().unlock();
+        return driverIndex.findNearestAvailable(location, count, maxDistance);
+    }
+
+    // Keeps the nearest available drivers to the location (up to count, within maxDistance) up to date as they move
+    // and are claimed or freed; poll the subscription for the changes and close it when the map screen goes away
+    public DriverSubscription subscribeNearestDrivers(Location location, int count, double maxDistance) {
+        validateNotNull(location, "Location");
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        if (!(maxDistance > 0) || Double.isInfinite(maxDistance)) {
+            throw new IllegalArgumentException("Max distance must be positive and finite");
         }
+
+        return subscriptions.subscribe(location, count, maxDistance);
     }
 
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    // Reads the available-driver index, so the cost follows idle drivers rather than the whole fleet.
+    // Weakly consistent: drivers claimed or registered during the call may or may not appear.
+    @Override
     public List<Driver> getAvailableDrivers() {
-        driverLock.readLock().lock();
-        try {
-            return drivers.values().stream()
-                    .filter(Driver::isAvailable)
-                    .collect(Collectors.toList());
-        } finally {
-            driverLock.readLock().unlock();
-        }
+        return driverIndex.availableDrivers().stream()
+                .filter(Driver::isAvailable)
+                .collect(Collectors.toList());
     }
 
-    private Driver findNearestAvailableDriver(Location location) {
-        driverLock.readLock().lock();
-        try {
-            return drivers.values().stream()
-                    .filter(Driver::isAvailable)
-                    .min(Comparator.comparingDouble(d -> d.getCurrentLocation().distanceTo(location)))
-                    .orElse(null);
-        } finally {
-            driverLock.readLock().unlock();
-        }
+    private List<Driver> findNearestAvailableDrivers(Location location, int count) {
+        return driverIndex.findNearestAvailable(location, count);
+    }
+
+    // Distance in the units of this service's metric: degrees for EUCLIDEAN, metres for HAVERSINE
+    @Override
+    public double distanceBetween(Location from, Location to) {
+        validateNotNull(from, "From location");
+        validateNotNull(to, "To location");
+
+        return DistanceCalculator.calculateDistance(driverIndex.getDistanceMetric(), from, to);
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric() {
+        return driverIndex.getDistanceMetric();
     }
 
     private void validateNotNull(Object value, String fieldName) {
@@ -151,26 +709,257 @@ public class RideMatchingService {
 
     // Utility methods for testing and metrics
 
+    @Override
     public Driver getDriver(String driverId) {
         return drivers.get(driverId);
     }
 
+    Ride getRide(String rideId) {
+        return rides.get(rideId);
+    }
+
+    Ride getRide(long rideKey) {
+        return rides.get(rideKey);
+    }
+
+    @Override
     public int getDriverCount() {
         return drivers.size();
     }
 
+    // Rides held in memory: active ones plus the finished ones still in the history
+    @Override
     public int getRideCount() {
         return rides.size();
     }
 
+    public int getActiveRideCount() {
+        return rides.getActiveCount();
+    }
+
+    public int getRideHistoryCount() {
+        return rides.getHistoryCount();
+    }
+
+    public RideMatchingMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Expiry with the default timeouts: two minutes without a location, thirty seconds to acknowledge a ride
+    public void enableExpiry() {
+        enableExpiry(Duration.ofMillis(RideMatchingCostants.DRIVER_TIMEOUT_MILLIS),
+                Duration.ofMillis(RideMatchingCostants.RIDE_ACK_TIMEOUT_MILLIS));
+    }
+
+    // Unregisters drivers that send no location for driverTimeout and cancels rides their driver has not acknowledged
+    // (acknowledgeRide) within rideAckTimeout, checked every EXPIRY_TICK_MILLIS on a background thread. Drivers
+    // already registered get a full timeout from now; rides already open count as acknowledged. Expiring a driver is
+    // not journaled, so after a restart it is back until its lease runs out again.
+    public void enableExpiry(Duration driverTimeout, Duration rideAckTimeout) {
+        startExpiry(new RideExpiry(this, driverTimeout, rideAckTimeout, System::nanoTime)).start();
+    }
+
+    // Without the background thread: expiry runs only when expireStale is called, on the given clock
+    void enableExpiry(Duration driverTimeout, Duration rideAckTimeout, LongSupplier clock) {
+        startExpiry(new RideExpiry(this, driverTimeout, rideAckTimeout, clock));
+    }
+
+    private synchronized RideExpiry startExpiry(RideExpiry created) {
+        if (expiry != null) {
+            throw new IllegalStateException("Expiry is already enabled");
+        }
+        // Published before the scan, so a registration during it either is seen by the scan or leases itself
+        expiry = created;
+        drivers.values().forEach(created::leaseIfAbsent);
+        return created;
+    }
+
+    public synchronized void disableExpiry() {
+        RideExpiry current = expiry;
+        if (current != null) {
+            expiry = null;
+            current.close();
+        }
+    }
+
+    // Expires every driver and ride whose timeout has passed; returns the number of timeouts run
+    int expireStale() {
+        RideExpiry current = expiry;
+        return current == null ? 0 : current.advance();
+    }
+
+    public long getExpiredDriverCount() {
+        RideExpiry current = expiry;
+        return current == null ? 0 : current.getExpiredDriverCount();
+    }
+
+    public long getExpiredRideCount() {
+        RideExpiry current = expiry;
+        return current == null ? 0 : current.getExpiredRideCount();
+    }
+
+    // Finished rides moved to the on-disk archive; zero without one
+    public long getArchivedRideCount() {
+        return rides.getArchivedCount();
+    }
+
+    @Override
     public void clear() {
-        driverLock.writeLock().lock();
+        acquire(lifecycleLock.writeLock());
         try {
-            drivers.clear();
-            rides.clear();
-            IdGenerator.reset();
+            int epoch = beginChange();
+            try {
+                if (journal != null) {
+                    journal.commit(journal.append(new JournalRecord.Cleared()));
+                }
+                reset();
+            } finally {
+                endChange(epoch);
+            }
         } finally {
-            driverLock.writeLock().unlock();
+            lifecycleLock.writeLock().unlock();
+        }
+    }
+
+    private void reset() {
+        drivers.values().forEach(Driver::detach);
+        drivers.clear();
+        rides.clear();
+        driverIndex.clear();
+        positions.clear();
+        subscriptions.cleared();
+        RideExpiry currentExpiry = expiry;
+        if (currentExpiry != null) {
+            currentExpiry.clear();
+        }
+    }
+
+    // Writes the drivers and open rides to a snapshot file without pausing traffic. A service restored from it replays
+    // only the journal records appended after the snapshot began; the journal starts a new segment there, and the
+    // segments before it are deleted once the snapshot is on disk.
+    public void writeSnapshot(Path path) {
+        validateNotNull(path, "Snapshot path");
+
+        snapshotLock.lock();
+        try {
+            long position = 0;
+            if (journal != null) {
+                // Every change journaled before this position must be visible to the copy. Changes mid-flight are
+                // counted under the current epoch: switching epochs and waiting for the old count to drain covers
+                // them, while changes starting afterwards append past the position and are replayed.
+                // Rolling also syncs the journal up to the position, so the snapshot cannot get ahead of it.
+                position = journal.roll();
+                int previous = snapshotEpoch;
+                snapshotEpoch = previous ^ 1;
+                while (changesInFlight[previous].get() > 0) {
+                    Thread.onSpinWait();
+                }
+            }
+            Snapshot.write(path, position, rideIds.currentSequence(), drivers.values(), rides.activeRides());
+            if (journal != null) {
+                journal.deleteBefore(position);
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    // Uncontended acquisitions cost no clock reads; only waits are timed
+    private void acquire(Lock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        long start = metrics.start();
+        lock.lock();
+        metrics.lockWaited(start);
+    }
+
+    // Returns the epoch to pass to endChange, or -1 when nothing is journaled
+    private int beginChange() {
+        if (journal == null) {
+            return -1;
+        }
+        int epoch = snapshotEpoch;
+        changesInFlight[epoch].incrementAndGet();
+        return epoch;
+    }
+
+    private void endChange(int epoch) {
+        if (epoch >= 0) {
+            changesInFlight[epoch].decrementAndGet();
+        }
+    }
+
+    private void commit(long position) {
+        if (journal != null && position > 0) {
+            journal.commit(position);
+        }
+    }
+
+    // Replays one journal record straight into the maps and index, without journaling it again
+    private void apply(JournalRecord record) {
+        switch (record) {
+            case JournalRecord.DriverRegistered r -> {
+                Driver driver = new Driver(r.driverId(), r.name(), new Location(r.latitude(), r.longitude()));
+                install(driver, false);
+                if (!r.available() && driver.markAsUnavailable()) {
+                    syncIndex(driver);
+                }
+            }
+            case JournalRecord.DriverMoved r -> {
+                Driver driver = drivers.get(r.driverId());
+                if (driver != null) {
+                    driver.updateLocation(r.latitude(), r.longitude());
+                    driverIndex.update(driver);
+                }
+            }
+            case JournalRecord.RideClaimed r -> {
+                Driver driver = drivers.get(r.driverId());
+                if (driver == null) {
+                    return;
+                }
+                // Drivers loaded from a snapshot are already marked busy
+                if (driver.markAsUnavailable()) {
+                    syncIndex(driver);
+                }
+                // A claim racing writeSnapshot can be both in the snapshot and after its journal position
+                if (rides.getActive(r.rideId()) == null) {
+                    rides.add(new Ride(r.rideId(), r.riderId(), driver,
+                            new Location(r.latitude(), r.longitude()), Instant.ofEpochMilli(r.requestTime())));
+                }
+                advanceRideIds(r.rideId());
+            }
+            case JournalRecord.RideCompleted r -> replayFinish(r.rideId(), r.driverId(), RideStatus.COMPLETED,
+                    Instant.ofEpochMilli(r.completionTime()));
+            case JournalRecord.RideCancelled r -> replayFinish(r.rideId(), r.driverId(), RideStatus.CANCELLED,
+                    Instant.ofEpochMilli(r.cancellationTime()));
+            case JournalRecord.Cleared r -> reset();
+        }
+    }
+
+    private void replayFinish(String rideId, String driverId, RideStatus outcome, Instant time) {
+        Ride ride = rides.getActive(IdGenerator.parseRideId(rideId));
+        if (ride != null) {
+            if (outcome == RideStatus.COMPLETED) {
+                ride.markAsCompleted(time);
+            } else {
+                ride.markAsCancelled(time);
+            }
+            rides.finish(ride);
+        }
+        // A snapshot can catch a completion between the ride and the driver, and keeps no finished rides
+        Driver driver = ride != null ? ride.getDriver() : drivers.get(driverId);
+        if (driver != null) {
+            driver.markAsAvailable();
+            syncIndex(driver);
+        }
+    }
+
+    // New rides must not reuse the IDs of recovered ones
+    private void advanceRideIds(String rideId) {
+        long rideKey = IdGenerator.parseRideId(rideId);
+        if (rideKey >= 0) {
+            rideIds.advancePast(IdGenerator.sequenceOf(rideKey));
         }
     }
 }
\ No newline at end of file
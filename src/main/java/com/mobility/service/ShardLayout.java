@@ -0,0 +1,88 @@
+package com.mobility.service;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceKernel;
+
+/**
+ * Splits the world into a grid of regions and deals them out to shards, so each shard owns a fixed set of regions.
+ * Regions are either square tiles or the cells of a geohash prefix; neighbouring regions land on different shards,
+ * which spreads a dense city across all of them.
+ */
+public final class ShardLayout {
+
+    private final int shardCount;
+    private final double regionHeight;
+    private final double regionWidth;
+    private final int rows;
+    private final int columns;
+
+    private ShardLayout(int shardCount, double regionHeight, double regionWidth) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        if (!(regionHeight > 0) || !(regionWidth > 0)) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+        this.shardCount = shardCount;
+        this.regionHeight = regionHeight;
+        this.regionWidth = regionWidth;
+        this.rows = (int) Math.ceil((RideMatchingCostants.MAX_LATITUDE - RideMatchingCostants.MIN_LATITUDE) / regionHeight);
+        this.columns = (int) Math.ceil((RideMatchingCostants.MAX_LONGITUDE - RideMatchingCostants.MIN_LONGITUDE) / regionWidth);
+    }
+
+    public static ShardLayout tiles(int shardCount, double tileSizeDegrees) {
+        return new ShardLayout(shardCount, tileSizeDegrees, tileSizeDegrees);
+    }
+
+    // Regions are the cells sharing a geohash prefix of this length: 5 bits per character, longitude taking the odd one
+    public static ShardLayout geohash(int shardCount, int precision) {
+        if (precision <= 0 || precision > RideMatchingCostants.MAX_GEOHASH_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and "
+                    + RideMatchingCostants.MAX_GEOHASH_PRECISION);
+        }
+        int bits = 5 * precision;
+        int longitudeBits = (bits + 1) / 2;
+        int latitudeBits = bits / 2;
+        return new ShardLayout(shardCount,
+                (RideMatchingCostants.MAX_LATITUDE - RideMatchingCostants.MIN_LATITUDE) / (1L << latitudeBits),
+                (RideMatchingCostants.MAX_LONGITUDE - RideMatchingCostants.MIN_LONGITUDE) / (1L << longitudeBits));
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(Location location) {
+        return shardOf(location.getLatitude(), location.getLongitude());
+    }
+
+    public int shardOf(double latitude, double longitude) {
+        long region = (long) row(latitude) * columns + column(longitude);
+        return (int) Math.floorMod(region, (long) shardCount);
+    }
+
+    // Lowest rank of any point outside the location's region; nothing another shard owns can rank below it
+    double borderGap(DistanceKernel kernel, Location location) {
+        double latitude = location.getLatitude();
+        double longitude = location.getLongitude();
+        double south = RideMatchingCostants.MIN_LATITUDE + row(latitude) * regionHeight;
+        double west = RideMatchingCostants.MIN_LONGITUDE + column(longitude) * regionWidth;
+
+        double latitudeGap = Math.max(0, Math.min(latitude - south, south + regionHeight - latitude));
+        double longitudeGap = Math.max(0, Math.min(longitude - west, west + regionWidth - longitude));
+        return Math.min(kernel.latitudeGap(latitudeGap), kernel.longitudeGap(longitudeGap));
+    }
+
+    private int row(double latitude) {
+        return clamp((int) Math.floor((latitude - RideMatchingCostants.MIN_LATITUDE) / regionHeight), rows);
+    }
+
+    private int column(double longitude) {
+        return clamp((int) Math.floor((longitude - RideMatchingCostants.MIN_LONGITUDE) / regionWidth), columns);
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(value, limit - 1));
+    }
+}
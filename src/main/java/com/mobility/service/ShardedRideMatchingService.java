@@ -0,0 +1,414 @@
+package com.mobility.service;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.exception.DriverAllocationException;
+import com.mobility.exception.DriverNotFoundException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.exception.RideNotFoundException;
+import com.mobility.index.DriverIndex;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
+import com.mobility.model.Ride;
+import com.mobility.utils.DistanceCalculator;
+import com.mobility.utils.DistanceKernel;
+import com.mobility.utils.IdGenerator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * RideMatchingService partitioned by region: each shard is a service of its own, with its own driver registry,
+ * available-driver index and ride table, owning the drivers currently inside its regions.
+ * Requests are served by the pickup's shard alone unless a driver across a region border could be closer, or the
+ * shard has no available driver; only then are the other shards searched.
+ */
+public class ShardedRideMatchingService implements RideMatchingEngine {
+
+    private final ShardLayout layout;
+    private final DistanceMetric metric;
+    private final RideMatchingService[] shards;
+    // Routing only: the shard currently owning each driver. Hand-offs between shards serialise on its entry.
+    private final ConcurrentHashMap<String, Integer> driverShards;
+
+    public ShardedRideMatchingService(int shardCount) {
+        this(ShardLayout.tiles(shardCount, RideMatchingCostants.SHARD_TILE_SIZE_DEGREES),
+                IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN);
+    }
+
+    public ShardedRideMatchingService(ShardLayout layout, IndexType indexType, DistanceMetric distanceMetric) {
+        this(layout, distanceMetric, () -> RideMatchingService.createIndex(indexType, distanceMetric));
+    }
+
+    ShardedRideMatchingService(ShardLayout layout, DistanceMetric distanceMetric, Supplier<DriverIndex> indexes) {
+        if (layout == null) {
+            throw new IllegalArgumentException("Shard layout cannot be null");
+        }
+        if (distanceMetric == null) {
+            throw new IllegalArgumentException("Distance metric cannot be null");
+        }
+        this.layout = layout;
+        this.metric = distanceMetric;
+        this.shards = new RideMatchingService[layout.getShardCount()];
+        // One sequence for all shards: rides are looked up across them by key
+        IdGenerator rideIds = new IdGenerator(IdGenerator.STANDALONE_ORIGIN);
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new RideMatchingService(indexes.get(), rideIds);
+        }
+        this.driverShards = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void registerDriver(Driver driver) {
+        if (driver == null) {
+            throw new IllegalArgumentException("Driver cannot be null");
+        }
+
+        driverShards.compute(driver.getDriverId(), (id, previous) -> {
+            int target = layout.shardOf(driver.getLatitude(), driver.getLongitude());
+            shards[target].registerDriver(driver);
+            if (previous != null && previous != target) {
+                Driver replaced = shards[previous].getDriver(id);
+                if (replaced != null) {
+                    shards[previous].removeDriver(replaced);
+                    if (replaced != driver) {
+                        replaced.detach();
+                    }
+                }
+            }
+            return target;
+        });
+    }
+
+    @Override
+    public void updateDriverLocation(String driverId, Location newLocation) {
+        validateNotNull(newLocation, "Location");
+        updateDriverLocation(driverId, newLocation.getLatitude(), newLocation.getLongitude());
+    }
+
+    @Override
+    public void updateDriverLocation(String driverId, double latitude, double longitude) {
+        validateNotNull(driverId, "Driver ID");
+        Location.validateCoordinates(latitude, longitude);
+
+        if (!move(driverId, latitude, longitude)) {
+            throw new DriverNotFoundException(driverId);
+        }
+    }
+
+    // Pings inside the owner's regions go straight to it; crossing into another shard's region hands the driver over
+    private boolean move(String driverId, double latitude, double longitude) {
+        int target = layout.shardOf(latitude, longitude);
+        while (true) {
+            Integer owner = driverShards.get(driverId);
+            if (owner == null) {
+                return false;
+            }
+            if (owner != target) {
+                return handOff(driverId, latitude, longitude);
+            }
+            if (shards[owner].tryUpdateDriverLocation(driverId, latitude, longitude)) {
+                return true;
+            }
+            // Handed off between the lookup and the update; follow it
+        }
+    }
+
+    private boolean handOff(String driverId, double latitude, double longitude) {
+        int target = layout.shardOf(latitude, longitude);
+        Integer owner = driverShards.computeIfPresent(driverId, (id, from) -> {
+            Driver driver = shards[from].getDriver(id);
+            if (driver == null) {
+                return from;
+            }
+            if (from == target) {
+                shards[from].tryUpdateDriverLocation(id, latitude, longitude);
+                return from;
+            }
+            driver.updateLocation(latitude, longitude);
+
+            // Registered with the new shard before leaving the old one, so it is never missing from both
+            shards[target].registerDriver(driver);
+            shards[from].removeDriver(driver);
+            // A claim on the old shard during the hand-off flips availability without touching the new index
+            shards[target].syncIndex(driver);
+            return target;
+        });
+        return owner != null;
+    }
+
+    @Override
+    public int updateDriverLocations(LocationUpdateBatch batch) {
+        validateNotNull(batch, "Location batch");
+
+        Map<String, Integer> latest = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            latest.put(batch.getDriverId(i), i);
+        }
+
+        LocationUpdateBatch[] byShard = new LocationUpdateBatch[shards.length];
+        int moved = 0;
+        for (Map.Entry<String, Integer> entry : latest.entrySet()) {
+            String driverId = entry.getKey();
+            int index = entry.getValue();
+            double latitude = batch.getLatitude(index);
+            double longitude = batch.getLongitude(index);
+
+            Integer owner = driverShards.get(driverId);
+            if (owner == null) {
+                continue;
+            }
+            if (owner == layout.shardOf(latitude, longitude)) {
+                if (byShard[owner] == null) {
+                    byShard[owner] = new LocationUpdateBatch();
+                }
+                byShard[owner].add(driverId, latitude, longitude);
+            } else if (handOff(driverId, latitude, longitude)) {
+                moved++;
+            }
+        }
+
+        for (int i = 0; i < shards.length; i++) {
+            if (byShard[i] != null) {
+                moved += shards[i].updateDriverLocations(byShard[i]);
+            }
+        }
+        return moved;
+    }
+
+    @Override
+    public Ride requestRide(String riderId, Location pickupLocation) {
+        validateNotNull(riderId, "Rider ID");
+        validateNotNull(pickupLocation, "Pickup location");
+
+        int home = layout.shardOf(pickupLocation);
+        if (shards.length == 1) {
+            return settle(home, shards[home].requestRide(riderId, pickupLocation));
+        }
+
+        // The home shard's nearest driver wins outright when it is closer than any region border
+        DistanceKernel kernel = DistanceKernel.around(pickupLocation, metric);
+        List<Driver> local = shards[home].getNearestDrivers(pickupLocation, 1);
+        if (!local.isEmpty()
+                && kernel.rank(local.get(0).getCurrentLocation()) <= layout.borderGap(kernel, pickupLocation)) {
+            try {
+                return settle(home, shards[home].requestRide(riderId, pickupLocation));
+            } catch (NoAvailableDriverException e) {
+                // Claimed by concurrent requests meanwhile; widen to the other shards
+            }
+        }
+        return requestAcrossShards(riderId, pickupLocation, kernel);
+    }
+
+    private Ride requestAcrossShards(String riderId, Location pickupLocation, DistanceKernel kernel) {
+        int candidateCount = RideMatchingCostants.CLAIM_CANDIDATES;
+        for (int attempt = 0; attempt < RideMatchingCostants.MAX_ALLOCATION_RETRIES; attempt++) {
+            List<Driver> candidates = nearestAcrossShards(pickupLocation, candidateCount, Double.POSITIVE_INFINITY, kernel);
+            if (candidates.isEmpty()) {
+                throw new NoAvailableDriverException(pickupLocation);
+            }
+
+            for (Driver driver : candidates) {
+                if (!driver.isAvailable()) {
+                    continue;
+                }
+                Ride ride = claim(riderId, pickupLocation, driver);
+                if (ride != null) {
+                    return ride;
+                }
+            }
+
+            // Every candidate was taken by concurrent requests, search again with a wider net
+            candidateCount *= 2;
+        }
+
+        throw new DriverAllocationException(RideMatchingCostants.MAX_ALLOCATION_RETRIES);
+    }
+
+    // Claimed under the driver's routing entry, so a hand-off cannot move it between finding its owner and claiming it
+    private Ride claim(String riderId, Location pickupLocation, Driver driver) {
+        Ride[] ride = new Ride[1];
+        driverShards.computeIfPresent(driver.getDriverId(), (id, owner) -> {
+            ride[0] = shards[owner].requestRideWithDriver(riderId, pickupLocation, driver);
+            return owner;
+        });
+        return ride[0];
+    }
+
+    @Override
+    public void completeRide(String rideId) {
+        finish(rideId, false);
+    }
+
+    @Override
+    public void cancelRide(String rideId) {
+        finish(rideId, true);
+    }
+
+    private void finish(String rideId, boolean cancel) {
+        validateNotNull(rideId, "Ride ID");
+
+        // Parsed once; every shard looks the key up directly
+        long rideKey = IdGenerator.parseRideId(rideId);
+        for (int i = 0; rideKey >= 0 && i < shards.length; i++) {
+            Ride ride = shards[i].getRide(rideKey);
+            if (ride != null) {
+                if (cancel) {
+                    shards[i].cancelRide(rideKey);
+                } else {
+                    shards[i].completeRide(rideKey);
+                }
+                settle(i, ride);
+                return;
+            }
+        }
+        throw new RideNotFoundException(rideId);
+    }
+
+    // A driver handed off while its availability changed on the old shard is re-synced with its new owner.
+    // The check runs on the owner's routing entry, so it waits for a hand-off in progress to finish.
+    private Ride settle(int shard, Ride ride) {
+        Driver driver = ride.getDriver();
+        if (shards[shard].getDriver(driver.getDriverId()) != driver) {
+            driverShards.computeIfPresent(driver.getDriverId(), (id, owner) -> {
+                shards[owner].syncIndex(driver);
+                return owner;
+            });
+        }
+        return ride;
+    }
+
+    @Override
+    public List<Driver> getNearestDrivers(Location location, int count) {
+        return getNearestDrivers(location, count, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public List<Driver> getNearestDrivers(Location location, int count, double maxDistance) {
+        validateNotNull(location, "Location");
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        if (!(maxDistance > 0)) {
+            throw new IllegalArgumentException("Max distance must be positive");
+        }
+
+        int home = layout.shardOf(location);
+        if (shards.length == 1) {
+            return shards[home].getNearestDrivers(location, count, maxDistance);
+        }
+
+        // A full answer from the home shard that stays inside the pickup's region cannot be beaten elsewhere
+        DistanceKernel kernel = DistanceKernel.around(location, metric);
+        List<Driver> local = shards[home].getNearestDrivers(location, count, maxDistance);
+        if (local.size() == count
+                && kernel.rank(local.get(count - 1).getCurrentLocation()) <= layout.borderGap(kernel, location)) {
+            return local;
+        }
+        return nearestAcrossShards(location, count, maxDistance, kernel);
+    }
+
+    private List<Driver> nearestAcrossShards(Location location, int count, double maxDistance, DistanceKernel kernel) {
+        // Rank each driver once: positions can change while the merge sorts
+        List<Candidate> candidates = new ArrayList<>();
+        for (RideMatchingService shard : shards) {
+            for (Driver driver : shard.getNearestDrivers(location, count, maxDistance)) {
+                candidates.add(new Candidate(driver, kernel.rank(driver.getCurrentLocation())));
+            }
+        }
+        candidates.sort(Candidate.NEAREST_FIRST);
+
+        List<Driver> nearest = new ArrayList<>(Math.min(count, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < count; i++) {
+            nearest.add(candidates.get(i).driver());
+        }
+        return nearest;
+    }
+
+    @Override
+    public List<Driver> getAvailableDrivers() {
+        List<Driver> available = new ArrayList<>();
+        for (RideMatchingService shard : shards) {
+            available.addAll(shard.getAvailableDrivers());
+        }
+        return available;
+    }
+
+    @Override
+    public double distanceBetween(Location from, Location to) {
+        validateNotNull(from, "From location");
+        validateNotNull(to, "To location");
+
+        return DistanceCalculator.calculateDistance(metric, from, to);
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric() {
+        return metric;
+    }
+
+    @Override
+    public Driver getDriver(String driverId) {
+        Integer owner;
+        while ((owner = driverShards.get(driverId)) != null) {
+            Driver driver = shards[owner].getDriver(driverId);
+            if (driver != null) {
+                return driver;
+            }
+            // Mid hand-off: already gone from the shard the routing entry still names
+            Thread.onSpinWait();
+        }
+        return null;
+    }
+
+    @Override
+    public int getDriverCount() {
+        return driverShards.size();
+    }
+
+    @Override
+    public int getRideCount() {
+        int rides = 0;
+        for (RideMatchingService shard : shards) {
+            rides += shard.getRideCount();
+        }
+        return rides;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Exposed for tests
+    RideMatchingService shard(int index) {
+        return shards[index];
+    }
+
+    @Override
+    public void clear() {
+        driverShards.clear();
+        for (RideMatchingService shard : shards) {
+            shard.clear();
+        }
+    }
+
+    private void validateNotNull(Object value, String fieldName) {
+        if (value == null || (value instanceof String && ((String) value).trim().isEmpty())) {
+            throw new IllegalArgumentException(fieldName + " cannot be null or empty");
+        }
+    }
+
+    private record Candidate(Driver driver, double rank) {
+
+        static final Comparator<Candidate> NEAREST_FIRST = Comparator
+                .comparingDouble(Candidate::rank)
+                .thenComparing(c -> c.driver().getDriverId());
+    }
+}
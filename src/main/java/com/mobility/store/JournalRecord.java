@@ -0,0 +1,28 @@
+package com.mobility.store;
+
+/**
+ * State changes recorded in the write-ahead log, replayed in order to rebuild a service after a restart.
+ * Times are epoch milliseconds.
+ */
+public sealed interface JournalRecord {
+
+    record DriverRegistered(String driverId, String name, double latitude, double longitude, boolean available)
+            implements JournalRecord {
+    }
+
+    record DriverMoved(String driverId, double latitude, double longitude) implements JournalRecord {
+    }
+
+    record RideClaimed(String rideId, String riderId, String driverId, double latitude, double longitude,
+                       long requestTime) implements JournalRecord {
+    }
+
+    record RideCompleted(String rideId, String driverId, long completionTime) implements JournalRecord {
+    }
+
+    record RideCancelled(String rideId, String driverId, long cancellationTime) implements JournalRecord {
+    }
+
+    record Cleared() implements JournalRecord {
+    }
+}
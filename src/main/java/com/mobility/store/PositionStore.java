@@ -0,0 +1,192 @@
+package com.mobility.store;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Driver coordinates kept in primitive arrays indexed by a handle, so location updates write in place.
+ * Each slot is guarded by a sequence lock: odd versions mark a write in progress, readers retry until
+ * they observe the same even version before and after reading both coordinates.
+ * Released slots are reused. A handle carries its slot's generation, so a handle that was released or cleared gets
+ * STALE back instead of reading or writing the slot's next owner.
+ */
+public class PositionStore {
+
+    // Returned by readStamp and write for a handle whose slot has been released or cleared
+    public static final long STALE = -1;
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final VarHandle VERSIONS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle GENERATIONS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle COORDINATES = MethodHandles.arrayElementVarHandle(double[].class);
+
+    // Guards slot allocation and the page table; reads and writes of a slot never take it
+    private final Object lock;
+    private volatile Page[] pages;
+    private int nextSlot;
+    private int[] freeSlots;
+    private int freeCount;
+
+    public PositionStore() {
+        this.lock = new Object();
+        this.pages = new Page[0];
+        this.freeSlots = new int[16];
+    }
+
+    public long allocate(double latitude, double longitude) {
+        long handle;
+        synchronized (lock) {
+            int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+            ensurePage(slot >>> PAGE_BITS);
+            handle = handle(slot, (int) GENERATIONS.getVolatile(page(slot).generations, slot & PAGE_MASK));
+        }
+        write(handle, latitude, longitude);
+        return handle;
+    }
+
+    // Returns the version published by this write, or STALE (writing nothing) if the handle's slot was released
+    public long write(long handle, double latitude, double longitude) {
+        Page page = page(slot(handle));
+        int slot = slot(handle) & PAGE_MASK;
+
+        long version = lock(page, slot);
+        // Checked under the lock, as release and clear change the generation only while holding it
+        if ((int) GENERATIONS.getVolatile(page.generations, slot) != generation(handle)) {
+            VERSIONS.setRelease(page.versions, slot, version);
+            return STALE;
+        }
+        COORDINATES.setOpaque(page.latitudes, slot, latitude);
+        COORDINATES.setOpaque(page.longitudes, slot, longitude);
+        VERSIONS.setRelease(page.versions, slot, version + 2);
+        return version + 2;
+    }
+
+    // Waits out any in-flight write and returns the current (even) version, or STALE if the handle's slot was released
+    public long readStamp(long handle) {
+        Page page = page(slot(handle));
+        int slot = slot(handle) & PAGE_MASK;
+
+        long version;
+        while (((version = (long) VERSIONS.getAcquire(page.versions, slot)) & 1) != 0) {
+            Thread.onSpinWait();
+        }
+        return (int) GENERATIONS.getVolatile(page.generations, slot) == generation(handle) ? version : STALE;
+    }
+
+    // True if no write has happened since readStamp returned the given version
+    public boolean validate(long handle, long stamp) {
+        VarHandle.acquireFence();
+        return (long) VERSIONS.getVolatile(page(slot(handle)).versions, slot(handle) & PAGE_MASK) == stamp;
+    }
+
+    public double latitude(long handle) {
+        return (double) COORDINATES.getOpaque(page(slot(handle)).latitudes, slot(handle) & PAGE_MASK);
+    }
+
+    public double longitude(long handle) {
+        return (double) COORDINATES.getOpaque(page(slot(handle)).longitudes, slot(handle) & PAGE_MASK);
+    }
+
+    // Frees the slot for reuse unless it was written since readStamp returned the given version, in which case the
+    // caller should read it again. Releasing an already released handle does nothing.
+    public boolean release(long handle, long stamp) {
+        Page page = page(slot(handle));
+        int slot = slot(handle) & PAGE_MASK;
+
+        synchronized (lock) {
+            if (!VERSIONS.compareAndSet(page.versions, slot, stamp, stamp + 1)) {
+                return false;
+            }
+            if ((int) GENERATIONS.getVolatile(page.generations, slot) != generation(handle)) {
+                VERSIONS.setRelease(page.versions, slot, stamp);
+                return true;
+            }
+            GENERATIONS.setVolatile(page.generations, slot, generation(handle) + 1);
+            VERSIONS.setRelease(page.versions, slot, stamp + 2);
+
+            if (freeCount == freeSlots.length) {
+                int[] grown = new int[freeSlots.length * 2];
+                System.arraycopy(freeSlots, 0, grown, 0, freeCount);
+                freeSlots = grown;
+            }
+            freeSlots[freeCount++] = slot(handle);
+            return true;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return nextSlot - freeCount;
+        }
+    }
+
+    // Retires every handle handed out so far; pages are kept, so a write racing the clear fails instead of landing
+    // in a slot that no longer exists
+    public void clear() {
+        synchronized (lock) {
+            for (int slot = 0; slot < nextSlot; slot++) {
+                Page page = page(slot);
+                int offset = slot & PAGE_MASK;
+                long version = lock(page, offset);
+                int generation = (int) GENERATIONS.getVolatile(page.generations, offset);
+                GENERATIONS.setVolatile(page.generations, offset, generation + 1);
+                VERSIONS.setRelease(page.versions, offset, version + 2);
+            }
+            nextSlot = 0;
+            freeCount = 0;
+        }
+    }
+
+    private static long lock(Page page, int slot) {
+        long version;
+        while (true) {
+            version = (long) VERSIONS.getVolatile(page.versions, slot);
+            if ((version & 1) == 0 && VERSIONS.compareAndSet(page.versions, slot, version, version + 1)) {
+                return version;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static long handle(int slot, int generation) {
+        return ((long) generation << 32) | slot;
+    }
+
+    private static int slot(long handle) {
+        return (int) handle;
+    }
+
+    private static int generation(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private Page page(int slot) {
+        return pages[slot >>> PAGE_BITS];
+    }
+
+    // Called with the lock held
+    private void ensurePage(int index) {
+        Page[] current = pages;
+        if (index < current.length) {
+            return;
+        }
+
+        // Copy-on-write so readers never see a half-initialised page table
+        Page[] grown = new Page[index + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        for (int i = current.length; i <= index; i++) {
+            grown[i] = new Page();
+        }
+        pages = grown;
+    }
+
+    private static final class Page {
+        final double[] latitudes = new double[PAGE_SIZE];
+        final double[] longitudes = new double[PAGE_SIZE];
+        final long[] versions = new long[PAGE_SIZE];
+        final int[] generations = new int[PAGE_SIZE];
+    }
+}
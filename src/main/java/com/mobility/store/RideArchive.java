@@ -0,0 +1,386 @@
+package com.mobility.store;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.RideStatus;
+import com.mobility.exception.JournalException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.utils.IdGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Finished rides on disk, for lookups after they leave the in-memory history. Rides are appended to an open segment
+ * file; a full segment is sealed with an index of its ride IDs sorted by hash, and lookups binary-search that index
+ * through a read-only mapping, so sealed segments cost no heap. Archived rides come back with a detached copy of
+ * their driver, placed at the pickup.
+ * Writes are not synced: the journal, not the archive, is what survives a crash.
+ */
+public class RideArchive implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "rides-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // index offset, ride count, magic
+    private static final int TRAILER_BYTES = Long.BYTES + 2 * Integer.BYTES;
+    private static final int INDEX_ENTRY_BYTES = 2 * Long.BYTES;
+    private static final int SEGMENT_MAGIC = 0x52534547;
+
+    private final Path directory;
+    private final int segmentRides;
+    private final ReentrantLock lock;
+    // Newest last
+    private final List<ByteBuffer> sealed;
+    private final Map<String, Long> openIndex;
+    // Highest ride sequence archived per ID origin
+    private final Map<Integer, Long> highestSequences;
+    private FileChannel open;
+    private int nextSegment;
+    private long sealedCount;
+    private boolean closed;
+
+    private RideArchive(Path directory, int segmentRides) {
+        this.directory = directory;
+        this.segmentRides = segmentRides;
+        this.lock = new ReentrantLock();
+        this.sealed = new ArrayList<>();
+        this.openIndex = new HashMap<>();
+        this.highestSequences = new HashMap<>();
+    }
+
+    public static RideArchive open(Path directory) {
+        return open(directory, RideMatchingCostants.ARCHIVE_SEGMENT_RIDES);
+    }
+
+    // Segments left open by a previous process are indexed and sealed; new rides go to a fresh segment
+    public static RideArchive open(Path directory, int segmentRides) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Archive directory cannot be null");
+        }
+        if (segmentRides <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+
+        RideArchive archive = new RideArchive(directory, segmentRides);
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments;
+            try (Stream<Path> files = Files.list(directory)) {
+                segments = files.filter(RideArchive::isSegment)
+                        .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                        .toList();
+            }
+            for (Path segment : segments) {
+                archive.recover(segment);
+            }
+            archive.startSegment();
+        } catch (IOException e) {
+            throw new JournalException("Cannot open ride archive " + directory, e);
+        }
+        return archive;
+    }
+
+    public void append(Ride ride) {
+        if (ride == null) {
+            throw new IllegalArgumentException("Ride cannot be null");
+        }
+
+        ByteBuffer record = encode(ride);
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Ride archive is closed");
+            }
+            long offset = open.size();
+            while (record.hasRemaining()) {
+                open.write(record, offset + record.position());
+            }
+            openIndex.put(ride.getRideId(), offset);
+            archived(ride.getRideId());
+            if (openIndex.size() >= segmentRides) {
+                seal();
+                startSegment();
+            }
+        } catch (IOException e) {
+            throw new JournalException("Cannot write ride archive " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Newest copy first; null if the ride was never archived
+    public Ride find(String rideId) {
+        if (rideId == null) {
+            return null;
+        }
+
+        lock.lock();
+        try {
+            Long offset = openIndex.get(rideId);
+            if (offset != null) {
+                return readOpen(offset);
+            }
+            long hash = hash(rideId);
+            for (int i = sealed.size() - 1; i >= 0; i--) {
+                Ride ride = findSealed(sealed.get(i), rideId, hash);
+                if (ride != null) {
+                    return ride;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new JournalException("Cannot read ride archive " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The highest sequence among archived rides issued under the origin, or 0 if there are none
+    public long getHighestSequence(int origin) {
+        lock.lock();
+        try {
+            return highestSequences.getOrDefault(origin, 0L);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long size() {
+        lock.lock();
+        try {
+            return sealedCount + openIndex.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return sealed.size() + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            open.close();
+        } catch (IOException e) {
+            throw new JournalException("Cannot close ride archive " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover(Path segment) throws IOException {
+        String name = segment.getFileName().toString();
+        int number = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        nextSegment = Math.max(nextSegment, number + 1);
+
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (isSealed(mapped)) {
+                // Reads only the ID at the head of each record
+                ByteBuffer in = mapped.duplicate().limit((int) mapped.getLong(mapped.limit() - TRAILER_BYTES));
+                while (in.hasRemaining()) {
+                    int length = in.getInt();
+                    archived(WriteAheadLog.getString(in.duplicate()));
+                    in.position(in.position() + length);
+                }
+                sealed.add(mapped);
+                sealedCount += mapped.getInt(mapped.limit() - TRAILER_BYTES + Long.BYTES);
+                return;
+            }
+
+            // Crashed while open: index the intact records, drop a torn tail and seal it
+            Map<String, Long> index = new HashMap<>();
+            ByteBuffer in = mapped.duplicate();
+            long valid = 0;
+            while (in.remaining() >= Integer.BYTES) {
+                int length = in.getInt();
+                if (length <= 0 || length > in.remaining()) {
+                    break;
+                }
+                String rideId = WriteAheadLog.getString(in.duplicate());
+                index.put(rideId, valid);
+                archived(rideId);
+                in.position(in.position() + length);
+                valid = in.position();
+            }
+            if (index.isEmpty()) {
+                channel.close();
+                Files.delete(segment);
+                return;
+            }
+            channel.truncate(valid);
+            sealed.add(writeIndex(channel, index));
+            sealedCount += index.size();
+        }
+    }
+
+    private void archived(String rideId) {
+        long rideKey = IdGenerator.parseRideId(rideId);
+        if (rideKey >= 0) {
+            highestSequences.merge(IdGenerator.originOf(rideKey), IdGenerator.sequenceOf(rideKey), Math::max);
+        }
+    }
+
+    private void startSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, nextSegment++, SEGMENT_SUFFIX));
+        open = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        openIndex.clear();
+    }
+
+    private void seal() throws IOException {
+        sealed.add(writeIndex(open, openIndex));
+        sealedCount += openIndex.size();
+        open.close();
+    }
+
+    // Appends the sorted (hash, offset) index and trailer, and returns the whole segment mapped
+    private static ByteBuffer writeIndex(FileChannel channel, Map<String, Long> index) throws IOException {
+        long[][] entries = new long[index.size()][];
+        int i = 0;
+        for (Map.Entry<String, Long> entry : index.entrySet()) {
+            entries[i++] = new long[]{hash(entry.getKey()), entry.getValue()};
+        }
+        Arrays.sort(entries, Comparator.comparingLong(entry -> entry[0]));
+
+        long indexOffset = channel.size();
+        ByteBuffer footer = ByteBuffer.allocate(entries.length * INDEX_ENTRY_BYTES + TRAILER_BYTES);
+        for (long[] entry : entries) {
+            footer.putLong(entry[0]).putLong(entry[1]);
+        }
+        footer.putLong(indexOffset).putInt(entries.length).putInt(SEGMENT_MAGIC).flip();
+        while (footer.hasRemaining()) {
+            channel.write(footer, indexOffset + footer.position());
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    private static boolean isSealed(ByteBuffer mapped) {
+        return mapped.limit() >= TRAILER_BYTES && mapped.getInt(mapped.limit() - Integer.BYTES) == SEGMENT_MAGIC;
+    }
+
+    private static Ride findSealed(ByteBuffer segment, String rideId, long hash) {
+        int trailer = segment.limit() - TRAILER_BYTES;
+        int indexOffset = (int) segment.getLong(trailer);
+        int count = segment.getInt(trailer + Long.BYTES);
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long probe = segment.getLong(indexOffset + mid * INDEX_ENTRY_BYTES);
+            if (probe < hash) {
+                low = mid + 1;
+            } else if (probe > hash) {
+                high = mid - 1;
+            } else {
+                // Walk back to the first entry with this hash, then check each colliding ID
+                while (mid > 0 && segment.getLong(indexOffset + (mid - 1) * INDEX_ENTRY_BYTES) == hash) {
+                    mid--;
+                }
+                for (int i = mid; i < count && segment.getLong(indexOffset + i * INDEX_ENTRY_BYTES) == hash; i++) {
+                    int offset = (int) segment.getLong(indexOffset + i * INDEX_ENTRY_BYTES + Long.BYTES);
+                    Ride ride = decode(segment.duplicate().position(offset + Integer.BYTES));
+                    if (ride.getRideId().equals(rideId)) {
+                        return ride;
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private Ride readOpen(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        open.read(length, offset);
+        ByteBuffer body = ByteBuffer.allocate(length.flip().getInt());
+        while (body.hasRemaining()) {
+            open.read(body, offset + Integer.BYTES + body.position());
+        }
+        return decode(body.flip());
+    }
+
+    private static ByteBuffer encode(Ride ride) {
+        Driver driver = ride.getDriver();
+        byte[][] strings = {
+                WriteAheadLog.utf8(ride.getRideId()),
+                WriteAheadLog.utf8(ride.getRiderId()),
+                WriteAheadLog.utf8(driver.getDriverId()),
+                WriteAheadLog.utf8(driver.getName())
+        };
+        int length = 2 * Double.BYTES + 2 * Long.BYTES + 1;
+        for (byte[] string : strings) {
+            length += Short.BYTES + string.length;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length).putInt(length);
+        for (byte[] string : strings) {
+            record.putShort((short) string.length).put(string);
+        }
+        Instant completionTime = ride.getCompletionTime();
+        return record.putDouble(ride.getPickupLocation().getLatitude())
+                .putDouble(ride.getPickupLocation().getLongitude())
+                .putLong(ride.getRequestTime().toEpochMilli())
+                .put((byte) ride.getStatus().ordinal())
+                .putLong(completionTime == null ? -1 : completionTime.toEpochMilli())
+                .flip();
+    }
+
+    private static Ride decode(ByteBuffer in) {
+        String rideId = WriteAheadLog.getString(in);
+        String riderId = WriteAheadLog.getString(in);
+        String driverId = WriteAheadLog.getString(in);
+        String driverName = WriteAheadLog.getString(in);
+        Location pickup = new Location(in.getDouble(), in.getDouble());
+        Instant requestTime = Instant.ofEpochMilli(in.getLong());
+        RideStatus status = RideStatus.values()[in.get()];
+        long completionTime = in.getLong();
+
+        Ride ride = new Ride(rideId, riderId, new Driver(driverId, driverName, pickup), pickup, requestTime);
+        if (completionTime >= 0) {
+            ride.markAsCompleted(Instant.ofEpochMilli(completionTime));
+        }
+        ride.setStatus(status);
+        return ride;
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    // FNV-1a over the UTF-16 code units
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
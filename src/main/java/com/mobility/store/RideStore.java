@@ -0,0 +1,176 @@
+package com.mobility.store;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.model.Ride;
+import com.mobility.utils.ConcurrentLongMap;
+import com.mobility.utils.IdGenerator;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rides in tiers. Active rides sit in a hot map. Finished rides move to a history bounded by count and by age, oldest
+ * evicted first, and evicted rides go to the optional on-disk archive. Without an archive they are dropped, so memory
+ * stays flat however many rides pass through.
+ * The memory tiers are keyed by the ride's long key, so only rides with IDs issued by IdGenerator can be stored.
+ */
+public class RideStore {
+
+    private final ConcurrentLongMap<Ride> active;
+    private final ConcurrentLongMap<Ride> history;
+    // Finished rides in the order they entered the history
+    private final ConcurrentLinkedQueue<Ride> historyOrder;
+    private final int historyCapacity;
+    private final long retentionMillis;
+    private final RideArchive archive;
+    private final AtomicLong evictedCount;
+
+    public RideStore() {
+        this(RideMatchingCostants.RIDE_HISTORY_CAPACITY, RideMatchingCostants.RIDE_HISTORY_RETENTION_MILLIS, null);
+    }
+
+    // archive may be null
+    public RideStore(int historyCapacity, long retentionMillis, RideArchive archive) {
+        if (historyCapacity < 0) {
+            throw new IllegalArgumentException("History capacity cannot be negative");
+        }
+        if (retentionMillis < 0) {
+            throw new IllegalArgumentException("Retention cannot be negative");
+        }
+        this.active = new ConcurrentLongMap<>(RideMatchingCostants.RIDE_STORE_SEGMENTS);
+        this.history = new ConcurrentLongMap<>(RideMatchingCostants.RIDE_STORE_SEGMENTS);
+        this.historyOrder = new ConcurrentLinkedQueue<>();
+        this.historyCapacity = historyCapacity;
+        this.retentionMillis = retentionMillis;
+        this.archive = archive;
+        this.evictedCount = new AtomicLong();
+    }
+
+    // A ride ID already held in memory means two rides were issued the same key; neither is silently dropped. The
+    // active tier is checked first and the history after: finish() puts a ride in the history before taking it out of
+    // the active tier, so a key moving between them is always seen. Keys already evicted to the archive are not.
+    public void add(Ride ride) {
+        long rideKey = ride.getRideKey();
+        if (rideKey < 0) {
+            throw new IllegalArgumentException("Ride ID " + ride.getRideId() + " was not issued by IdGenerator");
+        }
+        if (active.putIfAbsent(rideKey, ride) != null) {
+            throw new IllegalStateException("Ride ID " + ride.getRideId() + " is already in use");
+        }
+        if (history.get(rideKey) != null) {
+            active.remove(rideKey, ride);
+            throw new IllegalStateException("Ride ID " + ride.getRideId() + " is already in use");
+        }
+    }
+
+    public Ride get(String rideId) {
+        long rideKey = IdGenerator.parseRideId(rideId);
+        return rideKey < 0 ? null : get(rideKey);
+    }
+
+    // Active, then history, then archive. Archived rides are detached copies.
+    public Ride get(long rideKey) {
+        Ride ride = active.get(rideKey);
+        if (ride == null) {
+            ride = history.get(rideKey);
+        }
+        if (ride == null && archive != null && rideKey >= 0) {
+            ride = archive.find(IdGenerator.formatRideId(rideKey));
+        }
+        return ride;
+    }
+
+    public Ride getActive(String rideId) {
+        return active.get(IdGenerator.parseRideId(rideId));
+    }
+
+    public Ride getActive(long rideKey) {
+        return active.get(rideKey);
+    }
+
+    // Drops an active ride that was never handed out. Rides compare by ID, so another ride stored under the same key
+    // is told apart by identity and left alone.
+    public void discard(Ride ride) {
+        if (active.get(ride.getRideKey()) == ride) {
+            active.remove(ride.getRideKey(), ride);
+        }
+    }
+
+    // Moves a ride that has left IN_PROGRESS to the history, evicting the oldest entries past the limits
+    public void finish(Ride ride) {
+        long rideKey = ride.getRideKey();
+        // Briefly in both tiers, never in neither; get() finds the active entry first, which is the same ride
+        if (active.get(rideKey) != ride || history.putIfAbsent(rideKey, ride) != null) {
+            return;
+        }
+        historyOrder.add(ride);
+        active.remove(rideKey, ride);
+        evict(Instant.now().toEpochMilli() - retentionMillis);
+    }
+
+    private void evict(long cutoffMillis) {
+        while (history.size() > historyCapacity || finishedBefore(historyOrder.peek(), cutoffMillis)) {
+            // Competing evictors each take a different ride
+            Ride oldest = historyOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            // Archived before it leaves the history, so a lookup always finds it in one or the other
+            if (archive != null) {
+                archive.append(oldest);
+            }
+            history.remove(oldest.getRideKey(), oldest);
+            evictedCount.incrementAndGet();
+        }
+    }
+
+    private static boolean finishedBefore(Ride ride, long cutoffMillis) {
+        if (ride == null) {
+            return false;
+        }
+        Instant finished = ride.getCompletionTime();
+        return finished != null && finished.toEpochMilli() < cutoffMillis;
+    }
+
+    // Weakly consistent copy, e.g. for snapshots
+    public Collection<Ride> activeRides() {
+        return active.values();
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    public int getHistoryCount() {
+        return history.size();
+    }
+
+    // Zero without an archive
+    public long getArchivedCount() {
+        return archive == null ? 0 : archive.size();
+    }
+
+    // The highest sequence of archived rides issued under the origin; 0 without an archive
+    public long getArchivedSequence(int origin) {
+        return archive == null ? 0 : archive.getHighestSequence(origin);
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    // Rides held in memory: active plus history
+    public int size() {
+        return active.size() + history.size();
+    }
+
+    // The archive is left alone: it is history, and rides from before a clear stay there. Ride IDs are not reissued
+    // after a clear, so they keep pointing at those rides.
+    public void clear() {
+        active.clear();
+        history.clear();
+        historyOrder.clear();
+    }
+}
@@ -0,0 +1,225 @@
+package com.mobility.store;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.RideStatus;
+import com.mobility.exception.JournalException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.store.JournalRecord.DriverRegistered;
+import com.mobility.store.JournalRecord.RideClaimed;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Image of a service's drivers and open rides. It is written to a temporary file and moved into place once
+ * complete, so a crash mid-write leaves the previous snapshot intact. Loading maps the file read-only and decodes
+ * entries as they are visited; they come back as the journal's DriverRegistered and RideClaimed records, and
+ * replaying the journal from getJournalPosition() brings the state up to date.
+ */
+public class Snapshot {
+
+    // magic, version, journal position, ride sequence, driver count, ride count, CRC32C of the body and then of the
+    // header fields from the journal position to the ride count
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES + 3 * Integer.BYTES;
+    private static final int FIELDS_OFFSET = 2 * Integer.BYTES;
+    private static final int FIELDS_BYTES = 2 * Long.BYTES + 2 * Integer.BYTES;
+    // Smallest encodings: empty strings behind their length prefixes
+    private static final int MIN_DRIVER_BYTES = 2 * Short.BYTES + 2 * Double.BYTES + 1;
+    private static final int MIN_RIDE_BYTES = 3 * Short.BYTES + 2 * Double.BYTES + Long.BYTES;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private final long journalPosition;
+    private final long rideSequence;
+    private final int driverCount;
+    private final int rideCount;
+    private final ByteBuffer body;
+
+    private Snapshot(long journalPosition, long rideSequence, int driverCount, int rideCount, ByteBuffer body) {
+        this.journalPosition = journalPosition;
+        this.rideSequence = rideSequence;
+        this.driverCount = driverCount;
+        this.rideCount = rideCount;
+        this.body = body;
+    }
+
+    // Rides that are no longer in progress are left out. The collections may change while they are written.
+    public static void write(Path path, long journalPosition, long rideSequence,
+                             Collection<Driver> drivers, Collection<Ride> rides) {
+        if (path == null) {
+            throw new IllegalArgumentException("Snapshot path cannot be null");
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_BYTES);
+            CRC32C checksum = new CRC32C();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum), WRITE_BUFFER_BYTES));
+
+            int driverCount = 0;
+            for (Driver driver : drivers) {
+                Location location = driver.getCurrentLocation();
+                writeString(out, driver.getDriverId());
+                writeString(out, driver.getName());
+                out.writeDouble(location.getLatitude());
+                out.writeDouble(location.getLongitude());
+                out.writeBoolean(driver.isAvailable());
+                driverCount++;
+            }
+
+            int rideCount = 0;
+            for (Ride ride : rides) {
+                if (ride.getStatus() != RideStatus.IN_PROGRESS) {
+                    continue;
+                }
+                writeString(out, ride.getRideId());
+                writeString(out, ride.getRiderId());
+                writeString(out, ride.getDriver().getDriverId());
+                out.writeDouble(ride.getPickupLocation().getLatitude());
+                out.writeDouble(ride.getPickupLocation().getLongitude());
+                out.writeLong(ride.getRequestTime().toEpochMilli());
+                rideCount++;
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(RideMatchingCostants.SNAPSHOT_MAGIC)
+                    .putInt(RideMatchingCostants.SNAPSHOT_VERSION)
+                    .putLong(journalPosition)
+                    .putLong(rideSequence)
+                    .putInt(driverCount)
+                    .putInt(rideCount);
+            checksum.update(header.slice(FIELDS_OFFSET, FIELDS_BYTES));
+            header.putInt((int) checksum.getValue()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new JournalException("Cannot write snapshot " + path, e);
+        }
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new JournalException("Cannot install snapshot " + path, e);
+        }
+    }
+
+    public static Snapshot read(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Snapshot path cannot be null");
+        }
+
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new JournalException("Snapshot " + path + " has an invalid size of " + size + " bytes");
+            }
+            // The mapping stays valid once the channel is closed
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            throw new JournalException("Cannot read snapshot " + path, e);
+        }
+
+        if (file.getInt() != RideMatchingCostants.SNAPSHOT_MAGIC
+                || file.getInt() != RideMatchingCostants.SNAPSHOT_VERSION) {
+            throw new JournalException("Snapshot " + path + " has an unknown format");
+        }
+        long journalPosition = file.getLong();
+        long rideSequence = file.getLong();
+        int driverCount = file.getInt();
+        int rideCount = file.getInt();
+        int expected = file.getInt();
+
+        ByteBuffer body = file.slice();
+        CRC32C checksum = new CRC32C();
+        checksum.update(body.duplicate());
+        checksum.update(file.slice(FIELDS_OFFSET, FIELDS_BYTES));
+        if ((int) checksum.getValue() != expected) {
+            throw new JournalException("Snapshot " + path + " is corrupted");
+        }
+        // Checked before anything is sized from the counts, in case a checksum matches by chance
+        if (driverCount < 0 || rideCount < 0
+                || (long) driverCount * MIN_DRIVER_BYTES + (long) rideCount * MIN_RIDE_BYTES > body.remaining()) {
+            throw new JournalException("Snapshot " + path + " holds fewer bytes than its " + driverCount
+                    + " drivers and " + rideCount + " rides need");
+        }
+        return new Snapshot(journalPosition, rideSequence, driverCount, rideCount, body);
+    }
+
+    // Drivers first, then open rides
+    public void forEach(Consumer<JournalRecord> visitor) {
+        if (visitor == null) {
+            throw new IllegalArgumentException("Visitor cannot be null");
+        }
+
+        ByteBuffer in = body.duplicate();
+        for (int i = 0; i < driverCount; i++) {
+            visitor.accept(readDriver(in));
+        }
+        for (int i = 0; i < rideCount; i++) {
+            visitor.accept(readRide(in));
+        }
+    }
+
+    // Journal records before this position are already reflected in the snapshot
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    // The ride ID sequence when the snapshot was taken; completed rides are not kept, so their IDs are not visible
+    public long getRideSequence() {
+        return rideSequence;
+    }
+
+    public int getDriverCount() {
+        return driverCount;
+    }
+
+    public int getRideCount() {
+        return rideCount;
+    }
+
+    // The checksum has matched, so running out of bytes means the writer and reader disagree on the format
+    private static DriverRegistered readDriver(ByteBuffer in) {
+        try {
+            return new DriverRegistered(WriteAheadLog.getString(in), WriteAheadLog.getString(in),
+                    in.getDouble(), in.getDouble(), in.get() != 0);
+        } catch (BufferUnderflowException e) {
+            throw new JournalException("Snapshot ends inside a driver entry", e);
+        }
+    }
+
+    private static RideClaimed readRide(ByteBuffer in) {
+        try {
+            return new RideClaimed(WriteAheadLog.getString(in), WriteAheadLog.getString(in),
+                    WriteAheadLog.getString(in), in.getDouble(), in.getDouble(), in.getLong());
+        } catch (BufferUnderflowException e) {
+            throw new JournalException("Snapshot ends inside a ride entry", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = WriteAheadLog.utf8(value);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
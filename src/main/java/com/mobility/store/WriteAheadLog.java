@@ -0,0 +1,517 @@
+package com.mobility.store;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.exception.JournalException;
+import com.mobility.store.JournalRecord.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of state changes on a FileChannel. Appends only copy the record into a memory buffer;
+ * commit(position) makes everything up to that position durable. Commits are grouped: while one caller writes the
+ * buffer and forces the file, others queue behind it, and the next one to run covers every record appended
+ * meanwhile with a single fsync.
+ * Each record is framed as [body length][CRC32C of body][body], so a torn write at the tail is detected on open
+ * and cut off.
+ * The log is split into segment files: the first is the path itself, and roll() starts the next one, named after the
+ * path and the log position it starts at (rides.wal.4096). Positions run on across segments. Sealed segments were
+ * synced before the log moved past them, so open only checks the last one, and deleteBefore drops those a snapshot
+ * has made redundant.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 8;
+
+    private static final byte DRIVER_REGISTERED = 1;
+    private static final byte DRIVER_MOVED = 2;
+    private static final byte RIDE_CLAIMED = 3;
+    private static final byte RIDE_COMPLETED = 4;
+    private static final byte CLEARED = 5;
+    private static final byte RIDE_CANCELLED = 6;
+
+    private final Path path;
+    // The last segment and the log position it starts at; replaced by roll() while holding both locks
+    private FileChannel channel;
+    private long segmentStart;
+    private final ReentrantLock appendLock;
+    // Held by whoever is writing the buffer out; callers waiting for a commit queue here
+    private final ReentrantLock syncLock;
+    private final CRC32C checksum;
+    private final AtomicLong syncCount;
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private long appended;
+    private volatile long written;
+    private volatile long durable;
+    private volatile boolean closed;
+
+    private WriteAheadLog(Path path, FileChannel channel, long segmentStart, long length) {
+        this.path = path;
+        this.channel = channel;
+        this.segmentStart = segmentStart;
+        this.appendLock = new ReentrantLock();
+        this.syncLock = new ReentrantLock();
+        this.checksum = new CRC32C();
+        this.syncCount = new AtomicLong();
+        this.pending = ByteBuffer.allocateDirect(RideMatchingCostants.JOURNAL_BUFFER_BYTES);
+        this.spare = ByteBuffer.allocateDirect(RideMatchingCostants.JOURNAL_BUFFER_BYTES);
+        this.appended = length;
+        this.written = length;
+        this.durable = length;
+    }
+
+    // Creates the file if needed; a partly written last record is truncated away
+    public static WriteAheadLog open(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Journal path cannot be null");
+        }
+
+        try {
+            List<Segment> segments = segments(path);
+            Segment last = segments.isEmpty() ? new Segment(0, path) : segments.getLast();
+            FileChannel channel = FileChannel.open(last.file(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long valid = scan(last.file(), 0, null);
+            if (valid < channel.size()) {
+                channel.truncate(valid);
+                channel.force(false);
+            }
+            channel.position(valid);
+            return new WriteAheadLog(path, channel, last.start(), last.start() + valid);
+        } catch (IOException e) {
+            throw new JournalException("Cannot open journal " + path, e);
+        }
+    }
+
+    // Returns the log position just past this record, to pass to commit()
+    public long append(JournalRecord record) {
+        if (record == null) {
+            throw new IllegalArgumentException("Journal record cannot be null");
+        }
+
+        // Strings are encoded before taking the lock
+        byte[][] strings = strings(record);
+        int bodyBytes = 1 + bodySize(record);
+        for (byte[] string : strings) {
+            bodyBytes += Short.BYTES + string.length;
+        }
+
+        long end;
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            ensureCapacity(HEADER_BYTES + bodyBytes);
+
+            int start = pending.position();
+            pending.position(start + HEADER_BYTES);
+            encode(record, strings);
+
+            checksum.reset();
+            checksum.update(pending.duplicate().position(start + HEADER_BYTES).limit(pending.position()));
+            pending.putInt(start, bodyBytes);
+            pending.putInt(start + Integer.BYTES, (int) checksum.getValue());
+
+            appended += HEADER_BYTES + bodyBytes;
+            end = appended;
+        } finally {
+            appendLock.unlock();
+        }
+
+        // Records that never get a commit (location fixes) still reach the file once enough have piled up
+        if (end - written >= RideMatchingCostants.JOURNAL_WRITE_THRESHOLD_BYTES && syncLock.tryLock()) {
+            try {
+                drain();
+            } catch (IOException e) {
+                throw new JournalException("Cannot write journal " + path, e);
+            } finally {
+                syncLock.unlock();
+            }
+        }
+        return end;
+    }
+
+    // Blocks until every record up to the position is on disk
+    public void commit(long position) {
+        if (durable >= position) {
+            return;
+        }
+
+        syncLock.lock();
+        try {
+            // An earlier flusher may have covered this position while we queued
+            if (durable >= position) {
+                return;
+            }
+            long end = drain();
+            channel.force(false);
+            syncCount.incrementAndGet();
+            durable = end;
+        } catch (IOException e) {
+            throw new JournalException("Cannot sync journal " + path, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Writes out the buffered records; the caller holds syncLock
+    private long drain() throws IOException {
+        ByteBuffer full;
+        long end;
+        appendLock.lock();
+        try {
+            full = pending;
+            pending = spare;
+            end = appended;
+        } finally {
+            appendLock.unlock();
+        }
+
+        full.flip();
+        while (full.hasRemaining()) {
+            channel.write(full);
+        }
+        full.clear();
+        spare = full;
+        written = end;
+        return end;
+    }
+
+    // Seals the current segment and starts a new one at the end of the log, returning that position. Everything before
+    // it is on disk when this returns. Nothing happens if the current segment is still empty.
+    public long roll() {
+        syncLock.lock();
+        try {
+            // Most of the buffer goes out while appends carry on; only the rest is swapped under the lock
+            drain();
+            ByteBuffer full;
+            FileChannel sealed;
+            long end;
+            appendLock.lock();
+            try {
+                if (closed) {
+                    throw new IllegalStateException("Journal is closed");
+                }
+                end = appended;
+                if (end == segmentStart) {
+                    return end;
+                }
+                full = pending;
+                pending = spare;
+                sealed = channel;
+                channel = FileChannel.open(segmentPath(path, end),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                segmentStart = end;
+            } finally {
+                appendLock.unlock();
+            }
+
+            full.flip();
+            while (full.hasRemaining()) {
+                sealed.write(full);
+            }
+            full.clear();
+            spare = full;
+            sealed.force(false);
+            sealed.close();
+            syncCount.incrementAndGet();
+            written = end;
+            durable = end;
+            return end;
+        } catch (IOException e) {
+            throw new JournalException("Cannot roll journal " + path, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Deletes the sealed segments holding nothing at or after the position, e.g. once a snapshot taken there is on disk
+    public void deleteBefore(long position) {
+        try {
+            List<Segment> segments = segments(path);
+            // The last segment is never deleted
+            for (int i = 0; i + 1 < segments.size() && segments.get(i + 1).start() <= position; i++) {
+                Files.deleteIfExists(segments.get(i).file());
+            }
+        } catch (IOException e) {
+            throw new JournalException("Cannot delete old segments of journal " + path, e);
+        }
+    }
+
+    // Feeds every intact record to the visitor in append order. Meant for startup, before anything is appended.
+    public void replay(Consumer<JournalRecord> visitor) {
+        replay(0, visitor);
+    }
+
+    // As above, starting at a position returned by append(), roll() or size(), e.g. the one a snapshot was taken at
+    public void replay(long from, Consumer<JournalRecord> visitor) {
+        if (visitor == null) {
+            throw new IllegalArgumentException("Visitor cannot be null");
+        }
+        if (from < 0 || from > size()) {
+            throw new JournalException("Journal " + path + " has no position " + from);
+        }
+
+        commit(size());
+        try {
+            List<Segment> segments = segments(path);
+            if (segments.isEmpty() || from < segments.getFirst().start()) {
+                throw new JournalException("Journal " + path + " no longer holds position " + from);
+            }
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                boolean sealed = i + 1 < segments.size();
+                long end = sealed ? segments.get(i + 1).start() : Long.MAX_VALUE;
+                if (end <= from) {
+                    continue;
+                }
+                long valid = scan(segment.file(), Math.max(from - segment.start(), 0), visitor);
+                // A sealed segment was synced whole; stopping short would skip records the next one builds on
+                if (sealed && segment.start() + valid != end) {
+                    throw new JournalException("Journal segment " + segment.file() + " is damaged");
+                }
+            }
+        } catch (IOException e) {
+            throw new JournalException("Cannot read journal " + path, e);
+        }
+    }
+
+    // Returns the offset within the file just past the last intact record
+    private static long scan(Path file, long from, Consumer<JournalRecord> visitor) throws IOException {
+        long valid = from;
+        CRC32C checksum = new CRC32C();
+        try (InputStream input = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(input))) {
+            in.skipNBytes(from);
+            while (true) {
+                byte[] body;
+                int expected;
+                try {
+                    int length = in.readInt();
+                    expected = in.readInt();
+                    if (length <= 0 || length > RideMatchingCostants.JOURNAL_MAX_RECORD_BYTES) {
+                        return valid;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    return valid;
+                }
+
+                checksum.reset();
+                checksum.update(body);
+                if ((int) checksum.getValue() != expected) {
+                    return valid;
+                }
+                JournalRecord record = decode(ByteBuffer.wrap(body));
+                if (record == null) {
+                    return valid;
+                }
+                if (visitor != null) {
+                    visitor.accept(record);
+                }
+                valid += HEADER_BYTES + body.length;
+            }
+        }
+    }
+
+    private record Segment(long start, Path file) {
+    }
+
+    // The segments on disk, oldest first
+    private static List<Segment> segments(Path path) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        if (Files.exists(path)) {
+            segments.add(new Segment(0, path));
+        }
+        String prefix = path.getFileName() + ".";
+        Path directory = path.toAbsolutePath().getParent();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                String suffix = name.substring(Math.min(prefix.length(), name.length()));
+                if (name.startsWith(prefix) && !suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    segments.add(new Segment(Long.parseLong(suffix), file));
+                }
+            });
+        }
+        segments.sort(Comparator.comparingLong(Segment::start));
+        return segments;
+    }
+
+    private static Path segmentPath(Path path, long start) {
+        return start == 0 ? path : path.resolveSibling(path.getFileName() + "." + start);
+    }
+
+    public long size() {
+        appendLock.lock();
+        try {
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Number of fsyncs so far; with many concurrent committers this stays well below the number of commits
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        commit(size());
+        appendLock.lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        syncLock.lock();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new JournalException("Cannot close journal " + path, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() >= bytes) {
+            return;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(pending.capacity() * 2, pending.position() + bytes));
+        pending.flip();
+        grown.put(pending);
+        pending = grown;
+    }
+
+    private static byte[][] strings(JournalRecord record) {
+        return switch (record) {
+            case DriverRegistered r -> new byte[][]{utf8(r.driverId()), utf8(r.name())};
+            case DriverMoved r -> new byte[][]{utf8(r.driverId())};
+            case RideClaimed r -> new byte[][]{utf8(r.rideId()), utf8(r.riderId()), utf8(r.driverId())};
+            case RideCompleted r -> new byte[][]{utf8(r.rideId()), utf8(r.driverId())};
+            case RideCancelled r -> new byte[][]{utf8(r.rideId()), utf8(r.driverId())};
+            case Cleared r -> new byte[0][];
+        };
+    }
+
+    // Fixed-size fields only; strings are counted separately
+    private static int bodySize(JournalRecord record) {
+        return switch (record) {
+            case DriverRegistered r -> 2 * Double.BYTES + 1;
+            case DriverMoved r -> 2 * Double.BYTES;
+            case RideClaimed r -> 2 * Double.BYTES + Long.BYTES;
+            case RideCompleted r -> Long.BYTES;
+            case RideCancelled r -> Long.BYTES;
+            case Cleared r -> 0;
+        };
+    }
+
+    private void encode(JournalRecord record, byte[][] strings) {
+        switch (record) {
+            case DriverRegistered r -> {
+                pending.put(DRIVER_REGISTERED);
+                putString(strings[0]);
+                putString(strings[1]);
+                pending.putDouble(r.latitude());
+                pending.putDouble(r.longitude());
+                pending.put((byte) (r.available() ? 1 : 0));
+            }
+            case DriverMoved r -> {
+                pending.put(DRIVER_MOVED);
+                putString(strings[0]);
+                pending.putDouble(r.latitude());
+                pending.putDouble(r.longitude());
+            }
+            case RideClaimed r -> {
+                pending.put(RIDE_CLAIMED);
+                putString(strings[0]);
+                putString(strings[1]);
+                putString(strings[2]);
+                pending.putDouble(r.latitude());
+                pending.putDouble(r.longitude());
+                pending.putLong(r.requestTime());
+            }
+            case RideCompleted r -> {
+                pending.put(RIDE_COMPLETED);
+                putString(strings[0]);
+                putString(strings[1]);
+                pending.putLong(r.completionTime());
+            }
+            case RideCancelled r -> {
+                pending.put(RIDE_CANCELLED);
+                putString(strings[0]);
+                putString(strings[1]);
+                pending.putLong(r.cancellationTime());
+            }
+            case Cleared r -> pending.put(CLEARED);
+        }
+    }
+
+    private static JournalRecord decode(ByteBuffer body) {
+        try {
+            JournalRecord record = switch (body.get()) {
+                case DRIVER_REGISTERED -> new DriverRegistered(getString(body), getString(body),
+                        body.getDouble(), body.getDouble(), body.get() != 0);
+                case DRIVER_MOVED -> new DriverMoved(getString(body), body.getDouble(), body.getDouble());
+                case RIDE_CLAIMED -> new RideClaimed(getString(body), getString(body), getString(body),
+                        body.getDouble(), body.getDouble(), body.getLong());
+                case RIDE_COMPLETED -> new RideCompleted(getString(body), getString(body), body.getLong());
+                case CLEARED -> new Cleared();
+                case RIDE_CANCELLED -> new RideCancelled(getString(body), getString(body), body.getLong());
+                default -> null;
+            };
+            return body.hasRemaining() ? null : record;
+        } catch (RuntimeException e) {
+            // A body that passed its checksum but does not parse was written by something else; stop there
+            return null;
+        }
+    }
+
+    private void putString(byte[] bytes) {
+        pending.putShort((short) bytes.length);
+        pending.put(bytes);
+    }
+
+    static String getString(ByteBuffer body) {
+        byte[] bytes = new byte[Short.toUnsignedInt(body.getShort())];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Journal strings are limited to 65535 bytes");
+        }
+        return bytes;
+    }
+}
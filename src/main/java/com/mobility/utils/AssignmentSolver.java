@@ -0,0 +1,376 @@
+package com.mobility.utils;
+
+import java.util.Arrays;
+
+public final class AssignmentSolver {
+
+    private AssignmentSolver() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Hungarian algorithm (shortest augmenting paths with potentials), O(n^2 * m).
+     * Returns, for each row, the column it is assigned to, or -1 when there are more rows than columns.
+     */
+    public static int[] solve(double[][] cost) {
+        int rows = cost.length;
+        int columns = rows == 0 ? 0 : cost[0].length;
+        if (rows == 0 || columns == 0) {
+            int[] none = new int[rows];
+            Arrays.fill(none, -1);
+            return none;
+        }
+
+        // The algorithm needs rows <= columns, so solve the transpose otherwise
+        if (rows > columns) {
+            int[] columnToRow = solve(transpose(cost));
+            int[] rowToColumn = new int[rows];
+            Arrays.fill(rowToColumn, -1);
+            for (int column = 0; column < columns; column++) {
+                rowToColumn[columnToRow[column]] = column;
+            }
+            return rowToColumn;
+        }
+
+        double[] rowPotential = new double[rows + 1];
+        double[] columnPotential = new double[columns + 1];
+        int[] columnOwner = new int[columns + 1];
+        int[] previous = new int[columns + 1];
+
+        for (int row = 1; row <= rows; row++) {
+            columnOwner[0] = row;
+            int column = 0;
+            double[] slack = new double[columns + 1];
+            boolean[] visited = new boolean[columns + 1];
+            Arrays.fill(slack, Double.POSITIVE_INFINITY);
+
+            do {
+                visited[column] = true;
+                int owner = columnOwner[column];
+                double delta = Double.POSITIVE_INFINITY;
+                int next = 0;
+
+                for (int j = 1; j <= columns; j++) {
+                    if (visited[j]) {
+                        continue;
+                    }
+                    double reduced = cost[owner - 1][j - 1] - rowPotential[owner] - columnPotential[j];
+                    if (reduced < slack[j]) {
+                        slack[j] = reduced;
+                        previous[j] = column;
+                    }
+                    if (slack[j] < delta) {
+                        delta = slack[j];
+                        next = j;
+                    }
+                }
+
+                for (int j = 0; j <= columns; j++) {
+                    if (visited[j]) {
+                        rowPotential[columnOwner[j]] += delta;
+                        columnPotential[j] -= delta;
+                    } else {
+                        slack[j] -= delta;
+                    }
+                }
+                column = next;
+            } while (columnOwner[column] != 0);
+
+            // Flip the augmenting path
+            do {
+                int prior = previous[column];
+                columnOwner[column] = columnOwner[prior];
+                column = prior;
+            } while (column != 0);
+        }
+
+        int[] assignment = new int[rows];
+        for (int j = 1; j <= columns; j++) {
+            if (columnOwner[j] != 0) {
+                assignment[columnOwner[j] - 1] = j - 1;
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * Minimum-cost assignment over a sparse set of allowed pairs: row i may only take the columns listed in
+     * rowColumns[i], at the matching costs in rowCosts[i], which must not be negative. As many rows as possible are
+     * assigned, at the lowest total cost for that many. Rows that share no column, even through other rows, never
+     * compete, so each such group is solved on its own by successive shortest augmenting paths (Dijkstra with
+     * potentials) over the listed pairs only; the work follows the groups' pairs rather than rows times columns.
+     * Returns, for each row, the column it is assigned to, or -1.
+     */
+    public static int[] solveSparse(int columns, int[][] rowColumns, double[][] rowCosts) {
+        return new SparseAssignment(columns, rowColumns, rowCosts).solve();
+    }
+
+    private static double[][] transpose(double[][] matrix) {
+        double[][] transposed = new double[matrix[0].length][matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            for (int j = 0; j < matrix[0].length; j++) {
+                transposed[j][i] = matrix[i][j];
+            }
+        }
+        return transposed;
+    }
+
+    private static final class SparseAssignment {
+
+        private final int rows;
+        private final int[][] rowColumns;
+        private final double[][] rowCosts;
+        // Nodes: rows, then columns; each group's sink, which every unassigned column leads to, is tracked apart
+        private final double[] potential;
+        private final double[] distance;
+        private final int[] previous;
+        private final boolean[] settled;
+        private final int[] rowToColumn;
+        private final double[] assignedCost;
+        private final int[] columnToRow;
+        private final NodeHeap heap;
+
+        SparseAssignment(int columns, int[][] rowColumns, double[][] rowCosts) {
+            this.rows = rowColumns.length;
+            this.rowColumns = rowColumns;
+            this.rowCosts = rowCosts;
+            this.potential = new double[rows + columns];
+            this.distance = new double[rows + columns];
+            this.previous = new int[rows + columns];
+            this.settled = new boolean[rows + columns];
+            this.rowToColumn = new int[rows];
+            this.assignedCost = new double[rows];
+            this.columnToRow = new int[columns];
+            this.heap = new NodeHeap(rows + columns);
+            Arrays.fill(rowToColumn, -1);
+            Arrays.fill(columnToRow, -1);
+        }
+
+        int[] solve() {
+            // Union-find over rows: a row listing a column joins the group of the first row that listed it
+            int[] group = new int[rows];
+            int[] firstRow = new int[columnToRow.length];
+            Arrays.fill(firstRow, -1);
+            for (int row = 0; row < rows; row++) {
+                group[row] = row;
+                for (int column : rowColumns[row]) {
+                    if (firstRow[column] < 0) {
+                        firstRow[column] = row;
+                    } else {
+                        group[find(group, row)] = find(group, firstRow[column]);
+                    }
+                }
+            }
+
+            // Rows bucketed by group root, in row order within each
+            int[] start = new int[rows + 1];
+            for (int row = 0; row < rows; row++) {
+                group[row] = find(group, row);
+                start[group[row] + 1]++;
+            }
+            for (int root = 0; root < rows; root++) {
+                start[root + 1] += start[root];
+            }
+            int[] members = new int[rows];
+            int[] next = Arrays.copyOf(start, rows);
+            for (int row = 0; row < rows; row++) {
+                members[next[group[row]]++] = row;
+            }
+
+            for (int root = 0; root < rows; root++) {
+                if (start[root + 1] > start[root]) {
+                    solveGroup(Arrays.copyOfRange(members, start[root], start[root + 1]));
+                }
+            }
+            return rowToColumn;
+        }
+
+        private void solveGroup(int[] groupRows) {
+            int[] nodes = groupNodes(groupRows);
+            double sinkPotential = 0;
+            while (true) {
+                for (int node : nodes) {
+                    distance[node] = Double.POSITIVE_INFINITY;
+                    settled[node] = false;
+                }
+                heap.clear();
+                for (int row : groupRows) {
+                    if (rowToColumn[row] < 0) {
+                        distance[row] = 0;
+                        previous[row] = -1;
+                        heap.push(row, 0);
+                    }
+                }
+
+                // Distance to the sink, and the unassigned column it is reached through
+                double reach = Double.POSITIVE_INFINITY;
+                int last = -1;
+                while (!heap.isEmpty()) {
+                    int node = heap.pop();
+                    if (settled[node]) {
+                        continue;
+                    }
+                    if (distance[node] >= reach) {
+                        break;
+                    }
+                    settled[node] = true;
+                    if (node < rows) {
+                        int[] candidates = rowColumns[node];
+                        for (int k = 0; k < candidates.length; k++) {
+                            if (candidates[k] != rowToColumn[node]) {
+                                relax(node, rows + candidates[k], rowCosts[node][k]);
+                            }
+                        }
+                    } else if (columnToRow[node - rows] >= 0) {
+                        int owner = columnToRow[node - rows];
+                        relax(node, owner, -assignedCost[owner]);
+                    } else {
+                        double toSink = distance[node] + Math.max(0, potential[node] - sinkPotential);
+                        if (toSink < reach) {
+                            reach = toSink;
+                            last = node;
+                        }
+                    }
+                }
+                if (last < 0) {
+                    return;
+                }
+
+                // Nodes past the sink's distance keep reduced costs non-negative when capped at it
+                for (int node : nodes) {
+                    potential[node] += Math.min(distance[node], reach);
+                }
+                sinkPotential += reach;
+
+                // Flip the augmenting path: column <- row <- column <- row ...
+                int column = last;
+                while (true) {
+                    int row = previous[column];
+                    int freed = previous[row];
+                    rowToColumn[row] = column - rows;
+                    columnToRow[column - rows] = row;
+                    assignedCost[row] = costOf(row, column - rows);
+                    if (freed < 0) {
+                        break;
+                    }
+                    column = freed;
+                }
+            }
+        }
+
+        // The group's rows, then its columns, each once
+        private int[] groupNodes(int[] groupRows) {
+            int[] nodes = Arrays.copyOf(groupRows, groupRows.length * 2);
+            int count = groupRows.length;
+            for (int row : groupRows) {
+                for (int column : rowColumns[row]) {
+                    if (!settled[rows + column]) {
+                        settled[rows + column] = true;
+                        if (count == nodes.length) {
+                            nodes = Arrays.copyOf(nodes, count * 2);
+                        }
+                        nodes[count++] = rows + column;
+                    }
+                }
+            }
+            return Arrays.copyOf(nodes, count);
+        }
+
+        private void relax(int from, int to, double cost) {
+            if (settled[to]) {
+                return;
+            }
+            // Rounding can leave a tight edge a hair below zero
+            double reduced = Math.max(0, cost + potential[from] - potential[to]);
+            double candidate = distance[from] + reduced;
+            if (candidate < distance[to]) {
+                distance[to] = candidate;
+                previous[to] = from;
+                heap.push(to, candidate);
+            }
+        }
+
+        private double costOf(int row, int column) {
+            int[] candidates = rowColumns[row];
+            for (int k = 0; k < candidates.length; k++) {
+                if (candidates[k] == column) {
+                    return rowCosts[row][k];
+                }
+            }
+            throw new IllegalStateException("Column " + column + " is not a candidate of row " + row);
+        }
+
+        private static int find(int[] group, int row) {
+            while (group[row] != row) {
+                group[row] = group[group[row]];
+                row = group[row];
+            }
+            return row;
+        }
+    }
+
+    // Binary min-heap of nodes by distance; a node pushed again is popped once per push and skipped once settled
+    private static final class NodeHeap {
+
+        private int[] nodes;
+        private double[] keys;
+        private int size;
+
+        NodeHeap(int capacity) {
+            this.nodes = new int[capacity];
+            this.keys = new double[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void push(int node, double key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int slot = size++;
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                nodes[slot] = nodes[parent];
+                keys[slot] = keys[parent];
+                slot = parent;
+            }
+            nodes[slot] = node;
+            keys[slot] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            double lastKey = keys[size];
+            int slot = 0;
+            while (true) {
+                int child = 2 * slot + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                nodes[slot] = nodes[child];
+                keys[slot] = keys[child];
+                slot = child;
+            }
+            nodes[slot] = lastNode;
+            keys[slot] = lastKey;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.mobility.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent map from non-negative long keys to values with open addressing: keys and values sit in parallel arrays
+ * probed linearly, so a lookup mixes a long and walks an array instead of hashing a String and chasing node pointers,
+ * and an entry costs no node object. The table is split into segments, each behind a StampedLock. Reads are
+ * optimistic and only take the lock when a write overlapped them; removals shift later entries back instead of
+ * leaving tombstones.
+ */
+public class ConcurrentLongMap<V> {
+
+    private static final long EMPTY = -1;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    public ConcurrentLongMap(int segmentCount) {
+        this(segmentCount, 0);
+    }
+
+    // segmentCount is rounded up to a power of two; expectedSize presizes the tables
+    public ConcurrentLongMap(int segmentCount, int expectedSize) {
+        if (segmentCount <= 0) {
+            throw new IllegalArgumentException("Segment count must be positive");
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative");
+        }
+
+        int count = Integer.highestOneBit(segmentCount * 2 - 1);
+        int perSegment = Math.max(MIN_SEGMENT_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize / count) * 4 - 1));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.segmentMask = count - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key < 0) {
+            return null;
+        }
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.tryOptimisticRead();
+        Object value = segment.find(key, hash);
+        if (!segment.validate(stamp)) {
+            stamp = segment.readLock();
+            try {
+                value = segment.find(key, hash);
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return (V) value;
+    }
+
+    // Returns the previous value, or null
+    public V put(long key, V value) {
+        return put(key, value, false);
+    }
+
+    // Leaves an existing entry in place; returns its value, or null if the value was stored
+    public V putIfAbsent(long key, V value) {
+        return put(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(long key, V value, boolean onlyIfAbsent) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Key cannot be negative");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            return (V) segment.put(key, hash, value, onlyIfAbsent);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key < 0) {
+            return null;
+        }
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            return (V) segment.remove(key, hash, null);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    // Removes the entry only while it maps to value
+    public boolean remove(long key, V value) {
+        if (key < 0 || value == null) {
+            return false;
+        }
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            return segment.remove(key, hash, value) != null;
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    // Copy taken one segment at a time: weakly consistent, like ConcurrentHashMap's views
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        for (Segment segment : segments) {
+            long stamp = segment.readLock();
+            try {
+                for (Object value : segment.table.values) {
+                    if (value != null) {
+                        values.add((V) value);
+                    }
+                }
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return values;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            long stamp = segment.writeLock();
+            try {
+                segment.table = new Table(MIN_SEGMENT_CAPACITY);
+                segment.size = 0;
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) hash & segmentMask];
+    }
+
+    // Murmur3 finalizer: sequential keys spread over segments (low bits) and slots (high bits)
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int slotOf(long hash, int mask) {
+        return (int) (hash >>> 32) & mask;
+    }
+
+    // Replaced whole on resize, so an optimistic reader sees matching key and value arrays
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+
+    private static final class Segment extends StampedLock {
+        Table table;
+        volatile int size;
+
+        Segment(int capacity) {
+            this.table = new Table(capacity);
+        }
+
+        // May run without the lock: probes are bounded so a torn view cannot spin, and callers validate
+        Object find(long key, long hash) {
+            Table current = table;
+            long[] keys = current.keys;
+            int mask = keys.length - 1;
+            int slot = slotOf(hash, mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                long probe = keys[slot];
+                if (probe == key) {
+                    return current.values[slot];
+                }
+                if (probe == EMPTY) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        Object put(long key, long hash, Object value, boolean onlyIfAbsent) {
+            if ((size + 1) * 2 > table.keys.length) {
+                resize();
+            }
+            long[] keys = table.keys;
+            int mask = keys.length - 1;
+            int slot = slotOf(hash, mask);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    Object previous = table.values[slot];
+                    if (!onlyIfAbsent) {
+                        table.values[slot] = value;
+                    }
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table.values[slot] = value;
+            keys[slot] = key;
+            size++;
+            return null;
+        }
+
+        // expected null removes whatever the key maps to; returns the removed value, or null
+        Object remove(long key, long hash, Object expected) {
+            long[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = keys.length - 1;
+            int slot = slotOf(hash, mask);
+            while (keys[slot] != key) {
+                if (keys[slot] == EMPTY) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            Object removed = values[slot];
+            if (expected != null && !Objects.equals(expected, removed)) {
+                return null;
+            }
+
+            // Backward shift: pull later entries of the probe run into the gap if their home slot allows it
+            int gap = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                long moved = keys[next];
+                if (moved == EMPTY) {
+                    break;
+                }
+                int home = slotOf(mix(moved), mask);
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = moved;
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = EMPTY;
+            values[gap] = null;
+            size--;
+            return removed;
+        }
+
+        private void resize() {
+            Table old = table;
+            Table grown = new Table(old.keys.length * 2);
+            int mask = grown.keys.length - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                long key = old.keys[i];
+                if (key == EMPTY) {
+                    continue;
+                }
+                int slot = slotOf(mix(key), mask);
+                while (grown.keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                grown.keys[slot] = key;
+                grown.values[slot] = old.values[i];
+            }
+            table = grown;
+        }
+    }
+}
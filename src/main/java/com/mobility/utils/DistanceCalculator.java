@@ -1,5 +1,7 @@
 package com.mobility.utils;
 
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
 import com.mobility.model.Location;
 
 public final class DistanceCalculator {
@@ -16,4 +18,27 @@ public final class DistanceCalculator {
         double deltaLon = from.getLongitude() - to.getLongitude();
         return Math.sqrt(deltaLat * deltaLat + deltaLon * deltaLon);
     }
-}
\ No newline at end of file
+
+    /**
+     * Calculates the distance reported for the given metric: degrees for EUCLIDEAN, metres for HAVERSINE.
+     */
+    public static double calculateDistance(DistanceMetric metric, Location from, Location to) {
+        return switch (metric) {
+            case EUCLIDEAN -> calculateDistance(from, to);
+            case HAVERSINE -> haversineMeters(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+        };
+    }
+
+    /**
+     * Calculates great-circle distance in metres on a spherical Earth.
+     */
+    public static double haversineMeters(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        double fromLat = Math.toRadians(fromLatitude);
+        double toLat = Math.toRadians(toLatitude);
+        double sinHalfLat = Math.sin((toLat - fromLat) / 2);
+        double sinHalfLon = Math.sin(Math.toRadians(toLongitude - fromLongitude) / 2);
+
+        double h = sinHalfLat * sinHalfLat + Math.cos(fromLat) * Math.cos(toLat) * sinHalfLon * sinHalfLon;
+        return 2 * RideMatchingCostants.EARTH_RADIUS_METERS * Math.asin(Math.sqrt(Math.min(1.0, h)));
+    }
+}
@@ -0,0 +1,163 @@
+package com.mobility.utils;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Location;
+
+/**
+ * Ranking distance around one query point, for the candidate comparison loop. Values are squared degrees, with
+ * longitude scaled by cos(query latitude) under HAVERSINE (the equirectangular approximation), so ranking a
+ * candidate costs no square root and no trigonometry. Under HAVERSINE longitude differences go the short way round,
+ * so a candidate just across the antimeridian ranks as near as it is. Only the order is meaningful; report and cut off
+ * distances with {@link #within} or
+ * {@link DistanceCalculator#calculateDistance(DistanceMetric, Location, Location)}.
+ */
+public final class DistanceKernel {
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * RideMatchingCostants.EARTH_RADIUS_METERS;
+
+    private final DistanceMetric metric;
+    private final double latitude;
+    private final double longitude;
+    private final double longitudeScale;
+    private final double unitsPerDegree;
+    private final boolean wrapsLongitude;
+
+    private DistanceKernel(DistanceMetric metric, double latitude, double longitude, double longitudeScale,
+                           double unitsPerDegree, boolean wrapsLongitude) {
+        this.metric = metric;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.longitudeScale = longitudeScale;
+        this.unitsPerDegree = unitsPerDegree;
+        this.wrapsLongitude = wrapsLongitude;
+    }
+
+    public static DistanceKernel around(Location origin, DistanceMetric metric) {
+        if (metric == DistanceMetric.HAVERSINE) {
+            return new DistanceKernel(metric, origin.getLatitude(), origin.getLongitude(),
+                    Math.cos(Math.toRadians(origin.getLatitude())), METERS_PER_DEGREE, true);
+        }
+        // EUCLIDEAN is the planar degree distance, which does not wrap
+        return new DistanceKernel(metric, origin.getLatitude(), origin.getLongitude(), 1.0, 1.0, false);
+    }
+
+    public double originLatitude() {
+        return latitude;
+    }
+
+    public double originLongitude() {
+        return longitude;
+    }
+
+    public double longitudeScale() {
+        return longitudeScale;
+    }
+
+    // Whether longitude differences are taken round the antimeridian when that way is shorter
+    public boolean wrapsLongitude() {
+        return wrapsLongitude;
+    }
+
+    public double rank(double latitude, double longitude) {
+        double deltaLat = latitude - this.latitude;
+        double deltaLon = longitudeDelta(longitude) * longitudeScale;
+        return deltaLat * deltaLat + deltaLon * deltaLon;
+    }
+
+    public double rank(Location location) {
+        return rank(location.getLatitude(), location.getLongitude());
+    }
+
+    // Bounding-box pre-filter: a candidate whose latitude gap alone exceeds the limit is rejected (as infinity)
+    // before its longitude term is computed
+    public double rankWithin(double latitude, double longitude, double limit) {
+        double deltaLat = latitude - this.latitude;
+        double latitudePart = deltaLat * deltaLat;
+        if (latitudePart > limit) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double deltaLon = longitudeDelta(longitude) * longitudeScale;
+        return latitudePart + deltaLon * deltaLon;
+    }
+
+    // Exact test against a distance in the metric's reported units, for the cut-off the approximate rank cannot make
+    public boolean within(double latitude, double longitude, double distance) {
+        double exact = metric == DistanceMetric.HAVERSINE
+                ? DistanceCalculator.haversineMeters(this.latitude, this.longitude, latitude, longitude)
+                : Math.sqrt(rank(latitude, longitude));
+        return exact <= distance;
+    }
+
+    private double longitudeDelta(double longitude) {
+        double delta = longitude - this.longitude;
+        if (wrapsLongitude && Math.abs(delta) > 180) {
+            delta -= Math.copySign(360, delta);
+        }
+        return delta;
+    }
+
+    // Signed offsets from the query point in degrees, for axis-aligned pruning
+    public double latitudeOffset(double latitude) {
+        return this.latitude - latitude;
+    }
+
+    public double longitudeOffset(double longitude) {
+        return this.longitude - longitude;
+    }
+
+    // Degrees of longitude from the query point round the antimeridian to the far side of a meridian at the given
+    // offset (infinite when longitude does not wrap). Pruning by the offset alone would miss that way round.
+    public double antimeridianDistance(double longitudeOffset) {
+        if (!wrapsLongitude) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return longitudeOffset >= 0 ? 180 - longitude : 180 + longitude;
+    }
+
+    // Rank of a point at the given distance in the metric's reported units (equirectangular under HAVERSINE)
+    public double rankLimit(double distance) {
+        double degrees = distance / unitsPerDegree;
+        return degrees * degrees;
+    }
+
+    // A rank no point within the distance exceeds, to pre-filter candidates before the exact test of within().
+    // Under HAVERSINE it is the corner of the bounding box of the spherical cap, or covers every longitude once the
+    // cap reaches a pole.
+    public double rankBound(double distance) {
+        if (distance == Double.POSITIVE_INFINITY) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double degrees = distance / unitsPerDegree;
+        // Leaves room for rounding in the rank of a point right on the distance
+        double margin = 1 + 1e-9;
+        if (metric != DistanceMetric.HAVERSINE) {
+            return degrees * degrees * margin;
+        }
+        double longitudeDegrees;
+        if (Math.abs(latitude) + degrees >= 90) {
+            longitudeDegrees = 180;
+        } else {
+            double radians = Math.toRadians(degrees);
+            longitudeDegrees = Math.toDegrees(Math.asin(Math.sin(radians) / Math.cos(Math.toRadians(latitude))));
+        }
+        double scaled = longitudeDegrees * longitudeScale;
+        return (degrees * degrees + scaled * scaled) * margin;
+    }
+
+    // Lowest rank of any point at least this many degrees away in latitude
+    public double latitudeGap(double degrees) {
+        return degrees * degrees;
+    }
+
+    // Lowest rank of any point at least this many degrees away in longitude
+    public double longitudeGap(double degrees) {
+        double scaled = degrees * longitudeScale;
+        return scaled * scaled;
+    }
+
+    // Lowest rank of any point at least this many degrees away along either axis
+    public double gap(double degrees) {
+        return Math.min(latitudeGap(degrees), longitudeGap(degrees));
+    }
+}
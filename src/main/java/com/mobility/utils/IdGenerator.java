@@ -4,19 +4,116 @@ import com.mobility.constants.RideMatchingCostants;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Ride IDs are issued as long keys: the issuing origin in the top bits (0 for a standalone service, node + 1 for a
+ * cluster node) and a sequence below. The string form, RIDE-&lt;sequence&gt; or N&lt;node&gt;-RIDE-&lt;sequence&gt;,
+ * is only built at the API edge and parses back to the same key.
+ * Each instance is the sequence of one origin, owned by the service issuing its rides (or shared by services that
+ * issue under one origin, like the shards of a sharded service), so restoring or clearing one service never moves
+ * the IDs of another.
+ */
 public final class IdGenerator {
 
-    private static final AtomicLong counter = new AtomicLong(0);
+    public static final int STANDALONE_ORIGIN = 0;
 
-    private IdGenerator() {
-        throw new AssertionError("Cannot instantiate utility class");
+    private static final int SEQUENCE_BITS = 47;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_ORIGIN = (1 << (Long.SIZE - 1 - SEQUENCE_BITS)) - 1;
+
+    private final long originBits;
+    private final AtomicLong counter;
+
+    public IdGenerator(int origin) {
+        if (origin < 0 || origin > MAX_ORIGIN) {
+            throw new IllegalArgumentException("Ride ID origin must be between 0 and " + MAX_ORIGIN);
+        }
+        this.originBits = (long) origin << SEQUENCE_BITS;
+        this.counter = new AtomicLong();
+    }
+
+    public int getOrigin() {
+        return (int) (originBits >>> SEQUENCE_BITS);
+    }
+
+    public long nextRideKey() {
+        return originBits | counter.incrementAndGet();
+    }
+
+    // The last sequence number issued
+    public long currentSequence() {
+        return counter.get();
+    }
+
+    // Makes later IDs come after one already issued, e.g. a ride recovered from a journal
+    public void advancePast(long sequence) {
+        counter.accumulateAndGet(sequence, Math::max);
     }
 
-    public static String generateRideId() {
-        return RideMatchingCostants.RIDE_ID_PREFIX + counter.incrementAndGet();
+    // The origin of rides issued by a cluster node
+    public static int nodeOrigin(int node) {
+        return node + 1;
+    }
+
+    public static int originOf(long rideKey) {
+        return (int) (rideKey >>> SEQUENCE_BITS);
+    }
+
+    public static long sequenceOf(long rideKey) {
+        return rideKey & SEQUENCE_MASK;
+    }
+
+    public static String formatRideId(long rideKey) {
+        int origin = originOf(rideKey);
+        if (origin == STANDALONE_ORIGIN) {
+            return RideMatchingCostants.RIDE_ID_PREFIX + sequenceOf(rideKey);
+        }
+        return RideMatchingCostants.CLUSTER_RIDE_ID_PREFIX + (origin - 1) + "-"
+                + RideMatchingCostants.RIDE_ID_PREFIX + sequenceOf(rideKey);
+    }
+
+    // The key of a generated ride ID, or -1 for any other string. Does not allocate.
+    public static long parseRideId(String rideId) {
+        if (rideId == null) {
+            return -1;
+        }
+
+        int position = 0;
+        long origin = STANDALONE_ORIGIN;
+        String clusterPrefix = RideMatchingCostants.CLUSTER_RIDE_ID_PREFIX;
+        if (rideId.startsWith(clusterPrefix)) {
+            int dash = rideId.indexOf('-', clusterPrefix.length());
+            long node = parseNumber(rideId, clusterPrefix.length(), dash, MAX_ORIGIN - 1);
+            if (node < 0) {
+                return -1;
+            }
+            origin = node + 1;
+            position = dash + 1;
+        }
+
+        if (!rideId.startsWith(RideMatchingCostants.RIDE_ID_PREFIX, position)) {
+            return -1;
+        }
+        long sequence = parseNumber(rideId, position + RideMatchingCostants.RIDE_ID_PREFIX.length(), rideId.length(),
+                SEQUENCE_MASK);
+        return sequence < 0 ? -1 : origin << SEQUENCE_BITS | sequence;
     }
 
-    public static void reset() {
-        counter.set(0);
+    // Decimal digits in [from, to) without leading zeros, or -1 if they are not a number up to max
+    private static long parseNumber(String value, int from, int to, long max) {
+        if (to <= from || (value.charAt(from) == '0' && to - from > 1)) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = from; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+            if (number > max) {
+                return -1;
+            }
+        }
+        return number;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+package com.mobility.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: a timeout is linked into the bucket of the tick it falls due in, modulo the wheel size, so
+ * scheduling and cancelling are O(1) whatever the number pending, and each tick only walks one bucket. Timeouts more
+ * than a revolution away share the bucket and are skipped until their own tick. Deadlines are rounded up to the
+ * tick, so a timeout never fires early and fires at most a tick late if the wheel is advanced every tick.
+ * Any thread may schedule or cancel; one thread at a time advances the wheel.
+ */
+public class TimerWheel<T> {
+
+    private final Bucket<T>[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final long startNanos;
+    private final ReentrantLock advanceLock;
+    private final AtomicInteger pending;
+    // Next tick to sweep, and the time of the last advance
+    private volatile long currentTick;
+    private volatile long now;
+
+    // bucketCount is rounded up to a power of two; times are System.nanoTime-style and need only be consistent
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickNanos, int bucketCount, long startNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("Bucket count must be positive");
+        }
+
+        int count = Integer.highestOneBit(bucketCount * 2 - 1);
+        this.buckets = new Bucket[count];
+        for (int i = 0; i < count; i++) {
+            buckets[i] = new Bucket<>();
+        }
+        this.mask = count - 1;
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        this.advanceLock = new ReentrantLock();
+        this.pending = new AtomicInteger();
+        this.now = startNanos;
+    }
+
+    // Runs the task through advance once delayNanos have passed since the last advance
+    public Timeout<T> schedule(T task, long delayNanos) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null");
+        }
+        if (delayNanos < 0) {
+            throw new IllegalArgumentException("Delay cannot be negative");
+        }
+
+        long elapsed = now - startNanos + delayNanos;
+        Timeout<T> timeout = new Timeout<>(this, task, (elapsed + tickNanos - 1) / tickNanos);
+        while (true) {
+            // Never behind the sweep: a deadline already due goes into the next tick swept
+            long deadline = Math.max(timeout.deadlineTick, currentTick);
+            Bucket<T> bucket = buckets[(int) deadline & mask];
+            synchronized (bucket) {
+                if (bucket.sweptThrough < deadline) {
+                    timeout.deadlineTick = deadline;
+                    bucket.link(timeout);
+                    pending.incrementAndGet();
+                    return timeout;
+                }
+            }
+            // Swept past the deadline while it was computed; currentTick moves on as soon as that sweep ends
+            Thread.onSpinWait();
+        }
+    }
+
+    // Sweeps every tick up to nowNanos and hands each timeout that fell due to expired, outside the bucket locks, so
+    // it may schedule again. Returns the number expired.
+    public int advance(long nowNanos, Consumer<? super T> expired) {
+        advanceLock.lock();
+        try {
+            if (nowNanos - now > 0) {
+                now = nowNanos;
+            }
+            long target = (now - startNanos) / tickNanos;
+            long from = currentTick;
+            if (target < from) {
+                return 0;
+            }
+            // After a long pause one revolution covers every bucket
+            if (target - from > mask) {
+                from = target - mask;
+            }
+
+            int count = 0;
+            List<T> due = new ArrayList<>();
+            for (long tick = from; tick <= target; tick++) {
+                Bucket<T> bucket = buckets[(int) tick & mask];
+                synchronized (bucket) {
+                    bucket.sweep(target, due);
+                }
+                pending.addAndGet(-due.size());
+                for (T task : due) {
+                    expired.accept(task);
+                }
+                count += due.size();
+                due.clear();
+            }
+            currentTick = target + 1;
+            return count;
+        } finally {
+            advanceLock.unlock();
+        }
+    }
+
+    // Time of the last advance: a clock that costs a volatile read, accurate to the tick
+    public long now() {
+        return now;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    // Scheduled and neither expired nor cancelled
+    public int size() {
+        return pending.get();
+    }
+
+    // Drops every pending timeout without running it
+    public void clear() {
+        for (Bucket<T> bucket : buckets) {
+            synchronized (bucket) {
+                int dropped = bucket.clear();
+                pending.addAndGet(-dropped);
+            }
+        }
+    }
+
+    /**
+     * A scheduled task: an intrusive node of its bucket's doubly linked list, guarded by the bucket's monitor.
+     */
+    public static final class Timeout<T> {
+        private final TimerWheel<T> wheel;
+        private final T task;
+        private long deadlineTick;
+        // Null once unlinked; read without the lock only to find which monitor to take
+        private volatile Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(TimerWheel<T> wheel, T task, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        // Returns false if the timeout already expired or was cancelled
+        public boolean cancel() {
+            Bucket<T> current = bucket;
+            if (current == null) {
+                return false;
+            }
+            synchronized (current) {
+                // Unlinked between the read and the lock
+                if (bucket != current) {
+                    return false;
+                }
+                current.unlink(this);
+            }
+            wheel.pending.decrementAndGet();
+            return true;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        // Highest tick this bucket has been swept for; a timeout due at or before it would never be seen
+        private long sweptThrough = -1;
+
+        void link(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void unlink(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        void sweep(long throughTick, List<T> due) {
+            Timeout<T> timeout = head;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.deadlineTick <= throughTick) {
+                    unlink(timeout);
+                    due.add(timeout.task);
+                }
+                timeout = next;
+            }
+            sweptThrough = throughTick;
+        }
+
+        int clear() {
+            int dropped = 0;
+            while (head != null) {
+                unlink(head);
+                dropped++;
+            }
+            return dropped;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.mobility.cluster;
+
+import com.mobility.cluster.ClusterMessage.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCodecTest {
+
+    private static final DriverState DRIVER = new DriverState("D1", "John", 40.75, -74.00, false);
+
+    @Test
+    void roundTripPreservesEveryMessageType() throws IOException {
+        List<ClusterMessage> messages = List.of(
+                new RegisterDriver(DRIVER),
+                new HandOffDriver("D1", 40.76, -73.99),
+                new ReleaseDriver("D1"),
+                new LocateDriver("D1"),
+                new AdoptDriver(DRIVER),
+                new DetachDriver("D1"),
+                new MoveDriver("D1", 40.76, -73.99),
+                new FreeDriver("D1"),
+                new FetchDriver("D1"),
+                new ClaimDriver("R1", 40.75, -74.00, "D1"),
+                new RequestRide("R1", 40.75, -74.00),
+                new CompleteRide("N1-RIDE-7"),
+                new CancelRide("N1-RIDE-8"),
+                new FindNearest(40.75, -74.00, 10, Double.POSITIVE_INFINITY),
+                new ListAvailable(),
+                new CountEntries(),
+                new ClearNode(),
+                new HandOffProgress(),
+                new Ack(),
+                new Flag(true),
+                new Found(DRIVER),
+                new Missing(),
+                new Drivers(List.of(DRIVER, new DriverState("D2", "Jane", 40.71, -74.01, true))),
+                new DriverIds(List.of("D1", "D2")),
+                new RideGranted("N1-RIDE-7", "R1", 40.75, -74.00, DRIVER),
+                new Counts(12, 3),
+                new Progress(9, 8),
+                new Failure(FailureKind.INVALID_RIDE_STATE, "COMPLETED"));
+
+        for (ClusterMessage message : messages) {
+            assertEquals(message, roundTrip(message));
+        }
+    }
+
+    @Test
+    void roundTripPreservesLocationBatch() throws IOException {
+        MoveDrivers moves = new MoveDrivers(List.of("D1", "D2"), new double[]{40.75, 40.76}, new double[]{-74.00, -73.99});
+
+        MoveDrivers decoded = (MoveDrivers) roundTrip(moves);
+
+        assertEquals(moves.driverIds(), decoded.driverIds());
+        assertArrayEquals(moves.latitudes(), decoded.latitudes());
+        assertArrayEquals(moves.longitudes(), decoded.longitudes());
+    }
+
+    @Test
+    void messagesReadBackToBackFromOneStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        MessageCodec.write(out, new ReleaseDriver("D1"));
+        MessageCodec.write(out, new Counts(1, 2));
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(new ReleaseDriver("D1"), MessageCodec.read(in));
+        assertEquals(new Counts(1, 2), MessageCodec.read(in));
+        assertThrows(EOFException.class, () -> MessageCodec.read(in));
+    }
+
+    @Test
+    void readUnknownTagThrowsIOException() {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(new byte[]{(byte) 99}));
+
+        assertThrows(IOException.class, () -> MessageCodec.read(in));
+    }
+
+    private static ClusterMessage roundTrip(ClusterMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageCodec.write(new DataOutputStream(bytes), message);
+        return MessageCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
@@ -0,0 +1,145 @@
+package com.mobility.cluster;
+
+import com.mobility.cluster.ClusterMessage.*;
+import com.mobility.exception.NodeUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocketTransportTest {
+
+    private List<InetSocketAddress> addresses;
+    private List<SocketTransport> transports;
+
+    @BeforeEach
+    void setup() throws IOException {
+        addresses = freeLoopbackAddresses(2);
+        transports = new ArrayList<>();
+    }
+
+    @AfterEach
+    void teardown() {
+        transports.forEach(SocketTransport::close);
+    }
+
+    @Test
+    void sendDeliversRequestAndReturnsReply() {
+        SocketTransport caller = start(0, request -> new Ack());
+        start(1, request -> request instanceof LocateDriver locate
+                ? new Found(new DriverState(locate.driverId(), "John", 40.75, -74.00, true))
+                : new Missing());
+
+        assertEquals(new Found(new DriverState("D1", "John", 40.75, -74.00, true)),
+                caller.send(1, new LocateDriver("D1")));
+        assertEquals(new Missing(), caller.send(1, new ListAvailable()));
+    }
+
+    @Test
+    void concurrentSendsEachGetTheirOwnReply() throws Exception {
+        SocketTransport caller = start(0, request -> new Ack());
+        start(1, request -> new Flag(((ReleaseDriver) request).driverId().endsWith("7")));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        assertEquals(new Flag(i % 10 == 7), caller.send(1, new ReleaseDriver("D" + i)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sendToStoppedNodeThrowsNodeUnavailable() {
+        SocketTransport caller = start(0, request -> new Ack());
+
+        NodeUnavailableException e = assertThrows(NodeUnavailableException.class,
+                () -> caller.send(1, new CountEntries()));
+        assertEquals(1, e.getNodeId());
+    }
+
+    @Test
+    void slowReplyTimesOutAsNodeUnavailable() throws Exception {
+        SocketTransport caller = new SocketTransport(0, addresses, 200);
+        transports.add(caller);
+        caller.start(request -> new Ack());
+        CountDownLatch release = new CountDownLatch(1);
+        start(1, request -> {
+            if (request instanceof LocateDriver) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Missing();
+            }
+            return new Ack();
+        });
+
+        try {
+            NodeUnavailableException e = assertThrows(NodeUnavailableException.class,
+                    () -> caller.send(1, new LocateDriver("D1")));
+            assertInstanceOf(SocketTimeoutException.class, e.getCause());
+        } finally {
+            release.countDown();
+        }
+        // The timed-out connection is dropped, so its late reply never answers a later request
+        assertEquals(new Ack(), caller.send(1, new CountEntries()));
+        assertThrows(IllegalArgumentException.class, () -> new SocketTransport(0, addresses, 0));
+    }
+
+    @Test
+    void parseAddressesKeepsNodeOrder() {
+        assertEquals(List.of(new InetSocketAddress("127.0.0.1", 7100), new InetSocketAddress("localhost", 7101)),
+                SocketTransport.parseAddresses("127.0.0.1:7100, localhost:7101"));
+        assertThrows(IllegalArgumentException.class, () -> SocketTransport.parseAddresses("7100"));
+    }
+
+    private SocketTransport start(int node, Function<ClusterMessage, ClusterMessage> handler) {
+        SocketTransport transport = new SocketTransport(node, addresses);
+        transports.add(transport);
+        transport.start(handler);
+        return transport;
+    }
+
+    // Held open together so the same port is not handed out twice
+    private static List<InetSocketAddress> freeLoopbackAddresses(int count) throws IOException {
+        List<ServerSocket> sockets = new ArrayList<>();
+        try {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                ServerSocket socket = new ServerSocket(0);
+                sockets.add(socket);
+                addresses.add(new InetSocketAddress("127.0.0.1", socket.getLocalPort()));
+            }
+            return addresses;
+        } finally {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.mobility.index;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KdTreeDriverIndexTest {
+
+    private KdTreeDriverIndex index;
+    private LinearScanDriverIndex reference;
+
+    @BeforeEach
+    void setup() {
+        index = new KdTreeDriverIndex();
+        reference = new LinearScanDriverIndex();
+    }
+
+    @Test
+    void findNearestAvailableEmptyIndexReturnsNull() {
+        assertNull(index.findNearestAvailable(new Location(40.75, -74.00)));
+        assertTrue(index.findNearestAvailable(new Location(40.75, -74.00), 3).isEmpty());
+    }
+
+    @Test
+    void removeDropsDriverFromSearch() {
+        Driver driver = new Driver("D1", "John", new Location(40.75, -74.00));
+        index.add(driver);
+
+        index.remove(driver);
+
+        assertNull(index.findNearestAvailable(new Location(40.75, -74.00)));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void skewedFleetMatchesLinearScan() {
+        Random random = new Random(3);
+        List<Driver> drivers = new ArrayList<>();
+
+        // Most of the fleet queues at two hotspots, the rest is spread over the metro
+        for (int i = 0; i < 6_000; i++) {
+            Location location = switch (i % 4) {
+                case 0 -> new Location(40.6413 + random.nextGaussian() * 0.002, -73.7781 + random.nextGaussian() * 0.002);
+                case 1 -> new Location(40.8296 + random.nextGaussian() * 0.001, -73.9262 + random.nextGaussian() * 0.001);
+                default -> new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5);
+            };
+            Driver driver = new Driver("D" + i, "Driver" + i, location);
+            drivers.add(driver);
+            index.add(driver);
+            reference.add(driver);
+        }
+
+        // Enough moves to trigger rebuilds while leaving some drivers pending
+        for (int i = 0; i < 3_000; i++) {
+            Driver driver = drivers.get(random.nextInt(drivers.size()));
+            driver.setCurrentLocation(new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5));
+            index.update(driver);
+        }
+
+        // GPS jitter small enough to keep drivers in their tree slots
+        for (int i = 0; i < 3_000; i++) {
+            Driver driver = drivers.get(random.nextInt(drivers.size()));
+            Location location = driver.getCurrentLocation();
+            driver.updateLocation(location.getLatitude() + (random.nextDouble() - 0.5) * 0.001,
+                    location.getLongitude() + (random.nextDouble() - 0.5) * 0.001);
+            index.update(driver);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            drivers.get(random.nextInt(drivers.size())).markAsUnavailable();
+        }
+
+        for (int i = 0; i < 200; i++) {
+            Location query = i % 2 == 0
+                    ? new Location(40.6413 + random.nextGaussian() * 0.003, -73.7781 + random.nextGaussian() * 0.003)
+                    : new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5);
+
+            assertEquals(reference.findNearestAvailable(query, 10), index.findNearestAvailable(query, 10));
+            assertEquals(reference.findNearestAvailable(query), index.findNearestAvailable(query));
+        }
+        assertEquals(6_000, index.size());
+    }
+
+    @Test
+    void concurrentUpdatesKeepEveryDriverSearchable() throws Exception {
+        int driverCount = 4_000;
+        List<Driver> drivers = new ArrayList<>();
+        for (int i = 0; i < driverCount; i++) {
+            Driver driver = new Driver("D" + i, "Driver" + i, new Location(40.0 + i * 0.0001, -74.0));
+            drivers.add(driver);
+            index.add(driver);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch latch = new CountDownLatch(8);
+
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            executor.submit(() -> {
+                try {
+                    Random random = new Random(offset);
+                    for (int i = offset; i < driverCount; i += 8) {
+                        Driver driver = drivers.get(i);
+                        driver.setCurrentLocation(new Location(41.0 + random.nextDouble(), -73.0 + random.nextDouble()));
+                        index.update(driver);
+                        index.findNearestAvailable(driver.getCurrentLocation(), 5);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        for (Driver driver : drivers) {
+            assertEquals(driver, index.findNearestAvailable(driver.getCurrentLocation()));
+        }
+    }
+
+    @Test
+    void addLeavesOutUnavailableDrivers() {
+        Driver idle = new Driver("D1", "Idle", new Location(40.75, -74.00));
+        Driver busy = new Driver("D2", "Busy", new Location(40.75, -74.00));
+        busy.markAsUnavailable();
+        index.add(idle);
+        index.add(busy);
+
+        assertTrue(index.contains(idle));
+        assertFalse(index.contains(busy));
+        assertEquals(List.of(idle), index.availableDrivers());
+
+        // A busy driver's GPS pings must not bring it back
+        busy.updateLocation(40.76, -74.01);
+        index.update(busy);
+        assertFalse(index.contains(busy));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void removeIgnoresReplacedInstance() {
+        Driver original = new Driver("D1", "John", new Location(40.75, -74.00));
+        Driver replacement = new Driver("D1", "John", new Location(40.76, -74.01));
+        index.add(original);
+        index.add(replacement);
+
+        index.remove(original);
+
+        assertTrue(index.contains(replacement));
+        assertFalse(index.contains(original));
+    }
+
+    @Test
+    void findNearestAvailableHaversineMatchesLinearScan() {
+        KdTreeDriverIndex haversine = new KdTreeDriverIndex(DistanceMetric.HAVERSINE);
+        LinearScanDriverIndex reference = new LinearScanDriverIndex(DistanceMetric.HAVERSINE);
+        Random random = new Random(11);
+
+        for (int i = 0; i < 2_000; i++) {
+            Driver driver = new Driver("D" + i, "Driver" + i, new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5));
+            haversine.add(driver);
+            reference.add(driver);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            Location query = new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5);
+            assertEquals(reference.findNearestAvailable(query, 10), haversine.findNearestAvailable(query, 10));
+        }
+    }
+
+    @Test
+    void addDoesNotWaitForRebuild() throws Exception {
+        Thread caller = Thread.currentThread();
+        CountDownLatch rebuilding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Parks whichever other thread reads it, which only the rebuild does
+        Driver slow = new Driver("D0", "Slow", new Location(40.75, -74.00)) {
+            @Override
+            public Location getCurrentLocation() {
+                if (Thread.currentThread() != caller) {
+                    rebuilding.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getCurrentLocation();
+            }
+        };
+        index.add(slow);
+
+        try {
+            int driverCount = RideMatchingCostants.KD_TREE_MIN_REBUILD_THRESHOLD * 2;
+            for (int i = 1; i < driverCount; i++) {
+                index.add(new Driver("D" + i, "Driver" + i, new Location(40.0 + i * 0.0001, -74.0)));
+            }
+            assertTrue(rebuilding.await(5, TimeUnit.SECONDS));
+
+            // Still adding and searching while the rebuild is parked
+            assertEquals(driverCount, index.size());
+            assertEquals(slow, index.findNearestAvailable(new Location(40.75, -74.00)));
+            assertEquals(driverCount, index.findNearestAvailable(new Location(40.0, -74.0), driverCount).size());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void findNearestAvailableHaversineMatchesLinearScanAcrossAntimeridian() {
+        KdTreeDriverIndex haversine = new KdTreeDriverIndex(DistanceMetric.HAVERSINE);
+        LinearScanDriverIndex reference = new LinearScanDriverIndex(DistanceMetric.HAVERSINE);
+        Random random = new Random(13);
+
+        // Fiji, half either side of the antimeridian
+        for (int i = 0; i < 2_000; i++) {
+            Driver driver = new Driver("D" + i, "Driver" + i, new Location(-17.5 + random.nextDouble(), wrap(179.5 + random.nextDouble())));
+            haversine.add(driver);
+            reference.add(driver);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            Location query = new Location(-17.5 + random.nextDouble(), wrap(179.5 + random.nextDouble()));
+            assertEquals(reference.findNearestAvailable(query, 10), haversine.findNearestAvailable(query, 10));
+        }
+    }
+
+    @Test
+    void findNearestAvailableKeepsDriverExactlyOnMaxDistance() {
+        for (DistanceMetric metric : DistanceMetric.values()) {
+            KdTreeDriverIndex tree = new KdTreeDriverIndex(metric);
+            Location pickup = new Location(40.75, -74.00);
+            Driver edge = new Driver("D1", "John", new Location(40.80, -73.93));
+            tree.add(edge);
+            tree.add(new Driver("D2", "Jane", new Location(40.90, -73.80)));
+            double distance = DistanceCalculator.calculateDistance(metric, pickup, edge.getCurrentLocation());
+
+            assertEquals(List.of(edge), tree.findNearestAvailable(pickup, 5, distance), metric.name());
+            assertEquals(List.of(), tree.findNearestAvailable(pickup, 5, Math.nextDown(distance)), metric.name());
+        }
+    }
+
+    private static double wrap(double longitude) {
+        return longitude > 180 ? longitude - 360 : longitude;
+    }
+}
@@ -0,0 +1,57 @@
+package com.mobility.index;
+
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearestCandidatesTest {
+
+    private static Driver driver(String id) {
+        return new Driver(id, "Driver" + id, new Location(40.75, -74.00));
+    }
+
+    @Test
+    void toSortedListKeepsClosestInOrder() {
+        NearestCandidates best = new NearestCandidates(2);
+        Driver far = driver("D1");
+        Driver near = driver("D2");
+        Driver middle = driver("D3");
+
+        best.offer(far, 3.0);
+        best.offer(near, 1.0);
+        best.offer(middle, 2.0);
+
+        assertEquals(List.of(near, middle), best.toSortedList());
+        assertEquals(2.0, best.worstDistance());
+    }
+
+    @Test
+    void offerBreaksTiesByDriverId() {
+        NearestCandidates best = new NearestCandidates(2);
+        Driver c = driver("C");
+        Driver a = driver("A");
+        Driver b = driver("B");
+
+        best.offer(c, 1.0);
+        best.offer(a, 1.0);
+        best.offer(b, 1.0);
+
+        assertEquals(List.of(a, b), best.toSortedList());
+    }
+
+    @Test
+    void offerBeyondLimitIsDropped() {
+        NearestCandidates best = new NearestCandidates(5, 2.0);
+        Driver inside = driver("D1");
+
+        best.offer(inside, 2.0);
+        best.offer(driver("D2"), 2.5);
+
+        assertEquals(List.of(inside), best.toSortedList());
+        assertEquals(2.0, best.worstDistance(), "Limit bounds the search while there is still room");
+    }
+}
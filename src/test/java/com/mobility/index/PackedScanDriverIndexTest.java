@@ -0,0 +1,191 @@
+package com.mobility.index;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedScanDriverIndexTest {
+
+    private PackedScanDriverIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new PackedScanDriverIndex();
+    }
+
+    @Test
+    void constructorUsesVectorScannerWhenModuleIsPresent() {
+        // Surefire runs with --add-modules jdk.incubator.vector
+        assertTrue(index.isVectorized());
+        assertFalse(new PackedScanDriverIndex(DistanceMetric.EUCLIDEAN, new ScalarCandidateScanner(), Integer.MAX_VALUE).isVectorized());
+    }
+
+    @Test
+    void findNearestAvailableEmptyIndexReturnsNull() {
+        assertNull(index.findNearestAvailable(new Location(40.75, -74.00)));
+        assertTrue(index.findNearestAvailable(new Location(40.75, -74.00), 3).isEmpty());
+    }
+
+    @Test
+    void removeMovesLastDriverIntoFreedSlot() {
+        Driver first = new Driver("D1", "First", new Location(40.75, -74.00));
+        Driver second = new Driver("D2", "Second", new Location(40.80, -74.00));
+        Driver third = new Driver("D3", "Third", new Location(40.85, -74.00));
+        index.add(first);
+        index.add(second);
+        index.add(third);
+
+        index.remove(first);
+        third.updateLocation(40.70, -74.00);
+        index.update(third);
+
+        assertEquals(2, index.size());
+        assertFalse(index.contains(first));
+        assertEquals(third, index.findNearestAvailable(new Location(40.70, -74.00)));
+        assertEquals(second, index.findNearestAvailable(new Location(40.80, -74.00)));
+    }
+
+    @Test
+    void addLeavesOutUnavailableDrivers() {
+        Driver idle = new Driver("D1", "Idle", new Location(40.75, -74.00));
+        Driver busy = new Driver("D2", "Busy", new Location(40.75, -74.00));
+        busy.markAsUnavailable();
+        index.add(idle);
+        index.add(busy);
+
+        busy.updateLocation(40.76, -74.01);
+        index.update(busy);
+
+        assertEquals(List.of(idle), index.availableDrivers());
+        assertFalse(index.contains(busy));
+    }
+
+    @Test
+    void findNearestAvailableGrowsPastInitialCapacity() {
+        for (int i = 0; i < 5_000; i++) {
+            index.add(new Driver("D" + i, "Driver" + i, new Location(40.0 + i * 0.0001, -74.0)));
+        }
+
+        assertEquals(5_000, index.size());
+        assertEquals("D4999", index.findNearestAvailable(new Location(41.0, -74.0)).getDriverId());
+    }
+
+    @ParameterizedTest
+    @EnumSource(DistanceMetric.class)
+    void findNearestAvailableMatchesLinearScan(DistanceMetric metric) {
+        PackedScanDriverIndex packed = new PackedScanDriverIndex(metric);
+        LinearScanDriverIndex reference = new LinearScanDriverIndex(metric);
+        Random random = new Random(5);
+
+        for (int i = 0; i < 3_001; i++) {
+            Driver driver = new Driver("D" + i, "Driver" + i, new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5));
+            packed.add(driver);
+            reference.add(driver);
+            if (random.nextInt(5) == 0) {
+                driver.markAsUnavailable();
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Location query = new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5);
+            assertEquals(reference.findNearestAvailable(query, 10), packed.findNearestAvailable(query, 10));
+        }
+    }
+
+    @Test
+    void findNearestAvailableHaversineMatchesLinearScanAcrossAntimeridian() {
+        PackedScanDriverIndex scalar = new PackedScanDriverIndex(DistanceMetric.HAVERSINE, new ScalarCandidateScanner(), Integer.MAX_VALUE);
+        PackedScanDriverIndex packed = new PackedScanDriverIndex(DistanceMetric.HAVERSINE);
+        LinearScanDriverIndex reference = new LinearScanDriverIndex(DistanceMetric.HAVERSINE);
+        Random random = new Random(13);
+
+        // Fiji, half either side of the antimeridian
+        for (int i = 0; i < 2_001; i++) {
+            double longitude = 179.5 + random.nextDouble();
+            Driver driver = new Driver("D" + i, "Driver" + i, new Location(-17.5 + random.nextDouble(), longitude > 180 ? longitude - 360 : longitude));
+            scalar.add(driver);
+            packed.add(driver);
+            reference.add(driver);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            double longitude = 179.5 + random.nextDouble();
+            Location query = new Location(-17.5 + random.nextDouble(), longitude > 180 ? longitude - 360 : longitude);
+            List<Driver> expected = reference.findNearestAvailable(query, 10);
+            assertEquals(expected, packed.findNearestAvailable(query, 10));
+            assertEquals(expected, scalar.findNearestAvailable(query, 10));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(DistanceMetric.class)
+    void findNearestAvailableKeepsDriverExactlyOnMaxDistance(DistanceMetric metric) {
+        PackedScanDriverIndex packed = new PackedScanDriverIndex(metric);
+        Location pickup = new Location(40.75, -74.00);
+        Driver edge = new Driver("D1", "John", new Location(40.80, -73.93));
+        packed.add(edge);
+        packed.add(new Driver("D2", "Jane", new Location(40.90, -73.80)));
+        double distance = DistanceCalculator.calculateDistance(metric, pickup, edge.getCurrentLocation());
+
+        assertEquals(List.of(edge), packed.findNearestAvailable(pickup, 5, distance));
+        assertEquals(List.of(), packed.findNearestAvailable(pickup, 5, Math.nextDown(distance)));
+    }
+
+    @Test
+    void vectorAndScalarScannersAgreeIncludingTies() {
+        PackedScanDriverIndex scalar = new PackedScanDriverIndex(DistanceMetric.EUCLIDEAN, new ScalarCandidateScanner(), Integer.MAX_VALUE);
+        Random random = new Random(9);
+
+        // A taxi rank: many drivers share a handful of exact positions
+        for (int i = 0; i < 1_003; i++) {
+            Driver driver = new Driver("D" + i, "Driver" + i, new Location(40.6413 + random.nextInt(10) * 0.0001, -73.7781));
+            index.add(driver);
+            scalar.add(driver);
+        }
+
+        Location pickup = new Location(40.6413, -73.7781);
+        for (int count : new int[]{1, 7, 50, 2_000}) {
+            assertEquals(scalar.findNearestAvailable(pickup, count), index.findNearestAvailable(pickup, count));
+        }
+    }
+
+    @Test
+    void parallelScanMatchesSequentialScan() {
+        PackedScanDriverIndex parallel = new PackedScanDriverIndex(DistanceMetric.EUCLIDEAN, 1);
+        PackedScanDriverIndex sequential = new PackedScanDriverIndex(DistanceMetric.EUCLIDEAN, Integer.MAX_VALUE);
+        Random random = new Random(13);
+
+        // Several chunks' worth, with ties spread across chunk boundaries
+        for (int i = 0; i < 40_000; i++) {
+            Location location = i % 10 == 0
+                    ? new Location(40.6413 + random.nextInt(5) * 0.0001, -73.7781)
+                    : new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5);
+            Driver driver = new Driver("D" + i, "Driver" + i, location);
+            parallel.add(driver);
+            sequential.add(driver);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            Location query = i % 2 == 0
+                    ? new Location(40.6413, -73.7781)
+                    : new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5);
+            assertEquals(sequential.findNearestAvailable(query, 25), parallel.findNearestAvailable(query, 25));
+            assertEquals(sequential.findNearestAvailable(query, 25, 0.01), parallel.findNearestAvailable(query, 25, 0.01));
+        }
+    }
+
+    @Test
+    void constructorNonPositiveThresholdThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new PackedScanDriverIndex(DistanceMetric.EUCLIDEAN, 0));
+    }
+}
@@ -0,0 +1,224 @@
+package com.mobility.index;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridIndexTest {
+
+    private SpatialGridIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new SpatialGridIndex();
+    }
+
+    @Test
+    void constructorNonPositiveCellSizeThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new SpatialGridIndex(0));
+    }
+
+    @Test
+    void findNearestAvailableEmptyIndexReturnsNull() {
+        assertNull(index.findNearestAvailable(new Location(40.75, -74.00)));
+        assertTrue(index.findNearestAvailable(new Location(40.75, -74.00), 3).isEmpty());
+    }
+
+    @Test
+    void findNearestAvailableSkipsUnavailableDrivers() {
+        Driver near = new Driver("D1", "Near", new Location(40.750, -74.000));
+        Driver far = new Driver("D2", "Far", new Location(40.900, -74.200));
+        index.add(near);
+        index.add(far);
+
+        near.markAsUnavailable();
+
+        assertEquals(far, index.findNearestAvailable(new Location(40.751, -74.001)));
+    }
+
+    @Test
+    void updateMovesDriverToNewCell() {
+        Driver driver = new Driver("D1", "John", new Location(40.75, -74.00));
+        Driver other = new Driver("D2", "Jane", new Location(41.00, -74.00));
+        index.add(driver);
+        index.add(other);
+
+        driver.setCurrentLocation(new Location(10.00, 10.00));
+        index.update(driver);
+
+        assertEquals(other, index.findNearestAvailable(new Location(40.75, -74.00)));
+        assertEquals(driver, index.findNearestAvailable(new Location(10.01, 10.01)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void removeDropsDriverFromSearch() {
+        Driver driver = new Driver("D1", "John", new Location(40.75, -74.00));
+        index.add(driver);
+
+        index.remove(driver);
+
+        assertNull(index.findNearestAvailable(new Location(40.75, -74.00)));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void findNearestAvailableHandlesGridEdges() {
+        Driver north = new Driver("D1", "North", new Location(90.00, 180.00));
+        Driver south = new Driver("D2", "South", new Location(-90.00, -180.00));
+        index.add(north);
+        index.add(south);
+
+        assertEquals(north, index.findNearestAvailable(new Location(89.00, 179.00)));
+        assertEquals(south, index.findNearestAvailable(new Location(-89.00, -179.00)));
+    }
+
+    @Test
+    void findNearestAvailableMatchesLinearScan() {
+        Random random = new Random(7);
+        List<Driver> drivers = new ArrayList<>();
+
+        for (int i = 0; i < 2_000; i++) {
+            Driver driver = new Driver("D" + i, "Driver" + i, new Location(40.0 + random.nextDouble(), -74.0 + random.nextDouble()));
+            if (random.nextInt(4) == 0) {
+                driver.markAsUnavailable();
+            }
+            drivers.add(driver);
+            index.add(driver);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            Location query = new Location(39.8 + random.nextDouble() * 1.4, -74.2 + random.nextDouble() * 1.4);
+
+            List<String> expected = drivers.stream()
+                    .filter(Driver::isAvailable)
+                    .sorted(Comparator.comparingDouble(d -> d.getCurrentLocation().distanceTo(query)))
+                    .limit(10)
+                    .map(Driver::getDriverId)
+                    .collect(Collectors.toList());
+            List<String> actual = index.findNearestAvailable(query, 10).stream()
+                    .map(Driver::getDriverId)
+                    .collect(Collectors.toList());
+
+            assertEquals(expected, actual);
+            assertEquals(expected.get(0), index.findNearestAvailable(query).getDriverId());
+        }
+    }
+
+    @Test
+    void addLeavesOutUnavailableDrivers() {
+        Driver idle = new Driver("D1", "Idle", new Location(40.75, -74.00));
+        Driver busy = new Driver("D2", "Busy", new Location(40.75, -74.00));
+        busy.markAsUnavailable();
+        index.add(idle);
+        index.add(busy);
+
+        assertTrue(index.contains(idle));
+        assertFalse(index.contains(busy));
+        assertEquals(List.of(idle), index.availableDrivers());
+
+        // A busy driver's GPS pings must not bring it back
+        busy.updateLocation(40.76, -74.01);
+        index.update(busy);
+        assertFalse(index.contains(busy));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void removeIgnoresReplacedInstance() {
+        Driver original = new Driver("D1", "John", new Location(40.75, -74.00));
+        Driver replacement = new Driver("D1", "John", new Location(40.76, -74.01));
+        index.add(original);
+        index.add(replacement);
+
+        index.remove(original);
+
+        assertTrue(index.contains(replacement));
+        assertFalse(index.contains(original));
+    }
+
+    @Test
+    void findNearestAvailableHaversineMatchesLinearScan() {
+        SpatialGridIndex haversine = new SpatialGridIndex(DistanceMetric.HAVERSINE);
+        LinearScanDriverIndex reference = new LinearScanDriverIndex(DistanceMetric.HAVERSINE);
+        Random random = new Random(11);
+
+        for (int i = 0; i < 2_000; i++) {
+            Driver driver = new Driver("D" + i, "Driver" + i, new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5));
+            haversine.add(driver);
+            reference.add(driver);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            Location query = new Location(40.5 + random.nextDouble() * 0.5, -74.2 + random.nextDouble() * 0.5);
+            assertEquals(reference.findNearestAvailable(query, 10), haversine.findNearestAvailable(query, 10));
+        }
+    }
+
+    @Test
+    void findNearestAvailableHaversineMatchesLinearScanAcrossAntimeridian() {
+        SpatialGridIndex haversine = new SpatialGridIndex(DistanceMetric.HAVERSINE);
+        LinearScanDriverIndex reference = new LinearScanDriverIndex(DistanceMetric.HAVERSINE);
+        Random random = new Random(13);
+
+        // Fiji, half either side of the antimeridian
+        for (int i = 0; i < 2_000; i++) {
+            Driver driver = new Driver("D" + i, "Driver" + i, new Location(-17.5 + random.nextDouble(), wrap(179.5 + random.nextDouble())));
+            haversine.add(driver);
+            reference.add(driver);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            Location query = new Location(-17.5 + random.nextDouble(), wrap(179.5 + random.nextDouble()));
+            assertEquals(reference.findNearestAvailable(query, 10), haversine.findNearestAvailable(query, 10));
+        }
+    }
+
+    @Test
+    void findNearestAvailableHaversineWrappedRingsOfferEachDriverOnce() {
+        // 30 degree cells leave 12 columns, so the rings meet round the back of the globe before the search ends
+        SpatialGridIndex haversine = new SpatialGridIndex(30, DistanceMetric.HAVERSINE);
+        Random random = new Random(17);
+
+        for (int i = 0; i < 500; i++) {
+            haversine.add(new Driver("D" + i, "Driver" + i, new Location(-80 + random.nextDouble() * 160, -180 + random.nextDouble() * 360)));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            Location query = new Location(-80 + random.nextDouble() * 160, -180 + random.nextDouble() * 360);
+            List<Driver> found = haversine.findNearestAvailable(query, 500);
+            assertEquals(500, found.size());
+            assertEquals(500, found.stream().map(Driver::getDriverId).distinct().count());
+        }
+    }
+
+    @Test
+    void findNearestAvailableKeepsDriverExactlyOnMaxDistance() {
+        for (DistanceMetric metric : DistanceMetric.values()) {
+            SpatialGridIndex grid = new SpatialGridIndex(metric);
+            Location pickup = new Location(40.75, -74.00);
+            Driver edge = new Driver("D1", "John", new Location(40.80, -73.93));
+            grid.add(edge);
+            grid.add(new Driver("D2", "Jane", new Location(40.90, -73.80)));
+            double distance = DistanceCalculator.calculateDistance(metric, pickup, edge.getCurrentLocation());
+
+            assertEquals(List.of(edge), grid.findNearestAvailable(pickup, 5, distance), metric.name());
+            assertEquals(List.of(), grid.findNearestAvailable(pickup, 5, Math.nextDown(distance)), metric.name());
+        }
+    }
+
+    private static double wrap(double longitude) {
+        return longitude > 180 ? longitude - 360 : longitude;
+    }
+}
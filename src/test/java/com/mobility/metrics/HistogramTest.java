@@ -0,0 +1,82 @@
+package com.mobility.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    void bucketBoundsContainTheValueWithinThreePercent() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1_000, 123_456, 10_000_000_000L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(bucket < Histogram.BUCKETS);
+            assertTrue(Histogram.lowestValueOf(bucket) <= value);
+            assertTrue(Histogram.highestValueOf(bucket) >= value);
+            assertTrue(Histogram.highestValueOf(bucket) - value <= value * 0.032);
+        }
+    }
+
+    @Test
+    void percentilesReportBucketOfRankedValue() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(1_000, snapshot.getCount());
+        assertEquals(500_000, snapshot.getValueAtPercentile(50), 500_000 * 0.032);
+        assertEquals(990_000, snapshot.getValueAtPercentile(99), 990_000 * 0.032);
+        assertEquals(1_000_000, snapshot.getMax(), 1_000_000 * 0.032);
+        assertEquals(500_500, snapshot.getMean(), 500_500 * 0.032);
+    }
+
+    @Test
+    void negativeValuesCountAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+
+        assertEquals(0, histogram.snapshot().getMax());
+        assertEquals(1, histogram.snapshot().getCount());
+    }
+
+    @Test
+    void emptySnapshotReportsZero() {
+        HistogramSnapshot snapshot = new Histogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getMean());
+    }
+
+    @Test
+    void percentileOutOfRangeThrows() {
+        HistogramSnapshot snapshot = new Histogram().snapshot();
+
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(101));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(-1));
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.snapshot().getCount());
+    }
+}
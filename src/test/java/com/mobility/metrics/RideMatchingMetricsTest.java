@@ -0,0 +1,68 @@
+package com.mobility.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideMatchingMetricsTest {
+
+    @Test
+    void recordsCountersAndHistograms() {
+        RideMatchingMetrics metrics = new RideMatchingMetrics();
+
+        metrics.rideMatched(metrics.start(), 5, 2);
+        metrics.noAvailableDriver(metrics.start());
+        metrics.allocationFailed(metrics.start(), 40, 40);
+        metrics.locationUpdated(metrics.start());
+        metrics.locationsUpdated(3);
+        metrics.rideCompleted(metrics.start());
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.rideRequests());
+        assertEquals(1, snapshot.ridesMatched());
+        assertEquals(1, snapshot.noAvailableDriver());
+        assertEquals(1, snapshot.allocationFailures());
+        assertEquals(42, snapshot.lostClaims());
+        assertEquals(4, snapshot.locationUpdates());
+        assertEquals(1, snapshot.rideCompletions());
+        assertEquals(3, snapshot.requestRideLatency().getCount());
+        assertEquals(1, snapshot.updateLocationLatency().getCount());
+        assertEquals(2, snapshot.candidatesScanned().getCount());
+        assertEquals(1, snapshot.claimRetries().getCount());
+        assertEquals(2, snapshot.claimRetries().getMax());
+    }
+
+    @Test
+    void disabledMetricsRecordNothing() {
+        RideMatchingMetrics metrics = new RideMatchingMetrics();
+        metrics.setEnabled(false);
+
+        assertEquals(0, metrics.start());
+        metrics.rideMatched(metrics.start(), 5, 2);
+        metrics.locationUpdated(metrics.start());
+        metrics.locationsUpdated(3);
+        metrics.lockWaited(metrics.start());
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(0, snapshot.rideRequests());
+        assertEquals(0, snapshot.locationUpdates());
+        assertEquals(0, snapshot.lockWaits());
+        assertEquals(0, snapshot.requestRideLatency().getCount());
+    }
+
+    @Test
+    void toMapFlattensHistograms() {
+        RideMatchingMetrics metrics = new RideMatchingMetrics();
+        metrics.rideMatched(metrics.start(), 5, 0);
+
+        Map<String, Long> values = metrics.snapshot().toMap();
+
+        assertEquals(1L, values.get("ridesMatched"));
+        assertEquals(1L, values.get("requestRideLatencyNanos.count"));
+        assertEquals(5L, values.get("candidatesScanned.max"));
+        assertTrue(values.containsKey("lockWaitNanos.p999"));
+        assertEquals(8 + 6 * 7, values.size());
+    }
+}
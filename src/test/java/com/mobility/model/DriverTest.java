@@ -1,6 +1,7 @@
 package com.mobility.model;
 
 
+import com.mobility.store.PositionStore;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -51,6 +52,100 @@ class DriverTest {
         assertThrows(IllegalArgumentException.class, () -> driver.setCurrentLocation(null));
     }
 
+    @Test
+    void updateLocationUnattachedDriverUpdatesLocation() {
+        Driver driver = new Driver("D1", "John", testLocation);
+
+        driver.updateLocation(41.20, -74.70);
+
+        assertEquals(new Location(41.20, -74.70), driver.getCurrentLocation());
+    }
+
+    @Test
+    void updateLocationInvalidCoordinatesThrowsException() {
+        Driver driver = new Driver("D1", "John", testLocation);
+
+        assertThrows(IllegalArgumentException.class, () -> driver.updateLocation(91.00, -74.70));
+        assertEquals(testLocation, driver.getCurrentLocation());
+    }
+
+    @Test
+    void attachToKeepsLocationAndWritesThroughStore() {
+        PositionStore store = new PositionStore();
+        Driver driver = new Driver("D1", "John", testLocation);
+
+        driver.attachTo(store);
+
+        assertSame(testLocation, driver.getCurrentLocation());
+
+        driver.updateLocation(41.20, -74.70);
+
+        assertEquals(41.20, store.latitude(0));
+        assertEquals(-74.70, store.longitude(0));
+        assertEquals(new Location(41.20, -74.70), driver.getCurrentLocation());
+        assertEquals(41.20, driver.getLatitude());
+        assertEquals(-74.70, driver.getLongitude());
+    }
+
+    @Test
+    void getCurrentLocationAttachedDriverReusesSnapshotUntilMoved() {
+        Driver driver = new Driver("D1", "John", testLocation);
+        driver.attachTo(new PositionStore());
+        driver.updateLocation(41.20, -74.70);
+
+        Location first = driver.getCurrentLocation();
+
+        assertSame(first, driver.getCurrentLocation());
+
+        driver.updateLocation(41.30, -74.70);
+
+        assertNotSame(first, driver.getCurrentLocation());
+    }
+
+    @Test
+    void detachKeepsLastStoredLocation() {
+        Driver driver = new Driver("D1", "John", testLocation);
+        driver.attachTo(new PositionStore());
+        driver.updateLocation(41.20, -74.70);
+
+        driver.detach();
+
+        assertEquals(new Location(41.20, -74.70), driver.getCurrentLocation());
+    }
+
+    @Test
+    void attachToAnotherStoreReleasesTheOldSlot() {
+        PositionStore first = new PositionStore();
+        PositionStore second = new PositionStore();
+        Driver driver = new Driver("D1", "John", testLocation);
+        driver.attachTo(first);
+        driver.updateLocation(41.20, -74.70);
+
+        driver.attachTo(second);
+        driver.detachFrom(first);
+
+        assertEquals(0, first.size());
+        assertEquals(1, second.size());
+        assertEquals(new Location(41.20, -74.70), driver.getCurrentLocation());
+    }
+
+    @Test
+    void driverOutlivesItsStoreBeingCleared() {
+        PositionStore store = new PositionStore();
+        Driver driver = new Driver("D1", "John", testLocation);
+        driver.attachTo(store);
+        driver.setCurrentLocation(new Location(41.20, -74.70));
+
+        store.clear();
+        Driver other = new Driver("D2", "Jane", new Location(10.0, 10.0));
+        other.attachTo(store);
+
+        assertEquals(new Location(41.20, -74.70), driver.getCurrentLocation());
+        driver.updateLocation(41.30, -74.70);
+        assertEquals(41.30, driver.getLatitude());
+        assertEquals(new Location(10.0, 10.0), other.getCurrentLocation());
+    }
+
     @Test
     void markAsUnavailableAvailableDriverReturnsTrue() {
         Driver driver = new Driver("D1", "John", testLocation);
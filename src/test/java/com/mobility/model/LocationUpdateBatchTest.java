@@ -0,0 +1,68 @@
+package com.mobility.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationUpdateBatchTest {
+
+    @Test
+    void addStoresRecordsInOrder() {
+        LocationUpdateBatch batch = new LocationUpdateBatch();
+
+        batch.add("D1", 40.75, -74.00);
+        batch.add("D2", 41.00, -73.50);
+
+        assertEquals(2, batch.size());
+        assertEquals("D2", batch.getDriverId(1));
+        assertEquals(41.00, batch.getLatitude(1));
+        assertEquals(-73.50, batch.getLongitude(1));
+    }
+
+    @Test
+    void addBeyondCapacityGrowsBatch() {
+        LocationUpdateBatch batch = new LocationUpdateBatch(1);
+
+        for (int i = 0; i < 100; i++) {
+            batch.add("D" + i, 40.00 + i * 0.01, -74.00);
+        }
+
+        assertEquals(100, batch.size());
+        assertEquals("D99", batch.getDriverId(99));
+    }
+
+    @Test
+    void addInvalidRecordThrowsException() {
+        LocationUpdateBatch batch = new LocationUpdateBatch();
+
+        assertThrows(IllegalArgumentException.class, () -> batch.add(null, 40.75, -74.00));
+        assertThrows(IllegalArgumentException.class, () -> batch.add("D1", 91.00, -74.00));
+        assertThrows(IllegalArgumentException.class, () -> batch.add("D1", 40.75, -181.00));
+        assertTrue(batch.isEmpty());
+    }
+
+    @Test
+    void constructorNonPositiveCapacityThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new LocationUpdateBatch(0));
+    }
+
+    @Test
+    void getOutOfRangeThrowsException() {
+        LocationUpdateBatch batch = new LocationUpdateBatch();
+        batch.add("D1", 40.75, -74.00);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.getDriverId(1));
+    }
+
+    @Test
+    void clearEmptiesBatch() {
+        LocationUpdateBatch batch = new LocationUpdateBatch();
+        batch.add("D1", 40.75, -74.00);
+
+        batch.clear();
+
+        assertTrue(batch.isEmpty());
+        batch.add("D2", 41.00, -73.50);
+        assertEquals("D2", batch.getDriverId(0));
+    }
+}
@@ -1,8 +1,11 @@
 package com.mobility.model;
 
 import com.mobility.enums.RideStatus;
+import com.mobility.utils.IdGenerator;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class RideTest {
@@ -23,6 +26,17 @@ class RideTest {
         assertNull(ride.getCompletionTime());
     }
 
+    @Test
+    void constructorWithRequestTimeRestoresRide() {
+        Instant requested = Instant.parse("2024-05-01T08:00:00Z");
+        Ride ride = new Ride("R1", "RIDER1", testDriver, testLocation, requested);
+        ride.markAsCompleted(requested.plusSeconds(600));
+
+        assertEquals(requested, ride.getRequestTime());
+        assertEquals(requested.plusSeconds(600), ride.getCompletionTime());
+        assertEquals(RideStatus.COMPLETED, ride.getStatus());
+    }
+
     @Test
     void constructorNullRideIdThrowsException() {
         assertThrows(IllegalArgumentException.class, () -> new Ride(null, "RIDER1", testDriver, testLocation));
@@ -89,6 +103,29 @@ class RideTest {
         assertEquals(ride1.hashCode(), ride2.hashCode());
     }
 
+    @Test
+    void constructorWithKeyFormatsRideIdOnDemand() {
+        long key = IdGenerator.parseRideId("N2-RIDE-42");
+        Ride ride = new Ride(key, "RIDER1", testDriver, testLocation);
+
+        assertEquals(key, ride.getRideKey());
+        assertEquals("N2-RIDE-42", ride.getRideId());
+        assertEquals(new Ride("N2-RIDE-42", "RIDER2", testDriver, testLocation), ride);
+        assertEquals(new Ride("N2-RIDE-42", "RIDER2", testDriver, testLocation).hashCode(), ride.hashCode());
+    }
+
+    @Test
+    void foreignRideIdHasNoKey() {
+        Ride ride = new Ride("R1", "RIDER1", testDriver, testLocation);
+
+        assertEquals(-1, ride.getRideKey());
+    }
+
+    @Test
+    void constructorNegativeKeyThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new Ride(-1, "RIDER1", testDriver, testLocation));
+    }
+
     @Test
     void toStringContainsRideInfo() {
         Ride ride = new Ride("R1", "RIDER1", testDriver, testLocation);
@@ -0,0 +1,166 @@
+package com.mobility.service;
+
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.exception.ServiceOverloadedException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncRideMatchingServiceTest {
+
+    private static final int CONCURRENT_REQUESTS = 10_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final long DOWNSTREAM_MILLIS = 50;
+
+    @Test
+    void requestRideAsyncAllocatesNearestDriver() throws Exception {
+        RideMatchingService service = new RideMatchingService();
+        service.registerDriver(new Driver("D1", "Near", new Location(40.750, -74.000)));
+        service.registerDriver(new Driver("D2", "Far", new Location(40.900, -74.200)));
+
+        try (AsyncRideMatchingService async = new AsyncRideMatchingService(service)) {
+            Ride ride = async.requestRideAsync("R1", new Location(40.751, -74.001)).get(5, TimeUnit.SECONDS);
+            assertEquals("D1", ride.getDriver().getDriverId());
+
+            async.completeRideAsync(ride.getRideId()).get(5, TimeUnit.SECONDS);
+            assertTrue(service.getDriver("D1").isAvailable());
+            assertEquals(2, async.getNearestDriversAsync(new Location(40.751, -74.001), 5).get(5, TimeUnit.SECONDS).size());
+        }
+    }
+
+    @Test
+    void requestRideAsyncFailsFutureWithServiceException() {
+        try (AsyncRideMatchingService async = new AsyncRideMatchingService(new RideMatchingService())) {
+            CompletableFuture<Ride> result = async.requestRideAsync("R1", new Location(40.75, -74.00));
+
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(NoAvailableDriverException.class, thrown.getCause());
+            assertEquals(0, async.getInFlightCount());
+        }
+    }
+
+    @Test
+    void submitBeyondMaxInFlightIsRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (AsyncRideMatchingService async = new AsyncRideMatchingService(new RideMatchingService(),
+                Executors.newVirtualThreadPerTaskExecutor(), 2)) {
+            List<CompletableFuture<Boolean>> running = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                running.add(async.submit(s -> await(release)));
+            }
+
+            CompletableFuture<Boolean> rejected = async.submit(s -> true);
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ServiceOverloadedException.class, thrown.getCause());
+            assertEquals(2, async.getInFlightCount());
+
+            release.countDown();
+            for (CompletableFuture<Boolean> future : running) {
+                assertTrue(future.get(5, TimeUnit.SECONDS));
+            }
+            assertTrue(async.submit(s -> true).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void submitFromInterruptedCallerNeitherBlocksNorClearsInterrupt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (AsyncRideMatchingService async = new AsyncRideMatchingService(new RideMatchingService(),
+                Executors.newVirtualThreadPerTaskExecutor(), 1)) {
+            Thread.currentThread().interrupt();
+            CompletableFuture<Boolean> running = async.submit(s -> await(release));
+            CompletableFuture<Boolean> rejected = async.submit(s -> true);
+            assertTrue(Thread.interrupted());
+
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ServiceOverloadedException.class, thrown.getCause());
+
+            release.countDown();
+            assertTrue(running.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void submitAfterCloseFails() {
+        AsyncRideMatchingService async = new AsyncRideMatchingService(new RideMatchingService());
+        async.close();
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> async.submit(s -> true).get());
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+        assertEquals(0, async.getInFlightCount());
+    }
+
+    // Every request holds its thread on a blocking downstream call. How long the wave takes on each executor is
+    // measured by AsyncFrontEndBenchmark; here both must finish it without handing out a driver twice.
+    @Test
+    void blockingRequestsEachGetTheirOwnDriverOnVirtualAndPlatformThreads() throws Exception {
+        runLoad(Executors.newVirtualThreadPerTaskExecutor());
+        runLoad(Executors.newFixedThreadPool(PLATFORM_THREADS));
+    }
+
+    private static void runLoad(ExecutorService executor) throws Exception {
+        RideMatchingService service = new RideMatchingService();
+        Random random = new Random(21);
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            service.registerDriver(new Driver("D" + i, "Driver" + i,
+                    new Location(40.6 + random.nextDouble() * 0.2, -74.0 + random.nextDouble() * 0.2)));
+        }
+
+        List<CompletableFuture<Ride>> results = new ArrayList<>(CONCURRENT_REQUESTS);
+        try (AsyncRideMatchingService async = new AsyncRideMatchingService(service, executor,
+                CONCURRENT_REQUESTS)) {
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                int request = i;
+                Location pickup = new Location(40.6 + random.nextDouble() * 0.2, -74.0 + random.nextDouble() * 0.2);
+                results.add(async.submit(s -> {
+                    Ride ride = s.requestRide("R" + request, pickup);
+                    // Stands in for notifying the rider and driver
+                    sleep(DOWNSTREAM_MILLIS);
+                    return ride;
+                }));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(2, TimeUnit.MINUTES);
+            assertEquals(0, async.getInFlightCount());
+        }
+
+        Set<String> allocated = new HashSet<>();
+        for (CompletableFuture<Ride> result : results) {
+            assertTrue(allocated.add(result.get().getDriver().getDriverId()), "Driver allocated twice");
+        }
+        assertEquals(CONCURRENT_REQUESTS, service.getRideCount());
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.mobility.service;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.exception.DriverAllocationException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.index.DriverIndex;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailableDriverIndexConsistencyTest {
+
+    private static final int DRIVERS = 300;
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 20;
+    private static final int OPERATIONS_PER_ROUND = 300;
+
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void indexMatchesAvailabilityFlagsAfterConcurrentLoad(IndexType indexType) throws Exception {
+        DriverIndex index = RideMatchingService.createIndex(indexType, DistanceMetric.EUCLIDEAN);
+        RideMatchingService service = new RideMatchingService(index);
+        for (int i = 0; i < DRIVERS; i++) {
+            service.registerDriver(new Driver("D" + i, "Driver" + i, randomLocation()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    int thread = t;
+                    futures.add(executor.submit(() -> {
+                        runMixedLoad(service, thread);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+
+                assertConsistent(service, index, round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Claims, completions, GPS pings (for idle and busy drivers) and re-registrations, interleaved at random
+    private static void runMixedLoad(RideMatchingService service, int thread) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Ride> open = new ArrayList<>();
+
+        for (int i = 0; i < OPERATIONS_PER_ROUND; i++) {
+            String driverId = "D" + random.nextInt(DRIVERS);
+            switch (random.nextInt(5)) {
+                case 0, 1 -> {
+                    try {
+                        open.add(service.requestRide("R" + thread + "-" + i, randomLocation()));
+                    } catch (NoAvailableDriverException | DriverAllocationException e) {
+                        // Fleet momentarily exhausted
+                    }
+                }
+                case 2 -> {
+                    if (!open.isEmpty()) {
+                        service.completeRide(open.remove(random.nextInt(open.size())).getRideId());
+                    }
+                }
+                case 3 -> {
+                    Location location = randomLocation();
+                    service.updateDriverLocation(driverId, location.getLatitude(), location.getLongitude());
+                }
+                default -> {
+                    if (random.nextInt(10) == 0) {
+                        service.registerDriver(new Driver(driverId, "Replacement", randomLocation()));
+                    } else {
+                        service.updateDriverLocation(driverId, randomLocation());
+                    }
+                }
+            }
+        }
+
+        // Leave roughly half the rides open so the next round starts with a partly busy fleet
+        for (int i = open.size() - 1; i >= 0; i -= 2) {
+            service.completeRide(open.get(i).getRideId());
+        }
+    }
+
+    private static void assertConsistent(RideMatchingService service, DriverIndex index, int round) {
+        int available = 0;
+        for (int i = 0; i < DRIVERS; i++) {
+            Driver driver = service.getDriver("D" + i);
+            assertEquals(driver.isAvailable(), index.contains(driver),
+                    "Round " + round + ": index and availability flag diverge for " + driver);
+            if (driver.isAvailable()) {
+                available++;
+            }
+        }
+
+        assertEquals(available, index.size(), "Round " + round + ": index holds drivers that are not registered");
+        assertEquals(available, service.getAvailableDrivers().size());
+        for (Driver driver : index.availableDrivers()) {
+            assertSame(service.getDriver(driver.getDriverId()), driver, "Round " + round + ": replaced instance still indexed");
+        }
+    }
+
+    private static Location randomLocation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new Location(40.6 + random.nextDouble() * 0.2, -74.0 + random.nextDouble() * 0.2);
+    }
+}
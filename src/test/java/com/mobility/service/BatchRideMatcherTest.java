@@ -0,0 +1,205 @@
+package com.mobility.service;
+
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRideMatcherTest {
+
+    private RideMatchingService service;
+    private BatchRideMatcher matcher;
+
+    @BeforeEach
+    void setup() {
+        service = new RideMatchingService();
+        // Long window so tests decide when the batch is matched
+        matcher = new BatchRideMatcher(service, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void teardown() {
+        matcher.close();
+    }
+
+    @Test
+    void flushMinimisesTotalPickupDistance() throws Exception {
+        service.registerDriver(new Driver("D1", "A", new Location(40.00, -74.00)));
+        service.registerDriver(new Driver("D2", "B", new Location(40.00, -73.00)));
+
+        // Greedy gives R1 -> D1 (0.4) then R2 -> D2 (1.2); the batch assigns R1 -> D2 (0.6), R2 -> D1 (0.2)
+        CompletableFuture<Ride> first = matcher.requestRide("R1", new Location(40.00, -73.60));
+        CompletableFuture<Ride> second = matcher.requestRide("R2", new Location(40.00, -74.20));
+
+        assertFalse(first.isDone());
+        matcher.flush();
+
+        assertEquals("D2", first.get().getDriver().getDriverId());
+        assertEquals("D1", second.get().getDriver().getDriverId());
+        assertEquals(0, matcher.getQueuedRequestCount());
+    }
+
+    @Test
+    void requestsWithoutSharedCandidatesAreAssignedSeparately() throws Exception {
+        // The scenario above twice, far enough apart that neither pair's candidates reach the other
+        try (BatchRideMatcher narrow = new BatchRideMatcher(service, Duration.ofHours(1), 8, 2)) {
+            for (double latitude : new double[]{40.00, 45.00}) {
+                service.registerDriver(new Driver("D1@" + latitude, "A", new Location(latitude, -74.00)));
+                service.registerDriver(new Driver("D2@" + latitude, "B", new Location(latitude, -73.00)));
+            }
+
+            CompletableFuture<Ride> north1 = narrow.requestRide("R1", new Location(45.00, -73.60));
+            CompletableFuture<Ride> south1 = narrow.requestRide("R1", new Location(40.00, -73.60));
+            CompletableFuture<Ride> north2 = narrow.requestRide("R2", new Location(45.00, -74.20));
+            CompletableFuture<Ride> south2 = narrow.requestRide("R2", new Location(40.00, -74.20));
+            narrow.flush();
+
+            assertEquals("D2@40.0", south1.get().getDriver().getDriverId());
+            assertEquals("D1@40.0", south2.get().getDriver().getDriverId());
+            assertEquals("D2@45.0", north1.get().getDriver().getDriverId());
+            assertEquals("D1@45.0", north2.get().getDriver().getDriverId());
+        }
+    }
+
+    @Test
+    void batchTotalDistanceNeverExceedsGreedy() throws Exception {
+        Random random = new Random(9);
+        List<Location> driverLocations = new ArrayList<>();
+        List<Location> pickups = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            driverLocations.add(new Location(40.0 + random.nextDouble() * 0.2, -74.0 + random.nextDouble() * 0.2));
+        }
+        for (int i = 0; i < 150; i++) {
+            pickups.add(new Location(40.0 + random.nextDouble() * 0.2, -74.0 + random.nextDouble() * 0.2));
+        }
+
+        RideMatchingService greedy = new RideMatchingService();
+        for (int i = 0; i < driverLocations.size(); i++) {
+            service.registerDriver(new Driver("D" + i, "Driver" + i, driverLocations.get(i)));
+            greedy.registerDriver(new Driver("D" + i, "Driver" + i, driverLocations.get(i)));
+        }
+
+        double greedyDistance = 0;
+        List<CompletableFuture<Ride>> futures = new ArrayList<>();
+        for (int i = 0; i < pickups.size(); i++) {
+            greedyDistance += greedy.requestRide("R" + i, pickups.get(i)).getDriver().getCurrentLocation().distanceTo(pickups.get(i));
+            futures.add(matcher.requestRide("R" + i, pickups.get(i)));
+        }
+        matcher.flush();
+
+        double batchDistance = 0;
+        for (int i = 0; i < pickups.size(); i++) {
+            batchDistance += futures.get(i).get().getDriver().getCurrentLocation().distanceTo(pickups.get(i));
+        }
+
+        assertTrue(batchDistance < greedyDistance, "batch " + batchDistance + " vs greedy " + greedyDistance);
+        assertEquals(50, service.getAvailableDrivers().size());
+    }
+
+    @Test
+    void flushMoreRequestsThanDriversFailsTheRest() throws Exception {
+        service.registerDriver(new Driver("D1", "A", new Location(40.00, -74.00)));
+
+        CompletableFuture<Ride> first = matcher.requestRide("R1", new Location(40.00, -74.01));
+        CompletableFuture<Ride> second = matcher.requestRide("R2", new Location(40.00, -74.50));
+        matcher.flush();
+
+        assertEquals("R1", first.get().getRiderId());
+        ExecutionException failure = assertThrows(ExecutionException.class, second::get);
+        assertInstanceOf(NoAvailableDriverException.class, failure.getCause());
+    }
+
+    @Test
+    void fullBatchIsMatchedWithoutWaitingForWindow() throws Exception {
+        try (BatchRideMatcher small = new BatchRideMatcher(service, Duration.ofHours(1), 2, 4)) {
+            service.registerDriver(new Driver("D1", "A", new Location(40.00, -74.00)));
+            service.registerDriver(new Driver("D2", "B", new Location(40.10, -74.00)));
+
+            CompletableFuture<Ride> first = small.requestRide("R1", new Location(40.00, -74.00));
+            CompletableFuture<Ride> second = small.requestRide("R2", new Location(40.10, -74.00));
+
+            assertEquals("D1", first.get(5, TimeUnit.SECONDS).getDriver().getDriverId());
+            assertEquals("D2", second.get(5, TimeUnit.SECONDS).getDriver().getDriverId());
+        }
+    }
+
+    @Test
+    void windowElapsesAndMatchesQueuedRequests() throws Exception {
+        try (BatchRideMatcher timed = new BatchRideMatcher(service, Duration.ofMillis(20))) {
+            service.registerDriver(new Driver("D1", "A", new Location(40.00, -74.00)));
+
+            Ride ride = timed.requestRide("R1", new Location(40.00, -74.00)).get(5, TimeUnit.SECONDS);
+
+            assertEquals("D1", ride.getDriver().getDriverId());
+        }
+    }
+
+    @Test
+    void closeMatchesQueuedRequestsAndRejectsNewOnes() throws Exception {
+        service.registerDriver(new Driver("D1", "A", new Location(40.00, -74.00)));
+        CompletableFuture<Ride> pending = matcher.requestRide("R1", new Location(40.00, -74.00));
+
+        matcher.close();
+
+        assertEquals("D1", pending.get().getDriver().getDriverId());
+        assertThrows(IllegalStateException.class, () -> matcher.requestRide("R2", new Location(40.00, -74.00)));
+    }
+
+    @Test
+    void requestsRacingCloseAreNeverLeftPending() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            service.registerDriver(new Driver("D" + i, "Driver" + i, new Location(40.00 + i * 0.001, -74.00)));
+        }
+        List<CompletableFuture<Ride>> accepted = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> submitters = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                submitters.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        try {
+                            accepted.add(matcher.requestRide("R" + thread + "-" + i, new Location(40.00, -74.00)));
+                        } catch (IllegalStateException e) {
+                            return;
+                        }
+                    }
+                }));
+            }
+            matcher.close();
+            for (Future<?> submitter : submitters) {
+                submitter.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (CompletableFuture<Ride> ride : accepted) {
+            assertNotNull(ride.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void invalidRequestParams() {
+        assertThrows(IllegalArgumentException.class, () -> matcher.requestRide(null, new Location(40.00, -74.00)));
+        assertThrows(IllegalArgumentException.class, () -> matcher.requestRide("R1", null));
+        assertThrows(IllegalArgumentException.class, () -> new BatchRideMatcher(service, Duration.ZERO));
+    }
+}
@@ -0,0 +1,444 @@
+package com.mobility.service;
+
+import com.mobility.cluster.ClusterMessage;
+import com.mobility.cluster.ClusterTransport;
+import com.mobility.cluster.InProcessTransport;
+import com.mobility.cluster.SocketTransport;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.enums.RideStatus;
+import com.mobility.exception.DriverNotFoundException;
+import com.mobility.exception.InvalidRideStateException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.exception.RideNotFoundException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
+import com.mobility.model.Ride;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusteredRideMatchingServiceTest {
+
+    // Small tiles so a city-sized fleet spreads over every node and many pickups sit near a border
+    private static final ShardLayout LAYOUT = ShardLayout.tiles(3, 0.01);
+
+    private List<ClusteredRideMatchingService> nodes;
+
+    @BeforeEach
+    void setup() {
+        nodes = new ArrayList<>();
+        for (InProcessTransport transport : InProcessTransport.network(3)) {
+            nodes.add(new ClusteredRideMatchingService(transport, LAYOUT, IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN));
+        }
+    }
+
+    @AfterEach
+    void teardown() {
+        nodes.forEach(ClusteredRideMatchingService::close);
+    }
+
+    @Test
+    void registerDriverPlacesDriverOnItsRegionsNode() {
+        Location home = new Location(40.750, -74.000);
+        nodes.get(0).registerDriver(new Driver("D1", "John", home));
+
+        assertOwnedOnlyBy(LAYOUT.shardOf(home), "D1");
+        for (ClusteredRideMatchingService node : nodes) {
+            assertEquals(1, node.getDriverCount());
+            assertEquals("John", node.getDriver("D1").getName());
+        }
+    }
+
+    @Test
+    void requestRideMatchesUnclusteredServiceFromAnyNode() {
+        RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN);
+        Random random = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            Location home = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            nodes.get(i % 3).registerDriver(new Driver("D" + i, "Driver" + i, home));
+            reference.registerDriver(new Driver("D" + i, "Driver" + i, home));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            Location pickup = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            Ride expected = reference.requestRide("R" + i, pickup);
+            Ride actual = nodes.get(i % 3).requestRide("R" + i, pickup);
+
+            assertEquals(expected.getDriver().getDriverId(), actual.getDriver().getDriverId(), "Pickup " + pickup);
+            assertFalse(actual.getDriver().isAvailable());
+        }
+        assertEquals(100, nodes.get(1).getAvailableDrivers().size());
+        assertEquals(200, nodes.get(2).getRideCount());
+    }
+
+    @Test
+    void getNearestDriversMatchesUnclusteredService() {
+        RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN);
+        Random random = new Random(8);
+        for (int i = 0; i < 300; i++) {
+            Location home = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            nodes.get(0).registerDriver(new Driver("D" + i, "Driver" + i, home));
+            reference.registerDriver(new Driver("D" + i, "Driver" + i, home));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            Location query = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            ClusteredRideMatchingService node = nodes.get(i % 3);
+            assertEquals(ids(reference.getNearestDrivers(query, 10)), ids(node.getNearestDrivers(query, 10)));
+            assertEquals(ids(reference.getNearestDrivers(query, 10, 0.01)), ids(node.getNearestDrivers(query, 10, 0.01)));
+        }
+    }
+
+    @Test
+    void updateDriverLocationHandsDriverToNewNode() {
+        nodes.get(0).registerDriver(new Driver("D1", "John", new Location(40.755, -74.005)));
+
+        for (int i = 1; i <= 6; i++) {
+            Location at = new Location(40.755, -74.005 + i * 0.01);
+            nodes.get(i % 3).updateDriverLocation("D1", at);
+
+            assertOwnedOnlyBy(LAYOUT.shardOf(at), "D1");
+            assertEquals(List.of("D1"), ids(nodes.get(0).getNearestDrivers(at, 5)));
+        }
+
+        assertEquals(40.755, nodes.get(2).getDriver("D1").getLatitude(), 1e-9);
+        assertEquals(-73.945, nodes.get(2).getDriver("D1").getLongitude(), 1e-9);
+        assertEquals("D1", nodes.get(1).requestRide("R1", new Location(40.755, -73.945)).getDriver().getDriverId());
+    }
+
+    @Test
+    void completeRideReleasesDriverThatMovedNodesDuringRide() {
+        nodes.get(0).registerDriver(new Driver("D1", "John", new Location(40.755, -74.005)));
+        Ride ride = nodes.get(1).requestRide("R1", new Location(40.755, -74.005));
+
+        nodes.get(2).updateDriverLocation("D1", 40.755, -73.995);
+        assertOwnedOnlyBy(LAYOUT.shardOf(40.755, -73.995), "D1");
+        assertTrue(nodes.get(0).getAvailableDrivers().isEmpty());
+
+        nodes.get(2).completeRide(ride.getRideId());
+
+        assertTrue(nodes.get(0).getDriver("D1").isAvailable());
+        assertEquals(List.of("D1"), ids(nodes.get(1).getNearestDrivers(new Location(40.755, -73.995), 3)));
+    }
+
+    @Test
+    void cancelRideReleasesDriverThatMovedNodesDuringRide() {
+        nodes.get(0).registerDriver(new Driver("D1", "John", new Location(40.755, -74.005)));
+        Ride ride = nodes.get(1).requestRide("R1", new Location(40.755, -74.005));
+
+        nodes.get(2).updateDriverLocation("D1", 40.755, -73.995);
+        nodes.get(2).cancelRide(ride.getRideId());
+
+        assertEquals(List.of("D1"), ids(nodes.get(1).getNearestDrivers(new Location(40.755, -73.995), 3)));
+        InvalidRideStateException e = assertThrows(InvalidRideStateException.class,
+                () -> nodes.get(0).cancelRide(ride.getRideId()));
+        assertEquals(RideStatus.CANCELLED, e.getCurrentStatus());
+    }
+
+    @Test
+    void rideIdsNameTheIssuingNode() {
+        nodes.get(0).registerDriver(new Driver("D1", "A", new Location(40.755, -74.005)));
+        nodes.get(0).registerDriver(new Driver("D2", "B", new Location(40.755, -73.995)));
+
+        Ride first = nodes.get(0).requestRide("R1", new Location(40.755, -74.005));
+        Ride second = nodes.get(0).requestRide("R2", new Location(40.755, -73.995));
+
+        assertTrue(first.getRideId().startsWith("N" + LAYOUT.shardOf(40.755, -74.005) + "-"));
+        assertTrue(second.getRideId().startsWith("N" + LAYOUT.shardOf(40.755, -73.995) + "-"));
+        assertNotEquals(first.getRideId(), second.getRideId());
+    }
+
+    @Test
+    void updateDriverLocationsAppliesLatestFixPerDriver() {
+        nodes.get(0).registerDriver(new Driver("D1", "A", new Location(40.750, -74.000)));
+        nodes.get(0).registerDriver(new Driver("D2", "B", new Location(40.760, -74.010)));
+
+        LocationUpdateBatch batch = new LocationUpdateBatch(4);
+        batch.add("D1", 40.700, -74.050);
+        batch.add("D1", 40.780, -73.980);
+        batch.add("D2", 40.761, -74.011);
+        batch.add("UNKNOWN", 40.0, -74.0);
+
+        assertEquals(2, nodes.get(1).updateDriverLocations(batch));
+        assertEquals(40.780, nodes.get(2).getDriver("D1").getLatitude(), 1e-9);
+        assertOwnedOnlyBy(LAYOUT.shardOf(40.780, -73.980), "D1");
+    }
+
+    @Test
+    void registerDriverAgainMovesItToTheNewRegion() {
+        nodes.get(0).registerDriver(new Driver("D1", "John", new Location(40.755, -74.005)));
+        nodes.get(1).registerDriver(new Driver("D1", "Johnny", new Location(40.755, -73.995)));
+
+        assertOwnedOnlyBy(LAYOUT.shardOf(40.755, -73.995), "D1");
+        assertEquals("Johnny", nodes.get(2).getDriver("D1").getName());
+        assertEquals(1, nodes.get(0).getAvailableDrivers().size());
+    }
+
+    @Test
+    void failuresSurfaceAsServiceExceptions() {
+        assertThrows(NoAvailableDriverException.class, () -> nodes.get(0).requestRide("R1", new Location(40.75, -74.00)));
+        assertThrows(DriverNotFoundException.class, () -> nodes.get(1).updateDriverLocation("D404", 40.75, -74.00));
+        assertThrows(RideNotFoundException.class, () -> nodes.get(2).completeRide("RIDE-404"));
+        assertThrows(RideNotFoundException.class, () -> nodes.get(2).completeRide("N1-RIDE-404"));
+        assertNull(nodes.get(0).getDriver("D404"));
+
+        nodes.get(0).registerDriver(new Driver("D1", "John", new Location(40.75, -74.00)));
+        Ride ride = nodes.get(0).requestRide("R1", new Location(40.75, -74.00));
+        nodes.get(1).completeRide(ride.getRideId());
+        assertThrows(InvalidRideStateException.class, () -> nodes.get(2).completeRide(ride.getRideId()));
+    }
+
+    @Test
+    void concurrentRequestsAndMovesAllocateEachDriverOnce() throws Exception {
+        int drivers = 300;
+        Random random = new Random(3);
+        for (int i = 0; i < drivers; i++) {
+            nodes.get(i % 3).registerDriver(new Driver("D" + i, "Driver" + i,
+                    new Location(40.70 + random.nextDouble() * 0.05, -74.00 + random.nextDouble() * 0.05)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Ride> rides = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                ClusteredRideMatchingService node = nodes.get(t);
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < drivers / 3; i++) {
+                        rides.add(node.requestRide("R" + thread + "-" + i, new Location(40.725, -73.975)));
+                    }
+                }));
+            }
+            for (int t = 0; t < 3; t++) {
+                ClusteredRideMatchingService node = nodes.get(t);
+                Random moves = new Random(t);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        node.updateDriverLocation("D" + moves.nextInt(drivers),
+                                40.70 + moves.nextDouble() * 0.05, -74.00 + moves.nextDouble() * 0.05);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<String> allocated = new HashSet<>();
+        rides.forEach(ride -> assertTrue(allocated.add(ride.getDriver().getDriverId()), "Driver allocated twice"));
+        assertEquals(drivers, allocated.size());
+        assertTrue(nodes.get(0).getAvailableDrivers().isEmpty());
+
+        rides.forEach(ride -> nodes.get(1).completeRide(ride.getRideId()));
+        assertEquals(drivers, nodes.get(2).getAvailableDrivers().size());
+        for (int i = 0; i < drivers; i++) {
+            Driver driver = nodes.get(0).getDriver("D" + i);
+            assertOwnedOnlyBy(LAYOUT.shardOf(driver.getCurrentLocation()), "D" + i);
+        }
+    }
+
+    @Test
+    void requestDuringHandOffOfLastFreeDriverWaitsForItsAdoption() throws Exception {
+        Location from = new Location(40.755, -74.005);
+        Location to = new Location(40.755, -73.995);
+        int target = LAYOUT.shardOf(to);
+        assertNotEquals(LAYOUT.shardOf(from), target);
+        // Directory elsewhere, so the adoption crosses the transport
+        int candidate = 0;
+        String driverId;
+        do {
+            driverId = "D" + candidate++;
+        } while (Math.floorMod(driverId.hashCode(), 3) == target);
+
+        AtomicBoolean pausing = new AtomicBoolean();
+        CountDownLatch adopting = new CountDownLatch(1);
+        CountDownLatch adopt = new CountDownLatch(1);
+        CountDownLatch moved = new CountDownLatch(1);
+        List<ClusteredRideMatchingService> paused = new ArrayList<>();
+        for (InProcessTransport transport : InProcessTransport.network(3)) {
+            paused.add(new ClusteredRideMatchingService(new ForwardingTransport(transport) {
+                @Override
+                public ClusterMessage send(int node, ClusterMessage request) {
+                    if (request instanceof ClusterMessage.AdoptDriver && pausing.get()) {
+                        adopting.countDown();
+                        await(adopt);
+                    }
+                    // The first check for hand-offs in flight lets the stalled one finish
+                    if (request instanceof ClusterMessage.HandOffProgress) {
+                        adopt.countDown();
+                        await(moved);
+                    }
+                    return super.send(node, request);
+                }
+            }, LAYOUT, IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN));
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            paused.get(0).registerDriver(new Driver(driverId, "John", from));
+            pausing.set(true);
+            String id = driverId;
+            Future<?> move = executor.submit(() -> {
+                paused.get(1).updateDriverLocation(id, to);
+                moved.countDown();
+            });
+            assertTrue(adopting.await(10, TimeUnit.SECONDS));
+
+            Ride ride = paused.get(2).requestRide("R1", to);
+
+            assertEquals(driverId, ride.getDriver().getDriverId());
+            move.get(10, TimeUnit.SECONDS);
+        } finally {
+            adopt.countDown();
+            moved.countDown();
+            executor.shutdownNow();
+            paused.forEach(ClusteredRideMatchingService::close);
+        }
+    }
+
+    @Test
+    void socketClusterServesRequestsOverLoopback() throws IOException {
+        List<InetSocketAddress> addresses = freeLoopbackAddresses(3);
+        List<ClusteredRideMatchingService> socketNodes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                socketNodes.add(new ClusteredRideMatchingService(new SocketTransport(i, addresses), LAYOUT,
+                        IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN));
+            }
+
+            RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN);
+            Random random = new Random(21);
+            for (int i = 0; i < 100; i++) {
+                Location home = new Location(40.70 + random.nextDouble() * 0.05, -74.00 + random.nextDouble() * 0.05);
+                socketNodes.get(i % 3).registerDriver(new Driver("D" + i, "Driver" + i, home));
+                reference.registerDriver(new Driver("D" + i, "Driver" + i, home));
+            }
+            socketNodes.get(1).updateDriverLocation("D7", 40.7255, -73.9755);
+            reference.updateDriverLocation("D7", 40.7255, -73.9755);
+
+            for (int i = 0; i < 50; i++) {
+                Location pickup = new Location(40.70 + random.nextDouble() * 0.05, -74.00 + random.nextDouble() * 0.05);
+                Ride expected = reference.requestRide("R" + i, pickup);
+                Ride actual = socketNodes.get(i % 3).requestRide("R" + i, pickup);
+                assertEquals(expected.getDriver().getDriverId(), actual.getDriver().getDriverId());
+                socketNodes.get((i + 1) % 3).completeRide(actual.getRideId());
+                reference.completeRide(expected.getRideId());
+            }
+
+            assertEquals(100, socketNodes.get(2).getDriverCount());
+            assertEquals(50, socketNodes.get(0).getRideCount());
+            assertEquals(100, socketNodes.get(1).getAvailableDrivers().size());
+        } finally {
+            socketNodes.forEach(ClusteredRideMatchingService::close);
+        }
+    }
+
+    @Test
+    void clearEmptiesEveryNode() {
+        nodes.get(0).registerDriver(new Driver("D1", "John", new Location(40.755, -74.005)));
+        nodes.get(0).registerDriver(new Driver("D2", "Jane", new Location(40.755, -73.995)));
+        nodes.get(1).requestRide("R1", new Location(40.755, -74.005));
+
+        nodes.get(2).clear();
+
+        assertEquals(0, nodes.get(0).getDriverCount());
+        assertEquals(0, nodes.get(1).getRideCount());
+        assertNull(nodes.get(0).getDriver("D1"));
+        assertThrows(NoAvailableDriverException.class, () -> nodes.get(0).requestRide("R2", new Location(40.75, -74.00)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void assertOwnedOnlyBy(int owner, String driverId) {
+        for (int i = 0; i < nodes.size(); i++) {
+            assertEquals(i == owner, nodes.get(i).local().getDriver(driverId) != null, "Node " + i + " owning " + driverId);
+        }
+    }
+
+    private static List<String> ids(List<Driver> drivers) {
+        return drivers.stream().map(Driver::getDriverId).collect(Collectors.toList());
+    }
+
+    // Held open together so the same port is not handed out twice
+    private static List<InetSocketAddress> freeLoopbackAddresses(int count) throws IOException {
+        List<ServerSocket> sockets = new ArrayList<>();
+        try {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                ServerSocket socket = new ServerSocket(0);
+                sockets.add(socket);
+                addresses.add(new InetSocketAddress("127.0.0.1", socket.getLocalPort()));
+            }
+            return addresses;
+        } finally {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private static class ForwardingTransport implements ClusterTransport {
+
+        private final ClusterTransport delegate;
+
+        ForwardingTransport(ClusterTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int getLocalNode() {
+            return delegate.getLocalNode();
+        }
+
+        @Override
+        public int getNodeCount() {
+            return delegate.getNodeCount();
+        }
+
+        @Override
+        public void start(Function<ClusterMessage, ClusterMessage> handler) {
+            delegate.start(handler);
+        }
+
+        @Override
+        public ClusterMessage send(int node, ClusterMessage request) {
+            return delegate.send(node, request);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
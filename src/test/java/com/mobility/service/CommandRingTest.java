@@ -0,0 +1,94 @@
+package com.mobility.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandRingTest {
+
+    @Test
+    void constructorNonPowerOfTwoThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new CommandRing(6));
+    }
+
+    @Test
+    void offerFullRingReturnsFalseUntilPolled() {
+        CommandRing ring = new CommandRing(2);
+        Runnable first = () -> { };
+        Runnable second = () -> { };
+
+        assertTrue(ring.offer(first));
+        assertTrue(ring.offer(second));
+        assertFalse(ring.offer(() -> { }));
+
+        assertSame(first, ring.poll());
+        assertTrue(ring.offer(() -> { }));
+        assertSame(second, ring.poll());
+    }
+
+    @Test
+    void pollEmptyRingReturnsNull() {
+        CommandRing ring = new CommandRing(4);
+
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void concurrentProducersDeliverEveryCommandInPerProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        CommandRing ring = new CommandRing(64);
+        int[][] received = new int[producers][perProducer];
+        int[] counts = new int[producers];
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    int value = i;
+                    Runnable command = () -> received[producer][counts[producer]++] = value;
+                    while (!ring.offer(command)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+        int consumed = 0;
+        while (consumed < producers * perProducer) {
+            Runnable command = ring.poll();
+            if (command == null) {
+                Thread.yield();
+                continue;
+            }
+            command.run();
+            consumed++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer, counts[p]);
+            for (int i = 0; i < perProducer; i++) {
+                assertEquals(i, received[p][i]);
+            }
+        }
+        assertTrue(ring.isEmpty());
+    }
+}
@@ -0,0 +1,168 @@
+package com.mobility.service;
+
+import com.mobility.exception.DriverAllocationException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.model.Driver;
+import com.mobility.model.DriverDelta;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriverSubscriptionLoadTest {
+
+    private static final int SUBSCRIPTIONS = 100_000;
+    private static final int DRIVERS = 20_000;
+    private static final int MOVERS = 4;
+    private static final int PINGS_PER_MOVER = 10_000;
+    private static final int POLLERS = 2;
+    private static final int COUNT = 5;
+    private static final double RADIUS = 0.02;
+    // A 2 x 2 degree metro area
+    private static final double SOUTH = 40.0;
+    private static final double WEST = -75.0;
+    private static final double SPAN = 2.0;
+
+    @Test
+    void concurrentMovesClaimsAndPollsKeepEveryViewConsistent() throws Exception {
+        RideMatchingService service = new RideMatchingService();
+        Random random = new Random(23);
+        for (int i = 0; i < DRIVERS; i++) {
+            service.registerDriver(new Driver("D" + i, "Driver" + i, randomLocation(random)));
+        }
+
+        DriverSubscription[] subscriptions = new DriverSubscription[SUBSCRIPTIONS];
+        List<Map<String, DriverDelta>> views = new ArrayList<>(SUBSCRIPTIONS);
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            subscriptions[i] = service.subscribeNearestDrivers(randomLocation(random), COUNT, RADIUS);
+            views.add(new HashMap<>());
+        }
+        assertEquals(SUBSCRIPTIONS, service.getSubscriptionCount());
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(MOVERS + POLLERS + 2);
+        try {
+            List<Future<?>> movers = new ArrayList<>();
+            for (int m = 0; m < MOVERS; m++) {
+                int mover = m;
+                // Each driver has one feed: a mover owns every MOVERS-th driver
+                movers.add(executor.submit(() -> move(service, mover)));
+            }
+            List<Future<?>> background = new ArrayList<>();
+            background.add(executor.submit(() -> claimAndComplete(service, running)));
+            background.add(executor.submit(() -> churn(service, running)));
+            for (int p = 0; p < POLLERS; p++) {
+                int poller = p;
+                background.add(executor.submit(() -> {
+                    while (running.get()) {
+                        for (int i = poller; i < SUBSCRIPTIONS; i += POLLERS) {
+                            apply(views.get(i), subscriptions[i].poll());
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> mover : movers) {
+                mover.get();
+            }
+            running.set(false);
+            for (Future<?> task : background) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(SUBSCRIPTIONS, service.getSubscriptionCount());
+
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            DriverSubscription subscription = subscriptions[i];
+            Map<String, DriverDelta> view = views.get(i);
+            apply(view, subscription.poll());
+
+            // The replayed deltas leave the subscriber with exactly the drivers shown, where they are now
+            assertEquals(subscription.getShownCount(), view.size());
+            assertTrue(view.size() <= COUNT);
+            for (DriverDelta shown : view.values()) {
+                Driver driver = service.getDriver(shown.driverId());
+                assertTrue(driver.isAvailable(), shown.driverId() + " shown while busy");
+                assertEquals(new Location(shown.latitude(), shown.longitude()), driver.getCurrentLocation());
+                assertTrue(service.distanceBetween(subscription.getLocation(), driver.getCurrentLocation()) <= RADIUS + 1e-12);
+            }
+            // A view with room left shows every available driver in range
+            if (view.size() < COUNT) {
+                assertEquals(view.size(),
+                        service.getNearestDrivers(subscription.getLocation(), COUNT, RADIUS).size());
+            }
+        }
+    }
+
+    private static void move(RideMatchingService service, int mover) {
+        Random random = new Random(mover);
+        for (int i = 0; i < PINGS_PER_MOVER; i++) {
+            int index = random.nextInt(DRIVERS / MOVERS) * MOVERS + mover;
+            Driver driver = service.getDriver("D" + index);
+            double latitude = clamp(driver.getLatitude() + (random.nextDouble() - 0.5) * 0.01, SOUTH);
+            double longitude = clamp(driver.getLongitude() + (random.nextDouble() - 0.5) * 0.01, WEST);
+            service.updateDriverLocation(driver.getDriverId(), latitude, longitude);
+        }
+    }
+
+    // Keeps up to 50 rides open, so drivers keep leaving and rejoining views
+    private static void claimAndComplete(RideMatchingService service, AtomicBoolean running) {
+        Random random = new Random(99);
+        Queue<Ride> open = new ArrayDeque<>();
+        int sequence = 0;
+        while (running.get()) {
+            try {
+                open.add(service.requestRide("R" + sequence++, randomLocation(random)));
+            } catch (NoAvailableDriverException | DriverAllocationException e) {
+                // Nobody free near that pickup
+            }
+            if (open.size() > 50) {
+                service.completeRide(open.remove().getRideId());
+            }
+        }
+        open.forEach(ride -> service.completeRide(ride.getRideId()));
+    }
+
+    // Map screens opening and closing while the fleet moves
+    private static void churn(RideMatchingService service, AtomicBoolean running) {
+        Random random = new Random(7);
+        while (running.get()) {
+            DriverSubscription subscription = service.subscribeNearestDrivers(randomLocation(random), COUNT, RADIUS);
+            subscription.poll();
+            subscription.close();
+        }
+    }
+
+    private static void apply(Map<String, DriverDelta> view, List<DriverDelta> deltas) {
+        for (DriverDelta delta : deltas) {
+            switch (delta.type()) {
+                case ADDED -> assertNull(view.put(delta.driverId(), delta), delta.driverId() + " added twice");
+                case MOVED -> assertNotNull(view.put(delta.driverId(), delta), delta.driverId() + " moved unseen");
+                case REMOVED -> assertNotNull(view.remove(delta.driverId()), delta.driverId() + " removed unseen");
+            }
+        }
+    }
+
+    private static Location randomLocation(Random random) {
+        return new Location(SOUTH + random.nextDouble() * SPAN, WEST + random.nextDouble() * SPAN);
+    }
+
+    private static double clamp(double value, double low) {
+        return Math.max(low, Math.min(low + SPAN, value));
+    }
+}
@@ -0,0 +1,244 @@
+package com.mobility.service;
+
+import com.mobility.enums.DriverDeltaType;
+import com.mobility.model.Driver;
+import com.mobility.model.DriverDelta;
+import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
+import com.mobility.model.Ride;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriverSubscriptionTest {
+
+    private static final Location CENTER = new Location(40.7580, -73.9855);
+    private static final double RADIUS = 0.05;
+
+    private RideMatchingService service;
+
+    @BeforeEach
+    void setup() {
+        service = new RideMatchingService();
+    }
+
+    @Test
+    void subscribeShowsNearestDriversAsAdded() {
+        register("D1", 40.7590, -73.9855);
+        register("D2", 40.7600, -73.9855);
+        register("D3", 40.7610, -73.9855);
+        register("FAR", 41.5000, -73.9855);
+
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 2, RADIUS);
+
+        List<DriverDelta> deltas = subscription.poll();
+        assertEquals(Set.of("D1", "D2"), ids(deltas));
+        deltas.forEach(delta -> assertEquals(DriverDeltaType.ADDED, delta.type()));
+        assertEquals(2, subscription.getShownCount());
+        assertTrue(subscription.poll().isEmpty());
+        assertEquals(1, service.getSubscriptionCount());
+    }
+
+    @Test
+    void locationUpdatesEmitMovedAndRemoved() {
+        register("D1", 40.7590, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 5, RADIUS);
+        subscription.poll();
+
+        service.updateDriverLocation("D1", 40.7595, -73.9850);
+        assertEquals(List.of(new DriverDelta(DriverDeltaType.MOVED, "D1", 40.7595, -73.9850)), subscription.poll());
+
+        // Out of range: removed at the position the subscriber last saw
+        service.updateDriverLocation("D1", new Location(41.5000, -73.9850));
+        assertEquals(List.of(new DriverDelta(DriverDeltaType.REMOVED, "D1", 40.7595, -73.9850)), subscription.poll());
+
+        service.updateDriverLocation("D1", 40.7585, -73.9855);
+        assertEquals(List.of(new DriverDelta(DriverDeltaType.ADDED, "D1", 40.7585, -73.9855)), subscription.poll());
+    }
+
+    @Test
+    void driverEnteringFromAnotherCellIsAdded() {
+        register("D1", 40.5000, -73.5000);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 5, RADIUS);
+        assertTrue(subscription.poll().isEmpty());
+
+        service.updateDriverLocation("D1", 40.7581, -73.9856);
+        assertEquals(List.of(new DriverDelta(DriverDeltaType.ADDED, "D1", 40.7581, -73.9856)), subscription.poll());
+    }
+
+    @Test
+    void claimRemovesAndCompletionAddsBack() {
+        register("D1", 40.7590, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 5, RADIUS);
+        subscription.poll();
+
+        Ride ride = service.requestRide("R1", CENTER);
+        assertEquals(List.of(DriverDeltaType.REMOVED), types(subscription.poll()));
+
+        service.completeRide(ride.getRideId());
+        assertEquals(List.of(DriverDeltaType.ADDED), types(subscription.poll()));
+    }
+
+    @Test
+    void changesBetweenPollsAreCoalesced() {
+        register("D1", 40.7590, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 5, RADIUS);
+        subscription.poll();
+
+        for (int i = 1; i < 10; i++) {
+            service.updateDriverLocation("D1", 40.7590 + i * 0.0001, -73.9855);
+        }
+        service.updateDriverLocation("D1", 40.7600, -73.9855);
+        // Claimed and freed again: the subscriber still has it, so it only moved
+        service.completeRide(service.requestRide("R1", CENTER).getRideId());
+        register("D2", 40.7581, -73.9855);
+        service.updateDriverLocation("D2", 40.7582, -73.9855);
+        register("D3", 40.7583, -73.9855);
+        service.updateDriverLocation("D3", 42.0000, -73.9855);
+
+        assertEquals(List.of(
+                new DriverDelta(DriverDeltaType.MOVED, "D1", 40.7600, -73.9855),
+                new DriverDelta(DriverDeltaType.ADDED, "D2", 40.7582, -73.9855)), subscription.poll());
+    }
+
+    @Test
+    void nearerDriverDisplacesFarthestWhenFull() {
+        register("D1", 40.7590, -73.9855);
+        register("D2", 40.7620, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 2, RADIUS);
+        subscription.poll();
+
+        register("D3", 40.7640, -73.9855);
+        assertTrue(subscription.poll().isEmpty());
+
+        register("D4", 40.7581, -73.9855);
+        List<DriverDelta> deltas = subscription.poll();
+        assertEquals(List.of(DriverDeltaType.REMOVED, DriverDeltaType.ADDED), types(deltas));
+        assertEquals("D2", deltas.get(0).driverId());
+        assertEquals("D4", deltas.get(1).driverId());
+    }
+
+    @Test
+    void removalFromFullViewRefillsOnPoll() {
+        register("D1", 40.7590, -73.9855);
+        register("D2", 40.7600, -73.9855);
+        register("D3", 40.7610, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 2, RADIUS);
+        subscription.poll();
+
+        service.updateDriverLocation("D1", 41.5000, -73.9855);
+        List<DriverDelta> deltas = subscription.poll();
+
+        assertEquals(List.of(DriverDeltaType.REMOVED, DriverDeltaType.ADDED), types(deltas));
+        assertEquals("D3", deltas.get(1).driverId());
+        assertEquals(2, subscription.getShownCount());
+    }
+
+    @Test
+    void batchUpdatesEmitMoved() {
+        register("D1", 40.7590, -73.9855);
+        register("D2", 40.7600, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 5, RADIUS);
+        subscription.poll();
+
+        LocationUpdateBatch batch = new LocationUpdateBatch(4);
+        batch.add("D1", 40.7591, -73.9855);
+        batch.add("D2", 41.5000, -73.9855);
+        batch.add("UNKNOWN", 40.7580, -73.9855);
+        batch.add("D1", 40.7592, -73.9855);
+        service.updateDriverLocations(batch);
+
+        assertEquals(Set.of(
+                new DriverDelta(DriverDeltaType.MOVED, "D1", 40.7592, -73.9855),
+                new DriverDelta(DriverDeltaType.REMOVED, "D2", 40.7600, -73.9855)), Set.copyOf(subscription.poll()));
+    }
+
+    @Test
+    void reRegistrationMovesToTheNewInstance() {
+        register("D1", 40.7590, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 5, RADIUS);
+        subscription.poll();
+
+        register("D1", 40.7595, -73.9855);
+        assertEquals(List.of(new DriverDelta(DriverDeltaType.MOVED, "D1", 40.7595, -73.9855)), subscription.poll());
+
+        // Re-registered far away: the old position's cell hears of it too
+        register("D1", 41.5000, -73.9855);
+        assertEquals(List.of(DriverDeltaType.REMOVED), types(subscription.poll()));
+    }
+
+    @Test
+    void expiredDriverIsRemoved() {
+        long[] now = {0};
+        service.enableExpiry(Duration.ofSeconds(10), Duration.ofSeconds(10), () -> now[0]);
+        register("D1", 40.7590, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 5, RADIUS);
+        subscription.poll();
+
+        now[0] = Duration.ofSeconds(11).toNanos();
+        service.expireStale();
+
+        assertEquals(List.of(DriverDeltaType.REMOVED), types(subscription.poll()));
+    }
+
+    @Test
+    void closeStopsUpdates() {
+        register("D1", 40.7590, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 5, RADIUS);
+
+        subscription.close();
+        subscription.close();
+        service.updateDriverLocation("D1", 40.7591, -73.9855);
+
+        assertTrue(subscription.isClosed());
+        assertTrue(subscription.poll().isEmpty());
+        assertEquals(0, service.getSubscriptionCount());
+    }
+
+    @Test
+    void clearRemovesEveryShownDriver() {
+        register("D1", 40.7590, -73.9855);
+        register("D2", 40.7600, -73.9855);
+        DriverSubscription subscription = service.subscribeNearestDrivers(CENTER, 5, RADIUS);
+        subscription.poll();
+
+        service.clear();
+
+        assertEquals(List.of(DriverDeltaType.REMOVED, DriverDeltaType.REMOVED), types(subscription.poll()));
+        assertEquals(0, subscription.getShownCount());
+        assertFalse(subscription.isClosed());
+
+        register("D3", 40.7590, -73.9855);
+        assertEquals(List.of(DriverDeltaType.ADDED), types(subscription.poll()));
+    }
+
+    @Test
+    void invalidSubscriptions() {
+        assertThrows(IllegalArgumentException.class, () -> service.subscribeNearestDrivers(null, 5, RADIUS));
+        assertThrows(IllegalArgumentException.class, () -> service.subscribeNearestDrivers(CENTER, 0, RADIUS));
+        assertThrows(IllegalArgumentException.class, () -> service.subscribeNearestDrivers(CENTER, 5, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.subscribeNearestDrivers(CENTER, 5, Double.POSITIVE_INFINITY));
+        // Covers far more grid cells than allowed
+        assertThrows(IllegalArgumentException.class, () -> service.subscribeNearestDrivers(CENTER, 5, 5.0));
+        assertEquals(0, service.getSubscriptionCount());
+    }
+
+    private void register(String driverId, double latitude, double longitude) {
+        service.registerDriver(new Driver(driverId, driverId, new Location(latitude, longitude)));
+    }
+
+    private static Set<String> ids(List<DriverDelta> deltas) {
+        return deltas.stream().map(DriverDelta::driverId).collect(Collectors.toSet());
+    }
+
+    private static List<DriverDeltaType> types(List<DriverDelta> deltas) {
+        return deltas.stream().map(DriverDelta::type).toList();
+    }
+}
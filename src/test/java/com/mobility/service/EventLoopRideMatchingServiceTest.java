@@ -0,0 +1,282 @@
+package com.mobility.service;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.enums.RideStatus;
+import com.mobility.exception.DriverNotFoundException;
+import com.mobility.exception.InvalidRideStateException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.exception.RideNotFoundException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
+import com.mobility.model.Ride;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLoopRideMatchingServiceTest {
+
+    // Small tiles so a city-sized fleet spreads over every shard and many pickups sit near a border
+    private static final double TILE_SIZE = 0.01;
+
+    private EventLoopRideMatchingService engine;
+
+    @BeforeEach
+    void setup() {
+        engine = new EventLoopRideMatchingService(4, TILE_SIZE, DistanceMetric.EUCLIDEAN);
+    }
+
+    @AfterEach
+    void teardown() {
+        engine.close();
+    }
+
+    @Test
+    void requestRideAllocatesNearestDriver() {
+        engine.registerDriver(new Driver("D1", "Near", new Location(40.750, -74.000)));
+        engine.registerDriver(new Driver("D2", "Far", new Location(40.900, -74.200)));
+
+        Ride ride = engine.requestRide("R1", new Location(40.751, -74.001));
+
+        assertEquals("D1", ride.getDriver().getDriverId());
+        assertFalse(engine.getDriver("D1").isAvailable());
+        assertEquals(1, engine.getRideCount());
+        assertEquals(List.of("D2"), ids(engine.getAvailableDrivers()));
+    }
+
+    @Test
+    void requestRideMatchesSharedStateServiceAcrossShardBorders() {
+        RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN);
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            Location home = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            engine.registerDriver(new Driver("D" + i, "Driver" + i, home));
+            reference.registerDriver(new Driver("D" + i, "Driver" + i, home));
+        }
+
+        for (int i = 0; i < 300; i++) {
+            Location pickup = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            Ride expected = reference.requestRide("R" + i, pickup);
+            Ride actual = engine.requestRide("R" + i, pickup);
+
+            assertEquals(expected.getDriver().getDriverId(), actual.getDriver().getDriverId(), "Pickup " + pickup);
+        }
+        assertEquals(200, engine.getAvailableDrivers().size());
+    }
+
+    @Test
+    void getNearestDriversMergesAllShards() {
+        RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN);
+        Random random = new Random(8);
+        for (int i = 0; i < 400; i++) {
+            Location home = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            engine.registerDriver(new Driver("D" + i, "Driver" + i, home));
+            reference.registerDriver(new Driver("D" + i, "Driver" + i, home));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            Location query = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            assertEquals(ids(reference.getNearestDrivers(query, 10)), ids(engine.getNearestDrivers(query, 10)));
+            assertEquals(ids(reference.getNearestDrivers(query, 10, 0.01)), ids(engine.getNearestDrivers(query, 10, 0.01)));
+        }
+    }
+
+    @Test
+    void updateDriverLocationHandsDriverToNewShard() {
+        Driver driver = new Driver("D1", "John", new Location(40.750, -74.000));
+        engine.registerDriver(driver);
+
+        // Far enough to cross many tiles, and so (with four shards) very likely another shard
+        for (int i = 1; i <= 8; i++) {
+            engine.updateDriverLocation("D1", new Location(40.750 + i * 0.013, -74.000));
+            Location at = new Location(40.750 + i * 0.013, -74.000);
+            assertEquals(List.of(driver), engine.getNearestDrivers(at, 5));
+        }
+
+        assertEquals(1, engine.getDriverCount());
+        assertEquals(1, engine.getAvailableDrivers().size());
+        assertEquals("D1", engine.requestRide("R1", new Location(40.854, -74.000)).getDriver().getDriverId());
+    }
+
+    @Test
+    void completeRideReleasesDriverThatMovedShardsDuringRide() {
+        engine.registerDriver(new Driver("D1", "John", new Location(40.750, -74.000)));
+        Ride ride = engine.requestRide("R1", new Location(40.750, -74.000));
+
+        engine.updateDriverLocation("D1", 40.790, -73.950);
+        assertTrue(engine.getAvailableDrivers().isEmpty());
+        engine.completeRide(ride.getRideId());
+
+        assertTrue(engine.getDriver("D1").isAvailable());
+        assertEquals(List.of("D1"), ids(engine.getNearestDrivers(new Location(40.790, -73.950), 3)));
+    }
+
+    @Test
+    void cancelRideReleasesDriverThatMovedShardsDuringRide() {
+        engine.registerDriver(new Driver("D1", "John", new Location(40.750, -74.000)));
+        Ride ride = engine.requestRide("R1", new Location(40.750, -74.000));
+
+        engine.updateDriverLocation("D1", 40.790, -73.950);
+        engine.cancelRide(ride.getRideId());
+
+        assertEquals(RideStatus.CANCELLED, ride.getStatus());
+        assertEquals(List.of("D1"), ids(engine.getNearestDrivers(new Location(40.790, -73.950), 3)));
+        assertThrows(InvalidRideStateException.class, () -> engine.cancelRide(ride.getRideId()));
+    }
+
+    @Test
+    void registerDriverReplacesPreviousInstanceOnAnotherShard() {
+        Driver original = new Driver("D1", "John", new Location(40.750, -74.000));
+        Driver replacement = new Driver("D1", "John", new Location(40.795, -73.955));
+        engine.registerDriver(original);
+        engine.registerDriver(replacement);
+
+        assertSame(replacement, engine.getDriver("D1"));
+        List<Driver> available = engine.getAvailableDrivers();
+        assertEquals(1, available.size());
+        assertSame(replacement, available.get(0));
+    }
+
+    @Test
+    void updateDriverLocationsAppliesLatestFixPerDriver() {
+        engine.registerDriver(new Driver("D1", "A", new Location(40.750, -74.000)));
+        engine.registerDriver(new Driver("D2", "B", new Location(40.760, -74.010)));
+
+        LocationUpdateBatch batch = new LocationUpdateBatch(4);
+        batch.add("D1", 40.700, -74.050);
+        batch.add("D1", 40.780, -73.980);
+        batch.add("D2", 40.761, -74.011);
+        batch.add("UNKNOWN", 40.0, -74.0);
+
+        assertEquals(2, engine.updateDriverLocations(batch));
+        assertEquals(40.780, engine.getDriver("D1").getLatitude(), 1e-9);
+        assertEquals(List.of("D1"), ids(engine.getNearestDrivers(new Location(40.780, -73.980), 1)));
+    }
+
+    @Test
+    void requestRideEmptyFleetThrowsNoAvailableDriver() {
+        assertThrows(NoAvailableDriverException.class, () -> engine.requestRide("R1", new Location(40.75, -74.00)));
+    }
+
+    @Test
+    void unknownIdsThrowServiceExceptions() {
+        assertThrows(DriverNotFoundException.class, () -> engine.updateDriverLocation("D404", 40.75, -74.00));
+        assertThrows(RideNotFoundException.class, () -> engine.completeRide("RIDE-404"));
+    }
+
+    @Test
+    void completeRideTwiceThrowsInvalidState() {
+        engine.registerDriver(new Driver("D1", "John", new Location(40.75, -74.00)));
+        Ride ride = engine.requestRide("R1", new Location(40.75, -74.00));
+        engine.completeRide(ride.getRideId());
+
+        assertThrows(InvalidRideStateException.class, () -> engine.completeRide(ride.getRideId()));
+    }
+
+    @Test
+    void concurrentRequestsAllocateEachDriverOnce() throws Exception {
+        int drivers = 400;
+        Random random = new Random(3);
+        for (int i = 0; i < drivers; i++) {
+            engine.registerDriver(new Driver("D" + i, "Driver" + i,
+                    new Location(40.70 + random.nextDouble() * 0.05, -74.00 + random.nextDouble() * 0.05)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Ride> rides = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < drivers / 8; i++) {
+                        rides.add(engine.requestRide("R" + thread + "-" + i, new Location(40.725, -73.975)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<String> allocated = new HashSet<>();
+        rides.forEach(ride -> assertTrue(allocated.add(ride.getDriver().getDriverId()), "Driver allocated twice"));
+        assertEquals(drivers, allocated.size());
+        assertTrue(engine.getAvailableDrivers().isEmpty());
+
+        List<CompletableFuture<Void>> completions = new ArrayList<>();
+        rides.forEach(ride -> completions.add(engine.completeRideAsync(ride.getRideId())));
+        CompletableFuture.allOf(completions.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        assertEquals(drivers, engine.getAvailableDrivers().size());
+    }
+
+    @Test
+    void crossShardMatchesClaimOnTheShardThread() throws Exception {
+        // Pickups on tile corners, so nearly every match gathers candidates from other shards first; a claim run from
+        // the thread that answered last throws instead of touching the home shard's rides and index
+        int drivers = 200;
+        Random random = new Random(11);
+        for (int i = 0; i < drivers; i++) {
+            engine.registerDriver(new Driver("D" + i, "Driver" + i,
+                    new Location(40.70 + random.nextDouble() * 0.04, -74.00 + random.nextDouble() * 0.04)));
+        }
+
+        List<CompletableFuture<Ride>> requests = new ArrayList<>();
+        for (int i = 0; i < drivers; i++) {
+            Location corner = new Location(40.71 + (i % 3) * TILE_SIZE, -73.99 + (i / 3 % 3) * TILE_SIZE);
+            requests.add(engine.requestRideAsync("R" + i, corner));
+        }
+
+        Set<String> allocated = new HashSet<>();
+        for (CompletableFuture<Ride> request : requests) {
+            Ride ride = request.get(30, TimeUnit.SECONDS);
+            assertTrue(allocated.add(ride.getDriver().getDriverId()), "Driver allocated twice");
+        }
+        assertEquals(drivers, allocated.size());
+        for (CompletableFuture<Ride> request : requests) {
+            engine.completeRide(request.join().getRideId());
+        }
+        assertEquals(drivers, engine.getAvailableDrivers().size());
+    }
+
+    @Test
+    void clearRemovesDriversAndRides() {
+        engine.registerDriver(new Driver("D1", "John", new Location(40.75, -74.00)));
+        engine.requestRide("R1", new Location(40.75, -74.00));
+
+        engine.clear();
+
+        assertEquals(0, engine.getDriverCount());
+        assertEquals(0, engine.getRideCount());
+        assertTrue(engine.getNearestDrivers(new Location(40.75, -74.00), 5).isEmpty());
+    }
+
+    @Test
+    void operationsAfterCloseThrowException() {
+        engine.close();
+
+        assertThrows(IllegalStateException.class, () -> engine.requestRide("R1", new Location(40.75, -74.00)));
+    }
+
+    private static List<String> ids(List<Driver> drivers) {
+        return drivers.stream().map(Driver::getDriverId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,94 @@
+package com.mobility.service;
+
+import com.mobility.enums.IndexType;
+import com.mobility.exception.DriverAllocationException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideAllocationStressTest {
+
+    private static final int THREADS = 64;
+    private static final int REQUESTS_PER_THREAD = 50;
+
+    @ParameterizedTest
+    @EnumSource(value = IndexType.class, names = {"SPATIAL_GRID", "KD_TREE"})
+    void hotspotBurstAllocatesEveryRequestOnce(IndexType indexType) throws Exception {
+        // Latency under this burst depends on the machine; ClaimContentionBenchmark reports its percentiles
+        BurstResult result = runBurst(indexType);
+        int requests = THREADS * REQUESTS_PER_THREAD;
+
+        Set<String> allocated = new HashSet<>();
+        result.rides().forEach(ride -> assertTrue(allocated.add(ride.getDriver().getDriverId()), "Driver allocated twice"));
+
+        assertEquals(0, result.allocationFailures(), "Allocation failure rate should be zero with a driver per request");
+        assertEquals(requests, result.rides().size());
+        assertEquals(0, result.service().getAvailableDrivers().size());
+    }
+
+    private static BurstResult runBurst(IndexType indexType) throws InterruptedException {
+        RideMatchingService service = new RideMatchingService(indexType);
+        Random random = new Random(17);
+        int requests = THREADS * REQUESTS_PER_THREAD;
+
+        // Enough drivers for every request, queued at a taxi rank: many share the exact same nearest position,
+        // so concurrent requests all compute the same first choice
+        for (int i = 0; i < requests; i++) {
+            service.registerDriver(new Driver("D" + i, "Driver" + i,
+                    new Location(40.6413 + random.nextInt(20) * 0.0001, -73.7781)));
+        }
+
+        Location pickup = new Location(40.6413, -73.7781);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        List<Ride> rides = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger allocationFailures = new AtomicInteger();
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        try {
+                            rides.add(service.requestRide("R" + thread + "-" + i, pickup));
+                        } catch (DriverAllocationException | NoAvailableDriverException e) {
+                            allocationFailures.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        return new BurstResult(service, rides, allocationFailures.get());
+    }
+
+    private record BurstResult(RideMatchingService service, List<Ride> rides, int allocationFailures) {
+    }
+}
@@ -0,0 +1,356 @@
+package com.mobility.service;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.enums.RideStatus;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
+import com.mobility.model.Ride;
+import com.mobility.store.WriteAheadLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideMatchingServiceRecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    private Path path;
+
+    @BeforeEach
+    void setup() {
+        path = directory.resolve("rides.wal");
+    }
+
+    private RideMatchingService open(WriteAheadLog journal) {
+        return new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN, journal);
+    }
+
+    // Simulates a process restart
+    private RideMatchingService restart() {
+        return open(WriteAheadLog.open(path));
+    }
+
+    @Test
+    void restartRestoresDriversAndLocations() {
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            RideMatchingService service = open(journal);
+            service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+            service.registerDriver(new Driver("D2", "Jane", new Location(41.0, -75.0)));
+            service.updateDriverLocation("D1", 40.5, -74.5);
+            service.updateDriverLocation("D2", new Location(41.5, -75.5));
+        }
+
+        RideMatchingService recovered = restart();
+
+        assertEquals(2, recovered.getDriverCount());
+        assertEquals("John", recovered.getDriver("D1").getName());
+        assertEquals(new Location(40.5, -74.5), recovered.getDriver("D1").getCurrentLocation());
+        assertEquals(new Location(41.5, -75.5), recovered.getDriver("D2").getCurrentLocation());
+        assertEquals("D1", recovered.getNearestDrivers(new Location(40.5, -74.5), 1).get(0).getDriverId());
+    }
+
+    @Test
+    void restartRestoresRidesAndAvailability() {
+        Ride active;
+        Ride completed;
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            RideMatchingService service = open(journal);
+            service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+            service.registerDriver(new Driver("D2", "Jane", new Location(45.0, -80.0)));
+            completed = service.requestRide("R1", new Location(40.0, -74.0));
+            service.completeRide(completed.getRideId());
+            active = service.requestRide("R2", new Location(45.0, -80.0));
+        }
+
+        RideMatchingService recovered = restart();
+
+        assertEquals(2, recovered.getRideCount());
+        Ride recoveredActive = recovered.getRide(active.getRideId());
+        assertEquals(RideStatus.IN_PROGRESS, recoveredActive.getStatus());
+        assertEquals("R2", recoveredActive.getRiderId());
+        assertEquals(active.getRequestTime().toEpochMilli(), recoveredActive.getRequestTime().toEpochMilli());
+        assertFalse(recovered.getDriver("D2").isAvailable());
+
+        Ride recoveredCompleted = recovered.getRide(completed.getRideId());
+        assertEquals(RideStatus.COMPLETED, recoveredCompleted.getStatus());
+        assertEquals(completed.getCompletionTime().toEpochMilli(),
+                recoveredCompleted.getCompletionTime().toEpochMilli());
+        assertTrue(recovered.getDriver("D1").isAvailable());
+        assertEquals(List.of("D1"), recovered.getAvailableDrivers().stream().map(Driver::getDriverId).toList());
+    }
+
+    @Test
+    void recoveredActiveRideCanBeCompleted() {
+        String rideId;
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            RideMatchingService service = open(journal);
+            service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+            rideId = service.requestRide("R1", new Location(40.0, -74.0)).getRideId();
+        }
+
+        RideMatchingService recovered = restart();
+        assertThrows(NoAvailableDriverException.class, () -> recovered.requestRide("R2", new Location(40.0, -74.0)));
+        recovered.completeRide(rideId);
+
+        assertTrue(recovered.getDriver("D1").isAvailable());
+    }
+
+    @Test
+    void restartRestoresCancelledRides() {
+        Ride cancelled;
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            RideMatchingService service = open(journal);
+            service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+            cancelled = service.requestRide("R1", new Location(40.0, -74.0));
+            service.cancelRide(cancelled.getRideId());
+        }
+
+        RideMatchingService recovered = restart();
+
+        Ride recoveredCancelled = recovered.getRide(cancelled.getRideId());
+        assertEquals(RideStatus.CANCELLED, recoveredCancelled.getStatus());
+        assertEquals(cancelled.getCompletionTime().toEpochMilli(),
+                recoveredCancelled.getCompletionTime().toEpochMilli());
+        assertEquals(0, recovered.getActiveRideCount());
+        assertTrue(recovered.getDriver("D1").isAvailable());
+    }
+
+    @Test
+    void rideIdsAfterRestartDoNotCollide() {
+        String first;
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            RideMatchingService service = open(journal);
+            service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+            service.registerDriver(new Driver("D2", "Jane", new Location(40.1, -74.1)));
+            first = service.requestRide("R1", new Location(40.0, -74.0)).getRideId();
+        }
+
+        RideMatchingService recovered = restart();
+        Ride second = recovered.requestRide("R2", new Location(40.1, -74.1));
+
+        assertNotEquals(first, second.getRideId());
+        assertEquals(2, recovered.getRideCount());
+    }
+
+    @Test
+    void restartAfterClearStartsEmpty() {
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            RideMatchingService service = open(journal);
+            service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+            service.requestRide("R1", new Location(40.0, -74.0));
+            service.clear();
+            service.registerDriver(new Driver("D2", "Jane", new Location(41.0, -75.0)));
+        }
+
+        RideMatchingService recovered = restart();
+
+        assertEquals(1, recovered.getDriverCount());
+        assertNull(recovered.getDriver("D1"));
+        assertEquals(0, recovered.getRideCount());
+    }
+
+    @Test
+    void batchLocationUpdatesAreJournaled() {
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            RideMatchingService service = open(journal);
+            service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+            LocationUpdateBatch batch = new LocationUpdateBatch(2);
+            batch.add("D1", 40.2, -74.2);
+            batch.add("D1", 40.3, -74.3);
+            service.updateDriverLocations(batch);
+        }
+
+        RideMatchingService recovered = restart();
+
+        assertEquals(new Location(40.3, -74.3), recovered.getDriver("D1").getCurrentLocation());
+    }
+
+    @Test
+    void committedChangesSurviveWithoutClose() {
+        WriteAheadLog journal = WriteAheadLog.open(path);
+        RideMatchingService service = open(journal);
+        service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+        String rideId = service.requestRide("R1", new Location(40.0, -74.0)).getRideId();
+
+        // The journal is never closed; a second reader sees what the claim committed
+        RideMatchingService recovered = restart();
+
+        assertEquals(RideStatus.IN_PROGRESS, recovered.getRide(rideId).getStatus());
+    }
+
+    @Test
+    void claimThatCannotBeJournaledReleasesTheDriver() {
+        WriteAheadLog journal = WriteAheadLog.open(path);
+        RideMatchingService service = open(journal);
+        Driver driver = new Driver("D1", "John", new Location(40.0, -74.0));
+        service.registerDriver(driver);
+        journal.close();
+
+        assertThrows(IllegalStateException.class, () -> service.requestRide("R1", new Location(40.0, -74.0)));
+
+        assertTrue(driver.isAvailable());
+        assertEquals(List.of(driver), service.getNearestDrivers(new Location(40.0, -74.0), 5));
+        assertEquals(0, service.getRideCount());
+    }
+
+    @Test
+    void snapshotRestoresStateWithoutJournal() {
+        Path snapshot = directory.resolve("rides.snapshot");
+        RideMatchingService service = new RideMatchingService();
+        service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+        service.registerDriver(new Driver("D2", "Jane", new Location(45.0, -80.0)));
+        Ride done = service.requestRide("R1", new Location(40.0, -74.0));
+        service.completeRide(done.getRideId());
+        Ride open = service.requestRide("R2", new Location(45.0, -80.0));
+        service.writeSnapshot(snapshot);
+
+        RideMatchingService recovered = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN,
+                null, snapshot);
+
+        assertEquals(2, recovered.getDriverCount());
+        // Only open rides are kept
+        assertEquals(1, recovered.getRideCount());
+        assertEquals(RideStatus.IN_PROGRESS, recovered.getRide(open.getRideId()).getStatus());
+        assertFalse(recovered.getDriver("D2").isAvailable());
+        Ride next = recovered.requestRide("R3", new Location(40.0, -74.0));
+        assertNotEquals(done.getRideId(), next.getRideId());
+        assertNotEquals(open.getRideId(), next.getRideId());
+    }
+
+    @Test
+    void restartReplaysOnlyJournalRecordsAfterSnapshot() {
+        Path snapshot = directory.resolve("rides.snapshot");
+        String rideId;
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            RideMatchingService service = open(journal);
+            service.registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+            rideId = service.requestRide("R1", new Location(40.0, -74.0)).getRideId();
+            service.writeSnapshot(snapshot);
+            service.completeRide(rideId);
+            service.registerDriver(new Driver("D2", "Jane", new Location(41.0, -75.0)));
+            service.updateDriverLocation("D1", 40.5, -74.5);
+        }
+
+        RideMatchingService recovered = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN,
+                WriteAheadLog.open(path), snapshot);
+
+        assertEquals(2, recovered.getDriverCount());
+        assertEquals(RideStatus.COMPLETED, recovered.getRide(rideId).getStatus());
+        assertTrue(recovered.getDriver("D1").isAvailable());
+        assertEquals(new Location(40.5, -74.5), recovered.getDriver("D1").getCurrentLocation());
+    }
+
+    @Test
+    void snapshotsRotateJournalAndDropSegmentsBeforeThem() {
+        Path snapshot = directory.resolve("rides.snapshot");
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            RideMatchingService service = open(journal);
+            for (int i = 0; i < 3; i++) {
+                service.registerDriver(new Driver("D" + i, "Driver" + i, new Location(40.0 + i, -74.0)));
+                service.writeSnapshot(snapshot);
+            }
+            service.updateDriverLocation("D0", 45.0, -75.0);
+        }
+
+        // Only the segment started by the last snapshot is left
+        assertFalse(path.toFile().exists());
+        assertEquals(1, directory.toFile().list((dir, name) -> name.startsWith("rides.wal.")).length);
+
+        RideMatchingService recovered = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN,
+                WriteAheadLog.open(path), snapshot);
+        assertEquals(3, recovered.getDriverCount());
+        assertEquals(new Location(45.0, -75.0), recovered.getDriver("D0").getCurrentLocation());
+    }
+
+    @Test
+    void missingSnapshotFallsBackToFullReplay() {
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            open(journal).registerDriver(new Driver("D1", "John", new Location(40.0, -74.0)));
+        }
+
+        RideMatchingService recovered = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN,
+                WriteAheadLog.open(path), directory.resolve("missing.snapshot"));
+
+        assertEquals(1, recovered.getDriverCount());
+    }
+
+    @Test
+    void snapshotUnderConcurrentTrafficRestoresFinalState() throws Exception {
+        Path snapshot = directory.resolve("rides.snapshot");
+        int driverCount = 200;
+        RideMatchingService service;
+        List<String> openRides = new ArrayList<>();
+        try (WriteAheadLog journal = WriteAheadLog.open(path)) {
+            service = open(journal);
+            for (int i = 0; i < driverCount; i++) {
+                service.registerDriver(new Driver("D" + i, "Driver" + i, new Location(40.0 + i * 0.001, -74.0)));
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    List<String> kept = new ArrayList<>();
+                    for (int i = 0; i < 100; i++) {
+                        Ride ride = service.requestRide("R" + thread, new Location(40.0 + i * 0.002, -74.0));
+                        if (i % 10 == 0) {
+                            kept.add(ride.getRideId());
+                        } else {
+                            service.completeRide(ride.getRideId());
+                        }
+                        service.updateDriverLocation("D" + (thread * 50 + i % 50), 41.0, -75.0 + i * 0.001);
+                    }
+                    return kept;
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                service.writeSnapshot(snapshot);
+            }
+            for (Future<List<String>> future : futures) {
+                openRides.addAll(future.get());
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        RideMatchingService recovered = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN,
+                WriteAheadLog.open(path), snapshot);
+
+        for (int i = 0; i < driverCount; i++) {
+            Driver live = service.getDriver("D" + i);
+            Driver restored = recovered.getDriver("D" + i);
+            assertEquals(live.getCurrentLocation(), restored.getCurrentLocation());
+            assertEquals(live.isAvailable(), restored.isAvailable(), live.getDriverId());
+        }
+        for (String rideId : openRides) {
+            assertEquals(RideStatus.IN_PROGRESS, recovered.getRide(rideId).getStatus());
+        }
+        assertEquals(service.getAvailableDrivers().size(), recovered.getAvailableDrivers().size());
+    }
+
+    @Test
+    void constructorRejectsNullSnapshotPath() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN, null, null));
+    }
+
+    @Test
+    void constructorRejectsNullJournal() {
+        assertThrows(IllegalArgumentException.class, () -> open(null));
+    }
+}
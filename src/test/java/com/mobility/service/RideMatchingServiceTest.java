@@ -1,13 +1,26 @@
 package com.mobility.service;
 
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
 import com.mobility.enums.RideStatus;
 import com.mobility.exception.*;
+import com.mobility.metrics.MetricsSnapshot;
 import com.mobility.model.*;
+import com.mobility.store.RideArchive;
+import com.mobility.store.RideStore;
+import com.sun.management.ThreadMXBean;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -51,6 +64,101 @@ class RideMatchingServiceTest {
         assertEquals(newLocation, service.getDriver("D1").getCurrentLocation());
     }
 
+    @Test
+    void updateDriverLocationCoordinates() {
+        Driver d = new Driver("D1", "John", loc1);
+        service.registerDriver(d);
+
+        service.updateDriverLocation("D1", 41.00, -74.00);
+
+        assertEquals(new Location(41.00, -74.00), service.getDriver("D1").getCurrentLocation());
+        assertEquals(d, service.getNearestDrivers(new Location(41.00, -74.00), 1).get(0));
+    }
+
+    @Test
+    void updateDriverLocationCoordinatesInvalid() {
+        service.registerDriver(new Driver("D1", "John", loc1));
+
+        assertThrows(IllegalArgumentException.class, () -> service.updateDriverLocation("D1", 95.00, -74.00));
+        assertThrows(DriverNotFoundException.class, () -> service.updateDriverLocation("X", 41.00, -74.00));
+    }
+
+    @Test
+    void updateDriverLocationCoordinatesWithinCellDoesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        service.registerDriver(new Driver("D1", "John", new Location(40.755, -74.005)));
+
+        // Warm up so the update path is compiled before measuring
+        for (int i = 0; i < 200_000; i++) {
+            service.updateDriverLocation("D1", 40.755 + (i % 100) * 0.00001, -74.005);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            service.updateDriverLocation("D1", 40.755 + (i % 100) * 0.00001, -74.005);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < 10_000, "Allocated " + allocated + " bytes for 100k updates");
+    }
+
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void updateDriverLocationsAppliesLatestFixPerDriver(IndexType indexType) {
+        RideMatchingService service = new RideMatchingService(indexType);
+        service.registerDriver(new Driver("D1", "John", loc1));
+        service.registerDriver(new Driver("D2", "Jane", loc2));
+
+        LocationUpdateBatch batch = new LocationUpdateBatch();
+        batch.add("D1", 41.00, -74.00);
+        batch.add("D2", 42.00, -75.00);
+        batch.add("X", 43.00, -76.00);
+        batch.add("D1", 41.50, -74.50);
+
+        int moved = service.updateDriverLocations(batch);
+
+        assertEquals(2, moved);
+        assertEquals(new Location(41.50, -74.50), service.getDriver("D1").getCurrentLocation());
+        assertEquals(new Location(42.00, -75.00), service.getDriver("D2").getCurrentLocation());
+        assertEquals("D1", service.getNearestDrivers(new Location(41.50, -74.50), 1).get(0).getDriverId());
+        assertEquals("D2", service.getNearestDrivers(new Location(42.00, -75.00), 1).get(0).getDriverId());
+    }
+
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void updateDriverLocationsMatchesPerCallUpdates(IndexType indexType) {
+        RideMatchingService batched = new RideMatchingService(indexType);
+        RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN);
+        Random random = new Random(5);
+
+        for (int i = 0; i < 2_000; i++) {
+            Location location = new Location(40.0 + random.nextDouble(), -74.0 + random.nextDouble());
+            batched.registerDriver(new Driver("D" + i, "Driver" + i, location));
+            reference.registerDriver(new Driver("D" + i, "Driver" + i, location));
+        }
+
+        LocationUpdateBatch batch = new LocationUpdateBatch();
+        for (int i = 0; i < 5_000; i++) {
+            String driverId = "D" + random.nextInt(2_000);
+            double latitude = 40.0 + random.nextDouble();
+            double longitude = -74.0 + random.nextDouble();
+            batch.add(driverId, latitude, longitude);
+            reference.updateDriverLocation(driverId, latitude, longitude);
+        }
+        batched.updateDriverLocations(batch);
+
+        for (int i = 0; i < 50; i++) {
+            Location pickup = new Location(40.0 + random.nextDouble(), -74.0 + random.nextDouble());
+            assertEquals(reference.getNearestDrivers(pickup, 5), batched.getNearestDrivers(pickup, 5));
+        }
+    }
+
+    @Test
+    void updateDriverLocationsNullBatch() {
+        assertThrows(IllegalArgumentException.class, () -> service.updateDriverLocations(null));
+    }
+
     @Test
     void updateNonExistentDriver() {
         assertThrows(DriverNotFoundException.class, () -> service.updateDriverLocation("X", loc1));
@@ -128,6 +236,35 @@ class RideMatchingServiceTest {
         assertThrows(InvalidRideStateException.class, () -> service.completeRide(ride.getRideId()));
     }
 
+    @Test
+    void cancelRideFreesDriver() {
+        Driver d = new Driver("D1", "John", loc1);
+        service.registerDriver(d);
+
+        Ride ride = service.requestRide("R1", loc1);
+        service.cancelRide(ride.getRideId());
+
+        assertTrue(d.isAvailable());
+        assertEquals(RideStatus.CANCELLED, ride.getStatus());
+        assertNotNull(ride.getCompletionTime());
+        assertEquals(0, service.getActiveRideCount());
+        assertEquals(d, service.requestRide("R2", loc1).getDriver());
+    }
+
+    @Test
+    void cancelFinishedRide() {
+        service.registerDriver(new Driver("D1", "John", loc1));
+        Ride completed = service.requestRide("R1", loc1);
+        service.completeRide(completed.getRideId());
+        Ride cancelled = service.requestRide("R2", loc1);
+        service.cancelRide(cancelled.getRideKey());
+
+        assertThrows(InvalidRideStateException.class, () -> service.cancelRide(completed.getRideId()));
+        assertThrows(InvalidRideStateException.class, () -> service.cancelRide(cancelled.getRideId()));
+        assertThrows(InvalidRideStateException.class, () -> service.completeRide(cancelled.getRideId()));
+        assertThrows(RideNotFoundException.class, () -> service.cancelRide("X"));
+    }
+
     @Test
     void getNearestDrivers() {
         Driver d1 = new Driver("D1", "1", new Location(40.55, -74.60));
@@ -244,15 +381,165 @@ class RideMatchingServiceTest {
         assertEquals(5, service.getAvailableDrivers().size());
     }
 
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void concurrentReRegistrationIndexesLastWinner(IndexType indexType) throws Exception {
+        RideMatchingService indexed = new RideMatchingService(indexType);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Eight threads keep re-registering the same IDs at different spots while matching reads run alongside
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 500; i++) {
+                    indexed.registerDriver(new Driver("D" + (i % 20), "Driver" + thread, new Location(40.0 + thread * 0.1, -74.0)));
+                    indexed.getNearestDrivers(loc1, 5);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(20, indexed.getDriverCount());
+        List<Driver> nearest = indexed.getNearestDrivers(new Location(40.0, -74.0), 100);
+        assertEquals(20, nearest.size());
+        for (Driver driver : nearest) {
+            assertSame(indexed.getDriver(driver.getDriverId()), driver, "Index must hold the registered instance");
+        }
+    }
+
+    @Test
+    void haversineMetricMatchesOnGroundDistance() {
+        RideMatchingService metric = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.HAVERSINE);
+        // At 60N a degree of longitude is half a degree of latitude on the ground, so raw degrees pick the wrong driver
+        metric.registerDriver(new Driver("D1", "North", new Location(60.015, 10.000)));
+        metric.registerDriver(new Driver("D2", "East", new Location(60.000, 10.020)));
+        service.registerDriver(new Driver("D1", "North", new Location(60.015, 10.000)));
+        service.registerDriver(new Driver("D2", "East", new Location(60.000, 10.020)));
+
+        Location pickup = new Location(60.000, 10.000);
+
+        assertEquals("D2", metric.requestRide("R1", pickup).getDriver().getDriverId());
+        assertEquals("D1", service.requestRide("R1", pickup).getDriver().getDriverId());
+    }
+
+    @Test
+    void distanceBetweenReportsInMetricUnits() {
+        RideMatchingService metric = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.HAVERSINE);
+        Location from = new Location(40.0, -74.0);
+        Location to = new Location(41.0, -74.0);
+
+        assertEquals(DistanceMetric.HAVERSINE, metric.getDistanceMetric());
+        assertEquals(111_195, metric.distanceBetween(from, to), 1);
+        assertEquals(1.0, service.distanceBetween(from, to), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> new RideMatchingService(IndexType.KD_TREE, null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void getNearestDriversMatchesFullSortIncludingTies(IndexType indexType) {
+        RideMatchingService indexed = new RideMatchingService(indexType);
+        Random random = new Random(21);
+        List<Driver> fleet = new ArrayList<>();
+
+        // A taxi rank of exact ties next to a spread-out fleet, with IDs registered out of order
+        for (int i = 0; i < 600; i++) {
+            int id = (i * 7919) % 600;
+            Location location = i % 3 == 0
+                    ? new Location(40.6413 + random.nextInt(4) * 0.0005, -73.7781)
+                    : new Location(40.5 + random.nextDouble() * 0.3, -74.0 + random.nextDouble() * 0.3);
+            Driver driver = new Driver("D" + id, "Driver" + id, location);
+            fleet.add(driver);
+            indexed.registerDriver(driver);
+        }
+        fleet.get(3).markAsUnavailable();
+
+        for (Location query : List.of(new Location(40.6413, -73.7781), new Location(40.6420, -73.7781), new Location(40.65, -73.85))) {
+            for (int count : new int[]{1, 5, 40, 600}) {
+                // The original full sort, with equally distant drivers ordered by ID
+                List<Driver> expected = fleet.stream()
+                        .filter(Driver::isAvailable)
+                        .sorted(Comparator.comparingDouble((Driver d) -> d.getCurrentLocation().distanceTo(query))
+                                .thenComparing(Driver::getDriverId))
+                        .limit(count)
+                        .toList();
+
+                assertEquals(expected, indexed.getNearestDrivers(query, count));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void getNearestDriversWithinRadiusExcludesFartherDrivers(IndexType indexType) {
+        RideMatchingService indexed = new RideMatchingService(indexType);
+        indexed.registerDriver(new Driver("D1", "Near", new Location(40.751, -74.000)));
+        indexed.registerDriver(new Driver("D2", "Edge", new Location(40.750, -74.020)));
+        indexed.registerDriver(new Driver("D3", "Far", new Location(40.900, -74.000)));
+
+        Location pickup = new Location(40.750, -74.000);
+        List<String> within = indexed.getNearestDrivers(pickup, 10, 0.02).stream().map(Driver::getDriverId).toList();
+
+        assertEquals(List.of("D1", "D2"), within);
+        assertTrue(indexed.getNearestDrivers(pickup, 10, 0.0005).isEmpty());
+    }
+
+    @Test
+    void getNearestDriversRadiusUsesMetricUnits() {
+        RideMatchingService metric = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.HAVERSINE);
+        // About 1.1km north of the pickup
+        metric.registerDriver(new Driver("D1", "North", new Location(40.760, -74.000)));
+        Location pickup = new Location(40.750, -74.000);
+
+        assertEquals(1, metric.getNearestDrivers(pickup, 5, 1_200).size());
+        assertTrue(metric.getNearestDrivers(pickup, 5, 1_000).isEmpty());
+    }
+
     @Test
     void invalidNearestParams() {
         assertThrows(IllegalArgumentException.class, () -> service.getNearestDrivers(null, 5));
+        assertThrows(IllegalArgumentException.class, () -> service.getNearestDrivers(loc1, 5, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.getNearestDrivers(loc1, 5, Double.NaN));
 
         assertThrows(IllegalArgumentException.class, () -> service.getNearestDrivers(loc1, 0));
 
         assertThrows(IllegalArgumentException.class, () -> service.getNearestDrivers(loc1, -1));
     }
 
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void indexMatchesLinearScan(IndexType indexType) {
+        RideMatchingService service = new RideMatchingService(indexType);
+        RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN);
+        Random random = new Random(11);
+
+        for (int i = 0; i < 500; i++) {
+            Location location = new Location(40.0 + random.nextDouble(), -74.0 + random.nextDouble());
+            service.registerDriver(new Driver("D" + i, "Driver" + i, location));
+            reference.registerDriver(new Driver("D" + i, "Driver" + i, location));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Location moved = new Location(40.0 + random.nextDouble(), -74.0 + random.nextDouble());
+            service.updateDriverLocation("D" + i, moved);
+            reference.updateDriverLocation("D" + i, moved);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            Location pickup = new Location(40.0 + random.nextDouble(), -74.0 + random.nextDouble());
+
+            assertEquals(reference.getNearestDrivers(pickup, 5), service.getNearestDrivers(pickup, 5));
+            assertEquals(reference.requestRide("R" + i, pickup).getDriver(), service.requestRide("R" + i, pickup).getDriver());
+        }
+    }
+
     @Test
     void clearData() {
         Driver d = new Driver("D1","John",loc1);
@@ -264,4 +551,255 @@ class RideMatchingServiceTest {
         assertEquals(0, service.getDriverCount());
         assertEquals(0, service.getRideCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    void completedRidesMoveToHistoryWithTierCounts() {
+        service.registerDriver(new Driver("D1", "John", loc1));
+        service.registerDriver(new Driver("D2", "Jane", loc2));
+        Ride done = service.requestRide("R1", loc1);
+        service.completeRide(done.getRideId());
+        service.requestRide("R2", loc2);
+
+        assertEquals(1, service.getActiveRideCount());
+        assertEquals(1, service.getRideHistoryCount());
+        assertEquals(0, service.getArchivedRideCount());
+        assertEquals(2, service.getRideCount());
+        assertSame(done, service.getRide(done.getRideId()));
+    }
+
+    // Soak scale: 350k rides through a 1,000-ride history, then a heap delta after System.gc(), which needs a quiet
+    // JVM to be exact. Runs only with -Psoak.
+    @Test
+    @Tag("soak")
+    void boundedRideHistoryKeepsHeapFlat() {
+        RideMatchingService bounded = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN,
+                new RideStore(1_000, 60 * 60 * 1000L, null));
+        for (int i = 0; i < 50; i++) {
+            bounded.registerDriver(new Driver("D" + i, "Driver" + i, new Location(40.0 + i * 0.001, -74.0)));
+        }
+
+        runRides(bounded, 50_000);
+        long baseline = usedHeapAfterGc();
+        runRides(bounded, 300_000);
+        long growth = usedHeapAfterGc() - baseline;
+
+        assertEquals(0, bounded.getActiveRideCount());
+        assertEquals(1_000, bounded.getRideHistoryCount());
+        // Keeping all 300k rides would take tens of megabytes
+        assertTrue(growth < 8 * 1024 * 1024, "Heap grew by " + growth + " bytes");
+    }
+
+    @Test
+    void clearKeepsNewRideIdsApartFromArchivedRides(@TempDir Path archiveDirectory) {
+        try (RideArchive archive = RideArchive.open(archiveDirectory)) {
+            RideMatchingService archived = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN,
+                    new RideStore(0, 60 * 60 * 1000L, archive));
+            archived.registerDriver(new Driver("D1", "John", loc1));
+            Ride before = archived.requestRide("R1", loc1);
+            archived.completeRide(before.getRideId());
+            assertEquals(1, archived.getArchivedRideCount());
+
+            archived.clear();
+            archived.registerDriver(new Driver("D2", "Jane", loc2));
+            Ride after = archived.requestRide("R2", loc2);
+
+            assertNotEquals(before.getRideId(), after.getRideId());
+            assertEquals("R1", archived.getRide(before.getRideId()).getRiderId());
+            assertSame(after, archived.getRide(after.getRideId()));
+        }
+    }
+
+    @Test
+    void restartOverArchiveIssuesRideIdsPastTheArchivedOnes(@TempDir Path archiveDirectory) {
+        List<String> archivedIds = new ArrayList<>();
+        try (RideArchive archive = RideArchive.open(archiveDirectory)) {
+            RideMatchingService before = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN,
+                    new RideStore(0, 60 * 60 * 1000L, archive));
+            before.registerDriver(new Driver("D1", "John", loc1));
+            for (int i = 0; i < 3; i++) {
+                Ride ride = before.requestRide("R" + i, loc1);
+                before.completeRide(ride.getRideId());
+                archivedIds.add(ride.getRideId());
+            }
+        }
+
+        // No journal: only the archive remembers which IDs were issued
+        try (RideArchive archive = RideArchive.open(archiveDirectory)) {
+            RideMatchingService after = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN,
+                    new RideStore(0, 60 * 60 * 1000L, archive));
+            after.registerDriver(new Driver("D1", "John", loc1));
+            Ride ride = after.requestRide("R3", loc1);
+
+            assertFalse(archivedIds.contains(ride.getRideId()));
+            assertEquals("R0", after.getRide(archivedIds.get(0)).getRiderId());
+            assertSame(ride, after.getRide(ride.getRideId()));
+        }
+    }
+
+    @Test
+    void refusedDuplicateRideIdReleasesTheDriver() {
+        // A store that already holds the first ID this service will issue
+        RideStore store = new RideStore();
+        Ride stored = new Ride("RIDE-1", "R0", new Driver("D0", "Old", loc2), loc2);
+        store.add(stored);
+        RideMatchingService clashing = new RideMatchingService(IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN, store);
+        Driver driver = new Driver("D1", "John", loc1);
+        clashing.registerDriver(driver);
+
+        assertThrows(IllegalStateException.class, () -> clashing.requestRide("R1", loc1));
+
+        assertTrue(driver.isAvailable());
+        assertEquals(List.of(driver), clashing.getNearestDrivers(loc1, 5));
+        assertSame(stored, clashing.getRide("RIDE-1"));
+        assertEquals("D1", clashing.requestRide("R1", loc1).getDriver().getDriverId());
+    }
+
+    @Test
+    void anotherServicesClearDoesNotReissueRideIds() {
+        RideMatchingService other = new RideMatchingService();
+        service.registerDriver(new Driver("D1", "John", loc1));
+        service.registerDriver(new Driver("D2", "Jane", loc2));
+        Ride first = service.requestRide("R1", loc1);
+
+        other.clear();
+        Ride second = service.requestRide("R2", loc2);
+
+        assertNotEquals(first.getRideId(), second.getRideId());
+        assertSame(first, service.getRide(first.getRideId()));
+    }
+
+    @Test
+    void completeRideByKeyMatchesCompleteRideById() {
+        service.registerDriver(new Driver("D1", "John", loc1));
+        Ride ride = service.requestRide("R1", loc1);
+
+        service.completeRide(ride.getRideKey());
+
+        assertEquals(RideStatus.COMPLETED, service.getRide(ride.getRideId()).getStatus());
+        assertTrue(service.getDriver("D1").isAvailable());
+        assertThrows(InvalidRideStateException.class, () -> service.completeRide(ride.getRideKey()));
+        assertThrows(RideNotFoundException.class, () -> service.completeRide(ride.getRideKey() + 1_000_000));
+    }
+
+    @Test
+    void metricsRecordHotPathOperations() {
+        service.registerDriver(new Driver("D1", "John", loc1));
+        Ride ride = service.requestRide("R1", loc1);
+        assertThrows(NoAvailableDriverException.class, () -> service.requestRide("R2", loc1));
+        service.updateDriverLocation("D1", loc2);
+        service.completeRide(ride.getRideId());
+
+        MetricsSnapshot snapshot = service.getMetrics().snapshot();
+        assertEquals(2, snapshot.rideRequests());
+        assertEquals(1, snapshot.ridesMatched());
+        assertEquals(1, snapshot.noAvailableDriver());
+        assertEquals(1, snapshot.rideCompletions());
+        assertEquals(1, snapshot.locationUpdates());
+        assertEquals(2, snapshot.requestRideLatency().getCount());
+        assertEquals(1, snapshot.completeRideLatency().getCount());
+        assertEquals(1, snapshot.candidatesScanned().getMax());
+    }
+
+    @Test
+    void disabledMetricsLeaveCountersAtZero() {
+        service.getMetrics().setEnabled(false);
+        service.registerDriver(new Driver("D1", "John", loc1));
+        service.completeRide(service.requestRide("R1", loc1).getRideId());
+
+        assertEquals(0, service.getMetrics().snapshot().rideRequests());
+        assertEquals(0, service.getMetrics().snapshot().rideCompletions());
+    }
+
+    @Test
+    void expiryUnregistersSilentDrivers() {
+        AtomicLong clock = new AtomicLong();
+        service.registerDriver(new Driver("D1", "John", loc1));
+        service.registerDriver(new Driver("D2", "Jane", loc1));
+        service.enableExpiry(Duration.ofSeconds(60), Duration.ofSeconds(10), clock::get);
+
+        clock.set(TimeUnit.SECONDS.toNanos(30));
+        service.expireStale();
+        service.updateDriverLocation("D1", 40.81, -74.60);
+
+        clock.set(TimeUnit.SECONDS.toNanos(61));
+        service.expireStale();
+        assertNull(service.getDriver("D2"));
+        assertEquals(List.of("D1"), service.getNearestDrivers(loc1, 5).stream().map(Driver::getDriverId).toList());
+
+        clock.set(TimeUnit.SECONDS.toNanos(91));
+        service.expireStale();
+        assertEquals(0, service.getDriverCount());
+        assertThrows(NoAvailableDriverException.class, () -> service.requestRide("R1", loc1));
+        assertEquals(2, service.getExpiredDriverCount());
+
+        // Registering again starts a new lease
+        service.registerDriver(new Driver("D1", "John", loc1));
+        clock.set(TimeUnit.SECONDS.toNanos(120));
+        service.expireStale();
+        assertNotNull(service.getDriver("D1"));
+    }
+
+    @Test
+    void expiryCancelsUnacknowledgedRides() {
+        AtomicLong clock = new AtomicLong();
+        Driver d = new Driver("D1", "John", loc1);
+        service.registerDriver(d);
+        service.enableExpiry(Duration.ofSeconds(60), Duration.ofSeconds(10), clock::get);
+        Ride ride = service.requestRide("R1", loc1);
+
+        clock.set(TimeUnit.SECONDS.toNanos(11));
+        assertEquals(1, service.expireStale());
+
+        assertEquals(RideStatus.CANCELLED, ride.getStatus());
+        assertTrue(d.isAvailable());
+        assertEquals(1, service.getExpiredRideCount());
+        assertThrows(InvalidRideStateException.class, () -> service.acknowledgeRide(ride.getRideId()));
+        assertEquals(d, service.requestRide("R2", loc1).getDriver());
+    }
+
+    @Test
+    void acknowledgedAndFinishedRidesDoNotExpire() {
+        AtomicLong clock = new AtomicLong();
+        service.registerDriver(new Driver("D1", "John", loc1));
+        service.registerDriver(new Driver("D2", "Jane", loc1));
+        service.enableExpiry(Duration.ofSeconds(60), Duration.ofSeconds(10), clock::get);
+        Ride acknowledged = service.requestRide("R1", loc1);
+        Ride completed = service.requestRide("R2", loc1);
+        service.acknowledgeRide(acknowledged.getRideId());
+        service.completeRide(completed.getRideId());
+
+        clock.set(TimeUnit.SECONDS.toNanos(11));
+        service.expireStale();
+
+        assertEquals(RideStatus.IN_PROGRESS, acknowledged.getStatus());
+        assertEquals(RideStatus.COMPLETED, completed.getStatus());
+        assertEquals(0, service.getExpiredRideCount());
+    }
+
+    @Test
+    void enableExpiryTwice() {
+        service.enableExpiry(Duration.ofSeconds(60), Duration.ofSeconds(10), System::nanoTime);
+
+        assertThrows(IllegalStateException.class,
+                () -> service.enableExpiry(Duration.ofSeconds(60), Duration.ofSeconds(10)));
+        service.disableExpiry();
+        assertThrows(IllegalArgumentException.class, () -> service.enableExpiry(Duration.ZERO, Duration.ofSeconds(10)));
+        service.enableExpiry();
+        service.disableExpiry();
+    }
+
+    private static void runRides(RideMatchingService matching, int count) {
+        Location pickup = new Location(40.01, -74.0);
+        for (int i = 0; i < count; i++) {
+            matching.completeRide(matching.requestRide("R", pickup).getRideId());
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,65 @@
+package com.mobility.service;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Location;
+import com.mobility.utils.DistanceKernel;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardLayoutTest {
+
+    @Test
+    void constructorInvalidArgumentsThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> ShardLayout.tiles(0, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> ShardLayout.tiles(4, 0));
+    }
+
+    @Test
+    void geohashRegionsMatchPrefixCells() {
+        // Precision 5 cells are 180/2^12 degrees tall and 360/2^13 wide, about 0.044 degrees square
+        ShardLayout layout = ShardLayout.geohash(2, 5);
+        double height = 180.0 / 4096;
+        double width = 360.0 / 8192;
+        Location pickup = new Location(-90 + height * 100.5, -180 + width * 200.25);
+        DistanceKernel kernel = DistanceKernel.around(pickup, DistanceMetric.EUCLIDEAN);
+
+        assertEquals(Math.pow(width * 0.25, 2), layout.borderGap(kernel, pickup), 1e-15);
+        assertNotEquals(layout.shardOf(pickup.getLatitude(), pickup.getLongitude()),
+                layout.shardOf(pickup.getLatitude(), pickup.getLongitude() + width));
+        assertThrows(IllegalArgumentException.class, () -> ShardLayout.geohash(2, 13));
+    }
+
+    @Test
+    void shardOfSpreadsNeighbouringTilesOverAllShards() {
+        ShardLayout layout = ShardLayout.tiles(4, 0.1);
+        Set<Integer> used = new HashSet<>();
+        for (int column = 0; column < 4; column++) {
+            used.add(layout.shardOf(40.75, -74.05 + column * 0.1));
+        }
+
+        assertEquals(Set.of(0, 1, 2, 3), used);
+        assertEquals(layout.shardOf(40.71, -74.01), layout.shardOf(40.79, -74.09));
+    }
+
+    @Test
+    void shardOfClampsPolesAndAntimeridian() {
+        ShardLayout layout = ShardLayout.tiles(3, 0.1);
+
+        assertDoesNotThrow(() -> layout.shardOf(90.0, 180.0));
+        assertDoesNotThrow(() -> layout.shardOf(-90.0, -180.0));
+    }
+
+    @Test
+    void borderGapIsDistanceToNearestTileEdge() {
+        ShardLayout layout = ShardLayout.tiles(4, 0.1);
+        Location pickup = new Location(0.02, 0.05);
+        DistanceKernel kernel = DistanceKernel.around(pickup, DistanceMetric.EUCLIDEAN);
+
+        // The southern edge at latitude 0.0 is closest
+        assertEquals(0.02 * 0.02, layout.borderGap(kernel, pickup), 1e-12);
+    }
+}
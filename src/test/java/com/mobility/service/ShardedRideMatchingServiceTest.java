@@ -0,0 +1,319 @@
+package com.mobility.service;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.enums.IndexType;
+import com.mobility.enums.RideStatus;
+import com.mobility.exception.DriverNotFoundException;
+import com.mobility.exception.InvalidRideStateException;
+import com.mobility.exception.NoAvailableDriverException;
+import com.mobility.exception.RideNotFoundException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.LocationUpdateBatch;
+import com.mobility.model.Ride;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedRideMatchingServiceTest {
+
+    // Small tiles so a city-sized fleet spreads over every shard and many pickups sit near a border
+    private static final ShardLayout LAYOUT = ShardLayout.tiles(4, 0.01);
+
+    private ShardedRideMatchingService service;
+
+    @BeforeEach
+    void setup() {
+        service = new ShardedRideMatchingService(LAYOUT, IndexType.SPATIAL_GRID, DistanceMetric.EUCLIDEAN);
+    }
+
+    @Test
+    void registerDriverPlacesDriverInItsRegionsShard() {
+        Location home = new Location(40.750, -74.000);
+        service.registerDriver(new Driver("D1", "John", home));
+
+        int owner = LAYOUT.shardOf(home);
+        for (int i = 0; i < LAYOUT.getShardCount(); i++) {
+            assertEquals(i == owner ? 1 : 0, service.shard(i).getDriverCount());
+        }
+        assertEquals(1, service.getDriverCount());
+    }
+
+    @Test
+    void requestRideMatchesUnshardedServiceAcrossBorders() {
+        RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN);
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            Location home = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            service.registerDriver(new Driver("D" + i, "Driver" + i, home));
+            reference.registerDriver(new Driver("D" + i, "Driver" + i, home));
+        }
+
+        for (int i = 0; i < 300; i++) {
+            Location pickup = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            Ride expected = reference.requestRide("R" + i, pickup);
+            Ride actual = service.requestRide("R" + i, pickup);
+
+            assertEquals(expected.getDriver().getDriverId(), actual.getDriver().getDriverId(), "Pickup " + pickup);
+        }
+        assertEquals(200, service.getAvailableDrivers().size());
+        assertEquals(300, service.getRideCount());
+    }
+
+    @Test
+    void getNearestDriversMatchesUnshardedService() {
+        RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN);
+        Random random = new Random(8);
+        for (int i = 0; i < 400; i++) {
+            Location home = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            service.registerDriver(new Driver("D" + i, "Driver" + i, home));
+            reference.registerDriver(new Driver("D" + i, "Driver" + i, home));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            Location query = new Location(40.70 + random.nextDouble() * 0.1, -74.00 + random.nextDouble() * 0.1);
+            assertEquals(ids(reference.getNearestDrivers(query, 10)), ids(service.getNearestDrivers(query, 10)));
+            assertEquals(ids(reference.getNearestDrivers(query, 10, 0.01)), ids(service.getNearestDrivers(query, 10, 0.01)));
+        }
+    }
+
+    @Test
+    void requestRideFallsBackToOtherShardsWhenHomeShardIsEmpty() {
+        Location pickup = new Location(40.755, -74.005);
+        Location elsewhere = new Location(40.905, -74.195);
+        assertNotEquals(LAYOUT.shardOf(pickup), LAYOUT.shardOf(elsewhere));
+        service.registerDriver(new Driver("D1", "Far", elsewhere));
+
+        assertEquals("D1", service.requestRide("R1", pickup).getDriver().getDriverId());
+    }
+
+    @Test
+    void requestRideClaimsDriverHandedOffBetweenLookupAndClaim() {
+        Location pickup = new Location(40.755, -74.005);
+        Location[] stops = {new Location(40.905, -74.195), new Location(40.905, -74.185)};
+        assertNotEquals(LAYOUT.shardOf(stops[0]), LAYOUT.shardOf(stops[1]));
+        int[] handOffs = {0};
+        // Every time the claim loop checks the driver, it crosses into the other shard first
+        Driver driver = new Driver("D1", "Far", stops[0]) {
+            @Override
+            public boolean isAvailable() {
+                boolean available = super.isAvailable();
+                if (available && calledFrom("requestAcrossShards")) {
+                    service.updateDriverLocation("D1", stops[++handOffs[0] % 2]);
+                }
+                return available;
+            }
+        };
+        service.registerDriver(driver);
+
+        assertSame(driver, service.requestRide("R1", pickup).getDriver());
+        assertTrue(handOffs[0] > 0);
+        assertSame(driver, service.shard(LAYOUT.shardOf(driver.getCurrentLocation())).getDriver("D1"));
+        assertTrue(service.getAvailableDrivers().isEmpty());
+    }
+
+    @Test
+    void updateDriverLocationHandsDriverToNewShard() {
+        Driver driver = new Driver("D1", "John", new Location(40.750, -74.000));
+        service.registerDriver(driver);
+
+        for (int i = 1; i <= 8; i++) {
+            Location at = new Location(40.750 + i * 0.013, -74.000);
+            service.updateDriverLocation("D1", at);
+
+            int owner = LAYOUT.shardOf(at);
+            for (int s = 0; s < LAYOUT.getShardCount(); s++) {
+                assertEquals(s == owner ? 1 : 0, service.shard(s).getDriverCount(), "Shard " + s);
+            }
+            assertEquals(List.of(driver), service.getNearestDrivers(at, 5));
+        }
+
+        assertSame(driver, service.getDriver("D1"));
+        assertEquals(1, service.getAvailableDrivers().size());
+        assertEquals("D1", service.requestRide("R1", new Location(40.854, -74.000)).getDriver().getDriverId());
+    }
+
+    @Test
+    void completeRideReleasesDriverThatMovedShardsDuringRide() {
+        service.registerDriver(new Driver("D1", "John", new Location(40.750, -74.000)));
+        Ride ride = service.requestRide("R1", new Location(40.750, -74.000));
+
+        service.updateDriverLocation("D1", 40.790, -73.950);
+        assertTrue(service.getAvailableDrivers().isEmpty());
+        service.completeRide(ride.getRideId());
+
+        assertTrue(service.getDriver("D1").isAvailable());
+        assertEquals(List.of("D1"), ids(service.getNearestDrivers(new Location(40.790, -73.950), 3)));
+    }
+
+    @Test
+    void cancelRideReleasesDriverThatMovedShardsDuringRide() {
+        service.registerDriver(new Driver("D1", "John", new Location(40.750, -74.000)));
+        Ride ride = service.requestRide("R1", new Location(40.750, -74.000));
+
+        service.updateDriverLocation("D1", 40.790, -73.950);
+        service.cancelRide(ride.getRideId());
+
+        assertEquals(RideStatus.CANCELLED, ride.getStatus());
+        assertEquals(List.of("D1"), ids(service.getNearestDrivers(new Location(40.790, -73.950), 3)));
+        assertThrows(InvalidRideStateException.class, () -> service.cancelRide(ride.getRideId()));
+    }
+
+    @Test
+    void registerDriverReplacesPreviousInstanceOnAnotherShard() {
+        Driver original = new Driver("D1", "John", new Location(40.750, -74.000));
+        Driver replacement = new Driver("D1", "John", new Location(40.795, -73.955));
+        service.registerDriver(original);
+        service.registerDriver(replacement);
+
+        assertSame(replacement, service.getDriver("D1"));
+        assertEquals(1, service.getDriverCount());
+        List<Driver> available = service.getAvailableDrivers();
+        assertEquals(1, available.size());
+        assertSame(replacement, available.get(0));
+    }
+
+    @Test
+    void updateDriverLocationsAppliesLatestFixPerDriver() {
+        service.registerDriver(new Driver("D1", "A", new Location(40.750, -74.000)));
+        service.registerDriver(new Driver("D2", "B", new Location(40.760, -74.010)));
+
+        LocationUpdateBatch batch = new LocationUpdateBatch(4);
+        batch.add("D1", 40.700, -74.050);
+        batch.add("D1", 40.780, -73.980);
+        batch.add("D2", 40.761, -74.011);
+        batch.add("UNKNOWN", 40.0, -74.0);
+
+        assertEquals(2, service.updateDriverLocations(batch));
+        assertEquals(40.780, service.getDriver("D1").getLatitude(), 1e-9);
+        assertEquals(List.of("D1"), ids(service.getNearestDrivers(new Location(40.780, -73.980), 1)));
+    }
+
+    @Test
+    void geohashLayoutMatchesNearestDriver() {
+        ShardedRideMatchingService geohash = new ShardedRideMatchingService(
+                ShardLayout.geohash(4, 6), IndexType.KD_TREE, DistanceMetric.HAVERSINE);
+        RideMatchingService reference = new RideMatchingService(IndexType.LINEAR_SCAN, DistanceMetric.HAVERSINE);
+        Random random = new Random(13);
+        for (int i = 0; i < 300; i++) {
+            Location home = new Location(40.70 + random.nextDouble() * 0.05, -74.00 + random.nextDouble() * 0.05);
+            geohash.registerDriver(new Driver("D" + i, "Driver" + i, home));
+            reference.registerDriver(new Driver("D" + i, "Driver" + i, home));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Location pickup = new Location(40.70 + random.nextDouble() * 0.05, -74.00 + random.nextDouble() * 0.05);
+            assertEquals(reference.requestRide("R" + i, pickup).getDriver().getDriverId(),
+                    geohash.requestRide("R" + i, pickup).getDriver().getDriverId());
+        }
+    }
+
+    @Test
+    void requestRideEmptyFleetThrowsNoAvailableDriver() {
+        assertThrows(NoAvailableDriverException.class, () -> service.requestRide("R1", new Location(40.75, -74.00)));
+    }
+
+    @Test
+    void unknownIdsThrowServiceExceptions() {
+        assertThrows(DriverNotFoundException.class, () -> service.updateDriverLocation("D404", 40.75, -74.00));
+        assertThrows(RideNotFoundException.class, () -> service.completeRide("RIDE-404"));
+        assertNull(service.getDriver("D404"));
+    }
+
+    @Test
+    void completeRideTwiceThrowsInvalidState() {
+        service.registerDriver(new Driver("D1", "John", new Location(40.75, -74.00)));
+        Ride ride = service.requestRide("R1", new Location(40.75, -74.00));
+        service.completeRide(ride.getRideId());
+
+        assertThrows(InvalidRideStateException.class, () -> service.completeRide(ride.getRideId()));
+    }
+
+    @Test
+    void concurrentRequestsAndMovesKeepEachDriverInOneShard() throws Exception {
+        int drivers = 400;
+        Random random = new Random(3);
+        for (int i = 0; i < drivers; i++) {
+            service.registerDriver(new Driver("D" + i, "Driver" + i,
+                    new Location(40.70 + random.nextDouble() * 0.05, -74.00 + random.nextDouble() * 0.05)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Ride> rides = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < drivers / 4; i++) {
+                        rides.add(service.requestRide("R" + thread + "-" + i, new Location(40.725, -73.975)));
+                    }
+                }));
+            }
+            for (int t = 0; t < 4; t++) {
+                Random moves = new Random(t);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        service.updateDriverLocation("D" + moves.nextInt(drivers),
+                                40.70 + moves.nextDouble() * 0.05, -74.00 + moves.nextDouble() * 0.05);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<String> allocated = new HashSet<>();
+        rides.forEach(ride -> assertTrue(allocated.add(ride.getDriver().getDriverId()), "Driver allocated twice"));
+        assertEquals(drivers, allocated.size());
+        assertTrue(service.getAvailableDrivers().isEmpty());
+
+        rides.forEach(ride -> service.completeRide(ride.getRideId()));
+        assertEquals(drivers, service.getAvailableDrivers().size());
+        for (int i = 0; i < drivers; i++) {
+            Driver driver = service.getDriver("D" + i);
+            int owner = LAYOUT.shardOf(driver.getCurrentLocation());
+            for (int s = 0; s < LAYOUT.getShardCount(); s++) {
+                assertEquals(s == owner, service.shard(s).getDriver("D" + i) == driver, "Driver D" + i);
+            }
+        }
+    }
+
+    @Test
+    void clearRemovesDriversAndRides() {
+        service.registerDriver(new Driver("D1", "John", new Location(40.75, -74.00)));
+        service.requestRide("R1", new Location(40.75, -74.00));
+
+        service.clear();
+
+        assertEquals(0, service.getDriverCount());
+        assertEquals(0, service.getRideCount());
+        assertTrue(service.getNearestDrivers(new Location(40.75, -74.00), 5).isEmpty());
+    }
+
+    private static boolean calledFrom(String method) {
+        return StackWalker.getInstance().walk(frames -> frames.skip(2).findFirst())
+                .map(frame -> frame.getMethodName().equals(method))
+                .orElse(false);
+    }
+
+    private static List<String> ids(List<Driver> drivers) {
+        return drivers.stream().map(Driver::getDriverId).collect(Collectors.toList());
+    }
+}
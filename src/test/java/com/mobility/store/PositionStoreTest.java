@@ -0,0 +1,173 @@
+package com.mobility.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionStoreTest {
+
+    private final PositionStore store = new PositionStore();
+
+    @Test
+    void allocateStoresInitialCoordinates() {
+        long handle = store.allocate(40.75, -74.00);
+
+        assertEquals(40.75, store.latitude(handle));
+        assertEquals(-74.00, store.longitude(handle));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void allocateBeyondFirstPageKeepsEarlierSlots() {
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, store.allocate(i * 0.001, -i * 0.001));
+        }
+
+        assertEquals(1.0, store.latitude(1_000));
+        assertEquals(-9.999, store.longitude(9_999));
+    }
+
+    @Test
+    void writeUpdatesCoordinatesAndAdvancesVersion() {
+        long handle = store.allocate(40.75, -74.00);
+        long before = store.readStamp(handle);
+
+        long after = store.write(handle, 41.00, -73.50);
+
+        assertEquals(41.00, store.latitude(handle));
+        assertEquals(-73.50, store.longitude(handle));
+        assertEquals(after, store.readStamp(handle));
+        assertTrue(after > before);
+        assertFalse(store.validate(handle, before));
+        assertTrue(store.validate(handle, after));
+    }
+
+    @Test
+    void concurrentWritersNeverExposeTornPairs() throws Exception {
+        long handle = store.allocate(0, 0);
+        AtomicBoolean torn = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch latch = new CountDownLatch(4);
+
+        // Writers always store lat == -lon, so a validated read must see that too
+        for (int t = 0; t < 3; t++) {
+            int offset = t;
+            executor.submit(() -> {
+                try {
+                    for (int i = 0; i < 200_000; i++) {
+                        double value = ((i + offset) % 900) / 10.0;
+                        store.write(handle, value, -value);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        executor.submit(() -> {
+            try {
+                for (int i = 0; i < 200_000; i++) {
+                    long stamp = store.readStamp(handle);
+                    double latitude = store.latitude(handle);
+                    double longitude = store.longitude(handle);
+                    if (store.validate(handle, stamp) && latitude != -longitude) {
+                        torn.set(true);
+                    }
+                }
+            } finally {
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertFalse(torn.get());
+    }
+
+    @Test
+    void releasedSlotIsReusedAndOldHandleFailsSafely() {
+        long first = store.allocate(40.75, -74.00);
+        assertTrue(store.release(first, store.readStamp(first)));
+        assertEquals(0, store.size());
+
+        long second = store.allocate(41.00, -73.00);
+
+        assertNotEquals(first, second);
+        assertEquals(1, store.size());
+        assertEquals(PositionStore.STALE, store.readStamp(first));
+        assertEquals(PositionStore.STALE, store.write(first, 10.0, 10.0));
+        assertTrue(store.release(first, store.readStamp(second)));
+        assertEquals(41.00, store.latitude(second));
+        assertEquals(-73.00, store.longitude(second));
+    }
+
+    @Test
+    void releaseFailsIfWrittenSinceStamp() {
+        long handle = store.allocate(40.75, -74.00);
+        long stamp = store.readStamp(handle);
+        store.write(handle, 41.00, -73.00);
+
+        assertFalse(store.release(handle, stamp));
+        assertTrue(store.release(handle, store.readStamp(handle)));
+    }
+
+    @Test
+    void clearRetiresEveryHandle() {
+        long handle = store.allocate(40.75, -74.00);
+
+        store.clear();
+
+        assertEquals(0, store.size());
+        assertEquals(PositionStore.STALE, store.write(handle, 41.00, -73.00));
+        long reused = store.allocate(42.00, -72.00);
+        assertEquals(PositionStore.STALE, store.readStamp(handle));
+        assertEquals(42.00, store.latitude(reused));
+    }
+
+    @Test
+    void writesRacingClearNeverLandInReusedSlots() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean overwritten = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long[] handles = new long[1_000];
+            for (int i = 0; i < handles.length; i++) {
+                handles[i] = store.allocate(0, 0);
+            }
+            // Keeps writing 99 through the handles of the first generation
+            Future<?> writer = executor.submit(() -> {
+                while (running.get()) {
+                    for (long handle : handles) {
+                        store.write(handle, 89.0, 99.0);
+                    }
+                }
+            });
+
+            for (int round = 0; round < 200; round++) {
+                store.clear();
+                long[] fresh = new long[handles.length];
+                for (int i = 0; i < fresh.length; i++) {
+                    fresh[i] = store.allocate(1, 1);
+                }
+                for (long handle : fresh) {
+                    if (store.longitude(handle) == 99.0) {
+                        overwritten.set(true);
+                    }
+                }
+            }
+            running.set(false);
+            writer.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertFalse(overwritten.get());
+    }
+}
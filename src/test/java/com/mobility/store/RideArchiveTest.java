@@ -0,0 +1,132 @@
+package com.mobility.store;
+
+import com.mobility.enums.RideStatus;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private static Ride completed(int i) {
+        Ride ride = new Ride("RIDE-" + i, "R" + i, new Driver("D" + i, "Driver" + i, new Location(40, -74)),
+                new Location(40.0 + i * 0.001, -74.0), Instant.ofEpochMilli(1_700_000_000_000L + i));
+        ride.markAsCompleted(Instant.ofEpochMilli(1_700_000_060_000L + i));
+        return ride;
+    }
+
+    @Test
+    void findReturnsArchivedRide() {
+        try (RideArchive archive = RideArchive.open(directory)) {
+            archive.append(completed(7));
+
+            Ride found = archive.find("RIDE-7");
+
+            assertEquals("R7", found.getRiderId());
+            assertEquals("D7", found.getDriver().getDriverId());
+            assertEquals("Driver7", found.getDriver().getName());
+            assertEquals(new Location(40.007, -74.0), found.getPickupLocation());
+            assertEquals(Instant.ofEpochMilli(1_700_000_000_007L), found.getRequestTime());
+            assertEquals(Instant.ofEpochMilli(1_700_000_060_007L), found.getCompletionTime());
+            assertEquals(RideStatus.COMPLETED, found.getStatus());
+            assertNull(archive.find("RIDE-8"));
+        }
+    }
+
+    @Test
+    void fullSegmentsAreSealedAndStillSearchable() {
+        try (RideArchive archive = RideArchive.open(directory, 10)) {
+            for (int i = 0; i < 35; i++) {
+                archive.append(completed(i));
+            }
+
+            assertEquals(35, archive.size());
+            assertEquals(4, archive.getSegmentCount());
+            for (int i = 0; i < 35; i++) {
+                assertEquals("R" + i, archive.find("RIDE-" + i).getRiderId());
+            }
+            assertNull(archive.find("RIDE-35"));
+        }
+    }
+
+    @Test
+    void reopenKeepsEveryRide() {
+        try (RideArchive archive = RideArchive.open(directory, 10)) {
+            for (int i = 0; i < 25; i++) {
+                archive.append(completed(i));
+            }
+        }
+
+        try (RideArchive archive = RideArchive.open(directory, 10)) {
+            assertEquals(25, archive.size());
+            assertEquals("R3", archive.find("RIDE-3").getRiderId());
+            assertEquals("R24", archive.find("RIDE-24").getRiderId());
+
+            archive.append(completed(25));
+            assertEquals("R25", archive.find("RIDE-25").getRiderId());
+        }
+    }
+
+    @Test
+    void reopenDropsTornRecordOfOpenSegment() throws IOException {
+        try (RideArchive archive = RideArchive.open(directory, 10)) {
+            archive.append(completed(1));
+            archive.append(completed(2));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> {
+                try {
+                    return Files.size(path) > 0;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 1, 0, 5, 5}), channel.size());
+        }
+
+        try (RideArchive archive = RideArchive.open(directory, 10)) {
+            assertEquals(2, archive.size());
+            assertEquals("R2", archive.find("RIDE-2").getRiderId());
+        }
+    }
+
+    @Test
+    void newestCopyWins() {
+        try (RideArchive archive = RideArchive.open(directory, 2)) {
+            archive.append(completed(1));
+            archive.append(completed(2));
+            Ride again = new Ride("RIDE-1", "R-again", new Driver("D9", "Driver9", new Location(1, 1)),
+                    new Location(1, 1));
+            again.markAsCompleted();
+            archive.append(again);
+
+            assertEquals("R-again", archive.find("RIDE-1").getRiderId());
+        }
+    }
+
+    @Test
+    void appendAfterCloseThrows() {
+        RideArchive archive = RideArchive.open(directory);
+        archive.close();
+
+        assertThrows(IllegalStateException.class, () -> archive.append(completed(1)));
+    }
+}
@@ -0,0 +1,246 @@
+package com.mobility.store;
+
+import com.mobility.enums.RideStatus;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static Ride ride(int i) {
+        return new Ride("RIDE-" + i, "R" + i, new Driver("D" + i, "Driver" + i, new Location(40, -74)),
+                new Location(40, -74));
+    }
+
+    private static Ride finish(RideStore store, Ride ride) {
+        ride.markAsCompleted();
+        store.finish(ride);
+        return ride;
+    }
+
+    @Test
+    void finishMovesRideFromActiveToHistory() {
+        RideStore store = new RideStore(10, 60_000, null);
+        Ride ride = ride(1);
+        store.add(ride);
+        assertEquals(1, store.getActiveCount());
+
+        finish(store, ride);
+
+        assertEquals(0, store.getActiveCount());
+        assertEquals(1, store.getHistoryCount());
+        assertSame(ride, store.get("RIDE-1"));
+        assertNull(store.getActive("RIDE-1"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void getByKeyMatchesGetById() {
+        RideStore store = new RideStore(10, 60_000, null);
+        Ride ride = ride(3);
+        store.add(ride);
+
+        assertSame(ride, store.get(ride.getRideKey()));
+        assertSame(ride, store.getActive(ride.getRideKey()));
+        assertNull(store.get("R3"));
+    }
+
+    @Test
+    void addRejectsRideIdNotIssuedByGenerator() {
+        RideStore store = new RideStore(10, 60_000, null);
+        Ride foreign = new Ride("TRIP-1", "R1", new Driver("D1", "Driver1", new Location(40, -74)),
+                new Location(40, -74));
+
+        assertThrows(IllegalArgumentException.class, () -> store.add(foreign));
+    }
+
+    @Test
+    void addRejectsRideIdAlreadyStored() {
+        RideStore store = new RideStore(10, 60_000, null);
+        Ride first = ride(1);
+        store.add(first);
+
+        assertThrows(IllegalStateException.class, () -> store.add(ride(1)));
+        assertSame(first, store.get("RIDE-1"));
+
+        finish(store, first);
+        assertThrows(IllegalStateException.class, () -> store.add(ride(1)));
+        assertSame(first, store.get("RIDE-1"));
+        assertEquals(0, store.getActiveCount());
+    }
+
+    @Test
+    void addRacingFinishOfTheSameIdIsAlwaysRefused() throws Exception {
+        RideStore store = new RideStore(100_000, 60_000, null);
+        int rounds = 20_000;
+        CyclicBarrier start = new CyclicBarrier(2);
+        AtomicInteger accepted = new AtomicInteger();
+        Thread duplicates = new Thread(() -> {
+            for (int i = 1; i <= rounds; i++) {
+                await(start);
+                try {
+                    store.add(ride(i));
+                    accepted.incrementAndGet();
+                } catch (IllegalStateException expected) {
+                    // Still active or already in the history
+                }
+            }
+        });
+        duplicates.start();
+
+        for (int i = 1; i <= rounds; i++) {
+            Ride ride = ride(i);
+            store.add(ride);
+            await(start);
+            finish(store, ride);
+        }
+        duplicates.join();
+
+        assertEquals(0, accepted.get());
+        assertEquals(rounds, store.getHistoryCount());
+        assertEquals(0, store.getActiveCount());
+    }
+
+    @Test
+    void rideBeingEvictedIsFoundWhileItIsArchived() {
+        try (RideArchive archive = RideArchive.open(directory)) {
+            // Every finish evicts straight to the archive
+            RideStore store = new RideStore(0, 60_000, archive);
+            List<Ride> seen = new ArrayList<>();
+            // The archive reads the driver's name while it writes the ride, between the ride's two tiers
+            Driver driver = new Driver("D1", "John", new Location(40, -74)) {
+                @Override
+                public String getName() {
+                    seen.add(store.get("RIDE-1"));
+                    return super.getName();
+                }
+            };
+            Ride ride = new Ride("RIDE-1", "R1", driver, new Location(40, -74));
+            store.add(ride);
+
+            finish(store, ride);
+
+            assertEquals(List.of(ride), seen);
+            assertEquals(1, store.getArchivedCount());
+            assertEquals(0, store.getHistoryCount());
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void historyEvictsOldestPastCapacity() {
+        RideStore store = new RideStore(3, 60_000, null);
+        for (int i = 1; i <= 5; i++) {
+            Ride ride = ride(i);
+            store.add(ride);
+            finish(store, ride);
+        }
+
+        assertEquals(3, store.getHistoryCount());
+        assertEquals(2, store.getEvictedCount());
+        assertNull(store.get("RIDE-1"));
+        assertNull(store.get("RIDE-2"));
+        assertNotNull(store.get("RIDE-3"));
+    }
+
+    @Test
+    void historyEvictsRidesOlderThanRetention() {
+        RideStore store = new RideStore(100, 60_000, null);
+        Ride old = ride(1);
+        store.add(old);
+        old.markAsCompleted(Instant.now().minusSeconds(120));
+        store.finish(old);
+
+        // Only checked when the next ride finishes; the old one is evicted then
+        Ride recent = ride(2);
+        store.add(recent);
+        finish(store, recent);
+
+        assertNull(store.get("RIDE-1"));
+        assertSame(recent, store.get("RIDE-2"));
+    }
+
+    @Test
+    void evictedRidesAreFoundInArchive() {
+        try (RideArchive archive = RideArchive.open(directory)) {
+            RideStore store = new RideStore(1, 60_000, archive);
+            Ride first = ride(1);
+            store.add(first);
+            finish(store, first);
+            Ride second = ride(2);
+            store.add(second);
+            finish(store, second);
+
+            assertEquals(1, store.getHistoryCount());
+            assertEquals(1, store.getArchivedCount());
+            Ride archived = store.get("RIDE-1");
+            assertEquals("R1", archived.getRiderId());
+            assertEquals(RideStatus.COMPLETED, archived.getStatus());
+            assertEquals("D1", archived.getDriver().getDriverId());
+        }
+    }
+
+    @Test
+    void finishIgnoresRidesNotActive() {
+        RideStore store = new RideStore(10, 60_000, null);
+        Ride ride = ride(1);
+        ride.markAsCompleted();
+
+        store.finish(ride);
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void activeRidesAreNeverEvicted() {
+        RideStore store = new RideStore(0, 0, null);
+        store.add(ride(1));
+        Ride done = ride(2);
+        store.add(done);
+        finish(store, done);
+
+        assertEquals(List.of("RIDE-1"), store.activeRides().stream().map(Ride::getRideId).toList());
+        assertEquals(0, store.getHistoryCount());
+    }
+
+    @Test
+    void clearEmptiesMemoryTiers() {
+        RideStore store = new RideStore(10, 60_000, null);
+        store.add(ride(1));
+        Ride done = ride(2);
+        store.add(done);
+        finish(store, done);
+
+        store.clear();
+
+        assertEquals(0, store.size());
+        assertNull(store.get("RIDE-2"));
+    }
+
+    @Test
+    void constructorRejectsNegativeLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new RideStore(-1, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> new RideStore(0, -1, null));
+    }
+}
@@ -0,0 +1,146 @@
+package com.mobility.store;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.exception.JournalException;
+import com.mobility.model.Driver;
+import com.mobility.model.Location;
+import com.mobility.model.Ride;
+import com.mobility.store.JournalRecord.DriverRegistered;
+import com.mobility.store.JournalRecord.RideClaimed;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readReturnsWrittenDriversAndOpenRides() {
+        Path path = directory.resolve("rides.snapshot");
+        Driver idle = new Driver("D1", "Jöhn", new Location(40.7, -74.0));
+        Driver busy = new Driver("D2", "Jane", new Location(41.0, -75.0));
+        busy.markAsUnavailable();
+        Ride open = new Ride("RIDE-2", "R2", busy, new Location(41.0, -75.0), Instant.ofEpochMilli(1_700_000_000_000L));
+        Ride done = new Ride("RIDE-1", "R1", idle, new Location(40.7, -74.0));
+        done.markAsCompleted();
+
+        Snapshot.write(path, 1234, 2, List.of(idle, busy), List.of(done, open));
+        Snapshot snapshot = Snapshot.read(path);
+        List<JournalRecord> entries = new ArrayList<>();
+        snapshot.forEach(entries::add);
+
+        assertEquals(1234, snapshot.getJournalPosition());
+        assertEquals(2, snapshot.getRideSequence());
+        assertEquals(2, snapshot.getDriverCount());
+        assertEquals(1, snapshot.getRideCount());
+        assertEquals(List.of(
+                new DriverRegistered("D1", "Jöhn", 40.7, -74.0, true),
+                new DriverRegistered("D2", "Jane", 41.0, -75.0, false),
+                new RideClaimed("RIDE-2", "R2", "D2", 41.0, -75.0, 1_700_000_000_000L)), entries);
+    }
+
+    @Test
+    void writeReplacesPreviousSnapshotAndLeavesNoTemporaryFile() throws IOException {
+        Path path = directory.resolve("rides.snapshot");
+        Snapshot.write(path, 1, 0, List.of(new Driver("D1", "John", new Location(1, 1))), List.of());
+        Snapshot.write(path, 2, 0, List.of(), List.of());
+
+        assertEquals(2, Snapshot.read(path).getJournalPosition());
+        assertEquals(0, Snapshot.read(path).getDriverCount());
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(path), files.toList());
+        }
+    }
+
+    @Test
+    void readRejectsCorruptedBody() throws IOException {
+        Path path = directory.resolve("rides.snapshot");
+        Snapshot.write(path, 0, 0, List.of(new Driver("D1", "John", new Location(1, 1))), List.of());
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 2] ^= 0x55;
+        Files.write(path, bytes);
+
+        assertThrows(JournalException.class, () -> Snapshot.read(path));
+    }
+
+    @Test
+    void readRejectsCorruptedHeaderFields() throws IOException {
+        Path path = directory.resolve("rides.snapshot");
+        Snapshot.write(path, 1234, 7, List.of(new Driver("D1", "John", new Location(1, 1))), List.of());
+        byte[] bytes = Files.readAllBytes(path);
+
+        // Journal position, ride sequence, driver count and ride count
+        for (int offset = 8; offset < 32; offset++) {
+            byte[] corrupted = bytes.clone();
+            corrupted[offset] ^= 0x01;
+            Files.write(path, corrupted);
+
+            assertThrows(JournalException.class, () -> Snapshot.read(path), "byte " + offset);
+        }
+    }
+
+    @Test
+    void readRejectsCountsTheFileCannotHold() throws IOException {
+        Path path = directory.resolve("rides.snapshot");
+
+        writeRaw(path, Integer.MAX_VALUE, 0, new byte[0]);
+        assertThrows(JournalException.class, () -> Snapshot.read(path));
+
+        writeRaw(path, 0, -1, new byte[0]);
+        assertThrows(JournalException.class, () -> Snapshot.read(path));
+    }
+
+    @Test
+    void forEachRejectsEntryRunningPastTheEnd() throws IOException {
+        Path path = directory.resolve("rides.snapshot");
+        // One driver whose ID claims more bytes than the body holds
+        byte[] body = new byte[21];
+        body[1] = 100;
+        writeRaw(path, 1, 0, body);
+
+        Snapshot snapshot = Snapshot.read(path);
+        assertThrows(JournalException.class, () -> snapshot.forEach(entry -> {
+        }));
+    }
+
+    @Test
+    void readRejectsForeignFile() throws IOException {
+        Path path = directory.resolve("rides.snapshot");
+        Files.write(path, new byte[64]);
+
+        assertThrows(JournalException.class, () -> Snapshot.read(path));
+    }
+
+    @Test
+    void readRejectsMissingFile() {
+        assertThrows(JournalException.class, () -> Snapshot.read(directory.resolve("missing.snapshot")));
+    }
+
+    // A well-formed header with a matching checksum around an arbitrary body
+    private static void writeRaw(Path path, int driverCount, int rideCount, byte[] body) throws IOException {
+        ByteBuffer file = ByteBuffer.allocate(36 + body.length)
+                .putInt(RideMatchingCostants.SNAPSHOT_MAGIC)
+                .putInt(RideMatchingCostants.SNAPSHOT_VERSION)
+                .putLong(0)
+                .putLong(0)
+                .putInt(driverCount)
+                .putInt(rideCount);
+        CRC32C checksum = new CRC32C();
+        checksum.update(body);
+        checksum.update(file.array(), 8, 24);
+        file.putInt((int) checksum.getValue()).put(body);
+        Files.write(path, file.array());
+    }
+}
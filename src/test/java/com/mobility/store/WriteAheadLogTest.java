@@ -0,0 +1,243 @@
+package com.mobility.store;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.exception.JournalException;
+import com.mobility.store.JournalRecord.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayReturnsRecordsInAppendOrder() {
+        Path path = directory.resolve("rides.wal");
+        List<JournalRecord> written = List.of(
+                new DriverRegistered("D1", "Jöhn", 40.7, -74.0, true),
+                new DriverMoved("D1", 40.71, -74.01),
+                new RideClaimed("RIDE-1", "R1", "D1", 40.7, -74.0, 1_700_000_000_000L),
+                new RideCompleted("RIDE-1", "D1", 1_700_000_060_000L),
+                new RideClaimed("RIDE-2", "R2", "D1", 40.7, -74.0, 1_700_000_120_000L),
+                new RideCancelled("RIDE-2", "D1", 1_700_000_130_000L),
+                new Cleared());
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            written.forEach(log::append);
+        }
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.replay(replayed::add);
+        }
+        assertEquals(written, replayed);
+    }
+
+    @Test
+    void commitMakesRecordsVisibleToAnotherReader() {
+        Path path = directory.resolve("rides.wal");
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            long position = log.append(new DriverMoved("D1", 1.0, 2.0));
+            assertEquals(0, log.getSyncCount());
+
+            log.commit(position);
+
+            assertEquals(1, log.getSyncCount());
+            assertEquals(position, path.toFile().length());
+            // Already durable, no second fsync
+            log.commit(position);
+            assertEquals(1, log.getSyncCount());
+        }
+    }
+
+    @Test
+    void openTruncatesTornTail() throws IOException {
+        Path path = directory.resolve("rides.wal");
+        long intact;
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.append(new DriverMoved("D1", 1.0, 2.0));
+            intact = log.append(new DriverMoved("D2", 3.0, 4.0));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // Half of a third record: its header promises more bytes than follow
+            channel.truncate(intact);
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 2, 0}), intact);
+        }
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(intact, log.size());
+            log.append(new DriverMoved("D3", 5.0, 6.0));
+            log.replay(replayed::add);
+        }
+        assertEquals(List.of(new DriverMoved("D1", 1.0, 2.0), new DriverMoved("D2", 3.0, 4.0),
+                new DriverMoved("D3", 5.0, 6.0)), replayed);
+    }
+
+    @Test
+    void openStopsAtCorruptedRecord() throws IOException {
+        Path path = directory.resolve("rides.wal");
+        long first;
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            first = log.append(new DriverMoved("D1", 1.0, 2.0));
+            log.append(new DriverMoved("D2", 3.0, 4.0));
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(path, bytes);
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(first, log.size());
+            log.replay(replayed::add);
+        }
+        assertEquals(List.of(new DriverMoved("D1", 1.0, 2.0)), replayed);
+    }
+
+    @Test
+    void concurrentCommitsShareFsyncs() throws Exception {
+        Path path = directory.resolve("rides.wal");
+        int threads = 8;
+        int commitsPerThread = 200;
+
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String rideId = "RIDE-" + t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < commitsPerThread; i++) {
+                        log.commit(log.append(new RideCompleted(rideId, "D1", i)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            assertTrue(log.getSyncCount() <= threads * commitsPerThread);
+            List<JournalRecord> replayed = new ArrayList<>();
+            log.replay(replayed::add);
+            assertEquals(threads * commitsPerThread, replayed.size());
+        }
+    }
+
+    @Test
+    void uncommittedRecordsAreWrittenPastThreshold() {
+        Path path = directory.resolve("rides.wal");
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            long position = 0;
+            while (position < RideMatchingCostants.JOURNAL_WRITE_THRESHOLD_BYTES) {
+                position = log.append(new DriverMoved("D1", 1.0, 2.0));
+            }
+
+            assertTrue(path.toFile().length() > 0);
+            assertEquals(0, log.getSyncCount());
+        }
+    }
+
+    @Test
+    void rollStartsNewSegmentAndReplaySpansSegments() {
+        Path path = directory.resolve("rides.wal");
+        List<JournalRecord> all = new ArrayList<>();
+        List<JournalRecord> tail = new ArrayList<>();
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.append(new DriverMoved("D1", 1.0, 2.0));
+            long end = log.append(new DriverMoved("D2", 3.0, 4.0));
+
+            long position = log.roll();
+            assertEquals(end, position);
+            assertEquals(position, path.toFile().length());
+            assertTrue(Files.exists(path.resolveSibling("rides.wal." + position)));
+            // Nothing appended since, so no new segment
+            assertEquals(position, log.roll());
+
+            log.append(new DriverMoved("D3", 5.0, 6.0));
+            log.replay(all::add);
+            log.replay(position, tail::add);
+        }
+        assertEquals(List.of(new DriverMoved("D1", 1.0, 2.0), new DriverMoved("D2", 3.0, 4.0),
+                new DriverMoved("D3", 5.0, 6.0)), all);
+        assertEquals(List.of(new DriverMoved("D3", 5.0, 6.0)), tail);
+    }
+
+    @Test
+    void deleteBeforeDropsOnlySegmentsEndingAtThePosition() {
+        Path path = directory.resolve("rides.wal");
+        long first;
+        long second;
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.append(new DriverMoved("D1", 1.0, 2.0));
+            first = log.roll();
+            log.append(new DriverMoved("D2", 3.0, 4.0));
+            second = log.roll();
+            log.append(new DriverMoved("D3", 5.0, 6.0));
+
+            log.deleteBefore(second);
+            assertFalse(Files.exists(path));
+            assertFalse(Files.exists(path.resolveSibling("rides.wal." + first)));
+            assertThrows(JournalException.class, () -> log.replay(record -> { }));
+        }
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.append(new DriverMoved("D4", 7.0, 8.0));
+            log.replay(second, replayed::add);
+        }
+        assertEquals(List.of(new DriverMoved("D3", 5.0, 6.0), new DriverMoved("D4", 7.0, 8.0)), replayed);
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void openChecksOnlyTheLastSegment() throws IOException {
+        Path path = directory.resolve("rides.wal");
+        long position;
+        long end;
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            log.append(new DriverMoved("D1", 1.0, 2.0));
+            position = log.roll();
+            end = log.append(new DriverMoved("D2", 3.0, 4.0));
+        }
+        // Damage in a sealed segment is not looked for on open, only when replaying across it
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(path, bytes);
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(end, log.size());
+            log.replay(position, replayed::add);
+            assertThrows(JournalException.class, () -> log.replay(record -> { }));
+        }
+        assertEquals(List.of(new DriverMoved("D2", 3.0, 4.0)), replayed);
+    }
+
+    @Test
+    void appendAfterCloseThrows() {
+        WriteAheadLog log = WriteAheadLog.open(directory.resolve("rides.wal"));
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> log.append(new Cleared()));
+    }
+}
@@ -0,0 +1,164 @@
+package com.mobility.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentSolverTest {
+
+    @Test
+    void solveSquareMatrixFindsMinimumCost() {
+        double[][] cost = {
+                {4, 1, 3},
+                {2, 0, 5},
+                {3, 2, 2}
+        };
+
+        int[] assignment = AssignmentSolver.solve(cost);
+
+        assertEquals(5.0, total(cost, assignment));
+    }
+
+    @Test
+    void solveMoreColumnsThanRowsAssignsEveryRow() {
+        double[][] cost = {
+                {9, 1, 9, 9},
+                {9, 2, 3, 9}
+        };
+
+        assertArrayEquals(new int[]{1, 2}, AssignmentSolver.solve(cost));
+    }
+
+    @Test
+    void solveMoreRowsThanColumnsLeavesRowsUnassigned() {
+        double[][] cost = {
+                {5},
+                {1},
+                {3}
+        };
+
+        assertArrayEquals(new int[]{-1, 0, -1}, AssignmentSolver.solve(cost));
+    }
+
+    @Test
+    void solveEmptyMatrixReturnsNoAssignment() {
+        assertEquals(0, AssignmentSolver.solve(new double[0][0]).length);
+        assertArrayEquals(new int[]{-1, -1}, AssignmentSolver.solve(new double[2][0]));
+    }
+
+    @Test
+    void solveMatchesBruteForceOnRandomMatrices() {
+        Random random = new Random(1);
+
+        for (int trial = 0; trial < 50; trial++) {
+            int size = 2 + random.nextInt(5);
+            double[][] cost = new double[size][size];
+            for (double[] row : cost) {
+                for (int j = 0; j < size; j++) {
+                    row[j] = random.nextInt(100);
+                }
+            }
+
+            assertEquals(bruteForce(cost, 0, new boolean[size]), total(cost, AssignmentSolver.solve(cost)), 1e-9);
+        }
+    }
+
+    @Test
+    void solveSparseUsesOnlyListedPairs() {
+        // Row 0 would be cheapest on column 1, but may only take column 0 or 2
+        int[][] columns = {{0, 2}, {1, 2}, {2}};
+        double[][] costs = {{4, 1}, {2, 5}, {3}};
+
+        assertArrayEquals(new int[]{0, 1, 2}, AssignmentSolver.solveSparse(3, columns, costs));
+    }
+
+    @Test
+    void solveSparseLeavesRowsWithoutFreeCandidatesUnassigned() {
+        int[][] columns = {{0}, {0}, {0, 1}, {}};
+        double[][] costs = {{5}, {1}, {3, 9}, {}};
+
+        assertArrayEquals(new int[]{-1, 0, 1, -1}, AssignmentSolver.solveSparse(2, columns, costs));
+    }
+
+    @Test
+    void solveSparseMatchesPaddedDenseSolveOnRandomPairs() {
+        double unassignable = 1e9;
+        Random random = new Random(4);
+
+        for (int trial = 0; trial < 200; trial++) {
+            int rows = 1 + random.nextInt(12);
+            int width = 1 + random.nextInt(12);
+            int[][] columns = new int[rows][];
+            double[][] costs = new double[rows][];
+            double[][] dense = new double[rows][width];
+            for (int row = 0; row < rows; row++) {
+                Arrays.fill(dense[row], unassignable);
+                columns[row] = random.ints(0, width).distinct().limit(random.nextInt(Math.min(4, width) + 1)).toArray();
+                costs[row] = new double[columns[row].length];
+                for (int k = 0; k < columns[row].length; k++) {
+                    costs[row][k] = random.nextInt(100);
+                    dense[row][columns[row][k]] = costs[row][k];
+                }
+            }
+
+            int[] sparse = AssignmentSolver.solveSparse(width, columns, costs);
+            int[] expected = AssignmentSolver.solve(dense);
+            // Same number of rows served, at the same total; ties may pick different pairs
+            assertEquals(assigned(dense, expected, unassignable), assigned(dense, sparse, unassignable));
+            assertEquals(realCost(dense, expected, unassignable), realCost(dense, sparse, unassignable), 1e-6);
+            boolean[] taken = new boolean[width];
+            for (int column : sparse) {
+                if (column >= 0) {
+                    assertFalse(taken[column], "Column assigned twice");
+                    taken[column] = true;
+                }
+            }
+        }
+    }
+
+    private static long assigned(double[][] dense, int[] assignment, double unassignable) {
+        long count = 0;
+        for (int row = 0; row < assignment.length; row++) {
+            if (assignment[row] >= 0 && dense[row][assignment[row]] < unassignable) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double realCost(double[][] dense, int[] assignment, double unassignable) {
+        double total = 0;
+        for (int row = 0; row < assignment.length; row++) {
+            if (assignment[row] >= 0 && dense[row][assignment[row]] < unassignable) {
+                total += dense[row][assignment[row]];
+            }
+        }
+        return total;
+    }
+
+    private static double total(double[][] cost, int[] assignment) {
+        double total = 0;
+        for (int row = 0; row < assignment.length; row++) {
+            total += cost[row][assignment[row]];
+        }
+        return total;
+    }
+
+    private static double bruteForce(double[][] cost, int row, boolean[] used) {
+        if (row == cost.length) {
+            return 0;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int column = 0; column < used.length; column++) {
+            if (!used[column]) {
+                used[column] = true;
+                best = Math.min(best, cost[row][column] + bruteForce(cost, row + 1, used));
+                used[column] = false;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,134 @@
+package com.mobility.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongMapTest {
+
+    @Test
+    void putGetAndReplace() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(4);
+
+        assertNull(map.put(7, "a"));
+        assertEquals("a", map.put(7, "b"));
+
+        assertEquals("b", map.get(7));
+        assertNull(map.get(8));
+        assertNull(map.get(-1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void putIfAbsentKeepsExistingValue() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(4);
+
+        assertNull(map.putIfAbsent(7, "a"));
+        assertEquals("a", map.putIfAbsent(7, "b"));
+
+        assertEquals("a", map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void removeOnlyMatchingValue() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(4);
+        map.put(1, "a");
+
+        assertFalse(map.remove(1, "b"));
+        assertTrue(map.remove(1, "a"));
+        assertNull(map.get(1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void matchesHashMapThroughGrowthAndRemovals() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(2);
+        Map<Long, Long> reference = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                assertEquals(reference.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+
+        assertEquals(reference.size(), map.size());
+        for (long key = 0; key < 5_000; key++) {
+            assertEquals(reference.get(key), map.get(key));
+        }
+        assertEquals(reference.size(), map.values().size());
+    }
+
+    @Test
+    void concurrentWritersAndReadersSeeEveryLiveKey() throws InterruptedException {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(4);
+        // Keys below 1000 are never removed, so readers must always find them
+        for (long key = 0; key < 1_000; key++) {
+            map.put(key, key);
+        }
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long base = 1_000 + t * 100_000L;
+            threads.add(new Thread(() -> {
+                for (long key = base; key < base + 50_000; key++) {
+                    map.put(key, key);
+                    if (key % 2 == 0) {
+                        map.remove(key, key);
+                    }
+                }
+            }));
+            threads.add(new Thread(() -> {
+                Random random = new Random();
+                for (int i = 0; i < 200_000; i++) {
+                    long key = random.nextInt(1_000);
+                    if (!Long.valueOf(key).equals(map.get(key))) {
+                        synchronized (failures) {
+                            failures.add(new AssertionError("Lost key " + key));
+                        }
+                        return;
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of(), failures);
+        assertEquals(1_000 + 4 * 25_000, map.size());
+    }
+
+    @Test
+    void clearEmptiesMap() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(4, 100);
+        for (long key = 0; key < 100; key++) {
+            map.put(key, "v" + key);
+        }
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertNull(map.get(5));
+        assertTrue(map.values().isEmpty());
+    }
+
+    @Test
+    void putRejectsNegativeKeyAndNullValue() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(4);
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1, "a"));
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongMap<>(0));
+    }
+}
@@ -0,0 +1,40 @@
+package com.mobility.utils;
+
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Location;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceCalculatorTest {
+
+    @Test
+    void haversineOneDegreeOfLatitudeIsAbout111Km() {
+        assertEquals(111_195.08, DistanceCalculator.haversineMeters(40.0, -74.0, 41.0, -74.0), 0.01);
+    }
+
+    @Test
+    void haversineKnownCityPairWithinTolerance() {
+        // JFK to LAX, about 3,974 km on a spherical Earth
+        double meters = DistanceCalculator.haversineMeters(40.6413, -73.7781, 33.9416, -118.4085);
+
+        assertEquals(3_974_000, meters, 5_000);
+    }
+
+    @Test
+    void haversineSamePointIsZeroAndSymmetric() {
+        assertEquals(0.0, DistanceCalculator.haversineMeters(40.75, -74.00, 40.75, -74.00));
+        assertEquals(DistanceCalculator.haversineMeters(40.75, -74.00, 40.80, -73.90),
+                DistanceCalculator.haversineMeters(40.80, -73.90, 40.75, -74.00), 1e-9);
+    }
+
+    @Test
+    void calculateDistanceDispatchesOnMetric() {
+        Location from = new Location(0.00, 0.00);
+        Location to = new Location(3.00, 4.00);
+
+        assertEquals(5.00, DistanceCalculator.calculateDistance(DistanceMetric.EUCLIDEAN, from, to));
+        assertEquals(DistanceCalculator.haversineMeters(0.00, 0.00, 3.00, 4.00),
+                DistanceCalculator.calculateDistance(DistanceMetric.HAVERSINE, from, to));
+    }
+}
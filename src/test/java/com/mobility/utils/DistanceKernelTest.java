@@ -0,0 +1,110 @@
+package com.mobility.utils;
+
+import com.mobility.constants.RideMatchingCostants;
+import com.mobility.enums.DistanceMetric;
+import com.mobility.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceKernelTest {
+
+    private static final Location ORIGIN = new Location(40.75, -74.00);
+
+    @Test
+    void rankEuclideanIsSquaredDegreeDistance() {
+        DistanceKernel kernel = DistanceKernel.around(new Location(0.00, 0.00), DistanceMetric.EUCLIDEAN);
+
+        assertEquals(25.0, kernel.rank(3.00, 4.00), 1e-12);
+    }
+
+    @Test
+    void rankHaversineScalesLongitudeByLatitude() {
+        DistanceKernel kernel = DistanceKernel.around(ORIGIN, DistanceMetric.HAVERSINE);
+
+        // A degree of longitude at 40.75N is shorter than a degree of latitude
+        assertTrue(kernel.rank(40.75, -73.99) < kernel.rank(40.76, -74.00));
+    }
+
+    @Test
+    void rankHaversineApproximatesHaversineAtCityScale() {
+        DistanceKernel kernel = DistanceKernel.around(ORIGIN, DistanceMetric.HAVERSINE);
+        double metersPerDegree = Math.toRadians(1) * RideMatchingCostants.EARTH_RADIUS_METERS;
+        Random random = new Random(3);
+
+        for (int i = 0; i < 1_000; i++) {
+            Location candidate = new Location(40.60 + random.nextDouble() * 0.3, -74.15 + random.nextDouble() * 0.3);
+            double approximate = Math.sqrt(kernel.rank(candidate)) * metersPerDegree;
+            double exact = DistanceCalculator.calculateDistance(DistanceMetric.HAVERSINE, ORIGIN, candidate);
+
+            assertEquals(exact, approximate, exact * 0.005 + 0.01);
+        }
+    }
+
+    @Test
+    void rankWithinRejectsCandidatesOutsideLatitudeBox() {
+        DistanceKernel kernel = DistanceKernel.around(ORIGIN, DistanceMetric.EUCLIDEAN);
+
+        assertEquals(Double.POSITIVE_INFINITY, kernel.rankWithin(40.80, -74.00, 0.0001));
+        assertEquals(kernel.rank(40.755, -74.005), kernel.rankWithin(40.755, -74.005, 0.0001));
+    }
+
+    @Test
+    void gapIsLowerBoundForPointsBeyondIt() {
+        DistanceKernel kernel = DistanceKernel.around(ORIGIN, DistanceMetric.HAVERSINE);
+        double degrees = 0.05;
+
+        assertTrue(kernel.rank(ORIGIN.getLatitude() + degrees * 1.01, ORIGIN.getLongitude()) >= kernel.gap(degrees));
+        assertTrue(kernel.rank(ORIGIN.getLatitude(), ORIGIN.getLongitude() - degrees * 1.01) >= kernel.gap(degrees));
+        assertEquals(kernel.longitudeGap(degrees), kernel.gap(degrees));
+    }
+
+    @Test
+    void rankHaversineWrapsAcrossAntimeridian() {
+        DistanceKernel kernel = DistanceKernel.around(new Location(-17.0, 179.99), DistanceMetric.HAVERSINE);
+
+        // 0.02 degrees east across the antimeridian ranks like 0.02 degrees west
+        assertEquals(kernel.rank(-17.0, 179.97), kernel.rank(-17.0, -179.99), 1e-12);
+        assertEquals(kernel.rank(-17.0, 179.97), kernel.rankWithin(-17.0, -179.99, 1.0), 1e-12);
+    }
+
+    @Test
+    void rankEuclideanDoesNotWrap() {
+        DistanceKernel kernel = DistanceKernel.around(new Location(0.0, 179.99), DistanceMetric.EUCLIDEAN);
+
+        assertEquals(359.98 * 359.98, kernel.rank(0.0, -179.99), 1e-6);
+    }
+
+    @Test
+    void withinKeepsPointExactlyOnTheDistance() {
+        Location candidate = new Location(40.80, -73.93);
+        for (DistanceMetric metric : DistanceMetric.values()) {
+            DistanceKernel kernel = DistanceKernel.around(ORIGIN, metric);
+            double distance = DistanceCalculator.calculateDistance(metric, ORIGIN, candidate);
+
+            assertTrue(kernel.within(candidate.getLatitude(), candidate.getLongitude(), distance), metric.name());
+            assertFalse(kernel.within(candidate.getLatitude(), candidate.getLongitude(), Math.nextDown(distance)),
+                    metric.name());
+        }
+    }
+
+    @Test
+    void rankBoundCoversEveryPointWithinTheDistance() {
+        Random random = new Random(17);
+
+        for (int i = 0; i < 10_000; i++) {
+            Location origin = new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+            double longitude = origin.getLongitude() + random.nextGaussian() * 2;
+            Location candidate = new Location(Math.max(-90, Math.min(90, origin.getLatitude() + random.nextGaussian())),
+                    Math.abs(longitude) > 180 ? longitude - Math.copySign(360, longitude) : longitude);
+            for (DistanceMetric metric : DistanceMetric.values()) {
+                DistanceKernel kernel = DistanceKernel.around(origin, metric);
+                double distance = DistanceCalculator.calculateDistance(metric, origin, candidate);
+
+                assertTrue(kernel.rank(candidate) <= kernel.rankBound(distance), origin + " to " + candidate);
+            }
+        }
+    }
+}
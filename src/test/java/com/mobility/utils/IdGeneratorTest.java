@@ -0,0 +1,67 @@
+package com.mobility.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    @Test
+    void generatedIdsRoundTripThroughKeys() {
+        long standalone = new IdGenerator(IdGenerator.STANDALONE_ORIGIN).nextRideKey();
+        long clustered = new IdGenerator(IdGenerator.nodeOrigin(3)).nextRideKey();
+
+        assertEquals("RIDE-" + IdGenerator.sequenceOf(standalone), IdGenerator.formatRideId(standalone));
+        assertEquals("N3-RIDE-" + IdGenerator.sequenceOf(clustered), IdGenerator.formatRideId(clustered));
+        assertEquals(standalone, IdGenerator.parseRideId(IdGenerator.formatRideId(standalone)));
+        assertEquals(clustered, IdGenerator.parseRideId(IdGenerator.formatRideId(clustered)));
+    }
+
+    @Test
+    void nodesNeverIssueTheSameKey() {
+        long sequence = 42;
+        long first = IdGenerator.parseRideId("N0-RIDE-" + sequence);
+        long second = IdGenerator.parseRideId("N1-RIDE-" + sequence);
+
+        assertNotEquals(first, second);
+        assertEquals(IdGenerator.nodeOrigin(0), IdGenerator.originOf(first));
+        assertEquals(IdGenerator.nodeOrigin(1), IdGenerator.originOf(second));
+        assertEquals(sequence, IdGenerator.sequenceOf(second));
+    }
+
+    @Test
+    void parseRejectsOtherStrings() {
+        String[] invalid = {null, "", "R1", "RIDE-", "RIDE-x1", "RIDE-01", "ride-1", "N-RIDE-1", "N1RIDE-1",
+                "N1-RIDE-", "Nx-RIDE-1", "N1-TRIP-1", "RIDE-1 ", "RIDE-99999999999999999999"};
+        for (String rideId : invalid) {
+            assertEquals(-1, IdGenerator.parseRideId(rideId), String.valueOf(rideId));
+        }
+    }
+
+    @Test
+    void advancePastSkipsRecoveredSequences() {
+        IdGenerator ids = new IdGenerator(IdGenerator.STANDALONE_ORIGIN);
+        ids.advancePast(100);
+        ids.advancePast(50);
+
+        assertEquals(101, IdGenerator.sequenceOf(ids.nextRideKey()));
+        assertEquals(101, ids.currentSequence());
+    }
+
+    @Test
+    void generatorsCountIndependently() {
+        IdGenerator first = new IdGenerator(IdGenerator.STANDALONE_ORIGIN);
+        IdGenerator second = new IdGenerator(IdGenerator.STANDALONE_ORIGIN);
+        first.nextRideKey();
+        first.nextRideKey();
+
+        assertEquals(1, IdGenerator.sequenceOf(second.nextRideKey()));
+        assertEquals(2, first.currentSequence());
+    }
+
+    @Test
+    void constructorRejectsOriginOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(1 << 16));
+    }
+}
@@ -0,0 +1,178 @@
+package com.mobility.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void scheduleFiresAtDeadlineNotBefore() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, 0);
+        wheel.schedule("a", 25);
+        List<String> expired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(20, expired::add));
+        assertEquals(0, wheel.advance(29, expired::add));
+        assertEquals(1, wheel.advance(30, expired::add));
+        assertEquals(List.of("a"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelPreventsExpiry() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, 0);
+        TimerWheel.Timeout<String> timeout = wheel.schedule("a", 15);
+        wheel.schedule("b", 15);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(1, wheel.size());
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(100, expired::add);
+        assertEquals(List.of("b"), expired);
+    }
+
+    @Test
+    void timeoutsBeyondOneRevolutionWaitForTheirOwnTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 4, 0);
+        // Same bucket as a timeout due one revolution earlier
+        wheel.schedule("late", 4 * TICK * 3);
+        wheel.schedule("early", 4 * TICK);
+        List<String> expired = new ArrayList<>();
+
+        for (long now = 0; now < 4 * TICK * 3; now += TICK) {
+            wheel.advance(now, expired::add);
+        }
+        assertEquals(List.of("early"), expired);
+
+        wheel.advance(4 * TICK * 3, expired::add);
+        assertEquals(List.of("early", "late"), expired);
+    }
+
+    @Test
+    void delaysCountFromTheLastAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, 1_000);
+        wheel.advance(1_500, task -> fail());
+        wheel.schedule("a", 30);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(1_520, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(1_530, expired::add);
+        assertEquals(List.of("a"), expired);
+        assertEquals(1_530, wheel.now());
+    }
+
+    @Test
+    void longPauseExpiresEverythingDue() {
+        TimerWheel<Integer> wheel = new TimerWheel<>(TICK, 16, 0);
+        for (int i = 0; i < 1_000; i++) {
+            wheel.schedule(i, i * 7L);
+        }
+        wheel.schedule(-1, 1_000_000);
+        List<Integer> expired = new ArrayList<>();
+
+        assertEquals(1_000, wheel.advance(100_000, expired::add));
+        assertEquals(1_000, expired.size());
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void callbackMayScheduleAgain() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, 0);
+        wheel.schedule("renew", 20);
+        List<Long> firedAt = new ArrayList<>();
+        AtomicLong now = new AtomicLong();
+
+        for (long t = 0; t <= 100; t += TICK) {
+            now.set(t);
+            wheel.advance(t, task -> {
+                firedAt.add(now.get());
+                wheel.schedule(task, 30);
+            });
+        }
+        assertEquals(List.of(20L, 50L, 80L), firedAt);
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void clearDropsPendingTimeouts() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, 0);
+        TimerWheel.Timeout<String> timeout = wheel.schedule("a", 10);
+        wheel.schedule("b", 500);
+
+        wheel.clear();
+
+        assertEquals(0, wheel.size());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.advance(1_000, task -> fail()));
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel<>(0, 8, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel<>(TICK, 0, 0));
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, 0);
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule(null, 10));
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule("a", -1));
+    }
+
+    @Test
+    void concurrentScheduleAndCancelWhileAdvancing() throws Exception {
+        TimerWheel<Integer> wheel = new TimerWheel<>(TICK, 64, 0);
+        AtomicLong clock = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Set<Integer> expired = ConcurrentHashMap.newKeySet();
+        Set<Integer> cancelled = ConcurrentHashMap.newKeySet();
+        int threads = 4;
+        int perThread = 20_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            Future<?> ticker = executor.submit(() -> {
+                while (running.get()) {
+                    wheel.advance(clock.addAndGet(TICK), task -> assertTrue(expired.add(task)));
+                }
+            });
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * perThread;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        TimerWheel.Timeout<Integer> timeout = wheel.schedule(base + i, (i % 50) * TICK);
+                        if (i % 3 == 0 && timeout.cancel()) {
+                            cancelled.add(base + i);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            running.set(false);
+            ticker.get();
+        } finally {
+            executor.shutdown();
+        }
+        wheel.advance(clock.get() + 100 * TICK, task -> assertTrue(expired.add(task)));
+
+        // Every timeout either expired exactly once or was cancelled before it could
+        assertEquals(threads * perThread, expired.size() + cancelled.size());
+        cancelled.forEach(task -> assertFalse(expired.contains(task)));
+        assertEquals(0, wheel.size());
+    }
+}